@@ -3,6 +3,7 @@ set -e
 
 FILES="
 graph-query-ir/pom.xml
+graph-query-engine/pom.xml
 pgql-lang/pom.xml
 "
 
@@ -29,6 +30,7 @@ do
 done
 
 cd graph-query-ir/; mvn deploy; cd ../
+cd graph-query-engine/; mvn deploy; cd ../
 cd pgql-lang/; mvn deploy; cd ../
 
 for f in $FILES
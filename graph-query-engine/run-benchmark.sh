@@ -0,0 +1,19 @@
+#!/bin/bash
+
+# Runs one of the benchmarks in src/benchmark/java, for example:
+#   bash run-benchmark.sh PathFinderBenchmark
+# Benchmarks that run PGQL queries need pgql-lang to be installed first (see ../install.sh).
+
+if [ $# -eq 0 ]
+  then
+    echo "ERROR: Please specify a benchmark, for example, 'bash run-benchmark.sh PathFinderBenchmark'."
+    exit
+fi
+
+export MAVEN_OPTS="-Xms512m -Xmx4g -Xss16m $MAVEN_OPTS"
+
+BENCHMARK="$1"
+shift
+
+mvn -Pbenchmark clean test-compile exec:java -Dexec.mainClass="oracle.pgql.lang.engine.$BENCHMARK" \
+    -Dexec.classpathScope=test -Dexec.args="$*" -Dexec.cleanupDaemonThreads=false
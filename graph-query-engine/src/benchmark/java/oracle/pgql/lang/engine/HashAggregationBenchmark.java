@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+import oracle.pgql.lang.engine.HashAggregation.GroupTable;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrCount;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrSum;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Star;
+
+/**
+ * Compares the {@link HashAggregation} with a baseline that groups by means of a {@code HashMap<List<Object>, ...>},
+ * for {@code SELECT k1, k2, COUNT(*), SUM(v) ... GROUP BY k1, k2} over synthetic rows with an increasing number of
+ * groups:
+ *
+ * <pre>
+ * bash run-benchmark.sh HashAggregationBenchmark [numRows] [iterations] [parallelism]
+ * </pre>
+ */
+public class HashAggregationBenchmark {
+
+  private static final int[] NUM_GROUPS = { 100, 10_000, 1_000_000 };
+
+  public static void main(String[] args) {
+    int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+    for (int numGroups : NUM_GROUPS) {
+      Random random = new Random(42);
+      long[] keys1 = new long[numRows];
+      long[] keys2 = new long[numRows];
+      long[] values = new long[numRows];
+      for (int i = 0; i < numRows; i++) {
+        keys1[i] = random.nextInt(numGroups);
+        keys2[i] = keys1[i] % 7;
+        values[i] = random.nextInt(1000);
+      }
+      System.out.printf("%d rows, %d groups%n", numRows, numGroups);
+
+      run("HashMap<List<Object>, long[]>", iterations, () -> aggregateWithHashMap(keys1, keys2, values));
+
+      HashAggregation aggregation = new HashAggregation(null, Long.MAX_VALUE);
+      aggregation.addKey(boxedColumn(keys1), primitiveColumn(keys1));
+      aggregation.addKey(boxedColumn(keys2), primitiveColumn(keys2));
+      aggregation.addAggregation(new AggrCount(false, new Star()), null, null);
+      aggregation.addAggregation(new AggrSum(false, new ConstInteger(0)), boxedColumn(values), primitiveColumn(values));
+      run("HashAggregation", iterations, () -> aggregate(aggregation, 0, numRows));
+      run("HashAggregation (" + parallelism + " threads)", iterations,
+          () -> aggregateInParallel(aggregation, numRows, parallelism));
+    }
+  }
+
+  private static void run(String description, int iterations, IntSupplier benchmark) {
+    // warm up
+    benchmark.getAsInt();
+
+    long best = Long.MAX_VALUE;
+    int numGroups = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      numGroups = benchmark.getAsInt();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.printf("%8d ms  %8d groups  %s%n", best / 1_000_000, numGroups, description);
+  }
+
+  private static int aggregateWithHashMap(long[] keys1, long[] keys2, long[] values) {
+    Map<List<Object>, long[]> groups = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      List<Object> key = Arrays.asList(keys1[i], keys2[i]);
+      long[] state = groups.computeIfAbsent(key, k -> new long[2]);
+      state[0]++;
+      state[1] = Math.addExact(state[1], values[i]);
+    }
+    return groups.size();
+  }
+
+  private static int aggregate(HashAggregation aggregation, int fromRow, int toRow) {
+    GroupTable table = fillTable(aggregation, fromRow, toRow);
+    return countGroups(table);
+  }
+
+  private static GroupTable fillTable(HashAggregation aggregation, int fromRow, int toRow) {
+    GroupTable table = aggregation.createTable();
+    Frame frame = new Frame(new Object[0], 1, 0);
+    for (int i = fromRow; i < toRow; i++) {
+      frame.elements[0] = i;
+      table.add(frame);
+    }
+    return table;
+  }
+
+  private static int aggregateInParallel(HashAggregation aggregation, int numRows, int parallelism) {
+    int numTasks = parallelism * 4;
+    List<GroupTable> partialTables = new ArrayList<>();
+    IntStream.range(0, numTasks).parallel() //
+        .mapToObj(task -> fillTable(aggregation, (int) ((long) numRows * task / numTasks),
+            (int) ((long) numRows * (task + 1) / numTasks))) //
+        .forEachOrdered(partialTables::add);
+    GroupTable table = aggregation.createTable();
+    for (GroupTable partialTable : partialTables) {
+      table.merge(partialTable);
+    }
+    return countGroups(table);
+  }
+
+  private static int countGroups(GroupTable table) {
+    int[] numGroups = new int[1];
+    table.forEachGroup(values -> numGroups[0]++);
+    return numGroups[0];
+  }
+
+  private static Evaluator boxedColumn(long[] values) {
+    return frame -> values[frame.elements[0]];
+  }
+
+  private static PrimitiveEvaluator primitiveColumn(long[] values) {
+    return new PrimitiveEvaluator() {
+
+      @Override
+      public PrimitiveType getType() {
+        return PrimitiveType.LONG;
+      }
+
+      @Override
+      public boolean isNull(Frame frame) {
+        return false;
+      }
+
+      @Override
+      public long evaluate(Frame frame) {
+        return values[frame.elements[0]];
+      }
+    };
+  }
+}
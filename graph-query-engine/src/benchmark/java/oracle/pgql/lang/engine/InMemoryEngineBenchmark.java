@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import oracle.pgql.lang.Pgql;
+import oracle.pgql.lang.PgqlException;
+
+/**
+ * Measures the throughput of the {@link InMemoryEngine} on a random graph with millions of edges, for an increasing
+ * number of threads:
+ *
+ * <pre>
+ * bash run-benchmark.sh InMemoryEngineBenchmark [numVertices] [numEdges] [iterations] [parallelism...]
+ * </pre>
+ *
+ * By default, the parallelism is doubled from 1 up to the number of available processors.
+ */
+public class InMemoryEngineBenchmark {
+
+  private static final String[] QUERIES = { //
+      "SELECT COUNT(*) FROM MATCH (n:Person) -[:knows]-> (m:Person) WHERE n.age < m.age", //
+      "SELECT COUNT(*) FROM MATCH (n:Person) -[:knows]-> (m) -[:knows]-> (o) WHERE n.age = 30", //
+      "SELECT n.age, COUNT(*) AS cnt FROM MATCH (n:Person) -[:likes]-> (p:Post) GROUP BY n.age ORDER BY cnt DESC", //
+      "SELECT n.age FROM MATCH (n:Person) -[:knows]-> (m:Person) LIMIT 100", //
+      "SELECT n, m FROM MATCH (n:Person) -[:knows]-> (m:Person) ORDER BY n.age + m.age DESC LIMIT 20" };
+
+  public static void main(String[] args) throws Exception {
+    int numVertices = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+    int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    List<Integer> parallelisms = new ArrayList<>();
+    for (int i = 3; i < args.length; i++) {
+      parallelisms.add(Integer.parseInt(args[i]));
+    }
+    if (parallelisms.isEmpty()) {
+      int numProcessors = Runtime.getRuntime().availableProcessors();
+      for (int parallelism = 1; parallelism < numProcessors; parallelism *= 2) {
+        parallelisms.add(parallelism);
+      }
+      parallelisms.add(numProcessors);
+    }
+
+    long start = System.nanoTime();
+    CsrGraph graph = generateGraph(numVertices, numEdges, new Random(42));
+    System.out.printf("Built %s in %d ms%n", graph, (System.nanoTime() - start) / 1_000_000);
+
+    try (Pgql pgql = new Pgql()) {
+      for (int parallelism : parallelisms) {
+        System.out.printf("parallelism %d%n", parallelism);
+        InMemoryEngine engine = new InMemoryEngine(graph, parallelism);
+        for (String query : QUERIES) {
+          run(engine, pgql, query, iterations);
+        }
+      }
+    }
+  }
+
+  private static void run(InMemoryEngine engine, Pgql pgql, String query, int iterations) throws PgqlException {
+    try (InMemoryPreparedStatement stmnt = engine.prepareStatement(pgql.parse(query).getPgqlStatement())) {
+      // warm up
+      stmnt.executeQuery();
+
+      long best = Long.MAX_VALUE;
+      int numResults = 0;
+      for (int i = 0; i < iterations; i++) {
+        long start = System.nanoTime();
+        numResults = stmnt.executeQuery().getNumResults();
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      System.out.printf("%8d ms  %6d rows  %s%n", best / 1_000_000, numResults, query);
+    }
+  }
+
+  /**
+   * Generates a graph in which 80% of the vertices are persons with an age and 20% are posts. Persons know other
+   * persons and like posts.
+   */
+  static CsrGraph generateGraph(int numVertices, int numEdges, Random random) {
+    CsrGraphBuilder builder = new CsrGraphBuilder();
+    int numPersons = numVertices / 5 * 4;
+    for (int v = 0; v < numVertices; v++) {
+      if (v < numPersons) {
+        builder.addVertex("Person");
+        builder.setVertexProperty(v, "age", 18 + random.nextInt(60));
+      } else {
+        builder.addVertex("Post");
+      }
+    }
+    int numPosts = numVertices - numPersons;
+    for (int e = 0; e < numEdges; e++) {
+      int src = random.nextInt(numPersons);
+      if (numPosts > 0 && random.nextInt(4) == 0) {
+        builder.addEdge(src, numPersons + random.nextInt(numPosts), "likes");
+      } else {
+        builder.addEdge(src, random.nextInt(numPersons), "knows");
+      }
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.PathFindingGoal;
+
+/**
+ * Measures the {@link PathFinder} on square grids of increasing size, and hence of increasing diameter, searching for
+ * paths between opposite corners:
+ *
+ * <pre>
+ * bash run-benchmark.sh PathFinderBenchmark [iterations] [sides...]
+ * </pre>
+ */
+public class PathFinderBenchmark {
+
+  public static void main(String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int[] sides = { 100, 300, 1000, 2000 };
+    if (args.length > 1) {
+      sides = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        sides[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+
+    for (int side : sides) {
+      CsrGraph graph = generateGrid(side);
+      Random random = new Random(42);
+      double[] weights = new double[graph.getNumEdges()];
+      for (int e = 0; e < weights.length; e++) {
+        weights[e] = 1 + random.nextInt(10);
+      }
+      IntToDoubleFunction edgeCost = e -> weights[e];
+      Adjacency adjacency = new CsrAdjacency(graph, Direction.ANY, null);
+      int src = 0;
+      int dst = graph.getNumVertices() - 1;
+      System.out.printf("grid %d x %d (diameter %d, %d edges)%n", side, side, 2 * (side - 1), graph.getNumEdges());
+
+      run("REACHES", new PathFinder(PathFindingGoal.REACHES, 1, -1, 1, false, adjacency, null), src, dst,
+          iterations);
+      run("ANY SHORTEST", new PathFinder(PathFindingGoal.SHORTEST, 1, -1, 1, false, adjacency, null), src, dst,
+          iterations);
+      run("TOP 3 SHORTEST", new PathFinder(PathFindingGoal.SHORTEST, 1, -1, 3, false, adjacency, null), src, dst,
+          iterations);
+      run("ANY CHEAPEST", new PathFinder(PathFindingGoal.CHEAPEST, 1, -1, 1, false, adjacency, edgeCost), src, dst,
+          iterations);
+      run("TOP 3 CHEAPEST", new PathFinder(PathFindingGoal.CHEAPEST, 1, -1, 3, false, adjacency, edgeCost), src, dst,
+          iterations);
+    }
+  }
+
+  private static void run(String description, PathFinder pathFinder, int src, int dst, int iterations) {
+    // warm up
+    pathFinder.findPaths(src, dst);
+
+    long best = Long.MAX_VALUE;
+    int numPaths = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      numPaths = pathFinder.findPaths(src, dst).size();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.printf("%10.3f ms  %d paths  %s%n", best / 1e6, numPaths, description);
+  }
+
+  /**
+   * Generates a grid in which every vertex has an edge to its right and its bottom neighbor.
+   */
+  static CsrGraph generateGrid(int side) {
+    CsrGraphBuilder builder = new CsrGraphBuilder();
+    for (int v = 0; v < side * side; v++) {
+      builder.addVertex("Cell");
+    }
+    for (int row = 0; row < side; row++) {
+      for (int column = 0; column < side; column++) {
+        int v = row * side + column;
+        if (column + 1 < side) {
+          builder.addEdge(v, v + 1, "right");
+        }
+        if (row + 1 < side) {
+          builder.addEdge(v, v + side, "down");
+        }
+      }
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.export.ArrowIpcExporter;
+import oracle.pgql.lang.export.CsvExporter;
+import oracle.pgql.lang.export.JsonLinesExporter;
+import oracle.pgql.lang.export.ResultSetExporter;
+
+/**
+ * Measures the throughput of the exporters on synthetic rows with an integer, a floating point number, a boolean and a
+ * string column, compared with a baseline that writes CSV through a {@link BufferedWriter} with a string per value.
+ * The output is discarded, so that only the encoding is measured:
+ *
+ * <pre>
+ * bash run-benchmark.sh ResultSetExporterBenchmark [numRows] [iterations]
+ * </pre>
+ */
+public class ResultSetExporterBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int numRows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    Random random = new Random(42);
+    List<Object[]> rows = new ArrayList<>(numRows);
+    for (int i = 0; i < numRows; i++) {
+      rows.add(new Object[] { random.nextLong(), random.nextDouble() * 1000, random.nextBoolean(),
+          random.nextInt(10) == 0 ? null : "name" + random.nextInt(1000) });
+    }
+    InMemoryResultSetMetaData metaData = new InMemoryResultSetMetaData(Arrays.asList("id", "score", "flag", "name"),
+        Arrays.asList("LONG", "DOUBLE", "BOOLEAN", "STRING"));
+    System.out.printf("%d rows%n", numRows);
+
+    run("BufferedWriter (CSV)", iterations, () -> exportWithWriter(new InMemoryResultSet(metaData, rows, null)));
+    run("CsvExporter", iterations, () -> export(new CsvExporter(), new InMemoryResultSet(metaData, rows, null)));
+    run("JsonLinesExporter", iterations,
+        () -> export(new JsonLinesExporter(), new InMemoryResultSet(metaData, rows, null)));
+    run("ArrowIpcExporter", iterations,
+        () -> export(new ArrowIpcExporter(), new InMemoryResultSet(metaData, rows, null)));
+  }
+
+  private interface Export {
+
+    long run() throws Exception;
+  }
+
+  private static void run(String description, int iterations, Export export) throws Exception {
+    // warm up
+    export.run();
+
+    long best = Long.MAX_VALUE;
+    long numBytes = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      numBytes = export.run();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.printf("%8d ms  %8.1f MB/s  %s%n", best / 1_000_000, numBytes / (best / 1e9) / 1e6, description);
+  }
+
+  /**
+   * @return the number of bytes that were written
+   */
+  private static long export(ResultSetExporter exporter, InMemoryResultSet resultSet)
+      throws PgqlException, IOException {
+    CountingChannel channel = new CountingChannel();
+    exporter.export(resultSet, channel);
+    return channel.numBytes;
+  }
+
+  private static long exportWithWriter(InMemoryResultSet resultSet) throws PgqlException, IOException {
+    CountingStream stream = new CountingStream();
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+      int numColumns = resultSet.getMetaData().getColumnCount();
+      while (resultSet.next()) {
+        for (int i = 1; i <= numColumns; i++) {
+          if (i > 1) {
+            writer.write(',');
+          }
+          Object value = resultSet.getObject(i);
+          if (value != null) {
+            writer.write(String.valueOf(value));
+          }
+        }
+        writer.write("\r\n");
+      }
+    }
+    return stream.numBytes;
+  }
+
+  private static final class CountingChannel implements WritableByteChannel {
+
+    long numBytes;
+
+    @Override
+    public int write(ByteBuffer buffer) {
+      int numWritten = buffer.remaining();
+      buffer.position(buffer.limit());
+      numBytes += numWritten;
+      return numWritten;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static final class CountingStream extends OutputStream {
+
+    long numBytes;
+
+    @Override
+    public void write(int b) {
+      numBytes++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      numBytes += length;
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+import oracle.pgql.lang.ir.QueryExpression.Aggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+
+/**
+ * Computes the result of an aggregation over the rows of a group. NULL values are ignored, except by COUNT(*).
+ */
+abstract class Accumulator {
+
+  /**
+   * @param value
+   *          the (non-null) value of the argument of the aggregation for the next row of the group
+   */
+  abstract void add(Object value);
+
+  /**
+   * @return the result of the aggregation, which is NULL for an empty group, except for COUNT which returns 0
+   */
+  abstract Object getResult();
+
+  /**
+   * Add the rows of another accumulator for the same aggregation, as if they were added to this accumulator after its
+   * own rows. Used for combining the partial results of parallel aggregation.
+   */
+  abstract void merge(Accumulator other);
+
+  /**
+   * @return a supplier of accumulators for the given aggregation
+   */
+  static Supplier<Accumulator> getFactory(Aggregation aggregation) {
+    Supplier<Accumulator> factory;
+    switch (aggregation.getExpType()) {
+      case AGGR_COUNT:
+        factory = Count::new;
+        break;
+      case AGGR_MIN:
+        factory = () -> new MinMax(true);
+        break;
+      case AGGR_MAX:
+        factory = () -> new MinMax(false);
+        break;
+      case AGGR_SUM:
+        factory = Sum::new;
+        break;
+      case AGGR_AVG:
+        factory = Avg::new;
+        break;
+      case AGGR_ARRAY_AGG:
+        factory = ArrayAgg::new;
+        break;
+      case AGGR_LISTAGG: {
+        String separator = ((AggrListagg) aggregation).getSeparator();
+        factory = () -> new Listagg(separator == null ? "" : separator);
+        break;
+      }
+      default:
+        throw new IllegalArgumentException(aggregation.getExpType().toString());
+    }
+    if (((AbstractAggregation) aggregation).isDistinct()) {
+      Supplier<Accumulator> nonDistinctFactory = factory;
+      return () -> new Distinct(nonDistinctFactory.get());
+    }
+    return factory;
+  }
+
+  private static class Count extends Accumulator {
+
+    long count;
+
+    @Override
+    void add(Object value) {
+      count++;
+    }
+
+    @Override
+    Object getResult() {
+      return count;
+    }
+
+    @Override
+    void merge(Accumulator other) {
+      count += ((Count) other).count;
+    }
+  }
+
+  private static class MinMax extends Accumulator {
+
+    final boolean min;
+
+    Object result;
+
+    MinMax(boolean min) {
+      this.min = min;
+    }
+
+    @Override
+    void add(Object value) {
+      if (result == null) {
+        result = value;
+      } else {
+        int comparison = ValueUtils.compare(value, result);
+        if (min ? comparison < 0 : comparison > 0) {
+          result = value;
+        }
+      }
+    }
+
+    @Override
+    Object getResult() {
+      return result;
+    }
+
+    @Override
+    void merge(Accumulator other) {
+      Object otherResult = ((MinMax) other).result;
+      if (otherResult != null) {
+        add(otherResult);
+      }
+    }
+  }
+
+  private static class Sum extends Accumulator {
+
+    Object sum;
+
+    @Override
+    void add(Object value) {
+      if (!ValueUtils.isNumeric(value)) {
+        throw new IllegalArgumentException("Cannot compute SUM of " + value);
+      }
+      if (sum == null) {
+        sum = ValueUtils.isIntegral(value) ? (Object) ((Number) value).longValue() : ((Number) value).doubleValue();
+      } else {
+        sum = ValueUtils.add(sum, value);
+      }
+    }
+
+    @Override
+    Object getResult() {
+      return sum;
+    }
+
+    @Override
+    void merge(Accumulator other) {
+      Object otherSum = ((Sum) other).sum;
+      if (otherSum != null) {
+        sum = sum == null ? otherSum : ValueUtils.add(sum, otherSum);
+      }
+    }
+  }
+
+  private static class Avg extends Accumulator {
+
+    double sum;
+
+    long count;
+
+    @Override
+    void add(Object value) {
+      if (!ValueUtils.isNumeric(value)) {
+        throw new IllegalArgumentException("Cannot compute AVG of " + value);
+      }
+      sum += ((Number) value).doubleValue();
+      count++;
+    }
+
+    @Override
+    Object getResult() {
+      return count == 0 ? null : sum / count;
+    }
+
+    @Override
+    void merge(Accumulator other) {
+      sum += ((Avg) other).sum;
+      count += ((Avg) other).count;
+    }
+  }
+
+  private static class ArrayAgg extends Accumulator {
+
+    final List<Object> values = new ArrayList<>();
+
+    @Override
+    void add(Object value) {
+      values.add(value);
+    }
+
+    @Override
+    Object getResult() {
+      return values.isEmpty() ? null : values;
+    }
+
+    @Override
+    void merge(Accumulator other) {
+      values.addAll(((ArrayAgg) other).values);
+    }
+  }
+
+  private static class Listagg extends Accumulator {
+
+    final StringJoiner joiner;
+
+    boolean empty = true;
+
+    Listagg(String separator) {
+      joiner = new StringJoiner(separator);
+    }
+
+    @Override
+    void add(Object value) {
+      joiner.add(value.toString());
+      empty = false;
+    }
+
+    @Override
+    Object getResult() {
+      return empty ? null : joiner.toString();
+    }
+
+    @Override
+    void merge(Accumulator other) {
+      Listagg otherListagg = (Listagg) other;
+      if (!otherListagg.empty) {
+        joiner.merge(otherListagg.joiner);
+        empty = false;
+      }
+    }
+  }
+
+  private static class Distinct extends Accumulator {
+
+    final Accumulator accumulator;
+
+    /**
+     * The distinct values in the order in which they were first seen.
+     */
+    final Set<RowKey> seen = new LinkedHashSet<>();
+
+    Distinct(Accumulator accumulator) {
+      this.accumulator = accumulator;
+    }
+
+    @Override
+    void add(Object value) {
+      if (seen.add(new RowKey(new Object[] { value }))) {
+        accumulator.add(value);
+      }
+    }
+
+    @Override
+    Object getResult() {
+      return accumulator.getResult();
+    }
+
+    @Override
+    void merge(Accumulator other) {
+      for (RowKey value : ((Distinct) other).seen) {
+        add(value.getValues()[0]);
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+/**
+ * The hops that a path can make, as seen by the {@link PathFinder}. Vertices are numbered from 0 to
+ * {@link #getNumVertices()} - 1 and every hop is identified by the ID of the edge that it traverses.
+ */
+public interface Adjacency {
+
+  @FunctionalInterface
+  interface NeighborVisitor {
+
+    /**
+     * @param edge
+     *          the edge that is traversed
+     * @param neighbor
+     *          the vertex at the other end of the edge
+     */
+    void visit(int edge, int neighbor);
+  }
+
+  int getNumVertices();
+
+  /**
+   * Visit the hops that lead away from the given vertex in the direction of the path or, if reverse is true, the hops
+   * that lead towards the given vertex.
+   */
+  void forEachNeighbor(int vertex, boolean reverse, NeighborVisitor visitor);
+}
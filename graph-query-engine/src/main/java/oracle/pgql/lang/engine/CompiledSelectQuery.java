@@ -0,0 +1,591 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.engine.HashAggregation.GroupTable;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GroupBy;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.PgqlUtils;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.planner.MatchPlan;
+
+/**
+ * A SELECT query that is compiled against a {@link CsrGraph}. Execution is a pipeline of pattern matching, grouping and
+ * aggregation (if any), HAVING, projection, DISTINCT, ORDER BY and OFFSET/LIMIT.
+ *
+ * Rows are arrays that hold the values of the SELECT clause followed by the values of the ORDER BY clause; the latter
+ * are removed once the rows are sorted.
+ *
+ * Given a fork/join pool, pattern matching as well as the projection or the aggregation of the matches is done in
+ * parallel. Every task produces its own list of rows or its own groups, which are combined in the order of the tasks so
+ * that the result is the same as for sequential execution.
+ *
+ * ORDER BY with LIMIT is done by means of a {@link TopK} heap that only keeps OFFSET + LIMIT rows.
+ *
+ * Queries without grouping, DISTINCT and ORDER BY can also be streamed, in which case every row is produced on demand
+ * rather than collected.
+ */
+final class CompiledSelectQuery {
+
+  /**
+   * The maximum value of OFFSET + LIMIT for which ORDER BY is done by means of a bounded heap. For larger values,
+   * sorting all the rows is just as good.
+   */
+  private static final long MAX_TOP_K = 1 << 20;
+
+  private final InMemoryResultSetMetaData metaData;
+
+  private final ExpressionCompiler compiler;
+
+  private final Scope matchScope = new Scope();
+
+  private final PatternMatcher matcher;
+
+  private final boolean aggregating;
+
+  private final CsrGraph graph;
+
+  private final long aggregationMemoryBudget;
+
+  private HashAggregation aggregation;
+
+  private Scope groupScope;
+
+  private Evaluator having;
+
+  private final Evaluator[] projection;
+
+  private final int[] projectionSlots;
+
+  private final Evaluator[] orderKeys;
+
+  private final boolean[] ascending;
+
+  /**
+   * Without aggregation, the ORDER BY keys compiled against the match scope before the elements of the SELECT clause
+   * are added to it, such that they can be evaluated before the row is created. The same keys as primitive evaluators,
+   * with null entries for keys that are not primitive.
+   */
+  private Evaluator[] matchOrderKeys;
+
+  private PrimitiveEvaluator[] primitiveOrderKeys;
+
+  private final boolean distinct;
+
+  private final Evaluator offset;
+
+  private final Evaluator limit;
+
+  /**
+   * @param aggregationMemoryBudget
+   *          the number of bytes that a hash table for grouping may take before its groups are spilled to disk
+   */
+  CompiledSelectQuery(SelectQuery query, MatchPlan plan, CsrGraph graph, long aggregationMemoryBudget)
+      throws PgqlException {
+    this.compiler = new ExpressionCompiler(graph);
+    this.graph = graph;
+    this.aggregationMemoryBudget = aggregationMemoryBudget;
+
+    GraphPattern graphPattern = query.getGraphPattern();
+    if (graphPattern != null) {
+      for (QueryVariable vertex : graphPattern.getVertices()) {
+        matchScope.addElement(vertex);
+      }
+      for (VertexPairConnection connection : graphPattern.getConnections()) {
+        matchScope.addElement(connection);
+        if (connection.getVariableType() == VariableType.PATH) {
+          QueryVariable unnestVariable = PatternMatcher.getUnnestVariable((QueryPath) connection);
+          if (unnestVariable != null) {
+            matchScope.addElement(unnestVariable);
+          }
+        }
+      }
+    }
+    this.matcher = new PatternMatcher(plan, matchScope, compiler);
+
+    List<ExpAsVar> selectElements = query.getProjection().getElements();
+    List<OrderByElem> orderByElements = query.getOrderBy().getElements();
+    this.aggregating = query.getGroupBy() != null || hasAggregations(query);
+    this.distinct = query.getProjection().isDistinct();
+
+    if (!aggregating) {
+      matchOrderKeys = new Evaluator[orderByElements.size()];
+      primitiveOrderKeys = new PrimitiveEvaluator[orderByElements.size()];
+      for (int i = 0; i < matchOrderKeys.length; i++) {
+        QueryExpression exp = orderByElements.get(i).getExp();
+        matchOrderKeys[i] = compiler.compile(exp, matchScope);
+        primitiveOrderKeys[i] = compiler.compilePrimitive(exp, matchScope);
+      }
+    }
+
+    Scope projectionScope = aggregating ? compileGrouping(query) : matchScope;
+    projection = new Evaluator[selectElements.size()];
+    projectionSlots = new int[selectElements.size()];
+    List<String> columnNames = new ArrayList<>();
+    List<String> columnTypeNames = new ArrayList<>();
+    for (int i = 0; i < projection.length; i++) {
+      ExpAsVar expAsVar = selectElements.get(i);
+      columnNames.add(expAsVar.getName());
+      columnTypeNames.add(compiler.getTypeName(expAsVar.getExp(), projectionScope));
+      projection[i] = compiler.compile(expAsVar.getExp(), projectionScope);
+      // register after compiling, since an ExpAsVar cannot refer to itself
+      projectionSlots[i] = projectionScope.addValue(expAsVar);
+    }
+    metaData = new InMemoryResultSetMetaData(columnNames, columnTypeNames);
+    if (query.getHaving() != null) {
+      having = compiler.compile(query.getHaving(), projectionScope);
+    }
+
+    orderKeys = new Evaluator[orderByElements.size()];
+    ascending = new boolean[orderByElements.size()];
+    for (int i = 0; i < orderKeys.length; i++) {
+      orderKeys[i] = compiler.compile(orderByElements.get(i).getExp(), projectionScope);
+      ascending[i] = orderByElements.get(i).isAscending();
+    }
+
+    Scope emptyScope = new Scope();
+    offset = query.getOffset() == null ? null : compiler.compile(query.getOffset(), emptyScope);
+    limit = query.getLimit() == null ? null : compiler.compile(query.getLimit(), emptyScope);
+  }
+
+  private static boolean hasAggregations(SelectQuery query) {
+    for (ExpAsVar expAsVar : query.getProjection().getElements()) {
+      if (!PgqlUtils.getAggregations(expAsVar.getExp()).isEmpty()) {
+        return true;
+      }
+    }
+    for (OrderByElem orderByElem : query.getOrderBy().getElements()) {
+      if (!PgqlUtils.getAggregations(orderByElem.getExp()).isEmpty()) {
+        return true;
+      }
+    }
+    return query.getHaving() != null && !PgqlUtils.getAggregations(query.getHaving()).isEmpty();
+  }
+
+  /**
+   * Compile the grouping keys and the arguments of the aggregations against the match scope, and create the scope in
+   * which the SELECT, HAVING and ORDER BY expressions are evaluated after grouping: the grouping keys followed by the
+   * results of the aggregations.
+   *
+   * @return the scope after grouping
+   */
+  private Scope compileGrouping(SelectQuery query) throws PgqlException {
+    groupScope = new Scope();
+    aggregation = new HashAggregation(graph, aggregationMemoryBudget);
+
+    GroupBy groupBy = query.getGroupBy();
+    List<ExpAsVar> groupElements = groupBy == null ? Collections.emptyList() : groupBy.getElements();
+    for (ExpAsVar expAsVar : groupElements) {
+      QueryExpression key = expAsVar.getExp();
+      aggregation.addKey(compiler.compile(key, matchScope), compiler.compilePrimitive(key, matchScope));
+      int slot = groupScope.addValue(expAsVar);
+      // GROUP BY n.age AS age ... SELECT n.age
+      groupScope.addValue(expAsVar.getExp(), slot);
+      if (expAsVar.getExp().getExpType() == ExpressionType.VARREF) {
+        // GROUP BY n ... SELECT n.name
+        groupScope.addValue(((VarRef) expAsVar.getExp()).getVariable(), slot);
+      }
+    }
+
+    Set<Aggregation> aggregations = new HashSet<>();
+    for (ExpAsVar expAsVar : query.getProjection().getElements()) {
+      aggregations.addAll(PgqlUtils.getAggregations(expAsVar.getExp()));
+    }
+    for (OrderByElem orderByElem : query.getOrderBy().getElements()) {
+      aggregations.addAll(PgqlUtils.getAggregations(orderByElem.getExp()));
+    }
+    if (query.getHaving() != null) {
+      aggregations.addAll(PgqlUtils.getAggregations(query.getHaving()));
+    }
+
+    for (Aggregation aggr : aggregations) {
+      QueryExpression argument = ((UnaryExpression) aggr).getExp();
+      if (argument.getExpType() == ExpressionType.STAR) {
+        aggregation.addAggregation(aggr, null, null);
+      } else {
+        aggregation.addAggregation(aggr, compiler.compile(argument, matchScope),
+            compiler.compilePrimitive(argument, matchScope));
+      }
+      groupScope.addValue(aggr);
+    }
+    return groupScope;
+  }
+
+  InMemoryResultSetMetaData getMetaData() {
+    return metaData;
+  }
+
+  int getNumBindVariables() {
+    return compiler.getNumBindVariables();
+  }
+
+  private Frame createMatchFrame(Object[] parameters) {
+    return new Frame(parameters, matchScope.getNumElements(), matchScope.getNumValues());
+  }
+
+  /**
+   * @param parameters
+   *          the values of the bind variables
+   * @param pool
+   *          the pool in which to match in parallel, or null to match sequentially
+   * @return the rows of the result
+   */
+  List<Object[]> execute(Object[] parameters, ForkJoinPool pool) {
+    Frame frame = createMatchFrame(parameters);
+    long offsetValue = offset == null ? 0 : evaluateLimitOrOffset(offset, frame, "OFFSET");
+    long limitValue = limit == null ? -1 : evaluateLimitOrOffset(limit, frame, "LIMIT");
+
+    long numRowsToKeep = getNumRowsToKeep(offsetValue, limitValue);
+    if (orderKeys.length > 0 && !distinct && numRowsToKeep != -1 && numRowsToKeep <= MAX_TOP_K) {
+      return stripOrderKeys(selectTopK(parameters, pool, (int) numRowsToKeep), offsetValue, limitValue);
+    }
+
+    List<Object[]> rows;
+    if (distinct) {
+      rows = selectDistinct(parameters, pool);
+    } else if (aggregating) {
+      rows = new ArrayList<>();
+      aggregate(parameters, pool, rows::add);
+    } else {
+      rows = new ArrayList<>();
+      // without ORDER BY, matching can stop as soon as enough rows are produced
+      long maxRows = orderKeys.length > 0 ? -1 : numRowsToKeep;
+      if (maxRows == -1 && pool != null) {
+        List<List<Object[]>> buffers = matcher.matchInParallel(pool, () -> createMatchFrame(parameters),
+            ArrayList::new, (buffer, f) -> buffer.add(createRow(f)));
+        for (List<Object[]> buffer : buffers) {
+          rows.addAll(buffer);
+        }
+      } else if (maxRows != 0) {
+        matcher.match(frame, f -> {
+          rows.add(createRow(f));
+          return maxRows == -1 || rows.size() < maxRows;
+        });
+      }
+    }
+
+    if (orderKeys.length > 0) {
+      rows.sort(createComparator());
+    }
+    return stripOrderKeys(rows, offsetValue, limitValue);
+  }
+
+  /**
+   * @return whether the query can be {@link #stream(Object[]) streamed}, which is the case if the rows do not depend on
+   *         each other: there is no grouping, DISTINCT or ORDER BY
+   */
+  boolean isStreamable() {
+    return !aggregating && !distinct && orderKeys.length == 0;
+  }
+
+  /**
+   * Execute the query sequentially and produce the rows one at a time, as they are requested, such that the memory
+   * usage does not depend on the number of rows. The rows are the same as the rows returned by
+   * {@link #execute(Object[], ForkJoinPool)}, in the same order.
+   *
+   * @param parameters
+   *          the values of the bind variables
+   */
+  StreamedRows stream(Object[] parameters) {
+    return new StreamedRows(parameters);
+  }
+
+  /**
+   * The rows of a streamed query. Every call of {@link #next()} advances the pattern matching until the next row is
+   * found, on the calling thread, so the rows must be closed if they are not consumed until the end, such that the
+   * matching releases its resources.
+   */
+  final class StreamedRows implements AutoCloseable {
+
+    private final Frame frame;
+
+    /**
+     * The matches, or null if the execution did not start yet.
+     */
+    private PatternMatcher.Matches matches;
+
+    private long offsetValue;
+
+    private long numRowsToKeep;
+
+    private long numMatches;
+
+    /**
+     * The row that was produced by {@link #hasNext()} but not yet returned by {@link #next()}.
+     */
+    private Object[] nextRow;
+
+    private boolean ended;
+
+    private StreamedRows(Object[] parameters) {
+      frame = createMatchFrame(parameters);
+    }
+
+    /**
+     * @return the next row, or null if there are no more rows
+     */
+    Object[] next() {
+      Object[] row = hasNext() ? nextRow : null;
+      nextRow = null;
+      return row;
+    }
+
+    /**
+     * @return whether there is a next row, which is produced if needed
+     */
+    boolean hasNext() {
+      if (nextRow != null) {
+        return true;
+      }
+      if (ended) {
+        return false;
+      }
+      try {
+        if (matches == null) {
+          // OFFSET and LIMIT are evaluated as part of the execution, such that errors are reported while fetching rows
+          offsetValue = offset == null ? 0 : evaluateLimitOrOffset(offset, frame, "OFFSET");
+          long limitValue = limit == null ? -1 : evaluateLimitOrOffset(limit, frame, "LIMIT");
+          numRowsToKeep = getNumRowsToKeep(offsetValue, limitValue);
+          matches = matcher.matches(frame);
+        }
+        while ((numRowsToKeep == -1 || numMatches < numRowsToKeep) && matches.next()) {
+          numMatches++;
+          if (numMatches > offsetValue) {
+            nextRow = createRow(frame);
+            return true;
+          }
+        }
+      } catch (RuntimeException | Error e) {
+        // the rows are not complete, so there is no next row either after a failure
+        close();
+        throw e;
+      }
+      close();
+      return false;
+    }
+
+    @Override
+    public void close() {
+      ended = true;
+      if (matches != null) {
+        matches.close();
+      }
+    }
+  }
+
+  /**
+   * Select the first rows according to the ORDER BY clause by means of a bounded heap rather than by sorting all rows.
+   * Without aggregation, every task keeps its own heap and the heaps are merged at the end.
+   *
+   * @return the first numRows rows, in order
+   */
+  private List<Object[]> selectTopK(Object[] parameters, ForkJoinPool pool, int numRows) {
+    if (numRows == 0) {
+      return new ArrayList<>();
+    }
+    if (aggregating) {
+      TopK topK = new TopK(numRows, new PrimitiveEvaluator[orderKeys.length], null, ascending, projection.length,
+          null);
+      aggregate(parameters, pool, topK::offerRow);
+      return topK.getRows();
+    }
+
+    Supplier<TopK> topKFactory = () -> new TopK(numRows, primitiveOrderKeys, matchOrderKeys, ascending,
+        projection.length, this::createRow);
+    TopK topK = topKFactory.get();
+    if (pool == null) {
+      matcher.match(createMatchFrame(parameters), f -> {
+        topK.offer(f);
+        return true;
+      });
+    } else {
+      for (TopK partial : matcher.matchInParallel(pool, () -> createMatchFrame(parameters), topKFactory,
+          TopK::offer)) {
+        topK.merge(partial);
+      }
+    }
+    return topK.getRows();
+  }
+
+  /**
+   * Apply OFFSET and LIMIT to the ordered rows and remove the values of the ORDER BY clause from the rows.
+   */
+  private List<Object[]> stripOrderKeys(List<Object[]> result, long offsetValue, long limitValue) {
+    int fromIndex = (int) Math.min(offsetValue, result.size());
+    long numRowsToKeep = getNumRowsToKeep(offsetValue, limitValue);
+    int toIndex = numRowsToKeep == -1 ? result.size() : (int) Math.min(numRowsToKeep, result.size());
+    result = result.subList(fromIndex, toIndex);
+    if (orderKeys.length > 0) {
+      List<Object[]> strippedRows = new ArrayList<>(result.size());
+      for (Object[] row : result) {
+        strippedRows.add(Arrays.copyOf(row, projection.length));
+      }
+      return strippedRows;
+    }
+    return new ArrayList<>(result);
+  }
+
+  private void aggregate(Object[] parameters, ForkJoinPool pool, Consumer<Object[]> rowConsumer) {
+    GroupTable groups = aggregation.createTable();
+    // the tables of the parallel tasks, which need to be closed in case a task fails
+    Queue<GroupTable> partialGroups = new ConcurrentLinkedQueue<>();
+    try {
+      if (pool == null) {
+        matcher.match(createMatchFrame(parameters), f -> {
+          groups.add(f);
+          return true;
+        });
+      } else {
+        Supplier<GroupTable> tableFactory = () -> {
+          GroupTable table = aggregation.createTable();
+          partialGroups.add(table);
+          return table;
+        };
+        for (GroupTable partial : matcher.matchInParallel(pool, () -> createMatchFrame(parameters), tableFactory,
+            GroupTable::add)) {
+          groups.merge(partial);
+        }
+      }
+
+      if (groups.isEmpty() && aggregation.getNumKeys() == 0) {
+        // implicit grouping produces a single group, even if there are no matches
+        groups.addEmptyGroup();
+      }
+
+      Frame groupFrame = new Frame(parameters, 0, groupScope.getNumValues());
+      groups.forEachGroup(values -> {
+        System.arraycopy(values, 0, groupFrame.values, 0, values.length);
+        Object[] row = createRow(groupFrame);
+        if (having == null || having.test(groupFrame)) {
+          rowConsumer.accept(row);
+        }
+      });
+    } finally {
+      groups.close();
+      for (GroupTable partial : partialGroups) {
+        partial.close();
+      }
+    }
+  }
+
+  private Object[] createRow(Frame frame) {
+    Object[] row = new Object[projection.length + orderKeys.length];
+    for (int i = 0; i < projection.length; i++) {
+      Object value = projection[i].evaluate(frame);
+      frame.values[projectionSlots[i]] = value;
+      row[i] = value;
+    }
+    for (int i = 0; i < orderKeys.length; i++) {
+      row[projection.length + i] = orderKeys[i].evaluate(frame);
+    }
+    return row;
+  }
+
+  /**
+   * Keep the first occurrence of every row. Duplicates are removed as the rows are produced, such that only the
+   * distinct rows are kept on the heap (see {@link DistinctRows}). In parallel, every task removes the duplicates among
+   * its own rows and the distinct rows of the tasks are combined in the order of the tasks.
+   */
+  private List<Object[]> selectDistinct(Object[] parameters, ForkJoinPool pool) {
+    // the sets of the parallel tasks, which need to be closed in case a task fails
+    Queue<DistinctRows> partialRows = new ConcurrentLinkedQueue<>();
+    try (DistinctRows distinctRows = new DistinctRows(graph, projection.length, aggregationMemoryBudget)) {
+      if (aggregating) {
+        aggregate(parameters, pool, distinctRows::add);
+      } else if (pool == null) {
+        matcher.match(createMatchFrame(parameters), f -> {
+          distinctRows.add(createRow(f));
+          return true;
+        });
+      } else {
+        Supplier<DistinctRows> rowsFactory = () -> {
+          DistinctRows rows = new DistinctRows(graph, projection.length, aggregationMemoryBudget);
+          partialRows.add(rows);
+          return rows;
+        };
+        for (DistinctRows partial : matcher.matchInParallel(pool, () -> createMatchFrame(parameters), rowsFactory,
+            (rows, f) -> rows.add(createRow(f)))) {
+          distinctRows.addAll(partial);
+          partial.close();
+        }
+      }
+      return distinctRows.getRows();
+    } finally {
+      for (DistinctRows partial : partialRows) {
+        partial.close();
+      }
+    }
+  }
+
+  /**
+   * NULL values sort after all other values in ascending order and before all other values in descending order.
+   */
+  private Comparator<Object[]> createComparator() {
+    int firstKey = projection.length;
+    return (row1, row2) -> {
+      for (int i = 0; i < orderKeys.length; i++) {
+        Object value1 = row1[firstKey + i];
+        Object value2 = row2[firstKey + i];
+        int result;
+        if (value1 == null || value2 == null) {
+          result = value1 == null ? (value2 == null ? 0 : 1) : -1;
+        } else {
+          result = ValueUtils.compare(value1, value2);
+        }
+        if (result != 0) {
+          return ascending[i] ? result : -result;
+        }
+      }
+      return 0;
+    };
+  }
+
+  /**
+   * @return the number of rows that OFFSET and LIMIT select from the start of the result, which is Long.MAX_VALUE if
+   *         the sum overflows, or -1 if there is no LIMIT
+   */
+  private static long getNumRowsToKeep(long offsetValue, long limitValue) {
+    if (limitValue == -1) {
+      return -1;
+    }
+    try {
+      return Math.addExact(offsetValue, limitValue);
+    } catch (ArithmeticException e) {
+      return Long.MAX_VALUE;
+    }
+  }
+
+  private static long evaluateLimitOrOffset(Evaluator evaluator, Frame frame, String clause) {
+    Object value = evaluator.evaluate(frame);
+    if (value == null || ValueUtils.toLong(value) < 0) {
+      throw new IllegalArgumentException(clause + " must be a non-negative integer but got " + value);
+    }
+    return ValueUtils.toLong(value);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import oracle.pgql.lang.ir.Direction;
+
+/**
+ * The {@link Adjacency} of a {@link CsrGraph}, optionally restricted to the edges that pass a filter.
+ */
+public class CsrAdjacency implements Adjacency {
+
+  @FunctionalInterface
+  public interface HopFilter {
+
+    /**
+     * @param from
+     *          the vertex at which the hop starts, in the direction of the path
+     * @param edge
+     *          the edge that is traversed
+     * @param to
+     *          the vertex at which the hop ends, in the direction of the path
+     */
+    boolean accept(int from, int edge, int to);
+  }
+
+  private final CsrGraph graph;
+
+  private final boolean traverseOutEdges;
+
+  private final boolean traverseInEdges;
+
+  private final HopFilter filter;
+
+  /**
+   * @param direction
+   *          OUTGOING to follow edges from source to destination, INCOMING to follow edges from destination to
+   *          source, or ANY to follow edges in both directions
+   * @param filter
+   *          the hops to consider, or null for all hops
+   */
+  public CsrAdjacency(CsrGraph graph, Direction direction, HopFilter filter) {
+    this.graph = graph;
+    this.traverseOutEdges = direction != Direction.INCOMING;
+    this.traverseInEdges = direction != Direction.OUTGOING;
+    this.filter = filter;
+  }
+
+  @Override
+  public int getNumVertices() {
+    return graph.getNumVertices();
+  }
+
+  @Override
+  public void forEachNeighbor(int vertex, boolean reverse, NeighborVisitor visitor) {
+    if (reverse ? traverseInEdges : traverseOutEdges) {
+      visit(vertex, graph.getOutBegin(), graph.getOutNeighbors(), graph.getOutEdges(), false, reverse, visitor);
+    }
+    if (reverse ? traverseOutEdges : traverseInEdges) {
+      // for undirected edges, self-loops are only visited once
+      visit(vertex, graph.getInBegin(), graph.getInNeighbors(), graph.getInEdges(), traverseOutEdges && traverseInEdges,
+          reverse, visitor);
+    }
+  }
+
+  private void visit(int vertex, int[] begin, int[] neighbors, int[] edges, boolean skipSelfLoops, boolean reverse,
+      NeighborVisitor visitor) {
+    for (int i = begin[vertex]; i < begin[vertex + 1]; i++) {
+      int neighbor = neighbors[i];
+      int edge = edges[i];
+      if (skipSelfLoops && neighbor == vertex) {
+        continue;
+      }
+      if (filter == null || (reverse ? filter.accept(neighbor, edge, vertex) : filter.accept(vertex, edge, neighbor))) {
+        visitor.visit(edge, neighbor);
+      }
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable in-memory property graph in compressed sparse row (CSR) format.
+ *
+ * Vertices and edges are identified by the integers 0 to n - 1. For every vertex v, the outgoing edges are stored at
+ * the indices outBegin[v] to outBegin[v + 1] - 1 of the outNeighbors and outEdges arrays, and the incoming edges are
+ * stored in the same way in the inBegin, inNeighbors and inEdges arrays. Every vertex and every edge has at most one
+ * label. Properties are stored per column (see {@link PropertyColumn}).
+ *
+ * Use {@link CsrGraphBuilder} to create a graph.
+ */
+public class CsrGraph {
+
+  static final int NO_LABEL = -1;
+
+  private final int numVertices;
+
+  private final int numEdges;
+
+  private final String[] vertexLabelNames;
+
+  private final int[] vertexLabels;
+
+  private final int[][] verticesByLabel;
+
+  private final String[] edgeLabelNames;
+
+  private final int[] edgeLabels;
+
+  private final int[] edgeSources;
+
+  private final int[] edgeDestinations;
+
+  private final int[] outBegin;
+
+  private final int[] outNeighbors;
+
+  private final int[] outEdges;
+
+  private final int[] inBegin;
+
+  private final int[] inNeighbors;
+
+  private final int[] inEdges;
+
+  private final Map<String, PropertyColumn> vertexProperties;
+
+  private final Map<String, PropertyColumn> edgeProperties;
+
+  CsrGraph(int numVertices, int numEdges, String[] vertexLabelNames, int[] vertexLabels, int[][] verticesByLabel,
+      String[] edgeLabelNames, int[] edgeLabels, int[] edgeSources, int[] edgeDestinations, int[] outBegin,
+      int[] outNeighbors, int[] outEdges, int[] inBegin, int[] inNeighbors, int[] inEdges,
+      Map<String, PropertyColumn> vertexProperties, Map<String, PropertyColumn> edgeProperties) {
+    this.numVertices = numVertices;
+    this.numEdges = numEdges;
+    this.vertexLabelNames = vertexLabelNames;
+    this.vertexLabels = vertexLabels;
+    this.verticesByLabel = verticesByLabel;
+    this.edgeLabelNames = edgeLabelNames;
+    this.edgeLabels = edgeLabels;
+    this.edgeSources = edgeSources;
+    this.edgeDestinations = edgeDestinations;
+    this.outBegin = outBegin;
+    this.outNeighbors = outNeighbors;
+    this.outEdges = outEdges;
+    this.inBegin = inBegin;
+    this.inNeighbors = inNeighbors;
+    this.inEdges = inEdges;
+    this.vertexProperties = vertexProperties;
+    this.edgeProperties = edgeProperties;
+  }
+
+  public int getNumVertices() {
+    return numVertices;
+  }
+
+  public int getNumEdges() {
+    return numEdges;
+  }
+
+  /**
+   * @return the label of the vertex, or null if the vertex has no label
+   */
+  public String getVertexLabel(int vertex) {
+    int label = vertexLabels[vertex];
+    return label == NO_LABEL ? null : vertexLabelNames[label];
+  }
+
+  /**
+   * @return the label of the edge, or null if the edge has no label
+   */
+  public String getEdgeLabel(int edge) {
+    int label = edgeLabels[edge];
+    return label == NO_LABEL ? null : edgeLabelNames[label];
+  }
+
+  public int getEdgeSource(int edge) {
+    return edgeSources[edge];
+  }
+
+  public int getEdgeDestination(int edge) {
+    return edgeDestinations[edge];
+  }
+
+  public int getOutDegree(int vertex) {
+    return outBegin[vertex + 1] - outBegin[vertex];
+  }
+
+  public int getInDegree(int vertex) {
+    return inBegin[vertex + 1] - inBegin[vertex];
+  }
+
+  public Set<String> getVertexPropertyNames() {
+    return Collections.unmodifiableSet(vertexProperties.keySet());
+  }
+
+  public Set<String> getEdgePropertyNames() {
+    return Collections.unmodifiableSet(edgeProperties.keySet());
+  }
+
+  /**
+   * @return the column of the vertex property with the given name, or null if there is no such property; if there is
+   *         no property with exactly the given name, a property whose name only differs in case is returned, such that
+   *         unquoted identifiers in queries (which are upper-cased) match properties such as "name"
+   */
+  public PropertyColumn getVertexProperty(String name) {
+    return getIgnoringCase(vertexProperties, name);
+  }
+
+  /**
+   * @return the column of the edge property with the given name, or null if there is no such property; see
+   *         {@link #getVertexProperty(String)}
+   */
+  public PropertyColumn getEdgeProperty(String name) {
+    return getIgnoringCase(edgeProperties, name);
+  }
+
+  private static PropertyColumn getIgnoringCase(Map<String, PropertyColumn> properties, String name) {
+    PropertyColumn column = properties.get(name);
+    if (column != null) {
+      return column;
+    }
+    for (Map.Entry<String, PropertyColumn> entry : properties.entrySet()) {
+      if (entry.getKey().equalsIgnoreCase(name)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the ID of the vertex label with the given name, or NO_LABEL if there is no such label; labels are matched
+   *         in the same way as properties (see {@link #getVertexProperty(String)})
+   */
+  int getVertexLabelId(String name) {
+    return getLabelId(vertexLabelNames, name);
+  }
+
+  int getEdgeLabelId(String name) {
+    return getLabelId(edgeLabelNames, name);
+  }
+
+  private static int getLabelId(String[] labelNames, String name) {
+    for (int i = 0; i < labelNames.length; i++) {
+      if (labelNames[i].equals(name)) {
+        return i;
+      }
+    }
+    for (int i = 0; i < labelNames.length; i++) {
+      if (labelNames[i].equalsIgnoreCase(name)) {
+        return i;
+      }
+    }
+    return NO_LABEL;
+  }
+
+  String[] getVertexLabelNames() {
+    return vertexLabelNames;
+  }
+
+  String[] getEdgeLabelNames() {
+    return edgeLabelNames;
+  }
+
+  int getVertexLabelId(int vertex) {
+    return vertexLabels[vertex];
+  }
+
+  int getEdgeLabelId(int edge) {
+    return edgeLabels[edge];
+  }
+
+  /**
+   * @return the vertices with the given label, in increasing order; the array must not be modified
+   */
+  int[] getVerticesWithLabel(int labelId) {
+    return verticesByLabel[labelId];
+  }
+
+  int[] getOutBegin() {
+    return outBegin;
+  }
+
+  int[] getOutNeighbors() {
+    return outNeighbors;
+  }
+
+  int[] getOutEdges() {
+    return outEdges;
+  }
+
+  int[] getInBegin() {
+    return inBegin;
+  }
+
+  int[] getInNeighbors() {
+    return inNeighbors;
+  }
+
+  int[] getInEdges() {
+    return inEdges;
+  }
+
+  @Override
+  public String toString() {
+    return "CsrGraph[vertices=" + numVertices + ", edges=" + numEdges + "]";
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link CsrGraph}. Vertices and edges get consecutive IDs starting from 0, in the order in which they are
+ * added. Edges are sorted into the CSR arrays by a counting sort when {@link #build()} is called, such that building a
+ * graph takes time linear in the number of vertices and edges. A builder cannot be used anymore after the graph is
+ * built.
+ *
+ * Example:
+ *
+ * <pre>
+ * CsrGraphBuilder builder = new CsrGraphBuilder();
+ * int ann = builder.addVertex("Person");
+ * int bob = builder.addVertex("Person");
+ * builder.setVertexProperty(ann, "name", "Ann");
+ * builder.setVertexProperty(bob, "name", "Bob");
+ * int knows = builder.addEdge(ann, bob, "knows");
+ * builder.setEdgeProperty(knows, "since", 2015);
+ * CsrGraph graph = builder.build();
+ * </pre>
+ */
+public class CsrGraphBuilder {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int numVertices;
+
+  private int numEdges;
+
+  private int[] vertexLabels = new int[INITIAL_CAPACITY];
+
+  private int[] edgeLabels = new int[INITIAL_CAPACITY];
+
+  private int[] edgeSources = new int[INITIAL_CAPACITY];
+
+  private int[] edgeDestinations = new int[INITIAL_CAPACITY];
+
+  private final List<String> vertexLabelNames = new ArrayList<>();
+
+  private final Map<String, Integer> vertexLabelIds = new HashMap<>();
+
+  private final List<String> edgeLabelNames = new ArrayList<>();
+
+  private final Map<String, Integer> edgeLabelIds = new HashMap<>();
+
+  private final Map<String, PropertyColumn> vertexProperties = new LinkedHashMap<>();
+
+  private final Map<String, PropertyColumn> edgeProperties = new LinkedHashMap<>();
+
+  private boolean built;
+
+  /**
+   * @param label
+   *          the label of the vertex, or null if the vertex has no label
+   * @return the ID of the new vertex
+   */
+  public int addVertex(String label) {
+    checkNotBuilt();
+    if (numVertices == vertexLabels.length) {
+      vertexLabels = Arrays.copyOf(vertexLabels, numVertices * 2);
+    }
+    vertexLabels[numVertices] = getLabelId(label, vertexLabelNames, vertexLabelIds);
+    return numVertices++;
+  }
+
+  /**
+   * @param source
+   *          the ID of the source vertex
+   * @param destination
+   *          the ID of the destination vertex
+   * @param label
+   *          the label of the edge, or null if the edge has no label
+   * @return the ID of the new edge
+   */
+  public int addEdge(int source, int destination, String label) {
+    checkNotBuilt();
+    checkVertex(source);
+    checkVertex(destination);
+    if (numEdges == edgeLabels.length) {
+      int capacity = numEdges * 2;
+      edgeLabels = Arrays.copyOf(edgeLabels, capacity);
+      edgeSources = Arrays.copyOf(edgeSources, capacity);
+      edgeDestinations = Arrays.copyOf(edgeDestinations, capacity);
+    }
+    edgeLabels[numEdges] = getLabelId(label, edgeLabelNames, edgeLabelIds);
+    edgeSources[numEdges] = source;
+    edgeDestinations[numEdges] = destination;
+    return numEdges++;
+  }
+
+  /**
+   * @param value
+   *          an Integer, Long, Float, Double, Boolean, String, LocalDate, LocalTime, LocalDateTime, OffsetTime or
+   *          OffsetDateTime, or null to remove the value; all the values of a property must have the same type
+   */
+  public void setVertexProperty(int vertex, String name, Object value) {
+    checkNotBuilt();
+    checkVertex(vertex);
+    setProperty(vertexProperties, vertex, name, value);
+  }
+
+  /**
+   * @param value
+   *          see {@link #setVertexProperty(int, String, Object)}
+   */
+  public void setEdgeProperty(int edge, String name, Object value) {
+    checkNotBuilt();
+    if (edge < 0 || edge >= numEdges) {
+      throw new IllegalArgumentException("Edge " + edge + " does not exist");
+    }
+    setProperty(edgeProperties, edge, name, value);
+  }
+
+  private static void setProperty(Map<String, PropertyColumn> properties, int id, String name, Object value) {
+    PropertyColumn column = properties.get(name);
+    if (column == null) {
+      if (value == null) {
+        return;
+      }
+      column = PropertyColumn.create(name, value);
+      properties.put(name, column);
+    }
+    column.set(id, value);
+  }
+
+  private void checkNotBuilt() {
+    if (built) {
+      throw new IllegalStateException("Graph was already built");
+    }
+  }
+
+  private void checkVertex(int vertex) {
+    if (vertex < 0 || vertex >= numVertices) {
+      throw new IllegalArgumentException("Vertex " + vertex + " does not exist");
+    }
+  }
+
+  private static int getLabelId(String label, List<String> labelNames, Map<String, Integer> labelIds) {
+    if (label == null) {
+      return CsrGraph.NO_LABEL;
+    }
+    Integer labelId = labelIds.get(label);
+    if (labelId == null) {
+      labelId = labelNames.size();
+      labelNames.add(label);
+      labelIds.put(label, labelId);
+    }
+    return labelId;
+  }
+
+  public CsrGraph build() {
+    checkNotBuilt();
+    built = true;
+
+    int[] outBegin = new int[numVertices + 1];
+    int[] outNeighbors = new int[numEdges];
+    int[] outEdges = new int[numEdges];
+    sortEdges(edgeSources, edgeDestinations, outBegin, outNeighbors, outEdges);
+
+    int[] inBegin = new int[numVertices + 1];
+    int[] inNeighbors = new int[numEdges];
+    int[] inEdges = new int[numEdges];
+    sortEdges(edgeDestinations, edgeSources, inBegin, inNeighbors, inEdges);
+
+    int[] labelCounts = new int[vertexLabelNames.size()];
+    for (int v = 0; v < numVertices; v++) {
+      if (vertexLabels[v] != CsrGraph.NO_LABEL) {
+        labelCounts[vertexLabels[v]]++;
+      }
+    }
+    int[][] verticesByLabel = new int[labelCounts.length][];
+    for (int label = 0; label < labelCounts.length; label++) {
+      verticesByLabel[label] = new int[labelCounts[label]];
+      labelCounts[label] = 0;
+    }
+    for (int v = 0; v < numVertices; v++) {
+      int label = vertexLabels[v];
+      if (label != CsrGraph.NO_LABEL) {
+        verticesByLabel[label][labelCounts[label]++] = v;
+      }
+    }
+
+    vertexProperties.values().forEach(column -> column.trim(numVertices));
+    edgeProperties.values().forEach(column -> column.trim(numEdges));
+
+    return new CsrGraph(numVertices, numEdges, vertexLabelNames.toArray(new String[0]),
+        Arrays.copyOf(vertexLabels, numVertices), verticesByLabel, edgeLabelNames.toArray(new String[0]),
+        Arrays.copyOf(edgeLabels, numEdges), Arrays.copyOf(edgeSources, numEdges),
+        Arrays.copyOf(edgeDestinations, numEdges), outBegin, outNeighbors, outEdges, inBegin, inNeighbors, inEdges,
+        new LinkedHashMap<>(vertexProperties), new LinkedHashMap<>(edgeProperties));
+  }
+
+  /**
+   * Counting sort of the edges by the given endpoint.
+   */
+  private void sortEdges(int[] endpoints, int[] otherEndpoints, int[] begin, int[] neighbors, int[] edges) {
+    for (int e = 0; e < numEdges; e++) {
+      begin[endpoints[e] + 1]++;
+    }
+    for (int v = 0; v < numVertices; v++) {
+      begin[v + 1] += begin[v];
+    }
+    int[] position = Arrays.copyOf(begin, numVertices);
+    for (int e = 0; e < numEdges; e++) {
+      int index = position[endpoints[e]]++;
+      neighbors[index] = otherEndpoints[e];
+      edges[index] = e;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Optional;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.metadata.AbstractStatisticsProvider;
+
+/**
+ * Exact vertex counts, edge counts and average degrees of a {@link CsrGraph}, computed in a single pass over the edges.
+ * Labels are matched in the same way as in queries (see {@link CsrGraph#getVertexProperty(String)}), and labels that
+ * do not exist in the graph have a count of zero.
+ */
+public class CsrGraphStatistics extends AbstractStatisticsProvider {
+
+  private final CsrGraph graph;
+
+  private final long[] edgeCountsByLabel;
+
+  /**
+   * The number of edges by the label of the source vertex and the label of the edge. The last row and the last column
+   * are for any label.
+   */
+  private final long[][] outEdgeCounts;
+
+  /**
+   * The number of edges by the label of the destination vertex and the label of the edge.
+   */
+  private final long[][] inEdgeCounts;
+
+  public CsrGraphStatistics(CsrGraph graph) {
+    this.graph = graph;
+    int numVertexLabels = graph.getVertexLabelNames().length;
+    int numEdgeLabels = graph.getEdgeLabelNames().length;
+    edgeCountsByLabel = new long[numEdgeLabels];
+    outEdgeCounts = new long[numVertexLabels + 1][numEdgeLabels + 1];
+    inEdgeCounts = new long[numVertexLabels + 1][numEdgeLabels + 1];
+    for (int e = 0; e < graph.getNumEdges(); e++) {
+      int edgeLabel = graph.getEdgeLabelId(e);
+      if (edgeLabel != CsrGraph.NO_LABEL) {
+        edgeCountsByLabel[edgeLabel]++;
+      }
+      count(outEdgeCounts, graph.getVertexLabelId(graph.getEdgeSource(e)), edgeLabel);
+      count(inEdgeCounts, graph.getVertexLabelId(graph.getEdgeDestination(e)), edgeLabel);
+    }
+  }
+
+  private static void count(long[][] counts, int vertexLabel, int edgeLabel) {
+    int anyVertexLabel = counts.length - 1;
+    int anyEdgeLabel = counts[0].length - 1;
+    counts[anyVertexLabel][anyEdgeLabel]++;
+    if (vertexLabel != CsrGraph.NO_LABEL) {
+      counts[vertexLabel][anyEdgeLabel]++;
+    }
+    if (edgeLabel != CsrGraph.NO_LABEL) {
+      counts[anyVertexLabel][edgeLabel]++;
+      if (vertexLabel != CsrGraph.NO_LABEL) {
+        counts[vertexLabel][edgeLabel]++;
+      }
+    }
+  }
+
+  @Override
+  public Optional<Long> getVertexCount() {
+    return Optional.of((long) graph.getNumVertices());
+  }
+
+  @Override
+  public Optional<Long> getVertexCount(String label) {
+    int labelId = graph.getVertexLabelId(label);
+    return Optional.of(labelId == CsrGraph.NO_LABEL ? 0L : graph.getVerticesWithLabel(labelId).length);
+  }
+
+  @Override
+  public Optional<Long> getEdgeCount() {
+    return Optional.of((long) graph.getNumEdges());
+  }
+
+  @Override
+  public Optional<Long> getEdgeCount(String label) {
+    int labelId = graph.getEdgeLabelId(label);
+    return Optional.of(labelId == CsrGraph.NO_LABEL ? 0L : edgeCountsByLabel[labelId]);
+  }
+
+  @Override
+  public Optional<Double> getAverageDegree(String vertexLabel, String edgeLabel, Direction direction) {
+    int vertexLabelId = vertexLabel == null ? outEdgeCounts.length - 1 : graph.getVertexLabelId(vertexLabel);
+    int edgeLabelId = edgeLabel == null ? edgeCountsByLabel.length : graph.getEdgeLabelId(edgeLabel);
+    long vertexCount = vertexLabel == null ? graph.getNumVertices() : getVertexCount(vertexLabel).get();
+    if (vertexLabelId == CsrGraph.NO_LABEL || edgeLabelId == CsrGraph.NO_LABEL || vertexCount == 0) {
+      return Optional.of(0.0);
+    }
+
+    long edgeCount;
+    switch (direction) {
+      case OUTGOING:
+        edgeCount = outEdgeCounts[vertexLabelId][edgeLabelId];
+        break;
+      case INCOMING:
+        edgeCount = inEdgeCounts[vertexLabelId][edgeLabelId];
+        break;
+      default:
+        edgeCount = outEdgeCounts[vertexLabelId][edgeLabelId] + inEdgeCounts[vertexLabelId][edgeLabelId];
+    }
+    return Optional.of((double) edgeCount / vertexCount);
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import oracle.pgql.lang.engine.DistinctSet.KeyBuilder;
+
+/**
+ * Removes duplicate rows as the rows are produced, e.g. for SELECT DISTINCT, keeping the first occurrence of every row
+ * in the order in which the rows are added. Rows are compared on their first values (the SELECT clause) by means of an
+ * off-heap {@link DistinctSet}, so that only the distinct rows are kept on the heap.
+ *
+ * Once the distinct set exceeds its memory budget, it cannot tell whether a new row is a duplicate until its spilled
+ * keys are resolved. Such candidate rows are written to a temporary file, together with the number of distinct rows
+ * that precede them, and the candidates that turn out to be first occurrences are read back and merged into the
+ * distinct rows by {@link #getRows()}. Rows with values that cannot be serialized (e.g. lists) are compared by means of
+ * a set on the heap, and candidate rows with such values are kept on the heap.
+ *
+ * A DistinctRows is not thread-safe.
+ */
+final class DistinctRows implements AutoCloseable {
+
+  private static final byte NULL = 0;
+
+  private static final byte BOOLEAN = 1;
+
+  private static final byte INTEGER = 2;
+
+  private static final byte LONG = 3;
+
+  private static final byte FLOAT = 4;
+
+  private static final byte DOUBLE = 5;
+
+  private static final byte STRING = 6;
+
+  private static final byte VERTEX = 7;
+
+  private static final byte EDGE = 8;
+
+  private static final byte DATE = 9;
+
+  private static final byte TIME = 10;
+
+  private static final byte TIMESTAMP = 11;
+
+  private static final byte TIME_WITH_TIMEZONE = 12;
+
+  private static final byte TIMESTAMP_WITH_TIMEZONE = 13;
+
+  /**
+   * Marks a candidate row that is kept on the heap rather than in the file.
+   */
+  private static final byte ON_HEAP = -1;
+
+  private final CsrGraph graph;
+
+  private final int numKeyValues;
+
+  private final DistinctSet seen;
+
+  private final KeyBuilder key = new KeyBuilder();
+
+  private final Set<RowKey> otherRows = new HashSet<>();
+
+  private List<Object[]> rows = new ArrayList<>();
+
+  private Path candidateFile;
+
+  private DataOutputStream candidates;
+
+  private long numCandidates;
+
+  private final Map<Long, Object[]> candidatesOnHeap = new HashMap<>();
+
+  /**
+   * @param graph
+   *          the graph of the vertices and edges in the rows
+   * @param numKeyValues
+   *          the number of values at the start of the rows that are compared
+   * @param memoryBudget
+   *          the number of bytes that the distinct set may take before its keys are spilled to disk
+   */
+  DistinctRows(CsrGraph graph, int numKeyValues, long memoryBudget) {
+    this.graph = graph;
+    this.numKeyValues = numKeyValues;
+    this.seen = new DistinctSet(memoryBudget);
+  }
+
+  void add(Object[] row) {
+    if (!key.setValues(row, numKeyValues)) {
+      if (otherRows.add(new RowKey(Arrays.copyOf(row, numKeyValues)))) {
+        rows.add(row);
+      }
+      return;
+    }
+    switch (seen.add(key, numCandidates)) {
+      case ADDED:
+        rows.add(row);
+        break;
+      case SPILLED:
+        addCandidate(row);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Add the distinct rows of the other set, in order, after the rows of this set.
+   */
+  void addAll(DistinctRows other) {
+    for (Object[] row : other.getRows()) {
+      add(row);
+    }
+  }
+
+  /**
+   * @return the first occurrences of the rows, in the order in which they were added
+   */
+  List<Object[]> getRows() {
+    if (candidates == null) {
+      return rows;
+    }
+    try {
+      candidates.close();
+      candidates = null;
+      List<Long> firstOccurrences = new ArrayList<>();
+      seen.resolveSpilledKeys(firstOccurrences::add);
+      // tags are the indexes of the candidates, which are resolved per partition
+      long[] sortedFirstOccurrences = firstOccurrences.stream().mapToLong(Long::longValue).sorted().toArray();
+
+      List<Object[]> result = new ArrayList<>(rows.size() + sortedFirstOccurrences.length);
+      int nextRow = 0;
+      int next = 0;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(candidateFile)))) {
+        for (long candidate = 0; next < sortedFirstOccurrences.length; candidate++) {
+          int numPrecedingRows = in.readInt();
+          Object[] row = readRow(in, candidate);
+          if (candidate == sortedFirstOccurrences[next]) {
+            while (nextRow < numPrecedingRows) {
+              result.add(rows.get(nextRow++));
+            }
+            result.add(row);
+            next++;
+          }
+        }
+      }
+      while (nextRow < rows.size()) {
+        result.add(rows.get(nextRow++));
+      }
+      rows = result;
+      candidatesOnHeap.clear();
+      return rows;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      deleteCandidateFile();
+    }
+  }
+
+  /**
+   * Release the memory and delete the files to which rows or keys were spilled, if any.
+   */
+  @Override
+  public void close() {
+    seen.close();
+    if (candidates != null) {
+      try {
+        candidates.close();
+      } catch (IOException e) {
+        // best effort; the file is in the temporary directory
+      }
+      candidates = null;
+    }
+    deleteCandidateFile();
+  }
+
+  private void deleteCandidateFile() {
+    if (candidateFile != null) {
+      try {
+        Files.deleteIfExists(candidateFile);
+      } catch (IOException e) {
+        // best effort; the file is in the temporary directory
+      }
+      candidateFile = null;
+    }
+  }
+
+  private void addCandidate(Object[] row) {
+    try {
+      if (candidates == null) {
+        candidateFile = Files.createTempFile("pgql-distinct-rows-", ".tmp");
+        candidates = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(candidateFile)));
+      }
+      candidates.writeInt(rows.size());
+      if (isSerializable(row)) {
+        candidates.writeByte(row.length);
+        for (Object value : row) {
+          writeValue(candidates, value);
+        }
+      } else {
+        candidates.writeByte(ON_HEAP);
+        candidatesOnHeap.put(numCandidates, row);
+      }
+      numCandidates++;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Object[] readRow(DataInputStream in, long candidate) throws IOException {
+    int length = in.readByte();
+    if (length == ON_HEAP) {
+      return candidatesOnHeap.get(candidate);
+    }
+    Object[] row = new Object[length];
+    for (int i = 0; i < length; i++) {
+      row[i] = readValue(in);
+    }
+    return row;
+  }
+
+  private static boolean isSerializable(Object[] row) {
+    if (row.length > Byte.MAX_VALUE) {
+      return false;
+    }
+    for (Object value : row) {
+      if (value != null && !(value instanceof Boolean || value instanceof Integer || value instanceof Long
+          || value instanceof Float || value instanceof Double || value instanceof String
+          || value instanceof InMemoryVertex || value instanceof InMemoryEdge || value instanceof LocalDate
+          || value instanceof LocalTime || value instanceof LocalDateTime || value instanceof OffsetTime
+          || value instanceof OffsetDateTime)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof String) {
+      // writeUTF is limited to 64 KB
+      String string = (String) value;
+      out.writeByte(STRING);
+      out.writeInt(string.length());
+      out.writeChars(string);
+    } else if (value instanceof InMemoryVertex) {
+      out.writeByte(VERTEX);
+      out.writeInt(((InMemoryVertex) value).getId());
+    } else if (value instanceof InMemoryEdge) {
+      out.writeByte(EDGE);
+      out.writeInt(((InMemoryEdge) value).getId());
+    } else if (value instanceof LocalDate) {
+      out.writeByte(DATE);
+      out.writeLong(((LocalDate) value).toEpochDay());
+    } else if (value instanceof LocalTime) {
+      out.writeByte(TIME);
+      out.writeLong(((LocalTime) value).toNanoOfDay());
+    } else if (value instanceof LocalDateTime) {
+      LocalDateTime timestamp = (LocalDateTime) value;
+      out.writeByte(TIMESTAMP);
+      out.writeLong(timestamp.toLocalDate().toEpochDay());
+      out.writeLong(timestamp.toLocalTime().toNanoOfDay());
+    } else if (value instanceof OffsetTime) {
+      OffsetTime time = (OffsetTime) value;
+      out.writeByte(TIME_WITH_TIMEZONE);
+      out.writeLong(time.toLocalTime().toNanoOfDay());
+      out.writeInt(time.getOffset().getTotalSeconds());
+    } else {
+      OffsetDateTime timestamp = (OffsetDateTime) value;
+      out.writeByte(TIMESTAMP_WITH_TIMEZONE);
+      out.writeLong(timestamp.toLocalDate().toEpochDay());
+      out.writeLong(timestamp.toLocalTime().toNanoOfDay());
+      out.writeInt(timestamp.getOffset().getTotalSeconds());
+    }
+  }
+
+  private Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case BOOLEAN:
+        return in.readBoolean();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case STRING: {
+        char[] chars = new char[in.readInt()];
+        for (int i = 0; i < chars.length; i++) {
+          chars[i] = in.readChar();
+        }
+        return new String(chars);
+      }
+      case VERTEX:
+        return new InMemoryVertex(graph, in.readInt());
+      case EDGE:
+        return new InMemoryEdge(graph, in.readInt());
+      case DATE:
+        return LocalDate.ofEpochDay(in.readLong());
+      case TIME:
+        return LocalTime.ofNanoOfDay(in.readLong());
+      case TIMESTAMP:
+        return LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()));
+      case TIME_WITH_TIMEZONE:
+        return OffsetTime.of(LocalTime.ofNanoOfDay(in.readLong()), ZoneOffset.ofTotalSeconds(in.readInt()));
+      case TIMESTAMP_WITH_TIMEZONE:
+        return OffsetDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()),
+            ZoneOffset.ofTotalSeconds(in.readInt()));
+      default:
+        throw new IllegalStateException("Unknown type " + type);
+    }
+  }
+}
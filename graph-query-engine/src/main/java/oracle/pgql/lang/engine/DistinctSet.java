@@ -0,0 +1,626 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of keys for duplicate elimination, e.g. for SELECT DISTINCT and COUNT(DISTINCT ...), that is stored off-heap so
+ * that even very large sets do not burden the garbage collector. Keys are serialized into compact byte strings by a
+ * {@link KeyBuilder} and hashed with a 64-bit non-cryptographic hash. The bytes of the keys are appended to pages of
+ * direct byte buffers and the hash table is an open-addressing table in a direct byte buffer that holds the hash and
+ * the address of every key.
+ *
+ * Every key is added together with a tag, e.g. the index of a row. Once the pages and the table would exceed the memory
+ * budget, the table stops growing: keys that are in the table are still recognized as duplicates, but other keys are
+ * spilled, together with their tags, to memory-mapped files that are partitioned by hash. Which of the spilled keys
+ * are duplicates is decided by {@link #resolveSpilledKeys(LongConsumer)}, which processes one partition at a time and
+ * partitions further if a partition does not fit in the memory budget either.
+ *
+ * A DistinctSet is not thread-safe.
+ */
+final class DistinctSet implements AutoCloseable {
+
+  enum AddResult {
+    /**
+     * The key was not in the set and is added.
+     */
+    ADDED,
+
+    /**
+     * The key was already in the set.
+     */
+    DUPLICATE,
+
+    /**
+     * The key was spilled, so it is not known yet whether it is a duplicate.
+     */
+    SPILLED
+  }
+
+  /**
+   * Receives the entries of a set.
+   */
+  @FunctionalInterface
+  interface EntryConsumer {
+
+    /**
+     * @param buffer
+     *          the buffer that holds the bytes of the key, which is only valid during the call
+     */
+    void accept(ByteBuffer buffer, int offset, int length, long tag);
+  }
+
+  private static final int MIN_PAGE_SIZE = 1 << 16;
+
+  private static final int MAX_PAGE_SIZE = 1 << 20;
+
+  /**
+   * The length and the tag of a key precede its bytes in a page.
+   */
+  private static final int ENTRY_HEADER_SIZE = 12;
+
+  /**
+   * The hash and the address of a key, where address 0 marks an empty slot.
+   */
+  private static final int SLOT_SIZE = 16;
+
+  private static final int INITIAL_NUM_SLOTS = 1024;
+
+  /**
+   * Every set can hold tens of thousands of keys, such that a few levels of partitioning suffice for large inputs.
+   */
+  private static final long MIN_MEMORY_BUDGET = 1 << 20;
+
+  private static final int NUM_PARTITION_BITS = 4;
+
+  private static final int NUM_PARTITIONS = 1 << NUM_PARTITION_BITS;
+
+  /**
+   * Every level of partitioning uses the next highest bits of the hash, so the last level cannot partition any further
+   * and ignores the memory budget.
+   */
+  private static final int MAX_LEVEL = Long.SIZE / NUM_PARTITION_BITS - 1;
+
+  private final long memoryBudget;
+
+  private final int level;
+
+  private final List<ByteBuffer> pages = new ArrayList<>();
+
+  /**
+   * The number of bytes of the pages and the table.
+   */
+  private long memoryUsage;
+
+  private ByteBuffer table;
+
+  private int numSlots;
+
+  private int size;
+
+  /**
+   * Whether the memory budget is exhausted, in which case new keys are spilled.
+   */
+  private boolean full;
+
+  private SpillFile[] partitions;
+
+  /**
+   * @param memoryBudget
+   *          the number of bytes that the keys and the hash table may take before keys are spilled to disk; smaller
+   *          budgets than 1 MB are rounded up to 1 MB
+   */
+  DistinctSet(long memoryBudget) {
+    this(memoryBudget, 0);
+  }
+
+  private DistinctSet(long memoryBudget, int level) {
+    this.memoryBudget = level == MAX_LEVEL ? Long.MAX_VALUE : Math.max(memoryBudget, MIN_MEMORY_BUDGET);
+    this.level = level;
+    this.numSlots = INITIAL_NUM_SLOTS;
+    this.table = ByteBuffer.allocateDirect(numSlots * SLOT_SIZE);
+    this.memoryUsage = numSlots * SLOT_SIZE;
+  }
+
+  /**
+   * Add the key that was built by the given builder.
+   */
+  AddResult add(KeyBuilder key, long tag) {
+    return add(key.buffer, 0, key.buffer.position(), key.hash(), tag);
+  }
+
+  private AddResult add(ByteBuffer bytes, int offset, int length, long hash, long tag) {
+    if (!full && (size + 1) * 2L > numSlots) {
+      full = !grow();
+    }
+    int mask = numSlots - 1;
+    int slot = (int) hash & mask;
+    while (true) {
+      long address = table.getLong(slot * SLOT_SIZE + 8);
+      if (address == 0) {
+        break;
+      }
+      if (table.getLong(slot * SLOT_SIZE) == hash && keyEquals(address - 1, bytes, offset, length)) {
+        return AddResult.DUPLICATE;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    if (!full) {
+      long address = append(bytes, offset, length, tag);
+      if (address != -1) {
+        table.putLong(slot * SLOT_SIZE, hash);
+        table.putLong(slot * SLOT_SIZE + 8, address + 1);
+        size++;
+        return AddResult.ADDED;
+      }
+      full = true;
+    }
+    spill(bytes, offset, length, hash, tag);
+    return AddResult.SPILLED;
+  }
+
+  /**
+   * Decide which of the spilled keys are duplicates and pass the tag of every first occurrence of a spilled key to the
+   * consumer. The spilled keys are processed per partition, so the tags are not in the order in which the keys were
+   * added. Afterwards, the set no longer has spilled keys.
+   */
+  void resolveSpilledKeys(LongConsumer consumer) {
+    if (partitions == null) {
+      return;
+    }
+    try {
+      for (int p = 0; p < NUM_PARTITIONS; p++) {
+        if (partitions[p] == null) {
+          continue;
+        }
+        try (DistinctSet partition = new DistinctSet(memoryBudget, level + 1)) {
+          partitions[p].forEach((buffer, offset, length, hash, tag) -> {
+            if (partition.add(buffer, offset, length, hash, tag) == AddResult.ADDED) {
+              consumer.accept(tag);
+            }
+          });
+          partition.resolveSpilledKeys(consumer);
+        }
+        partitions[p].close();
+        partitions[p] = null;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      closePartitions();
+    }
+  }
+
+  /**
+   * Pass every key in memory as well as every spilled key to the consumer. Spilled keys may include duplicates.
+   */
+  void forEach(EntryConsumer consumer) {
+    for (ByteBuffer page : pages) {
+      int position = 0;
+      while (position < page.position()) {
+        int length = page.getInt(position);
+        consumer.accept(page, position + ENTRY_HEADER_SIZE, length, page.getLong(position + 4));
+        position += ENTRY_HEADER_SIZE + length;
+      }
+    }
+    if (partitions != null) {
+      try {
+        for (SpillFile partition : partitions) {
+          if (partition == null) {
+            continue;
+          }
+          partition.forEach((buffer, offset, length, hash, tag) -> consumer.accept(buffer, offset, length, tag));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Release the memory and delete the files to which keys were spilled, if any.
+   */
+  @Override
+  public void close() {
+    pages.clear();
+    table = null;
+    size = 0;
+    closePartitions();
+  }
+
+  private void closePartitions() {
+    if (partitions == null) {
+      return;
+    }
+    for (SpillFile partition : partitions) {
+      if (partition != null) {
+        partition.close();
+      }
+    }
+    partitions = null;
+  }
+
+  /**
+   * Double the number of slots of the table.
+   *
+   * @return false if the memory budget does not allow for it
+   */
+  private boolean grow() {
+    int newNumSlots = numSlots * 2;
+    long newMemoryUsage = memoryUsage + (long) numSlots * SLOT_SIZE;
+    if (newNumSlots > Integer.MAX_VALUE / SLOT_SIZE || newMemoryUsage > memoryBudget) {
+      return false;
+    }
+    ByteBuffer newTable = ByteBuffer.allocateDirect(newNumSlots * SLOT_SIZE);
+    int mask = newNumSlots - 1;
+    for (int slot = 0; slot < numSlots; slot++) {
+      long address = table.getLong(slot * SLOT_SIZE + 8);
+      if (address != 0) {
+        long hash = table.getLong(slot * SLOT_SIZE);
+        int newSlot = (int) hash & mask;
+        while (newTable.getLong(newSlot * SLOT_SIZE + 8) != 0) {
+          newSlot = (newSlot + 1) & mask;
+        }
+        newTable.putLong(newSlot * SLOT_SIZE, hash);
+        newTable.putLong(newSlot * SLOT_SIZE + 8, address);
+      }
+    }
+    table = newTable;
+    numSlots = newNumSlots;
+    memoryUsage = newMemoryUsage;
+    return true;
+  }
+
+  /**
+   * Append the key to the last page, or to a new page if it does not fit.
+   *
+   * @return the address of the key, which is the index of the page in the upper and the position in the lower 32 bits,
+   *         or -1 if the memory budget does not allow for a new page
+   */
+  private long append(ByteBuffer bytes, int offset, int length, long tag) {
+    int entrySize = ENTRY_HEADER_SIZE + length;
+    ByteBuffer page = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+    if (page == null || page.remaining() < entrySize) {
+      // pages grow from small to large such that small sets take little memory
+      int pageSize = page == null ? MIN_PAGE_SIZE : Math.min(MAX_PAGE_SIZE, page.capacity() * 2);
+      pageSize = Math.max(pageSize, entrySize);
+      if (memoryUsage + pageSize > memoryBudget) {
+        return -1;
+      }
+      page = ByteBuffer.allocateDirect(pageSize);
+      pages.add(page);
+      memoryUsage += pageSize;
+    }
+    int position = page.position();
+    page.putInt(length);
+    page.putLong(tag);
+    for (int i = 0; i < length; i++) {
+      page.put(bytes.get(offset + i));
+    }
+    return ((long) (pages.size() - 1) << 32) | position;
+  }
+
+  private boolean keyEquals(long address, ByteBuffer bytes, int offset, int length) {
+    ByteBuffer page = pages.get((int) (address >>> 32));
+    int position = (int) address;
+    if (page.getInt(position) != length) {
+      return false;
+    }
+    return rangeEquals(page, position + ENTRY_HEADER_SIZE, bytes, offset, length);
+  }
+
+  private static boolean rangeEquals(ByteBuffer buffer1, int offset1, ByteBuffer buffer2, int offset2, int length) {
+    int i = 0;
+    for (; i + Long.BYTES <= length; i += Long.BYTES) {
+      if (buffer1.getLong(offset1 + i) != buffer2.getLong(offset2 + i)) {
+        return false;
+      }
+    }
+    for (; i < length; i++) {
+      if (buffer1.get(offset1 + i) != buffer2.get(offset2 + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void spill(ByteBuffer bytes, int offset, int length, long hash, long tag) {
+    try {
+      if (partitions == null) {
+        partitions = new SpillFile[NUM_PARTITIONS];
+      }
+      int shift = Long.SIZE - NUM_PARTITION_BITS * (level + 1);
+      int p = (int) (hash >>> shift) & (NUM_PARTITIONS - 1);
+      if (partitions[p] == null) {
+        partitions[p] = new SpillFile();
+      }
+      partitions[p].write(bytes, offset, length, hash, tag);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * A 64-bit hash in the style of MurmurHash3 that processes eight bytes at a time.
+   */
+  static long hash(ByteBuffer buffer, int offset, int length) {
+    long h = 0x9E3779B97F4A7C15L ^ length;
+    int i = 0;
+    for (; i + Long.BYTES <= length; i += Long.BYTES) {
+      h ^= mixWord(buffer.getLong(offset + i));
+      h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+    }
+    if (i < length) {
+      long word = 0;
+      for (int shift = 0; i < length; i++, shift += 8) {
+        word |= (buffer.get(offset + i) & 0xFFL) << shift;
+      }
+      h ^= mixWord(word);
+    }
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static long mixWord(long word) {
+    return Long.rotateLeft(word * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+  }
+
+  /**
+   * Serializes values into a key. Values that are equal according to {@link RowKey#valuesEqual(Object, Object)} give
+   * the same bytes, e.g. 3 and 3.0, while values of different types give different bytes. Every value is prefixed with
+   * a tag for its type and variable-length values are prefixed with their length, so that a sequence of values is
+   * encoded unambiguously.
+   */
+  static final class KeyBuilder {
+
+    private static final byte NULL = 0;
+
+    private static final byte BOOLEAN = 1;
+
+    private static final byte INTEGRAL = 2;
+
+    private static final byte DECIMAL = 3;
+
+    private static final byte STRING = 4;
+
+    private static final byte VERTEX = 5;
+
+    private static final byte EDGE = 6;
+
+    private static final byte DATE = 7;
+
+    private static final byte TIME = 8;
+
+    private static final byte TIMESTAMP = 9;
+
+    private static final byte TIME_WITH_TIMEZONE = 10;
+
+    private static final byte TIMESTAMP_WITH_TIMEZONE = 11;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(64);
+
+    void clear() {
+      buffer.clear();
+    }
+
+    /**
+     * Clear the key and add the first numValues values of the row.
+     *
+     * @return false if one of the values cannot be serialized
+     */
+    boolean setValues(Object[] row, int numValues) {
+      clear();
+      for (int i = 0; i < numValues; i++) {
+        if (!addValue(row[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return false if the value cannot be serialized, e.g. a list
+     */
+    boolean addValue(Object value) {
+      ensureCapacity(1 + 2 * Long.BYTES);
+      if (value == null) {
+        buffer.put(NULL);
+      } else if (value instanceof Boolean) {
+        buffer.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+      } else if (ValueUtils.isIntegral(value)) {
+        buffer.put(INTEGRAL).putLong(((Number) value).longValue());
+      } else if (value instanceof Double || value instanceof Float) {
+        double doubleValue = ((Number) value).doubleValue();
+        long longValue = (long) doubleValue;
+        // -0.0 is not equal to 0 and 0.0
+        if (longValue == doubleValue && (longValue != 0 || 1 / doubleValue > 0)) {
+          buffer.put(INTEGRAL).putLong(longValue);
+        } else {
+          buffer.put(DECIMAL).putLong(Double.doubleToLongBits(doubleValue));
+        }
+      } else if (value instanceof String) {
+        addString((String) value);
+      } else if (value instanceof InMemoryVertex) {
+        buffer.put(VERTEX).putInt(((InMemoryVertex) value).getId());
+      } else if (value instanceof InMemoryEdge) {
+        buffer.put(EDGE).putInt(((InMemoryEdge) value).getId());
+      } else if (value instanceof LocalDate) {
+        buffer.put(DATE).putLong(((LocalDate) value).toEpochDay());
+      } else if (value instanceof LocalTime) {
+        buffer.put(TIME).putLong(((LocalTime) value).toNanoOfDay());
+      } else if (value instanceof LocalDateTime) {
+        LocalDateTime timestamp = (LocalDateTime) value;
+        buffer.put(TIMESTAMP).putLong(timestamp.toLocalDate().toEpochDay())
+            .putLong(timestamp.toLocalTime().toNanoOfDay());
+      } else if (value instanceof OffsetTime) {
+        OffsetTime time = (OffsetTime) value;
+        buffer.put(TIME_WITH_TIMEZONE).putLong(time.toLocalTime().toNanoOfDay())
+            .putInt(time.getOffset().getTotalSeconds());
+      } else if (value instanceof OffsetDateTime) {
+        // timestamps with time zone are equal if they denote the same instant
+        OffsetDateTime timestamp = (OffsetDateTime) value;
+        buffer.put(TIMESTAMP_WITH_TIMEZONE).putLong(timestamp.toEpochSecond()).putInt(timestamp.getNano());
+      } else {
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Add the number of characters followed by the characters as variable-length integers, which takes a single byte
+     * per ASCII character.
+     */
+    private void addString(String value) {
+      ensureCapacity(1 + 3 * (value.length() + 2));
+      buffer.put(STRING);
+      putVarInt(value.length());
+      for (int i = 0; i < value.length(); i++) {
+        putVarInt(value.charAt(i));
+      }
+    }
+
+    void addInt(int value) {
+      ensureCapacity(Integer.BYTES);
+      buffer.putInt(value);
+    }
+
+    /**
+     * Add bytes that were serialized by another builder.
+     */
+    void addBytes(ByteBuffer bytes, int offset, int length) {
+      ensureCapacity(length);
+      for (int i = 0; i < length; i++) {
+        buffer.put(bytes.get(offset + i));
+      }
+    }
+
+    private void putVarInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    private void ensureCapacity(int numBytes) {
+      if (buffer.remaining() < numBytes) {
+        ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + numBytes));
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+      }
+    }
+
+    long hash() {
+      return DistinctSet.hash(buffer, 0, buffer.position());
+    }
+  }
+
+  /**
+   * Receives the entries of a spill file.
+   */
+  @FunctionalInterface
+  private interface SpilledEntryConsumer {
+
+    void accept(ByteBuffer buffer, int offset, int length, long hash, long tag);
+  }
+
+  /**
+   * A file to which keys are appended through a memory-mapped region that moves along the file. Every entry consists of
+   * the length, the hash and the tag of the key followed by its bytes.
+   */
+  private static final class SpillFile {
+
+    static final int REGION_SIZE = 1 << 22;
+
+    static final int HEADER_SIZE = 20;
+
+    final Path file;
+
+    final FileChannel channel;
+
+    MappedByteBuffer region;
+
+    /**
+     * The position of the region in the file.
+     */
+    long regionStart;
+
+    long numEntries;
+
+    SpillFile() throws IOException {
+      file = Files.createTempFile("pgql-distinct-", ".tmp");
+      channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    void write(ByteBuffer bytes, int offset, int length, long hash, long tag) throws IOException {
+      int entrySize = HEADER_SIZE + length;
+      if (region == null || region.remaining() < entrySize) {
+        long end = region == null ? 0 : regionStart + region.position();
+        region = channel.map(MapMode.READ_WRITE, end, Math.max(REGION_SIZE, entrySize));
+        regionStart = end;
+      }
+      region.putInt(length).putLong(hash).putLong(tag);
+      for (int i = 0; i < length; i++) {
+        region.put(bytes.get(offset + i));
+      }
+      numEntries++;
+    }
+
+    void forEach(SpilledEntryConsumer consumer) throws IOException {
+      long fileSize = channel.size();
+      MappedByteBuffer readRegion = null;
+      long readRegionStart = 0;
+      long position = 0;
+      for (long entry = 0; entry < numEntries; entry++) {
+        if (readRegion == null || position + HEADER_SIZE > readRegionStart + readRegion.limit()) {
+          readRegionStart = position;
+          readRegion = channel.map(MapMode.READ_ONLY, position, Math.min(REGION_SIZE, fileSize - position));
+        }
+        int length = readRegion.getInt((int) (position - readRegionStart));
+        if (position + HEADER_SIZE + length > readRegionStart + readRegion.limit()) {
+          readRegionStart = position;
+          readRegion = channel.map(MapMode.READ_ONLY, position,
+              Math.min(Math.max(REGION_SIZE, HEADER_SIZE + length), fileSize - position));
+        }
+        int offset = (int) (position - readRegionStart);
+        consumer.accept(readRegion, offset + HEADER_SIZE, length, readRegion.getLong(offset + 4),
+            readRegion.getLong(offset + 12));
+        position += HEADER_SIZE + length;
+      }
+    }
+
+    void close() {
+      region = null;
+      try {
+        channel.close();
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // best effort; the file is in the temporary directory
+      }
+    }
+  }
+}
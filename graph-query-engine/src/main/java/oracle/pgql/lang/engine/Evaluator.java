@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+/**
+ * A compiled {@link oracle.pgql.lang.ir.QueryExpression}.
+ */
+@FunctionalInterface
+interface Evaluator {
+
+  /**
+   * @return the value of the expression, or null
+   * @throws IllegalArgumentException
+   *           if the types of the values are incompatible
+   * @throws ArithmeticException
+   *           in case of division by zero or overflow
+   */
+  Object evaluate(Frame frame);
+
+  /**
+   * @return true if the expression evaluates to TRUE, false if it evaluates to FALSE or NULL
+   */
+  default boolean test(Frame frame) {
+    return Boolean.TRUE.equals(evaluate(frame));
+  }
+}
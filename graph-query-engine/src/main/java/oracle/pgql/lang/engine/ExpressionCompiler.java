@@ -0,0 +1,882 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.engine.PrimitiveEvaluator.PrimitiveType;
+import oracle.pgql.lang.engine.PropertyColumn.DoubleColumn;
+import oracle.pgql.lang.engine.PropertyColumn.FloatColumn;
+import oracle.pgql.lang.engine.PropertyColumn.IntColumn;
+import oracle.pgql.lang.engine.PropertyColumn.LongColumn;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.Constant;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression.ExtractField;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+
+/**
+ * Compiles query expressions into {@link Evaluator}s for a particular graph. Variables, property columns and labels
+ * are resolved once at compile time, such that evaluation only involves array lookups.
+ *
+ * Expressions follow three-valued logic: operations on NULL return NULL, except for AND, OR, IS NULL and CASE.
+ */
+final class ExpressionCompiler {
+
+  private final CsrGraph graph;
+
+  private int numBindVariables;
+
+  ExpressionCompiler(CsrGraph graph) {
+    this.graph = graph;
+  }
+
+  CsrGraph getGraph() {
+    return graph;
+  }
+
+  /**
+   * @return the number of bind variables in the expressions compiled so far
+   */
+  int getNumBindVariables() {
+    return numBindVariables;
+  }
+
+  Evaluator compile(QueryExpression exp, Scope scope) throws PgqlException {
+    int valueSlot = scope.getValueSlot(exp);
+    if (valueSlot != Scope.NOT_FOUND) {
+      return frame -> frame.values[valueSlot];
+    }
+
+    switch (exp.getExpType()) {
+      case INTEGER:
+      case DECIMAL:
+      case STRING:
+      case BOOLEAN:
+      case DATE:
+      case TIME:
+      case TIMESTAMP:
+      case TIME_WITH_TIMEZONE:
+      case TIMESTAMP_WITH_TIMEZONE: {
+        Object value = ((Constant<?>) exp).getValue();
+        return frame -> value;
+      }
+      case SUB:
+        return compileBinary(exp, scope, ValueUtils::subtract);
+      case ADD:
+        return compileBinary(exp, scope, ValueUtils::add);
+      case MUL:
+        return compileBinary(exp, scope, ValueUtils::multiply);
+      case DIV:
+        return compileBinary(exp, scope, ValueUtils::divide);
+      case MOD:
+        return compileBinary(exp, scope, ValueUtils::modulo);
+      case UMIN:
+        return compileUnary(((UnaryExpression) exp).getExp(), scope, ValueUtils::negate);
+      case AND: {
+        Evaluator evaluator1 = compile(((BinaryExpression) exp).getExp1(), scope);
+        Evaluator evaluator2 = compile(((BinaryExpression) exp).getExp2(), scope);
+        return frame -> {
+          Object value1 = evaluator1.evaluate(frame);
+          if (value1 != null && !ValueUtils.toBoolean(value1)) {
+            return false;
+          }
+          Object value2 = evaluator2.evaluate(frame);
+          if (value2 != null && !ValueUtils.toBoolean(value2)) {
+            return false;
+          }
+          return value1 == null || value2 == null ? null : true;
+        };
+      }
+      case OR: {
+        Evaluator evaluator1 = compile(((BinaryExpression) exp).getExp1(), scope);
+        Evaluator evaluator2 = compile(((BinaryExpression) exp).getExp2(), scope);
+        return frame -> {
+          Object value1 = evaluator1.evaluate(frame);
+          if (value1 != null && ValueUtils.toBoolean(value1)) {
+            return true;
+          }
+          Object value2 = evaluator2.evaluate(frame);
+          if (value2 != null && ValueUtils.toBoolean(value2)) {
+            return true;
+          }
+          return value1 == null || value2 == null ? null : false;
+        };
+      }
+      case NOT:
+        return compileUnary(((UnaryExpression) exp).getExp(), scope, value -> !ValueUtils.toBoolean(value));
+      case EQUAL:
+        return compileBinary(exp, scope, (value1, value2) -> ValueUtils.equal(value1, value2));
+      case NOT_EQUAL:
+        return compileBinary(exp, scope, (value1, value2) -> !ValueUtils.equal(value1, value2));
+      case GREATER:
+        return compileBinary(exp, scope, (value1, value2) -> ValueUtils.compare(value1, value2) > 0);
+      case GREATER_EQUAL:
+        return compileBinary(exp, scope, (value1, value2) -> ValueUtils.compare(value1, value2) >= 0);
+      case LESS:
+        return compileBinary(exp, scope, (value1, value2) -> ValueUtils.compare(value1, value2) < 0);
+      case LESS_EQUAL:
+        return compileBinary(exp, scope, (value1, value2) -> ValueUtils.compare(value1, value2) <= 0);
+      case CONCAT:
+        return compileBinary(exp, scope, (value1, value2) -> value1.toString() + value2.toString());
+      case AGGR_COUNT:
+      case AGGR_MIN:
+      case AGGR_MAX:
+      case AGGR_SUM:
+      case AGGR_AVG:
+      case AGGR_ARRAY_AGG:
+      case AGGR_LISTAGG:
+        throw new PgqlException("Aggregation " + exp + " is not allowed here");
+      case VARREF:
+        return compileVarRef((VarRef) exp, scope);
+      case BIND_VARIABLE: {
+        int parameterIndex = ((BindVariable) exp).getParameterIndex();
+        numBindVariables = Math.max(numBindVariables, parameterIndex + 1);
+        return frame -> frame.parameters[parameterIndex];
+      }
+      case PROP_ACCESS:
+        return compilePropertyAccess((PropertyAccess) exp, scope);
+      case CAST: {
+        String targetTypeName = ((Cast) exp).getTargetTypeName();
+        return compileUnary(((Cast) exp).getExp(), scope, value -> ValueUtils.cast(value, targetTypeName));
+      }
+      case FUNCTION_CALL:
+        return compileFunctionCall((FunctionCall) exp, scope);
+      case EXTRACT_EXPRESSION: {
+        ExtractField field = ((ExtractExpression) exp).getField();
+        return compileUnary(((ExtractExpression) exp).getExp(), scope, value -> extract(field, value));
+      }
+      case IN_EXPRESSION:
+        return compileInPredicate((InPredicate) exp, scope);
+      case IS_NULL: {
+        Evaluator evaluator = compile(((IsNull) exp).getExp(), scope);
+        return frame -> evaluator.evaluate(frame) == null;
+      }
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) exp;
+        Evaluator condition = compile(ifElse.getExp1(), scope);
+        Evaluator thenEvaluator = compile(ifElse.getExp2(), scope);
+        Evaluator elseEvaluator = ifElse.getExp3() == null ? frame -> null : compile(ifElse.getExp3(), scope);
+        return frame -> condition.test(frame) ? thenEvaluator.evaluate(frame) : elseEvaluator.evaluate(frame);
+      }
+      case SIMPLE_CASE:
+        return compile(((SimpleCase) exp).getIfElseRepresentation(), scope);
+      case SUBSTRING:
+        return compileSubstring((SubstringExpression) exp, scope);
+      case BETWEEN_PREDICATE: {
+        BetweenPredicate between = (BetweenPredicate) exp;
+        Evaluator evaluator = compile(between.getExp1(), scope);
+        Evaluator lower = compile(between.getExp2(), scope);
+        Evaluator upper = compile(between.getExp3(), scope);
+        return frame -> {
+          Object value = evaluator.evaluate(frame);
+          Object lowerValue = lower.evaluate(frame);
+          Object upperValue = upper.evaluate(frame);
+          Boolean aboveLower = value == null || lowerValue == null ? null : ValueUtils.compare(value, lowerValue) >= 0;
+          Boolean belowUpper = value == null || upperValue == null ? null : ValueUtils.compare(value, upperValue) <= 0;
+          if (Boolean.FALSE.equals(aboveLower) || Boolean.FALSE.equals(belowUpper)) {
+            return false;
+          }
+          return aboveLower == null || belowUpper == null ? null : true;
+        };
+      }
+      case STAR:
+      case SCALAR_SUBQUERY:
+      case EXISTS:
+      case IN_VALUE_LIST:
+      default:
+        throw new PgqlException(exp.getExpType() + " is not supported by the in-memory engine: " + exp);
+    }
+  }
+
+  private Evaluator compileUnary(QueryExpression exp, Scope scope, UnaryOperator<Object> operator)
+      throws PgqlException {
+    Evaluator evaluator = compile(exp, scope);
+    return frame -> {
+      Object value = evaluator.evaluate(frame);
+      return value == null ? null : operator.apply(value);
+    };
+  }
+
+  private Evaluator compileBinary(QueryExpression exp, Scope scope, BinaryOperator<Object> operator)
+      throws PgqlException {
+    Evaluator evaluator1 = compile(((BinaryExpression) exp).getExp1(), scope);
+    Evaluator evaluator2 = compile(((BinaryExpression) exp).getExp2(), scope);
+    return frame -> {
+      Object value1 = evaluator1.evaluate(frame);
+      if (value1 == null) {
+        return null;
+      }
+      Object value2 = evaluator2.evaluate(frame);
+      return value2 == null ? null : operator.apply(value1, value2);
+    };
+  }
+
+  private Evaluator compileVarRef(VarRef varRef, Scope scope) throws PgqlException {
+    QueryVariable variable = varRef.getVariable();
+    int valueSlot = scope.getValueSlot(variable);
+    if (valueSlot != Scope.NOT_FOUND) {
+      return frame -> frame.values[valueSlot];
+    }
+    int elementSlot = scope.getElementSlot(variable);
+    if (elementSlot != Scope.NOT_FOUND) {
+      if (variable.getVariableType() == VariableType.PATH) {
+        throw new PgqlException("Path " + variable.getName() + " cannot be referenced by the in-memory engine");
+      } else if (variable.getVariableType() == VariableType.VERTEX) {
+        return frame -> {
+          int id = frame.elements[elementSlot];
+          return id == Frame.UNBOUND ? null : new InMemoryVertex(graph, id);
+        };
+      } else {
+        return frame -> {
+          int id = frame.elements[elementSlot];
+          return id == Frame.UNBOUND ? null : new InMemoryEdge(graph, id);
+        };
+      }
+    }
+    if (variable.getVariableType() == VariableType.EXP_AS_VAR) {
+      // e.g. an element of the SELECT clause that is referenced from the ORDER BY clause but not stored in a slot
+      return compile(((ExpAsVar) variable).getExp(), scope);
+    }
+    throw new PgqlException("Variable " + variable.getName() + " cannot be referenced here");
+  }
+
+  private Evaluator compilePropertyAccess(PropertyAccess propertyAccess, Scope scope) throws PgqlException {
+    QueryVariable variable = propertyAccess.getVariable();
+    String propertyName = propertyAccess.getPropertyName();
+    int elementSlot = scope.getElementSlot(variable);
+    if (elementSlot != Scope.NOT_FOUND) {
+      PropertyColumn column = variable.getVariableType() == VariableType.VERTEX ? graph.getVertexProperty(propertyName)
+          : graph.getEdgeProperty(propertyName);
+      if (column == null) {
+        return frame -> null;
+      }
+      return frame -> {
+        int id = frame.elements[elementSlot];
+        return id == Frame.UNBOUND ? null : column.get(id);
+      };
+    }
+
+    // e.g. a vertex that is a grouping key
+    Evaluator evaluator = compileVarRef(new VarRef(variable), scope);
+    return frame -> {
+      Object value = evaluator.evaluate(frame);
+      if (value instanceof InMemoryVertex) {
+        return ((InMemoryVertex) value).getProperty(propertyName);
+      } else if (value instanceof InMemoryEdge) {
+        return ((InMemoryEdge) value).getProperty(propertyName);
+      } else if (value == null) {
+        return null;
+      }
+      throw new IllegalArgumentException("Cannot access property " + propertyName + " of " + value);
+    };
+  }
+
+  /**
+   * @return an evaluator that produces the values of the expression without boxing, or null if the expression is not a
+   *         vertex or edge variable or a numeric property of a vertex or edge variable
+   */
+  PrimitiveEvaluator compilePrimitive(QueryExpression exp, Scope scope) {
+    if (scope.getValueSlot(exp) != Scope.NOT_FOUND) {
+      return null;
+    }
+    if (exp.getExpType() == ExpressionType.VARREF) {
+      QueryVariable variable = ((VarRef) exp).getVariable();
+      if (variable.getVariableType() == VariableType.EXP_AS_VAR
+          && scope.getValueSlot(variable) == Scope.NOT_FOUND) {
+        // e.g. an element of the SELECT clause that is referenced from the ORDER BY clause
+        return compilePrimitive(((ExpAsVar) variable).getExp(), scope);
+      }
+      int elementSlot = scope.getElementSlot(variable);
+      if (elementSlot == Scope.NOT_FOUND || scope.getValueSlot(variable) != Scope.NOT_FOUND
+          || variable.getVariableType() == VariableType.PATH) {
+        return null;
+      }
+      PrimitiveType type = variable.getVariableType() == VariableType.VERTEX ? PrimitiveType.VERTEX
+          : PrimitiveType.EDGE;
+      return new ColumnEvaluator(type, elementSlot, null, id -> id);
+    } else if (exp.getExpType() == ExpressionType.PROP_ACCESS) {
+      PropertyAccess propertyAccess = (PropertyAccess) exp;
+      QueryVariable variable = propertyAccess.getVariable();
+      int elementSlot = scope.getElementSlot(variable);
+      if (elementSlot == Scope.NOT_FOUND) {
+        return null;
+      }
+      String propertyName = propertyAccess.getPropertyName();
+      PropertyColumn column = variable.getVariableType() == VariableType.VERTEX ? graph.getVertexProperty(propertyName)
+          : graph.getEdgeProperty(propertyName);
+      if (column instanceof IntColumn) {
+        IntColumn intColumn = (IntColumn) column;
+        return new ColumnEvaluator(PrimitiveType.INTEGER, elementSlot, column, intColumn::getInt);
+      } else if (column instanceof LongColumn) {
+        LongColumn longColumn = (LongColumn) column;
+        return new ColumnEvaluator(PrimitiveType.LONG, elementSlot, column, longColumn::getLong);
+      } else if (column instanceof FloatColumn) {
+        FloatColumn floatColumn = (FloatColumn) column;
+        return new ColumnEvaluator(PrimitiveType.FLOAT, elementSlot, column,
+            id -> Double.doubleToLongBits(floatColumn.getFloat(id)));
+      } else if (column instanceof DoubleColumn) {
+        DoubleColumn doubleColumn = (DoubleColumn) column;
+        return new ColumnEvaluator(PrimitiveType.DOUBLE, elementSlot, column,
+            id -> Double.doubleToLongBits(doubleColumn.getDouble(id)));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the name of the type of the values of the expression (e.g. INTEGER, STRING or VERTEX), or null if the type
+   *         is not known before execution, which is the case for e.g. bind variables, aggregations and expressions on
+   *         values of which the type is not known
+   */
+  String getTypeName(QueryExpression exp, Scope scope) {
+    PrimitiveEvaluator primitiveEvaluator = compilePrimitive(exp, scope);
+    if (primitiveEvaluator != null) {
+      return primitiveEvaluator.getType().name();
+    }
+    if (scope.getValueSlot(exp) != Scope.NOT_FOUND) {
+      return null;
+    }
+    switch (exp.getExpType()) {
+      case PROP_ACCESS:
+        return getPropertyTypeName((PropertyAccess) exp, scope);
+      case INTEGER:
+        return "LONG";
+      case DECIMAL:
+        return "DOUBLE";
+      case STRING:
+      case CONCAT:
+      case SUBSTRING:
+        return "STRING";
+      case BOOLEAN:
+      case AND:
+      case OR:
+      case NOT:
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+      case IS_NULL:
+      case IN_EXPRESSION:
+      case BETWEEN_PREDICATE:
+        return "BOOLEAN";
+      case DATE:
+        return "DATE";
+      case TIME:
+        return "TIME";
+      case TIMESTAMP:
+        return "TIMESTAMP";
+      case TIME_WITH_TIMEZONE:
+        return "TIME WITH TIME ZONE";
+      case TIMESTAMP_WITH_TIMEZONE:
+        return "TIMESTAMP WITH TIME ZONE";
+      case SUB:
+      case ADD:
+      case MUL:
+      case DIV:
+      case MOD:
+        return getArithmeticTypeName(getTypeName(((BinaryExpression) exp).getExp1(), scope),
+            getTypeName(((BinaryExpression) exp).getExp2(), scope));
+      case UMIN: {
+        String typeName = getTypeName(((UnaryExpression) exp).getExp(), scope);
+        return isNumericType(typeName) ? typeName : null;
+      }
+      case CAST:
+        return getCastTypeName(((Cast) exp).getTargetTypeName());
+      case FUNCTION_CALL:
+        return getFunctionTypeName((FunctionCall) exp, scope);
+      default:
+        return null;
+    }
+  }
+
+  private String getPropertyTypeName(PropertyAccess propertyAccess, Scope scope) {
+    QueryVariable variable = propertyAccess.getVariable();
+    if (scope.getElementSlot(variable) == Scope.NOT_FOUND) {
+      return null;
+    }
+    String propertyName = propertyAccess.getPropertyName();
+    PropertyColumn column = variable.getVariableType() == VariableType.VERTEX ? graph.getVertexProperty(propertyName)
+        : graph.getEdgeProperty(propertyName);
+    Class<?> valueType = column == null ? null : column.getValueType();
+    if (valueType == Boolean.class) {
+      return "BOOLEAN";
+    } else if (valueType == String.class) {
+      return "STRING";
+    } else if (valueType == LocalDate.class) {
+      return "DATE";
+    } else if (valueType == LocalTime.class) {
+      return "TIME";
+    } else if (valueType == LocalDateTime.class) {
+      return "TIMESTAMP";
+    } else if (valueType == OffsetTime.class) {
+      return "TIME WITH TIME ZONE";
+    } else if (valueType == OffsetDateTime.class) {
+      return "TIMESTAMP WITH TIME ZONE";
+    }
+    return null;
+  }
+
+  private String getFunctionTypeName(FunctionCall functionCall, Scope scope) {
+    if (functionCall.getPackageName() != null || functionCall.getSchemaName() != null) {
+      return null;
+    }
+    List<QueryExpression> args = functionCall.getArgs();
+    switch (functionCall.getFunctionName().toLowerCase()) {
+      case "has_label":
+      case "java_regexp_like":
+        return "BOOLEAN";
+      case "label":
+      case "upper":
+      case "lower":
+        return "STRING";
+      case "id":
+      case "out_degree":
+      case "in_degree":
+        return "LONG";
+      case "abs": {
+        String typeName = args.size() == 1 ? getTypeName(args.get(0), scope) : null;
+        return isNumericType(typeName) ? typeName : null;
+      }
+      case "ceil":
+      case "ceiling":
+      case "floor":
+      case "round": {
+        // integers are returned as is
+        String typeName = args.size() == 1 ? getTypeName(args.get(0), scope) : null;
+        return isNumericType(typeName) ? getArithmeticTypeName(typeName, typeName) : null;
+      }
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the type of the result of an arithmetic operation on values of the given types, following
+   *         {@link ValueUtils#add(Object, Object)} and the like, or null if the type is not known
+   */
+  private static String getArithmeticTypeName(String typeName1, String typeName2) {
+    if (!isNumericType(typeName1) || !isNumericType(typeName2)) {
+      return null;
+    } else if (typeName1.equals("INTEGER") && typeName2.equals("INTEGER")) {
+      return "INTEGER";
+    } else if (isIntegralType(typeName1) && isIntegralType(typeName2)) {
+      return "LONG";
+    }
+    return "DOUBLE";
+  }
+
+  private static boolean isIntegralType(String typeName) {
+    return "INTEGER".equals(typeName) || "LONG".equals(typeName);
+  }
+
+  private static boolean isNumericType(String typeName) {
+    return isIntegralType(typeName) || "FLOAT".equals(typeName) || "DOUBLE".equals(typeName);
+  }
+
+  /**
+   * @return the type of the result of {@link ValueUtils#cast(Object, String)}, or null if the cast is not supported
+   */
+  private static String getCastTypeName(String targetTypeName) {
+    String targetType = targetTypeName.toUpperCase();
+    switch (targetType) {
+      case "INT":
+        return "INTEGER";
+      case "STRING":
+      case "BOOLEAN":
+      case "INTEGER":
+      case "LONG":
+      case "FLOAT":
+      case "DOUBLE":
+      case "DATE":
+      case "TIME":
+      case "TIMESTAMP":
+      case "TIME WITH TIME ZONE":
+      case "TIMESTAMP WITH TIME ZONE":
+        return targetType;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Evaluates a vertex or edge variable, or a property of a vertex or edge variable.
+   */
+  private static class ColumnEvaluator implements PrimitiveEvaluator {
+
+    final PrimitiveType type;
+
+    final int elementSlot;
+
+    /**
+     * The property column, or null for the ID of the vertex or edge.
+     */
+    final PropertyColumn column;
+
+    final IntToLongFunction getter;
+
+    ColumnEvaluator(PrimitiveType type, int elementSlot, PropertyColumn column, IntToLongFunction getter) {
+      this.type = type;
+      this.elementSlot = elementSlot;
+      this.column = column;
+      this.getter = getter;
+    }
+
+    @Override
+    public PrimitiveType getType() {
+      return type;
+    }
+
+    @Override
+    public boolean isNull(Frame frame) {
+      int id = frame.elements[elementSlot];
+      return id == Frame.UNBOUND || (column != null && column.isNull(id));
+    }
+
+    @Override
+    public long evaluate(Frame frame) {
+      return getter.applyAsLong(frame.elements[elementSlot]);
+    }
+  }
+
+  private Evaluator compileFunctionCall(FunctionCall functionCall, Scope scope) throws PgqlException {
+    if (functionCall.getPackageName() != null || functionCall.getSchemaName() != null) {
+      throw new PgqlException("User-defined function " + functionCall + " is not supported by the in-memory engine");
+    }
+    String functionName = functionCall.getFunctionName().toLowerCase();
+    List<QueryExpression> args = functionCall.getArgs();
+    switch (functionName) {
+      case "has_label":
+        checkNumArgs(functionCall, 2);
+        return compileHasLabel(args.get(0), args.get(1), scope);
+      case "label":
+        checkNumArgs(functionCall, 1);
+        return compileElementFunction(args.get(0), scope, graph::getVertexLabel, graph::getEdgeLabel);
+      case "labels":
+        checkNumArgs(functionCall, 1);
+        return compileElementFunction(args.get(0), scope, vertex -> toSet(graph.getVertexLabel(vertex)),
+            edge -> toSet(graph.getEdgeLabel(edge)));
+      case "id":
+        checkNumArgs(functionCall, 1);
+        return compileElementFunction(args.get(0), scope, vertex -> (long) vertex, edge -> (long) edge);
+      case "out_degree":
+        checkNumArgs(functionCall, 1);
+        return compileElementFunction(args.get(0), scope, vertex -> (long) graph.getOutDegree(vertex), null);
+      case "in_degree":
+        checkNumArgs(functionCall, 1);
+        return compileElementFunction(args.get(0), scope, vertex -> (long) graph.getInDegree(vertex), null);
+      case "upper":
+        checkNumArgs(functionCall, 1);
+        return compileUnary(args.get(0), scope, value -> value.toString().toUpperCase());
+      case "lower":
+        checkNumArgs(functionCall, 1);
+        return compileUnary(args.get(0), scope, value -> value.toString().toLowerCase());
+      case "abs":
+        checkNumArgs(functionCall, 1);
+        return compileUnary(args.get(0), scope, value -> ValueUtils.compare(value, 0L) < 0 //
+            ? ValueUtils.negate(value)
+            : value);
+      case "ceil":
+      case "ceiling":
+        checkNumArgs(functionCall, 1);
+        return compileUnary(args.get(0), scope, value -> ValueUtils.isIntegral(value) ? value //
+            : Math.ceil(((Number) ValueUtils.cast(value, "DOUBLE")).doubleValue()));
+      case "floor":
+        checkNumArgs(functionCall, 1);
+        return compileUnary(args.get(0), scope, value -> ValueUtils.isIntegral(value) ? value //
+            : Math.floor(((Number) ValueUtils.cast(value, "DOUBLE")).doubleValue()));
+      case "round":
+        checkNumArgs(functionCall, 1);
+        return compileUnary(args.get(0), scope, value -> ValueUtils.isIntegral(value) ? value //
+            : (double) Math.round(((Number) ValueUtils.cast(value, "DOUBLE")).doubleValue()));
+      case "java_regexp_like": {
+        checkNumArgs(functionCall, 2);
+        Evaluator string = compile(args.get(0), scope);
+        QueryExpression patternExp = args.get(1);
+        if (patternExp instanceof Constant) {
+          Pattern pattern = Pattern.compile(((Constant<?>) patternExp).getValue().toString());
+          return frame -> {
+            Object value = string.evaluate(frame);
+            return value == null ? null : pattern.matcher(value.toString()).matches();
+          };
+        }
+        Evaluator regex = compile(patternExp, scope);
+        return frame -> {
+          Object value = string.evaluate(frame);
+          Object regexValue = value == null ? null : regex.evaluate(frame);
+          return regexValue == null ? null : Pattern.matches(regexValue.toString(), value.toString());
+        };
+      }
+      default:
+        throw new PgqlException("Function " + functionCall.getFunctionName()
+            + " is not supported by the in-memory engine");
+    }
+  }
+
+  private static void checkNumArgs(FunctionCall functionCall, int numArgs) throws PgqlException {
+    if (functionCall.getArgs().size() != numArgs) {
+      throw new PgqlException("Function " + functionCall.getFunctionName() + " expects " + numArgs + " argument(s)");
+    }
+  }
+
+  private static Collection<String> toSet(String label) {
+    return label == null ? Collections.emptySet() : Collections.singleton(label);
+  }
+
+  @FunctionalInterface
+  private interface ElementFunction {
+    Object apply(int id);
+  }
+
+  /**
+   * Compile a function on a vertex or edge. Vertices and edges that are bound by the graph pattern are accessed by ID,
+   * without creating {@link InMemoryVertex} or {@link InMemoryEdge} objects.
+   *
+   * @param edgeFunction
+   *          the function to apply on edges, or null if the function only applies to vertices
+   */
+  private Evaluator compileElementFunction(QueryExpression arg, Scope scope, ElementFunction vertexFunction,
+      ElementFunction edgeFunction) throws PgqlException {
+    if (arg.getExpType() == QueryExpression.ExpressionType.VARREF) {
+      QueryVariable variable = ((VarRef) arg).getVariable();
+      int elementSlot = scope.getElementSlot(variable);
+      if (elementSlot != Scope.NOT_FOUND) {
+        boolean isVertex = variable.getVariableType() == VariableType.VERTEX;
+        if (!isVertex && edgeFunction == null) {
+          throw new PgqlException("Expected a vertex but got edge " + variable.getName());
+        }
+        ElementFunction function = isVertex ? vertexFunction : edgeFunction;
+        return frame -> {
+          int id = frame.elements[elementSlot];
+          return id == Frame.UNBOUND ? null : function.apply(id);
+        };
+      }
+    }
+
+    Evaluator evaluator = compile(arg, scope);
+    return frame -> {
+      Object value = evaluator.evaluate(frame);
+      if (value instanceof InMemoryVertex) {
+        return vertexFunction.apply(((InMemoryVertex) value).getId());
+      } else if (value instanceof InMemoryEdge && edgeFunction != null) {
+        return edgeFunction.apply(((InMemoryEdge) value).getId());
+      } else if (value == null) {
+        return null;
+      }
+      throw new IllegalArgumentException("Expected a vertex or edge but got " + value);
+    };
+  }
+
+  private Evaluator compileHasLabel(QueryExpression elementExp, QueryExpression labelExp, Scope scope)
+      throws PgqlException {
+    if (labelExp instanceof Constant) {
+      String label = ((Constant<?>) labelExp).getValue().toString();
+      int vertexLabelId = graph.getVertexLabelId(label);
+      int edgeLabelId = graph.getEdgeLabelId(label);
+      IntPredicate hasVertexLabel = vertex -> vertexLabelId != CsrGraph.NO_LABEL
+          && graph.getVertexLabelId(vertex) == vertexLabelId;
+      IntPredicate hasEdgeLabel = edge -> edgeLabelId != CsrGraph.NO_LABEL && graph.getEdgeLabelId(edge) == edgeLabelId;
+      return compileElementFunction(elementExp, scope, vertex -> hasVertexLabel.test(vertex),
+          edge -> hasEdgeLabel.test(edge));
+    }
+
+    // label is a bind variable
+    Evaluator element = compileElementFunction(elementExp, scope, graph::getVertexLabel, graph::getEdgeLabel);
+    Evaluator label = compile(labelExp, scope);
+    return frame -> {
+      Object labelValue = label.evaluate(frame);
+      if (labelValue == null) {
+        return null;
+      }
+      Object actualLabel = element.evaluate(frame);
+      return actualLabel != null && actualLabel.toString().equalsIgnoreCase(labelValue.toString());
+    };
+  }
+
+  private Evaluator compileInPredicate(InPredicate inPredicate, Scope scope) throws PgqlException {
+    Evaluator evaluator = compile(inPredicate.getExp(), scope);
+    QueryExpression inValueList = inPredicate.getInValueList();
+    Evaluator values;
+    if (inValueList.getExpType() == QueryExpression.ExpressionType.IN_VALUE_LIST) {
+      List<Object> constants = getValues((InValueList) inValueList);
+      values = frame -> constants;
+    } else {
+      values = compile(inValueList, scope);
+    }
+    return frame -> {
+      Object value = evaluator.evaluate(frame);
+      Object list = values.evaluate(frame);
+      if (value == null || list == null) {
+        return null;
+      }
+      boolean containsNull = false;
+      for (Object element : (Collection<?>) list) {
+        if (element == null) {
+          containsNull = true;
+        } else if (ValueUtils.equal(value, element)) {
+          return true;
+        }
+      }
+      return containsNull ? null : false;
+    };
+  }
+
+  private static List<Object> getValues(InValueList inValueList) {
+    switch (inValueList.getArrayElementType()) {
+      case INTEGER: {
+        List<Object> result = new ArrayList<>();
+        for (long value : inValueList.getIntegerValues()) {
+          result.add(value);
+        }
+        return result;
+      }
+      case DECIMAL: {
+        List<Object> result = new ArrayList<>();
+        for (double value : inValueList.getDecimalValues()) {
+          result.add(value);
+        }
+        return result;
+      }
+      case BOOLEAN: {
+        List<Object> result = new ArrayList<>();
+        for (boolean value : inValueList.getBooleanValues()) {
+          result.add(value);
+        }
+        return result;
+      }
+      case STRING:
+        return Arrays.asList((Object[]) inValueList.getStringValues());
+      case DATE:
+        return Arrays.asList((Object[]) inValueList.getDateValues());
+      case TIME:
+        return Arrays.asList((Object[]) inValueList.getTimeValues());
+      case TIMESTAMP:
+        return Arrays.asList((Object[]) inValueList.getTimestampValues());
+      default:
+        throw new IllegalArgumentException(inValueList.getArrayElementType().toString());
+    }
+  }
+
+  private Evaluator compileSubstring(SubstringExpression substring, Scope scope) throws PgqlException {
+    Evaluator string = compile(substring.getExp(), scope);
+    Evaluator startPosition = compile(substring.getStartPosition(), scope);
+    Evaluator stringLength = substring.getStringLength() == null ? null : compile(substring.getStringLength(), scope);
+    return frame -> {
+      Object value = string.evaluate(frame);
+      Object start = startPosition.evaluate(frame);
+      Object length = stringLength == null ? Long.MAX_VALUE : stringLength.evaluate(frame);
+      if (value == null || start == null || length == null) {
+        return null;
+      }
+      String s = value.toString();
+      // positions are 1-based and characters before position 1 are counted but not returned
+      long begin = ValueUtils.toLong(start) - 1;
+      long end = stringLength == null ? s.length() : begin + ValueUtils.toLong(length);
+      if (end < begin) {
+        throw new IllegalArgumentException("Negative substring length " + length);
+      }
+      begin = Math.max(0, Math.min(begin, s.length()));
+      end = Math.max(begin, Math.min(end, s.length()));
+      return s.substring((int) begin, (int) end);
+    };
+  }
+
+  private static Object extract(ExtractField field, Object value) {
+    if (value instanceof LocalDate) {
+      LocalDate date = (LocalDate) value;
+      switch (field) {
+        case YEAR:
+          return date.getYear();
+        case MONTH:
+          return date.getMonthValue();
+        case DAY:
+          return date.getDayOfMonth();
+        default:
+          break;
+      }
+    } else if (value instanceof LocalTime || value instanceof OffsetTime) {
+      LocalTime time = value instanceof LocalTime ? (LocalTime) value : ((OffsetTime) value).toLocalTime();
+      switch (field) {
+        case HOUR:
+          return time.getHour();
+        case MINUTE:
+          return time.getMinute();
+        case SECOND:
+          return time.getSecond() + time.getNano() / 1_000_000_000.0;
+        case TIMEZONE_HOUR:
+        case TIMEZONE_MINUTE:
+          if (value instanceof OffsetTime) {
+            return extractTimezone(field, ((OffsetTime) value).getOffset().getTotalSeconds());
+          }
+          break;
+        default:
+          break;
+      }
+    } else if (value instanceof LocalDateTime || value instanceof OffsetDateTime) {
+      LocalDateTime timestamp = value instanceof LocalDateTime ? (LocalDateTime) value
+          : ((OffsetDateTime) value).toLocalDateTime();
+      switch (field) {
+        case YEAR:
+          return timestamp.getYear();
+        case MONTH:
+          return timestamp.getMonthValue();
+        case DAY:
+          return timestamp.getDayOfMonth();
+        case HOUR:
+          return timestamp.getHour();
+        case MINUTE:
+          return timestamp.getMinute();
+        case SECOND:
+          return timestamp.getSecond() + timestamp.getNano() / 1_000_000_000.0;
+        case TIMEZONE_HOUR:
+        case TIMEZONE_MINUTE:
+          if (value instanceof OffsetDateTime) {
+            return extractTimezone(field, ((OffsetDateTime) value).getOffset().getTotalSeconds());
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    throw new IllegalArgumentException("Cannot extract " + field + " from " + value);
+  }
+
+  private static int extractTimezone(ExtractField field, int offsetSeconds) {
+    return field == ExtractField.TIMEZONE_HOUR ? offsetSeconds / 3600 : (offsetSeconds / 60) % 60;
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Arrays;
+
+/**
+ * The state against which compiled expressions are evaluated: the IDs of the vertices and edges that are bound by the
+ * graph pattern, the values of computed variables (e.g. the elements of the SELECT or GROUP BY clause and the results
+ * of aggregations) and the values of the bind variables.
+ */
+final class Frame {
+
+  static final int UNBOUND = -1;
+
+  final Object[] parameters;
+
+  final int[] elements;
+
+  Object[] values;
+
+  Frame(Object[] parameters, int numElements, int numValues) {
+    this.parameters = parameters;
+    this.elements = new int[numElements];
+    this.values = new Object[numValues];
+    Arrays.fill(elements, UNBOUND);
+  }
+}
@@ -0,0 +1,1293 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import oracle.pgql.lang.engine.DistinctSet.AddResult;
+import oracle.pgql.lang.engine.DistinctSet.KeyBuilder;
+import oracle.pgql.lang.engine.PrimitiveEvaluator.PrimitiveType;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+
+/**
+ * Groups rows by the values of the grouping keys and computes the aggregations per group by means of an open-addressing
+ * hash table. The keys and the states of the aggregations are stored in arrays that are indexed by group.
+ *
+ * Keys that are vertices, edges or numeric properties are stored in primitive arrays, and COUNT as well as SUM, MIN,
+ * MAX and AVG over such values are computed on primitive longs and doubles, such that rows are aggregated without
+ * allocating objects. COUNT(DISTINCT ...) keeps the distinct values of all groups in a single off-heap
+ * {@link DistinctSet}. Other keys (e.g. strings) are stored as objects and other aggregations (e.g. ARRAY_AGG or SUM
+ * with DISTINCT) are computed by {@link Accumulator}s.
+ *
+ * If all aggregations are primitive and the estimated size of a table exceeds the memory budget, its groups are spilled
+ * to temporary files that are partitioned by hash. Once all rows are added, the partitions are aggregated one at a
+ * time. Groups are produced in the order in which they were first seen, unless groups were spilled. Object keys are
+ * spilled with their exact type, except for keys such as lists that cannot be written, after which the table keeps
+ * its groups in memory. COUNT(DISTINCT ...) and the aggregations that are computed by {@link Accumulator}s are not
+ * spilled either, so tables with such aggregations are always kept in memory.
+ */
+final class HashAggregation {
+
+  private static final int NUM_PARTITION_BITS = 4;
+
+  private static final int NUM_PARTITIONS = 1 << NUM_PARTITION_BITS;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * The estimated number of bytes per group for the hash table itself and for every key or aggregation.
+   */
+  private static final int BYTES_PER_GROUP = 12;
+
+  private static final int BYTES_PER_COLUMN = 16;
+
+  private static final int EMPTY = -1;
+
+  /**
+   * The types of the values of object keys in spill files.
+   */
+  private static final byte NULL = 0;
+
+  private static final byte BOOLEAN = 1;
+
+  private static final byte INTEGER = 2;
+
+  private static final byte LONG = 3;
+
+  private static final byte FLOAT = 4;
+
+  private static final byte DOUBLE = 5;
+
+  private static final byte STRING = 6;
+
+  private static final byte DATE = 7;
+
+  private static final byte TIME = 8;
+
+  private static final byte TIMESTAMP = 9;
+
+  private static final byte TIME_WITH_TIMEZONE = 10;
+
+  private static final byte TIMESTAMP_WITH_TIMEZONE = 11;
+
+  private static final byte VERTEX = 12;
+
+  private static final byte EDGE = 13;
+
+  private static final byte NOT_WRITABLE = -1;
+
+  private final CsrGraph graph;
+
+  private final long memoryBudget;
+
+  private final List<Supplier<KeyColumn>> keyFactories = new ArrayList<>();
+
+  private final List<Supplier<AggregateColumn>> aggregateFactories = new ArrayList<>();
+
+  private boolean spillable = true;
+
+  /**
+   * @param memoryBudget
+   *          the number of bytes that a single table may take before its groups are spilled to disk
+   */
+  HashAggregation(CsrGraph graph, long memoryBudget) {
+    this.graph = graph;
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * @param primitiveEvaluator
+   *          the key as a primitive evaluator, or null if the values of the key are not primitive
+   */
+  void addKey(Evaluator evaluator, PrimitiveEvaluator primitiveEvaluator) {
+    if (primitiveEvaluator == null) {
+      keyFactories.add(() -> new ObjectKeyColumn(evaluator));
+    } else {
+      keyFactories.add(() -> new PrimitiveKeyColumn(primitiveEvaluator));
+    }
+  }
+
+  /**
+   * @param argument
+   *          the argument of the aggregation, or null for COUNT(*)
+   * @param primitiveArgument
+   *          the argument as a primitive evaluator, or null if the values of the argument are not primitive
+   */
+  void addAggregation(Aggregation aggregation, Evaluator argument, PrimitiveEvaluator primitiveArgument) {
+    Supplier<AggregateColumn> factory = null;
+    if (((AbstractAggregation) aggregation).isDistinct()) {
+      if (aggregation.getExpType() == ExpressionType.AGGR_COUNT && argument != null) {
+        factory = () -> new CountDistinctColumn(argument, memoryBudget);
+        spillable = false;
+      }
+    } else {
+      PrimitiveType type = primitiveArgument == null ? null : primitiveArgument.getType();
+      switch (aggregation.getExpType()) {
+        case AGGR_COUNT:
+          factory = () -> new CountColumn(argument, primitiveArgument);
+          break;
+        case AGGR_MIN:
+        case AGGR_MAX: {
+          boolean min = aggregation.getExpType() == ExpressionType.AGGR_MIN;
+          if (type != null) {
+            factory = () -> new MinMaxColumn(primitiveArgument, min, graph);
+          }
+          break;
+        }
+        case AGGR_SUM:
+          if (type != null && type.isNumeric()) {
+            factory = () -> new SumColumn(primitiveArgument);
+          }
+          break;
+        case AGGR_AVG:
+          if (type != null && type.isNumeric()) {
+            factory = () -> new AvgColumn(primitiveArgument);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    if (factory == null) {
+      Supplier<Accumulator> accumulatorFactory = Accumulator.getFactory(aggregation);
+      factory = () -> new AccumulatorColumn(argument, accumulatorFactory);
+      spillable = false;
+    }
+    aggregateFactories.add(factory);
+  }
+
+  int getNumKeys() {
+    return keyFactories.size();
+  }
+
+  /**
+   * @return whether tables can spill their groups to disk, which is the case if all aggregations are primitive
+   */
+  boolean isSpillable() {
+    return spillable;
+  }
+
+  GroupTable createTable() {
+    return new GroupTable(spillable ? memoryBudget : Long.MAX_VALUE);
+  }
+
+  private static int mix(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int getPartition(int hash) {
+    return hash >>> (Integer.SIZE - NUM_PARTITION_BITS);
+  }
+
+  /**
+   * @return the type of the value of an object key in spill files, or NOT_WRITABLE if the value cannot be written (e.g.
+   *         a list)
+   */
+  private static byte getWritableType(Object value) {
+    if (value == null) {
+      return NULL;
+    } else if (value instanceof Boolean) {
+      return BOOLEAN;
+    } else if (value instanceof Integer) {
+      return INTEGER;
+    } else if (value instanceof Long) {
+      return LONG;
+    } else if (value instanceof Float) {
+      return FLOAT;
+    } else if (value instanceof Double) {
+      return DOUBLE;
+    } else if (value instanceof String) {
+      return STRING;
+    } else if (value instanceof LocalDate) {
+      return DATE;
+    } else if (value instanceof LocalTime) {
+      return TIME;
+    } else if (value instanceof LocalDateTime) {
+      return TIMESTAMP;
+    } else if (value instanceof OffsetTime) {
+      return TIME_WITH_TIMEZONE;
+    } else if (value instanceof OffsetDateTime) {
+      return TIMESTAMP_WITH_TIMEZONE;
+    } else if (value instanceof InMemoryVertex) {
+      return VERTEX;
+    } else if (value instanceof InMemoryEdge) {
+      return EDGE;
+    }
+    return NOT_WRITABLE;
+  }
+
+  private static void writeValue(DataOutput out, Object value) throws IOException {
+    byte type = getWritableType(value);
+    out.writeByte(type);
+    switch (type) {
+      case NULL:
+        break;
+      case BOOLEAN:
+        out.writeBoolean((Boolean) value);
+        break;
+      case INTEGER:
+        out.writeInt((Integer) value);
+        break;
+      case LONG:
+        out.writeLong((Long) value);
+        break;
+      case FLOAT:
+        out.writeFloat((Float) value);
+        break;
+      case DOUBLE:
+        out.writeDouble((Double) value);
+        break;
+      case STRING: {
+        String string = (String) value;
+        out.writeInt(string.length());
+        out.writeChars(string);
+        break;
+      }
+      case DATE:
+        out.writeLong(((LocalDate) value).toEpochDay());
+        break;
+      case TIME:
+        out.writeLong(((LocalTime) value).toNanoOfDay());
+        break;
+      case TIMESTAMP:
+        writeTimestamp(out, (LocalDateTime) value);
+        break;
+      case TIME_WITH_TIMEZONE: {
+        OffsetTime time = (OffsetTime) value;
+        out.writeLong(time.toLocalTime().toNanoOfDay());
+        out.writeInt(time.getOffset().getTotalSeconds());
+        break;
+      }
+      case TIMESTAMP_WITH_TIMEZONE: {
+        OffsetDateTime timestamp = (OffsetDateTime) value;
+        writeTimestamp(out, timestamp.toLocalDateTime());
+        out.writeInt(timestamp.getOffset().getTotalSeconds());
+        break;
+      }
+      case VERTEX:
+        out.writeInt(((InMemoryVertex) value).getId());
+        break;
+      case EDGE:
+        out.writeInt(((InMemoryEdge) value).getId());
+        break;
+      default:
+        throw new IllegalStateException("Key of type " + value.getClass().getName() + " cannot be spilled");
+    }
+  }
+
+  private static void writeTimestamp(DataOutput out, LocalDateTime timestamp) throws IOException {
+    out.writeLong(timestamp.toLocalDate().toEpochDay());
+    out.writeLong(timestamp.toLocalTime().toNanoOfDay());
+  }
+
+  private Object readValue(DataInput in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case BOOLEAN:
+        return in.readBoolean();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case STRING: {
+        char[] chars = new char[in.readInt()];
+        for (int i = 0; i < chars.length; i++) {
+          chars[i] = in.readChar();
+        }
+        return new String(chars);
+      }
+      case DATE:
+        return LocalDate.ofEpochDay(in.readLong());
+      case TIME:
+        return LocalTime.ofNanoOfDay(in.readLong());
+      case TIMESTAMP:
+        return readTimestamp(in);
+      case TIME_WITH_TIMEZONE:
+        return OffsetTime.of(LocalTime.ofNanoOfDay(in.readLong()), ZoneOffset.ofTotalSeconds(in.readInt()));
+      case TIMESTAMP_WITH_TIMEZONE:
+        return OffsetDateTime.of(readTimestamp(in), ZoneOffset.ofTotalSeconds(in.readInt()));
+      case VERTEX:
+        return new InMemoryVertex(graph, in.readInt());
+      case EDGE:
+        return new InMemoryEdge(graph, in.readInt());
+      default:
+        throw new IllegalStateException("Unknown type of spilled key: " + type);
+    }
+  }
+
+  private static LocalDateTime readTimestamp(DataInput in) throws IOException {
+    return LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()));
+  }
+
+  /**
+   * The groups of (a part of) the rows. A table is not thread-safe; for parallel aggregation, every task has its own
+   * table and the tables are merged into a single table at the end.
+   */
+  final class GroupTable implements AutoCloseable {
+
+    private final KeyColumn[] keys;
+
+    private final AggregateColumn[] aggregates;
+
+    /**
+     * The number of groups after which the groups are spilled to disk.
+     */
+    private final long maxGroups;
+
+    private int numGroups;
+
+    private int groupCapacity;
+
+    /**
+     * The hash of the key of every group.
+     */
+    private int[] hashes;
+
+    /**
+     * The group of every slot of the hash table, or EMPTY.
+     */
+    private int[] slots;
+
+    private Path[] partitionFiles;
+
+    private DataOutputStream[] partitionOutputs;
+
+    private int[] partitionSizes;
+
+    /**
+     * Whether one of the groups has a key that cannot be written to disk, after which the groups are no longer spilled.
+     */
+    private boolean hasUnwritableKeys;
+
+    private GroupTable(long memoryBudget) {
+      keys = new KeyColumn[keyFactories.size()];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = keyFactories.get(i).get();
+      }
+      aggregates = new AggregateColumn[aggregateFactories.size()];
+      for (int i = 0; i < aggregates.length; i++) {
+        aggregates[i] = aggregateFactories.get(i).get();
+      }
+      long bytesPerGroup = BYTES_PER_GROUP + BYTES_PER_COLUMN * (keys.length + aggregates.length);
+      maxGroups = Math.max(1, memoryBudget / bytesPerGroup);
+      hashes = new int[0];
+      slots = new int[INITIAL_CAPACITY * 2];
+      Arrays.fill(slots, EMPTY);
+      ensureGroupCapacity(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return true if the table does not have any groups, neither in memory nor on disk
+     */
+    boolean isEmpty() {
+      return numGroups == 0 && partitionFiles == null;
+    }
+
+    void add(Frame frame) {
+      int hash = 1;
+      for (KeyColumn key : keys) {
+        hash = 31 * hash + key.load(frame);
+      }
+      int group = findOrInsert(mix(hash));
+      for (AggregateColumn aggregate : aggregates) {
+        aggregate.add(group, frame);
+      }
+      spillIfNeeded();
+    }
+
+    /**
+     * Add the group with the empty key, which is the only group in case of implicit grouping.
+     */
+    void addEmptyGroup() {
+      findOrInsert(mix(1));
+    }
+
+    /**
+     * Merge the groups of the other table into this table, including the groups that the other table spilled. The
+     * other table is closed afterwards.
+     */
+    void merge(GroupTable other) {
+      try {
+        int[] groupMapping = new int[other.numGroups];
+        for (int otherGroup = 0; otherGroup < other.numGroups; otherGroup++) {
+          groupMapping[otherGroup] = mergeGroup(other, otherGroup);
+          spillIfNeeded();
+        }
+        for (int i = 0; i < aggregates.length; i++) {
+          aggregates[i].mergeGroups(other.aggregates[i], groupMapping);
+        }
+        if (other.partitionFiles != null) {
+          other.closePartitionOutputs();
+          for (int p = 0; p < NUM_PARTITIONS; p++) {
+            readPartition(other.partitionFiles[p], other.partitionSizes[p]);
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        other.close();
+      }
+    }
+
+    /**
+     * Pass the keys and the results of the aggregations of every group to the consumer. The table is closed afterwards.
+     *
+     * @param consumer
+     *          receives an array with the values of the keys followed by the results of the aggregations, which is
+     *          reused for the next group
+     */
+    void forEachGroup(Consumer<Object[]> consumer) {
+      try {
+        if (partitionFiles == null) {
+          emitGroups(consumer);
+          return;
+        }
+        closePartitionOutputs();
+        for (int p = 0; p < NUM_PARTITIONS; p++) {
+          // a partition has about 1/16th of the groups, so it is aggregated in memory
+          try (GroupTable partition = new GroupTable(Long.MAX_VALUE)) {
+            partition.readPartition(partitionFiles[p], partitionSizes[p]);
+            // the groups that are still in memory are merged directly rather than spilled first
+            for (int group = 0; group < numGroups; group++) {
+              if (getPartition(hashes[group]) == p) {
+                partition.mergeGroup(this, group);
+              }
+            }
+            partition.emitGroups(consumer);
+          }
+          Files.delete(partitionFiles[p]);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        close();
+      }
+    }
+
+    private void emitGroups(Consumer<Object[]> consumer) {
+      Object[] values = new Object[keys.length + aggregates.length];
+      for (int group = 0; group < numGroups; group++) {
+        for (int i = 0; i < keys.length; i++) {
+          values[i] = keys[i].getValue(group);
+        }
+        for (int i = 0; i < aggregates.length; i++) {
+          values[keys.length + i] = aggregates[i].getResult(group);
+        }
+        consumer.accept(values);
+      }
+    }
+
+    /**
+     * Merge a group of the other table into the group with the same key in this table, which is created if needed.
+     *
+     * @return the group in this table
+     */
+    private int mergeGroup(GroupTable other, int otherGroup) {
+      int hash = 1;
+      for (int i = 0; i < keys.length; i++) {
+        hash = 31 * hash + keys[i].load(other.keys[i], otherGroup);
+      }
+      int group = findOrInsert(mix(hash));
+      for (int i = 0; i < aggregates.length; i++) {
+        aggregates[i].merge(group, other.aggregates[i], otherGroup);
+      }
+      return group;
+    }
+
+    /**
+     * Find the group with the key that is loaded into the key columns, or create a new group for it.
+     */
+    private int findOrInsert(int hash) {
+      int mask = slots.length - 1;
+      int slot = hash & mask;
+      while (true) {
+        int group = slots[slot];
+        if (group == EMPTY) {
+          break;
+        }
+        if (hashes[group] == hash && keysMatch(group)) {
+          return group;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      int group = numGroups++;
+      ensureGroupCapacity(numGroups);
+      hashes[group] = hash;
+      for (KeyColumn key : keys) {
+        key.store(group);
+        if (!key.canWrite(group)) {
+          hasUnwritableKeys = true;
+        }
+      }
+      slots[slot] = group;
+      if (numGroups * 2 > slots.length) {
+        rehash(slots.length * 2);
+      }
+      return group;
+    }
+
+    private boolean keysMatch(int group) {
+      for (KeyColumn key : keys) {
+        if (!key.matches(group)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void ensureGroupCapacity(int capacity) {
+      if (capacity <= groupCapacity) {
+        return;
+      }
+      int newCapacity = Math.max(capacity, groupCapacity * 2);
+      hashes = Arrays.copyOf(hashes, newCapacity);
+      for (KeyColumn key : keys) {
+        key.grow(newCapacity);
+      }
+      for (AggregateColumn aggregate : aggregates) {
+        aggregate.grow(newCapacity);
+      }
+      groupCapacity = newCapacity;
+    }
+
+    private void rehash(int numSlots) {
+      slots = new int[numSlots];
+      Arrays.fill(slots, EMPTY);
+      int mask = numSlots - 1;
+      for (int group = 0; group < numGroups; group++) {
+        int slot = hashes[group] & mask;
+        while (slots[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = group;
+      }
+    }
+
+    private void spillIfNeeded() {
+      if (numGroups > maxGroups && !hasUnwritableKeys) {
+        try {
+          spill();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+
+    /**
+     * Write the groups to the partition files, partitioned by the highest bits of their hash, and clear the table.
+     */
+    private void spill() throws IOException {
+      if (partitionFiles == null) {
+        partitionFiles = new Path[NUM_PARTITIONS];
+        partitionOutputs = new DataOutputStream[NUM_PARTITIONS];
+        partitionSizes = new int[NUM_PARTITIONS];
+        for (int p = 0; p < NUM_PARTITIONS; p++) {
+          partitionFiles[p] = Files.createTempFile("pgql-groups-", ".tmp");
+          partitionOutputs[p] = new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(partitionFiles[p])));
+        }
+      }
+      for (int group = 0; group < numGroups; group++) {
+        int p = getPartition(hashes[group]);
+        for (KeyColumn key : keys) {
+          key.write(partitionOutputs[p], group);
+        }
+        for (AggregateColumn aggregate : aggregates) {
+          aggregate.write(partitionOutputs[p], group);
+        }
+        partitionSizes[p]++;
+      }
+      for (AggregateColumn aggregate : aggregates) {
+        aggregate.clear(numGroups);
+      }
+      numGroups = 0;
+      Arrays.fill(slots, EMPTY);
+    }
+
+    private void readPartition(Path file, int numRecords) throws IOException {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+        for (int record = 0; record < numRecords; record++) {
+          int hash = 1;
+          for (KeyColumn key : keys) {
+            hash = 31 * hash + key.read(in);
+          }
+          int group = findOrInsert(mix(hash));
+          for (AggregateColumn aggregate : aggregates) {
+            aggregate.read(in, group);
+          }
+          spillIfNeeded();
+        }
+      }
+    }
+
+    private void closePartitionOutputs() throws IOException {
+      for (DataOutputStream output : partitionOutputs) {
+        output.close();
+      }
+    }
+
+    /**
+     * Release the off-heap memory of the aggregations and delete the files to which groups were spilled, if any.
+     */
+    @Override
+    public void close() {
+      for (AggregateColumn aggregate : aggregates) {
+        aggregate.close();
+      }
+      if (partitionFiles == null) {
+        return;
+      }
+      for (int p = 0; p < NUM_PARTITIONS; p++) {
+        try {
+          if (partitionOutputs[p] != null) {
+            partitionOutputs[p].close();
+          }
+          if (partitionFiles[p] != null) {
+            Files.deleteIfExists(partitionFiles[p]);
+          }
+        } catch (IOException e) {
+          // best effort; the file is in the temporary directory
+        }
+      }
+      partitionFiles = null;
+      numGroups = 0;
+    }
+  }
+
+  /**
+   * The values of a grouping key. A key is first loaded (from a row, from another table or from a spill file) and then
+   * compared with or stored into the key of a group.
+   */
+  private abstract static class KeyColumn {
+
+    /**
+     * @return the hash of the loaded value
+     */
+    abstract int load(Frame frame);
+
+    abstract int load(KeyColumn other, int group);
+
+    abstract int read(DataInput in) throws IOException;
+
+    abstract void write(DataOutput out, int group) throws IOException;
+
+    /**
+     * @return whether the loaded value equals the value of the given group
+     */
+    abstract boolean matches(int group);
+
+    abstract void store(int group);
+
+    /**
+     * @return whether the value of the given group can be written to disk
+     */
+    boolean canWrite(int group) {
+      return true;
+    }
+
+    abstract Object getValue(int group);
+
+    abstract void grow(int capacity);
+  }
+
+  private class PrimitiveKeyColumn extends KeyColumn {
+
+    final PrimitiveEvaluator evaluator;
+
+    long[] values = new long[0];
+
+    final BitSet nulls = new BitSet();
+
+    long loadedValue;
+
+    boolean loadedNull;
+
+    PrimitiveKeyColumn(PrimitiveEvaluator evaluator) {
+      this.evaluator = evaluator;
+    }
+
+    private int hashLoaded() {
+      return loadedNull ? 0 : Long.hashCode(loadedValue);
+    }
+
+    @Override
+    int load(Frame frame) {
+      loadedNull = evaluator.isNull(frame);
+      loadedValue = loadedNull ? 0 : evaluator.evaluate(frame);
+      return hashLoaded();
+    }
+
+    @Override
+    int load(KeyColumn other, int group) {
+      PrimitiveKeyColumn otherColumn = (PrimitiveKeyColumn) other;
+      loadedNull = otherColumn.nulls.get(group);
+      loadedValue = otherColumn.values[group];
+      return hashLoaded();
+    }
+
+    @Override
+    int read(DataInput in) throws IOException {
+      loadedNull = in.readBoolean();
+      loadedValue = in.readLong();
+      return hashLoaded();
+    }
+
+    @Override
+    void write(DataOutput out, int group) throws IOException {
+      out.writeBoolean(nulls.get(group));
+      out.writeLong(values[group]);
+    }
+
+    @Override
+    boolean matches(int group) {
+      return nulls.get(group) == loadedNull && values[group] == loadedValue;
+    }
+
+    @Override
+    void store(int group) {
+      values[group] = loadedValue;
+      nulls.set(group, loadedNull);
+    }
+
+    @Override
+    Object getValue(int group) {
+      return nulls.get(group) ? null : evaluator.getType().box(values[group], graph);
+    }
+
+    @Override
+    void grow(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private class ObjectKeyColumn extends KeyColumn {
+
+    final Evaluator evaluator;
+
+    Object[] values = new Object[0];
+
+    Object loadedValue;
+
+    ObjectKeyColumn(Evaluator evaluator) {
+      this.evaluator = evaluator;
+    }
+
+    @Override
+    int load(Frame frame) {
+      loadedValue = evaluator.evaluate(frame);
+      return ValueUtils.hash(loadedValue);
+    }
+
+    @Override
+    int load(KeyColumn other, int group) {
+      loadedValue = ((ObjectKeyColumn) other).values[group];
+      return ValueUtils.hash(loadedValue);
+    }
+
+    @Override
+    int read(DataInput in) throws IOException {
+      loadedValue = readValue(in);
+      return ValueUtils.hash(loadedValue);
+    }
+
+    @Override
+    void write(DataOutput out, int group) throws IOException {
+      writeValue(out, values[group]);
+    }
+
+    @Override
+    boolean matches(int group) {
+      return RowKey.valuesEqual(values[group], loadedValue);
+    }
+
+    @Override
+    void store(int group) {
+      values[group] = loadedValue;
+    }
+
+    @Override
+    boolean canWrite(int group) {
+      return getWritableType(values[group]) != NOT_WRITABLE;
+    }
+
+    @Override
+    Object getValue(int group) {
+      return values[group];
+    }
+
+    @Override
+    void grow(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  /**
+   * The states of an aggregation for all groups. Spilled states are merged into the state of a group when they are read
+   * back.
+   */
+  private abstract static class AggregateColumn {
+
+    abstract void add(int group, Frame frame);
+
+    abstract void merge(int group, AggregateColumn other, int otherGroup);
+
+    /**
+     * Merge the states of all the groups of the other column at once, after the groups were merged one by one.
+     *
+     * @param groupMapping
+     *          the group in this column of every group of the other column
+     */
+    void mergeGroups(AggregateColumn other, int[] groupMapping) {
+    }
+
+    abstract Object getResult(int group);
+
+    abstract void grow(int capacity);
+
+    /**
+     * Reset the states of the given number of groups.
+     */
+    abstract void clear(int numGroups);
+
+    /**
+     * Only called for the columns of spillable tables (see {@link HashAggregation#isSpillable()}).
+     */
+    void write(DataOutput out, int group) throws IOException {
+      throw new IllegalStateException(getClass().getSimpleName() + " cannot be spilled");
+    }
+
+    void read(DataInput in, int group) throws IOException {
+      throw new IllegalStateException(getClass().getSimpleName() + " cannot be spilled");
+    }
+
+    /**
+     * Release the resources of the column, if any.
+     */
+    void close() {
+    }
+  }
+
+  private static class CountColumn extends AggregateColumn {
+
+    /**
+     * The argument, or null for COUNT(*).
+     */
+    final Evaluator argument;
+
+    final PrimitiveEvaluator primitiveArgument;
+
+    long[] counts = new long[0];
+
+    CountColumn(Evaluator argument, PrimitiveEvaluator primitiveArgument) {
+      this.argument = argument;
+      this.primitiveArgument = primitiveArgument;
+    }
+
+    @Override
+    void add(int group, Frame frame) {
+      if (primitiveArgument != null ? !primitiveArgument.isNull(frame)
+          : argument == null || argument.evaluate(frame) != null) {
+        counts[group]++;
+      }
+    }
+
+    @Override
+    void merge(int group, AggregateColumn other, int otherGroup) {
+      counts[group] += ((CountColumn) other).counts[otherGroup];
+    }
+
+    @Override
+    Object getResult(int group) {
+      return counts[group];
+    }
+
+    @Override
+    void grow(int capacity) {
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    void clear(int numGroups) {
+      Arrays.fill(counts, 0, numGroups, 0);
+    }
+
+    @Override
+    void write(DataOutput out, int group) throws IOException {
+      out.writeLong(counts[group]);
+    }
+
+    @Override
+    void read(DataInput in, int group) throws IOException {
+      counts[group] += in.readLong();
+    }
+  }
+
+  /**
+   * COUNT(DISTINCT ...) by means of a single {@link DistinctSet} for all groups, of which the keys consist of the group
+   * followed by the value. A group is counted once its value is added to the set; values that were spilled are counted
+   * once the first result is requested. Values that cannot be serialized (e.g. lists) are kept in a set per group on
+   * the heap instead.
+   */
+  private static class CountDistinctColumn extends AggregateColumn {
+
+    final Evaluator argument;
+
+    final DistinctSet distinctValues;
+
+    final KeyBuilder key = new KeyBuilder();
+
+    final Map<Integer, Set<RowKey>> otherValues = new HashMap<>();
+
+    long[] counts = new long[0];
+
+    boolean resolved;
+
+    CountDistinctColumn(Evaluator argument, long memoryBudget) {
+      this.argument = argument;
+      this.distinctValues = new DistinctSet(memoryBudget);
+    }
+
+    @Override
+    void add(int group, Frame frame) {
+      Object value = argument.evaluate(frame);
+      if (value == null) {
+        return;
+      }
+      key.clear();
+      key.addInt(group);
+      if (!key.addValue(value)) {
+        otherValues.computeIfAbsent(group, g -> new HashSet<>()).add(new RowKey(new Object[] { value }));
+      } else if (distinctValues.add(key, group) == AddResult.ADDED) {
+        counts[group]++;
+      }
+    }
+
+    @Override
+    void merge(int group, AggregateColumn other, int otherGroup) {
+      // the values of all groups are merged at once by mergeGroups
+    }
+
+    @Override
+    void mergeGroups(AggregateColumn other, int[] groupMapping) {
+      CountDistinctColumn otherColumn = (CountDistinctColumn) other;
+      otherColumn.distinctValues.forEach((buffer, offset, length, tag) -> {
+        int group = groupMapping[(int) tag];
+        key.clear();
+        key.addInt(group);
+        key.addBytes(buffer, offset + Integer.BYTES, length - Integer.BYTES);
+        if (distinctValues.add(key, group) == AddResult.ADDED) {
+          counts[group]++;
+        }
+      });
+      for (Map.Entry<Integer, Set<RowKey>> entry : otherColumn.otherValues.entrySet()) {
+        otherValues.computeIfAbsent(groupMapping[entry.getKey()], g -> new HashSet<>()).addAll(entry.getValue());
+      }
+    }
+
+    @Override
+    Object getResult(int group) {
+      if (!resolved) {
+        distinctValues.resolveSpilledKeys(tag -> counts[(int) tag]++);
+        resolved = true;
+      }
+      Set<RowKey> values = otherValues.get(group);
+      return counts[group] + (values == null ? 0 : values.size());
+    }
+
+    @Override
+    void grow(int capacity) {
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    void clear(int numGroups) {
+      // the groups are never spilled
+      throw new IllegalStateException("COUNT(DISTINCT ...) cannot be spilled");
+    }
+
+    @Override
+    void close() {
+      distinctValues.close();
+    }
+  }
+
+  /**
+   * An aggregation over primitive values that keeps a single long per group, e.g. a sum or a minimum.
+   */
+  private abstract static class PrimitiveAggregateColumn extends AggregateColumn {
+
+    final PrimitiveEvaluator argument;
+
+    final PrimitiveType type;
+
+    long[] values = new long[0];
+
+    /**
+     * The groups that have at least one non-null value.
+     */
+    final BitSet present = new BitSet();
+
+    PrimitiveAggregateColumn(PrimitiveEvaluator argument) {
+      this.argument = argument;
+      this.type = argument.getType();
+    }
+
+    /**
+     * @return the combination of the two (encoded) values
+     */
+    abstract long combine(long value1, long value2);
+
+    private void addValue(int group, long value) {
+      if (present.get(group)) {
+        values[group] = combine(values[group], value);
+      } else {
+        values[group] = value;
+        present.set(group);
+      }
+    }
+
+    @Override
+    void add(int group, Frame frame) {
+      if (!argument.isNull(frame)) {
+        addValue(group, argument.evaluate(frame));
+      }
+    }
+
+    @Override
+    void merge(int group, AggregateColumn other, int otherGroup) {
+      PrimitiveAggregateColumn otherColumn = (PrimitiveAggregateColumn) other;
+      if (otherColumn.present.get(otherGroup)) {
+        addValue(group, otherColumn.values[otherGroup]);
+      }
+    }
+
+    @Override
+    void grow(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    void clear(int numGroups) {
+      present.clear(0, numGroups);
+    }
+
+    @Override
+    void write(DataOutput out, int group) throws IOException {
+      out.writeBoolean(present.get(group));
+      out.writeLong(values[group]);
+    }
+
+    @Override
+    void read(DataInput in, int group) throws IOException {
+      boolean otherPresent = in.readBoolean();
+      long otherValue = in.readLong();
+      if (otherPresent) {
+        addValue(group, otherValue);
+      }
+    }
+  }
+
+  private static class MinMaxColumn extends PrimitiveAggregateColumn {
+
+    final boolean min;
+
+    /**
+     * The graph of the vertices or edges in case of MIN or MAX over vertices or edges.
+     */
+    final CsrGraph graph;
+
+    MinMaxColumn(PrimitiveEvaluator argument, boolean min, CsrGraph graph) {
+      super(argument);
+      this.min = min;
+      this.graph = graph;
+    }
+
+    @Override
+    long combine(long value1, long value2) {
+      int comparison = type.isNumeric() && !type.isIntegral()
+          ? Double.compare(Double.longBitsToDouble(value2), Double.longBitsToDouble(value1))
+          : Long.compare(value2, value1);
+      return (min ? comparison < 0 : comparison > 0) ? value2 : value1;
+    }
+
+    @Override
+    Object getResult(int group) {
+      return present.get(group) ? type.box(values[group], graph) : null;
+    }
+  }
+
+  /**
+   * Sums integers as longs, with an error in case of overflow, and floating point numbers as doubles.
+   */
+  private static class SumColumn extends PrimitiveAggregateColumn {
+
+    SumColumn(PrimitiveEvaluator argument) {
+      super(argument);
+    }
+
+    @Override
+    long combine(long value1, long value2) {
+      if (type.isIntegral()) {
+        return Math.addExact(value1, value2);
+      }
+      return Double.doubleToLongBits(Double.longBitsToDouble(value1) + Double.longBitsToDouble(value2));
+    }
+
+    @Override
+    Object getResult(int group) {
+      if (!present.get(group)) {
+        return null;
+      }
+      return type.isIntegral() ? (Object) values[group] : (Object) type.toDouble(values[group]);
+    }
+  }
+
+  private static class AvgColumn extends AggregateColumn {
+
+    final PrimitiveEvaluator argument;
+
+    double[] sums = new double[0];
+
+    long[] counts = new long[0];
+
+    AvgColumn(PrimitiveEvaluator argument) {
+      this.argument = argument;
+    }
+
+    @Override
+    void add(int group, Frame frame) {
+      if (!argument.isNull(frame)) {
+        sums[group] += argument.getType().toDouble(argument.evaluate(frame));
+        counts[group]++;
+      }
+    }
+
+    @Override
+    void merge(int group, AggregateColumn other, int otherGroup) {
+      sums[group] += ((AvgColumn) other).sums[otherGroup];
+      counts[group] += ((AvgColumn) other).counts[otherGroup];
+    }
+
+    @Override
+    Object getResult(int group) {
+      return counts[group] == 0 ? null : sums[group] / counts[group];
+    }
+
+    @Override
+    void grow(int capacity) {
+      sums = Arrays.copyOf(sums, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    void clear(int numGroups) {
+      Arrays.fill(sums, 0, numGroups, 0);
+      Arrays.fill(counts, 0, numGroups, 0);
+    }
+
+    @Override
+    void write(DataOutput out, int group) throws IOException {
+      out.writeDouble(sums[group]);
+      out.writeLong(counts[group]);
+    }
+
+    @Override
+    void read(DataInput in, int group) throws IOException {
+      sums[group] += in.readDouble();
+      counts[group] += in.readLong();
+    }
+  }
+
+  /**
+   * Computes an aggregation that does not have a primitive implementation by means of an {@link Accumulator} per group.
+   */
+  private static class AccumulatorColumn extends AggregateColumn {
+
+    final Evaluator argument;
+
+    final Supplier<Accumulator> factory;
+
+    Accumulator[] accumulators = new Accumulator[0];
+
+    AccumulatorColumn(Evaluator argument, Supplier<Accumulator> factory) {
+      this.argument = argument;
+      this.factory = factory;
+    }
+
+    private Accumulator getAccumulator(int group) {
+      Accumulator accumulator = accumulators[group];
+      if (accumulator == null) {
+        accumulator = factory.get();
+        accumulators[group] = accumulator;
+      }
+      return accumulator;
+    }
+
+    @Override
+    void add(int group, Frame frame) {
+      Object value = argument == null ? Boolean.TRUE : argument.evaluate(frame);
+      if (value != null) {
+        getAccumulator(group).add(value);
+      }
+    }
+
+    @Override
+    void merge(int group, AggregateColumn other, int otherGroup) {
+      Accumulator otherAccumulator = ((AccumulatorColumn) other).accumulators[otherGroup];
+      if (otherAccumulator != null) {
+        getAccumulator(group).merge(otherAccumulator);
+      }
+    }
+
+    @Override
+    Object getResult(int group) {
+      return getAccumulator(group).getResult();
+    }
+
+    @Override
+    void grow(int capacity) {
+      accumulators = Arrays.copyOf(accumulators, capacity);
+    }
+
+    @Override
+    void clear(int numGroups) {
+      Arrays.fill(accumulators, 0, numGroups, null);
+    }
+  }
+}
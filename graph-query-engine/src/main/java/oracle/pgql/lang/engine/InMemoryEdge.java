@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+/**
+ * An edge of a {@link CsrGraph}, as returned by {@link InMemoryResultSet#getObject(int)} for an edge column.
+ */
+public class InMemoryEdge {
+
+  private final CsrGraph graph;
+
+  private final int id;
+
+  public InMemoryEdge(CsrGraph graph, int id) {
+    this.graph = graph;
+    this.id = id;
+  }
+
+  public CsrGraph getGraph() {
+    return graph;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * @return the label of the edge, or null if the edge has no label
+   */
+  public String getLabel() {
+    return graph.getEdgeLabel(id);
+  }
+
+  public InMemoryVertex getSource() {
+    return new InMemoryVertex(graph, graph.getEdgeSource(id));
+  }
+
+  public InMemoryVertex getDestination() {
+    return new InMemoryVertex(graph, graph.getEdgeDestination(id));
+  }
+
+  /**
+   * @return the value of the property, or null if the edge does not have a value for the property
+   */
+  public Object getProperty(String name) {
+    PropertyColumn column = graph.getEdgeProperty(name);
+    return column == null ? null : column.get(id);
+  }
+
+  @Override
+  public String toString() {
+    return "EDGE(" + id + ")";
+  }
+
+  @Override
+  public int hashCode() {
+    return id;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    InMemoryEdge other = (InMemoryEdge) obj;
+    return id == other.id && graph == other.graph;
+  }
+}
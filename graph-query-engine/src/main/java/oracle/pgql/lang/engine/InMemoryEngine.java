@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.concurrent.ForkJoinPool;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.StatementType;
+import oracle.pgql.lang.planner.MatchOrderPlanner;
+import oracle.pgql.lang.planner.MatchPlan;
+
+/**
+ * Executes PGQL SELECT queries against a {@link CsrGraph} that is held in memory. The match order of the graph pattern
+ * is chosen by the {@link MatchOrderPlanner} based on exact statistics of the graph, after which the query is compiled
+ * into a tree of evaluators that is executed by means of nested loops over the CSR arrays.
+ *
+ * Example:
+ *
+ * <pre>
+ * PgqlResult result = pgql.parse("SELECT m.name FROM MATCH (n:Person) -[:knows]-> (m) WHERE n.name = ?");
+ * InMemoryEngine engine = new InMemoryEngine(graph);
+ * try (InMemoryPreparedStatement stmnt = engine.prepareStatement(result.getPgqlStatement())) {
+ *   stmnt.setString(1, "Alice");
+ *   InMemoryResultSet resultSet = stmnt.executeQuery();
+ *   while (resultSet.next()) {
+ *     System.out.println(resultSet.getString(1));
+ *   }
+ * }
+ * </pre>
+ *
+ * Queries are executed in parallel by splitting the candidate vertices of the first step of the match order into
+ * chunks that are matched by the threads of a {@link ForkJoinPool}. By default, the common pool is used.
+ *
+ * Not supported are path patterns whose path expression consists of more than a single edge, subqueries, and
+ * statements other than SELECT.
+ */
+public class InMemoryEngine {
+
+  private final CsrGraph graph;
+
+  private final CsrGraphStatistics statistics;
+
+  private final MatchOrderPlanner planner;
+
+  /**
+   * The default memory budget for grouping: 256 MB.
+   */
+  public static final long DEFAULT_AGGREGATION_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+  /**
+   * The pool in which queries are executed, or null if queries are executed sequentially.
+   */
+  private final ForkJoinPool pool;
+
+  private long aggregationMemoryBudget = DEFAULT_AGGREGATION_MEMORY_BUDGET;
+
+  /**
+   * Create an engine that executes queries in the common fork/join pool.
+   */
+  public InMemoryEngine(CsrGraph graph) {
+    this(graph, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param parallelism
+   *          the number of threads that execute a query, where 1 means that queries are executed sequentially by the
+   *          calling thread
+   */
+  public InMemoryEngine(CsrGraph graph, int parallelism) {
+    this(graph, createPool(parallelism));
+  }
+
+  /**
+   * @param pool
+   *          the pool in which queries are executed, or null to execute queries sequentially
+   */
+  public InMemoryEngine(CsrGraph graph, ForkJoinPool pool) {
+    this.graph = graph;
+    this.statistics = new CsrGraphStatistics(graph);
+    this.planner = new MatchOrderPlanner(statistics);
+    this.pool = pool == null || pool.getParallelism() == 1 ? null : pool;
+  }
+
+  private static ForkJoinPool createPool(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be at least 1 but got " + parallelism);
+    }
+    if (parallelism == 1) {
+      return null;
+    }
+    return parallelism == ForkJoinPool.getCommonPoolParallelism() ? ForkJoinPool.commonPool()
+        : new ForkJoinPool(parallelism);
+  }
+
+  public CsrGraph getGraph() {
+    return graph;
+  }
+
+  public CsrGraphStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * @return the number of threads that execute a query
+   */
+  public int getParallelism() {
+    return pool == null ? 1 : pool.getParallelism();
+  }
+
+  public long getAggregationMemoryBudget() {
+    return aggregationMemoryBudget;
+  }
+
+  /**
+   * Set the number of bytes that a hash table for grouping may take before its groups are spilled to temporary files.
+   * Only groups of which the keys are vertices, edges or numeric properties and of which the aggregations are COUNT,
+   * SUM, MIN, MAX or AVG over vertices, edges or numeric properties can be spilled. The same budget applies to the
+   * off-heap sets of values for SELECT DISTINCT and COUNT(DISTINCT ...), which spill values to memory-mapped temporary
+   * files instead. In case of parallel execution, the budget applies to the table of every task separately. The budget
+   * applies to statements that are prepared afterwards.
+   */
+  public void setAggregationMemoryBudget(long aggregationMemoryBudget) {
+    if (aggregationMemoryBudget <= 0) {
+      throw new IllegalArgumentException("Memory budget should be positive but got " + aggregationMemoryBudget);
+    }
+    this.aggregationMemoryBudget = aggregationMemoryBudget;
+  }
+
+  /**
+   * @param statement
+   *          a statement as obtained from {@code PgqlResult.getPgqlStatement()}
+   * @return a prepared statement that can be executed multiple times with different values for the bind variables
+   * @throws PgqlException
+   *           if the statement is not a SELECT query or uses features that are not supported by this engine
+   */
+  public InMemoryPreparedStatement prepareStatement(PgqlStatement statement) throws PgqlException {
+    if (statement == null) {
+      throw new PgqlException("Cannot prepare an invalid statement");
+    }
+    if (statement.getStatementType() != StatementType.SELECT) {
+      throw new PgqlException(statement.getStatementType() + " statements are not supported by the in-memory engine");
+    }
+    SelectQuery query = (SelectQuery) statement;
+    MatchPlan plan = query.getGraphPattern() == null ? null : planner.plan(query.getGraphPattern());
+    CompiledSelectQuery compiledQuery = new CompiledSelectQuery(query, plan, graph, aggregationMemoryBudget);
+    return new InMemoryPreparedStatement(compiledQuery, graph, pool);
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.PreparedStatement;
+import oracle.pgql.lang.ir.StatementType;
+
+/**
+ * A SELECT query that is compiled against a {@link CsrGraph}. The statement can be executed multiple times with
+ * different values for the bind variables.
+ *
+ * By default, the rows of the result set are materialized. A streaming statement instead produces the rows of queries
+ * without GROUP BY, aggregation, DISTINCT and ORDER BY while they are consumed, such that the memory usage of the
+ * result set stays constant, regardless of the number of rows. That is especially useful for ONE ROW PER VERTEX and
+ * ONE ROW PER EDGE, which can multiply the number of rows by the length of the paths.
+ */
+public class InMemoryPreparedStatement implements PreparedStatement {
+
+  private final CompiledSelectQuery query;
+
+  private final CsrGraph graph;
+
+  private final ForkJoinPool pool;
+
+  private final Object[] parameters;
+
+  private final boolean[] parameterIsSet;
+
+  private InMemoryResultSet resultSet;
+
+  private boolean closed;
+
+  private boolean streaming;
+
+  InMemoryPreparedStatement(CompiledSelectQuery query, CsrGraph graph, ForkJoinPool pool) {
+    this.query = query;
+    this.graph = graph;
+    this.pool = pool;
+    this.parameters = new Object[query.getNumBindVariables()];
+    this.parameterIsSet = new boolean[parameters.length];
+  }
+
+  @Override
+  public InMemoryResultSet executeQuery() throws PgqlException {
+    checkNotClosed();
+    for (int i = 0; i < parameterIsSet.length; i++) {
+      if (!parameterIsSet[i]) {
+        throw new PgqlException("No value specified for parameter " + (i + 1));
+      }
+    }
+
+    InMemoryResultSet newResultSet;
+    if (streaming && query.isStreamable()) {
+      newResultSet = new InMemoryResultSet(query.getMetaData(), query.stream(parameters.clone()), graph);
+    } else {
+      List<Object[]> rows;
+      try {
+        rows = query.execute(parameters.clone(), pool);
+      } catch (IllegalArgumentException | ArithmeticException | DateTimeException | UncheckedIOException e) {
+        throw new PgqlException("Error while executing query: " + e.getMessage(), e);
+      }
+      newResultSet = new InMemoryResultSet(query.getMetaData(), rows, graph);
+    }
+
+    if (resultSet != null) {
+      resultSet.close();
+    }
+    resultSet = newResultSet;
+    return resultSet;
+  }
+
+  /**
+   * Whether to stream the rows of the result set rather than to materialize them. Streaming applies to queries without
+   * GROUP BY, aggregation, DISTINCT and ORDER BY; the result sets of other queries are materialized regardless. A
+   * streamed result set is forward-only and the matching is done sequentially, by the thread that calls
+   * {@link InMemoryResultSet#next()}, which also reports the errors during the execution of the query.
+   */
+  public void setStreaming(boolean streaming) throws PgqlException {
+    checkNotClosed();
+    this.streaming = streaming;
+  }
+
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * @return {@link StatementType#SELECT}, since only SELECT queries can be prepared
+   */
+  @Override
+  public StatementType getStatementType() {
+    return StatementType.SELECT;
+  }
+
+  /**
+   * @return true, since only SELECT queries can be prepared
+   */
+  @Override
+  public boolean execute() throws PgqlException {
+    executeQuery();
+    return true;
+  }
+
+  @Override
+  public InMemoryResultSet getResultSet() throws PgqlException {
+    checkNotClosed();
+    return resultSet;
+  }
+
+  @Override
+  public void setBoolean(int parameterIndex, boolean x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setDouble(int parameterIndex, double x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setFloat(int parameterIndex, float x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setInt(int parameterIndex, int x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setLong(int parameterIndex, long x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setString(int parameterIndex, String x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setDate(int parameterIndex, LocalDate x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setTime(int parameterIndex, LocalTime x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setTimestamp(int parameterIndex, LocalDateTime x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setTimeWithTimezone(int parameterIndex, OffsetTime x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setTimestampWithTimezone(int parameterIndex, OffsetDateTime x) throws PgqlException {
+    setParameter(parameterIndex, x);
+  }
+
+  @Override
+  public void setArray(int parameterIndex, List<?> x) throws PgqlException {
+    setParameter(parameterIndex, x == null ? null : new ArrayList<>(x));
+  }
+
+  private void setParameter(int parameterIndex, Object value) throws PgqlException {
+    checkNotClosed();
+    if (parameterIndex < 1 || parameterIndex > parameters.length) {
+      throw new PgqlException("Parameter index " + parameterIndex + " is out of range; the statement has "
+          + parameters.length + " parameters");
+    }
+    parameters[parameterIndex - 1] = value;
+    parameterIsSet[parameterIndex - 1] = true;
+  }
+
+  private void checkNotClosed() throws PgqlException {
+    if (closed) {
+      throw new PgqlException("Statement is closed");
+    }
+  }
+
+  /**
+   * Closes the statement as well as its current result set.
+   */
+  @Override
+  public void close() throws PgqlException {
+    if (resultSet != null) {
+      resultSet.close();
+      resultSet = null;
+    }
+    closed = true;
+  }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import oracle.pgql.lang.ColumnBatch;
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ResultSet;
+
+/**
+ * The result of a query executed by the {@link InMemoryEngine}. The rows are fully materialized, so that the cursor can
+ * be moved freely. Iterating over the result set advances the cursor of the result set itself.
+ *
+ * The result set of a {@link InMemoryPreparedStatement#setStreaming(boolean) streaming} statement is forward-only
+ * instead: the rows are produced while the cursor advances, and only {@link #next()} can be used to move the cursor.
+ */
+public class InMemoryResultSet implements ResultSet<InMemoryResultSet> {
+
+  /**
+   * The rows, or null if the rows are streamed.
+   */
+  private final List<Object[]> rows;
+
+  private final CompiledSelectQuery.StreamedRows stream;
+
+  /**
+   * The current row of a streamed result set.
+   */
+  private Object[] currentRow;
+
+  private final InMemoryResultSetMetaData metaData;
+
+  private final CsrGraph graph;
+
+  /**
+   * The position of the cursor: 0 is before the first row and rows.size() + 1 is after the last row.
+   */
+  private long position;
+
+  private boolean closed;
+
+  /**
+   * Whether the last value that was retrieved was NULL.
+   */
+  private boolean lastWasNull;
+
+  InMemoryResultSet(InMemoryResultSetMetaData metaData, List<Object[]> rows, CsrGraph graph) {
+    this(metaData, rows, null, graph);
+  }
+
+  InMemoryResultSet(InMemoryResultSetMetaData metaData, CompiledSelectQuery.StreamedRows stream, CsrGraph graph) {
+    this(metaData, null, stream, graph);
+  }
+
+  private InMemoryResultSet(InMemoryResultSetMetaData metaData, List<Object[]> rows,
+      CompiledSelectQuery.StreamedRows stream, CsrGraph graph) {
+    this.rows = rows;
+    this.stream = stream;
+    this.metaData = metaData;
+    this.graph = graph;
+  }
+
+  public CsrGraph getGraph() {
+    return graph;
+  }
+
+  /**
+   * @return the number of rows in the result set
+   * @throws UnsupportedOperationException
+   *           if the rows are streamed, in which case the number of rows is not known in advance
+   */
+  public int getNumResults() {
+    if (stream != null) {
+      throw new UnsupportedOperationException("The number of rows of a streamed result set is not known in advance");
+    }
+    return rows.size();
+  }
+
+  /**
+   * @return whether the rows are streamed, in which case the result set is forward-only
+   */
+  public boolean isStreaming() {
+    return stream != null;
+  }
+
+  @Override
+  public boolean next() throws PgqlException {
+    if (stream == null) {
+      return relative(1);
+    }
+    checkNotClosed();
+    try {
+      currentRow = stream.next();
+    } catch (IllegalArgumentException | ArithmeticException | DateTimeException | UncheckedIOException e) {
+      throw new PgqlException("Error while executing query: " + e.getMessage(), e);
+    }
+    if (currentRow != null) {
+      position++;
+    }
+    return currentRow != null;
+  }
+
+  @Override
+  public boolean previous() throws PgqlException {
+    return relative(-1);
+  }
+
+  @Override
+  public void beforeFirst() throws PgqlException {
+    checkScrollable();
+    position = 0;
+  }
+
+  @Override
+  public void afterLast() throws PgqlException {
+    checkScrollable();
+    position = rows.size() + 1;
+  }
+
+  @Override
+  public boolean first() throws PgqlException {
+    return absolute(1);
+  }
+
+  @Override
+  public boolean last() throws PgqlException {
+    return absolute(-1);
+  }
+
+  /**
+   * As in JDBC, a negative row number positions the cursor with respect to the end of the result set, such that -1
+   * refers to the last row.
+   */
+  @Override
+  public boolean absolute(long row) throws PgqlException {
+    checkScrollable();
+    long target = row < 0 ? rows.size() + 1 + row : row;
+    position = Math.max(0, Math.min(target, rows.size() + 1));
+    return isOnRow();
+  }
+
+  @Override
+  public boolean relative(long numRows) throws PgqlException {
+    checkScrollable();
+    position = Math.max(0, Math.min(position + numRows, rows.size() + 1));
+    return isOnRow();
+  }
+
+  private boolean isOnRow() {
+    if (stream != null) {
+      return currentRow != null;
+    }
+    return position > 0 && position <= rows.size();
+  }
+
+  /**
+   * Closes the result set and, if the rows are streamed, stops the execution of the query.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (stream != null) {
+      stream.close();
+      currentRow = null;
+    }
+  }
+
+  @Override
+  public InMemoryResultSetMetaData getMetaData() throws PgqlException {
+    checkNotClosed();
+    return metaData;
+  }
+
+  /**
+   * @return the number of rows, or -1 if the rows are streamed
+   */
+  @Override
+  public long getNumRows() throws PgqlException {
+    checkNotClosed();
+    return stream == null ? rows.size() : -1;
+  }
+
+  /**
+   * If the rows are not streamed, the stream splits the list of rows directly and does not move the cursor.
+   */
+  @Override
+  public Stream<Object[]> stream() throws PgqlException {
+    checkNotClosed();
+    if (stream != null) {
+      return ResultSet.super.stream();
+    }
+    int numColumns = metaData.getColumnCount();
+    return rows.stream().map(row -> Arrays.copyOf(row, numColumns));
+  }
+
+  /**
+   * The rows are handed over without retrieving the values one by one.
+   */
+  @Override
+  public ColumnBatch nextBatch(int maxRows) throws PgqlException {
+    if (maxRows <= 0) {
+      throw new IllegalArgumentException("Maximum number of rows should be positive but got " + maxRows);
+    }
+    checkNotClosed();
+    if (stream == null) {
+      int from = (int) Math.min(position, rows.size());
+      int to = (int) Math.min((long) from + maxRows, rows.size());
+      position = to - from < maxRows ? rows.size() + 1 : to;
+      return ColumnBatch.fromRows(rows.subList(from, to), metaData);
+    }
+    List<Object[]> batch = new ArrayList<>(Math.min(maxRows, 1024));
+    while (batch.size() < maxRows && next()) {
+      batch.add(currentRow);
+    }
+    return ColumnBatch.fromRows(batch, metaData);
+  }
+
+  @Override
+  public Iterator<InMemoryResultSet> iterator() {
+    return new Iterator<InMemoryResultSet>() {
+
+      @Override
+      public boolean hasNext() {
+        if (closed) {
+          return false;
+        }
+        return stream == null ? position < rows.size() : stream.hasNext();
+      }
+
+      @Override
+      public InMemoryResultSet next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        position++;
+        if (stream != null) {
+          currentRow = stream.next();
+        }
+        return InMemoryResultSet.this;
+      }
+    };
+  }
+
+  private void checkNotClosed() throws PgqlException {
+    if (closed) {
+      throw new PgqlException("Result set is closed");
+    }
+  }
+
+  private void checkScrollable() throws PgqlException {
+    checkNotClosed();
+    if (stream != null) {
+      throw new PgqlException("The rows of the result set are streamed; only next() can be used to move the cursor");
+    }
+  }
+
+  @Override
+  public Object getObject(int columnIdx) throws PgqlException {
+    checkNotClosed();
+    if (!isOnRow()) {
+      throw new PgqlException("The cursor is not positioned on a row");
+    }
+    if (columnIdx < 1 || columnIdx > metaData.getColumnCount()) {
+      throw new PgqlException("Column index " + columnIdx + " is out of range; the result set has "
+          + metaData.getColumnCount() + " columns");
+    }
+    Object[] row = stream == null ? rows.get((int) position - 1) : currentRow;
+    Object value = row[columnIdx - 1];
+    lastWasNull = value == null;
+    return value;
+  }
+
+  private <T> T get(int columnIdx, Class<T> type) throws PgqlException {
+    Object value = getObject(columnIdx);
+    if (value == null || type.isInstance(value)) {
+      return type.cast(value);
+    }
+    throw new PgqlException("Value of column " + columnIdx + " is not a " + type.getSimpleName() + " but a "
+        + value.getClass().getSimpleName());
+  }
+
+  private Number getNumber(int columnIdx) throws PgqlException {
+    return get(columnIdx, Number.class);
+  }
+
+  @Override
+  public String getString(int columnIdx) throws PgqlException {
+    Object value = getObject(columnIdx);
+    return value == null ? null : value.toString();
+  }
+
+  @Override
+  public Integer getInteger(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    if (value == null || value instanceof Integer) {
+      return (Integer) value;
+    }
+    return toInt(columnIdx, value);
+  }
+
+  @Override
+  public int getIntegerValue(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    return value == null ? 0 : toInt(columnIdx, value);
+  }
+
+  private static int toInt(int columnIdx, Number value) throws PgqlException {
+    if (ValueUtils.isIntegral(value) && value.longValue() == value.intValue()) {
+      return value.intValue();
+    }
+    throw new PgqlException("Value of column " + columnIdx + " cannot be represented as an Integer: " + value);
+  }
+
+  @Override
+  public Long getLong(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    if (value == null || value instanceof Long) {
+      return (Long) value;
+    }
+    return toLong(columnIdx, value);
+  }
+
+  @Override
+  public long getLongValue(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    return value == null ? 0 : toLong(columnIdx, value);
+  }
+
+  private static long toLong(int columnIdx, Number value) throws PgqlException {
+    if (ValueUtils.isIntegral(value)) {
+      return value.longValue();
+    }
+    throw new PgqlException("Value of column " + columnIdx + " cannot be represented as a Long: " + value);
+  }
+
+  @Override
+  public Float getFloat(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    return value == null ? null : value.floatValue();
+  }
+
+  @Override
+  public float getFloatValue(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    return value == null ? 0 : value.floatValue();
+  }
+
+  @Override
+  public Double getDouble(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    return value == null ? null : value.doubleValue();
+  }
+
+  @Override
+  public double getDoubleValue(int columnIdx) throws PgqlException {
+    Number value = getNumber(columnIdx);
+    return value == null ? 0 : value.doubleValue();
+  }
+
+  @Override
+  public Boolean getBoolean(int columnIdx) throws PgqlException {
+    return get(columnIdx, Boolean.class);
+  }
+
+  @Override
+  public boolean getBooleanValue(int columnIdx) throws PgqlException {
+    Boolean value = getBoolean(columnIdx);
+    return value != null && value;
+  }
+
+  @Override
+  public Set<String> getVertexLabels(int columnIdx) throws PgqlException {
+    InMemoryVertex vertex = get(columnIdx, InMemoryVertex.class);
+    if (vertex == null) {
+      return null;
+    }
+    String label = vertex.getLabel();
+    return label == null ? Collections.emptySet() : Collections.singleton(label);
+  }
+
+  @Override
+  public LocalDate getDate(int columnIdx) throws PgqlException {
+    return get(columnIdx, LocalDate.class);
+  }
+
+  @Override
+  public LocalTime getTime(int columnIdx) throws PgqlException {
+    return get(columnIdx, LocalTime.class);
+  }
+
+  @Override
+  public LocalDateTime getTimestamp(int columnIdx) throws PgqlException {
+    return get(columnIdx, LocalDateTime.class);
+  }
+
+  @Override
+  public OffsetTime getTimeWithTimezone(int columnIdx) throws PgqlException {
+    return get(columnIdx, OffsetTime.class);
+  }
+
+  @Override
+  public OffsetDateTime getTimestampWithTimezone(int columnIdx) throws PgqlException {
+    return get(columnIdx, OffsetDateTime.class);
+  }
+
+  /**
+   * Dates and timestamps without time zone are interpreted in the default time zone.
+   */
+  @Override
+  public Date getLegacyDate(int columnIdx) throws PgqlException {
+    Object value = getObject(columnIdx);
+    if (value == null) {
+      return null;
+    } else if (value instanceof LocalDate) {
+      return Date.from(((LocalDate) value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    } else if (value instanceof LocalDateTime) {
+      return Date.from(((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant());
+    } else if (value instanceof OffsetDateTime) {
+      return Date.from(((OffsetDateTime) value).toInstant());
+    }
+    throw new PgqlException("Value of column " + columnIdx + " is not a date or timestamp but a "
+        + value.getClass().getSimpleName());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> List<T> getList(int columnIdx) throws PgqlException {
+    return get(columnIdx, List.class);
+  }
+
+  /**
+   * Reports whether the last value that was retrieved through any of the getters was NULL, as in JDBC. This is an
+   * alternative to {@link #isNull(int)} for the getters that return primitive values.
+   *
+   * @return <code>true</code> if the last value that was retrieved was NULL
+   */
+  public boolean wasNull() throws PgqlException {
+    checkNotClosed();
+    return lastWasNull;
+  }
+
+  @Override
+  public String toString() {
+    if (stream != null) {
+      return "InMemoryResultSet(" + metaData.getColumnCount() + " columns, streamed rows)";
+    }
+    return "InMemoryResultSet(" + metaData.getColumnCount() + " columns, " + rows.size() + " rows)";
+  }
+}
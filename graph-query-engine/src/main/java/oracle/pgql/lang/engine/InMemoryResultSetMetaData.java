@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ResultSetMetaData;
+
+/**
+ * The columns of the result sets of a query. The index from column names to columns is computed once per prepared
+ * statement rather than once per lookup.
+ */
+public class InMemoryResultSetMetaData implements ResultSetMetaData {
+
+  private final List<String> columnNames;
+
+  private final List<String> columnTypeNames;
+
+  private final Map<String, Integer> columnIndexes = new HashMap<>();
+
+  /**
+   * @param columnTypeNames
+   *          the name of the type of every column, or null for columns of which the type is not known
+   */
+  InMemoryResultSetMetaData(List<String> columnNames, List<String> columnTypeNames) {
+    this.columnNames = columnNames;
+    this.columnTypeNames = columnTypeNames;
+    for (int i = 0; i < columnNames.size(); i++) {
+      // as for a scan, the first of several columns with the same name is found
+      columnIndexes.putIfAbsent(columnNames.get(i), i + 1);
+    }
+  }
+
+  @Override
+  public int getColumnCount() {
+    return columnNames.size();
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return columnNames.get(column - 1);
+  }
+
+  @Override
+  public int findColumn(String columnName) throws PgqlException {
+    Integer column = columnIndexes.get(columnName);
+    if (column == null) {
+      throw new PgqlException("Column " + columnName + " does not exist");
+    }
+    return column;
+  }
+
+  /**
+   * The type is known for columns that are vertices, edges or properties of vertices or edges. For other columns, the
+   * type depends on the values and can be determined from the values themselves.
+   */
+  @Override
+  public String getColumnTypeName(int column) {
+    return columnTypeNames.get(column - 1);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+/**
+ * A vertex of a {@link CsrGraph}, as returned by {@link InMemoryResultSet#getObject(int)} for a vertex column.
+ */
+public class InMemoryVertex {
+
+  private final CsrGraph graph;
+
+  private final int id;
+
+  public InMemoryVertex(CsrGraph graph, int id) {
+    this.graph = graph;
+    this.id = id;
+  }
+
+  public CsrGraph getGraph() {
+    return graph;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * @return the label of the vertex, or null if the vertex has no label
+   */
+  public String getLabel() {
+    return graph.getVertexLabel(id);
+  }
+
+  /**
+   * @return the value of the property, or null if the vertex does not have a value for the property
+   */
+  public Object getProperty(String name) {
+    PropertyColumn column = graph.getVertexProperty(name);
+    return column == null ? null : column.get(id);
+  }
+
+  @Override
+  public String toString() {
+    return "VERTEX(" + id + ")";
+  }
+
+  @Override
+  public int hashCode() {
+    return id;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    InMemoryVertex other = (InMemoryVertex) obj;
+    return id == other.id && graph == other.graph;
+  }
+}
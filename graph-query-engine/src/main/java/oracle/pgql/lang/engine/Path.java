@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Arrays;
+
+/**
+ * A path that is found by the {@link PathFinder}: an alternating sequence of vertices and edges that starts and ends
+ * with a vertex. A path of length zero consists of a single vertex.
+ */
+public final class Path {
+
+  private final int[] vertices;
+
+  private final int[] edges;
+
+  private final double cost;
+
+  Path(int[] vertices, int[] edges, double cost) {
+    this.vertices = vertices;
+    this.edges = edges;
+    this.cost = cost;
+  }
+
+  public int getSource() {
+    return vertices[0];
+  }
+
+  public int getDestination() {
+    return vertices[vertices.length - 1];
+  }
+
+  /**
+   * @return the number of hops
+   */
+  public int getLength() {
+    return edges.length;
+  }
+
+  /**
+   * @return the i-th vertex, where the source vertex is the 0-th vertex
+   */
+  public int getVertex(int i) {
+    return vertices[i];
+  }
+
+  /**
+   * @return the i-th edge, where the edge of the first hop is the 0-th edge
+   */
+  public int getEdge(int i) {
+    return edges[i];
+  }
+
+  /**
+   * @return the total cost of the path, which is the number of hops unless the path was found by a CHEAPEST search
+   */
+  public double getCost() {
+    return cost;
+  }
+
+  /**
+   * @return the path in the opposite direction
+   */
+  Path reverse() {
+    int[] reversedVertices = new int[vertices.length];
+    int[] reversedEdges = new int[edges.length];
+    for (int i = 0; i < vertices.length; i++) {
+      reversedVertices[i] = vertices[vertices.length - 1 - i];
+    }
+    for (int i = 0; i < edges.length; i++) {
+      reversedEdges[i] = edges[edges.length - 1 - i];
+    }
+    return new Path(reversedVertices, reversedEdges, cost);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(vertices) + Arrays.hashCode(edges);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    Path other = (Path) obj;
+    return Arrays.equals(vertices, other.vertices) && Arrays.equals(edges, other.edges) && cost == other.cost;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("(").append(vertices[0]).append(")");
+    for (int i = 0; i < edges.length; i++) {
+      result.append(" -[").append(edges[i]).append("]-> (").append(vertices[i + 1]).append(")");
+    }
+    return result.toString();
+  }
+}
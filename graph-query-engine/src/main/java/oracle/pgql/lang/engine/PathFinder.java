@@ -0,0 +1,917 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+import oracle.pgql.lang.ir.PathFindingGoal;
+import oracle.pgql.lang.ir.QueryPath;
+
+/**
+ * Evaluates the path finding goal of a {@link QueryPath} on an {@link Adjacency}:
+ *
+ * <ul>
+ * <li>REACHES and ANY SHORTEST between two vertices use a bidirectional breadth-first search that expands the smaller
+ * of the two frontiers, with bitsets for the visited vertices.</li>
+ * <li>TOP k SHORTEST and ALL SHORTEST use a breadth-first search in which every vertex is expanded at most k times (or,
+ * with ties, as long as the number of hops is minimal), which yields the k shortest walks in order of length.</li>
+ * <li>ANY CHEAPEST, TOP k CHEAPEST and ALL CHEAPEST use the same search with Dijkstra's algorithm, using a binary heap
+ * of primitive keys.</li>
+ * <li>ALL enumerates all the walks by means of a depth-first search, and requires an upper bound on the number of
+ * hops.</li>
+ * </ul>
+ *
+ * Hop bounds {min,max} are taken into account by searching over pairs of a vertex and the number of hops so far, where
+ * the number of hops is capped at min (max for CHEAPEST with an upper bound), so that a path can only end at a vertex
+ * after at least min hops.
+ *
+ * The paths are found on demand: a {@link PathIterator} only advances the search as far as needed to find the next
+ * path, so consumers can stop early without the cost of the rest of the search.
+ *
+ * A PathFinder reuses its scratch space between searches and is therefore not thread-safe. It runs one search at a
+ * time: starting a search ends the previous search of the same PathFinder.
+ */
+public class PathFinder {
+
+  /**
+   * Receives the paths that are found.
+   */
+  @FunctionalInterface
+  public interface PathConsumer {
+
+    /**
+     * @return false to stop the search
+     */
+    boolean accept(Path path);
+  }
+
+  /**
+   * The paths of a search, which are found one at a time.
+   */
+  public interface PathIterator extends AutoCloseable {
+
+    /**
+     * @return the next path, or null if there are no more paths
+     */
+    Path next();
+
+    /**
+     * End the search, also if not all paths were found.
+     */
+    @Override
+    void close();
+  }
+
+  /**
+   * A search without paths.
+   */
+  private static final PathIterator NO_PATHS = new SinglePath(null);
+
+  private static final int NONE = -1;
+
+  private final PathFindingGoal goal;
+
+  private final long minHops;
+
+  private final long maxHops;
+
+  private final int k;
+
+  private final boolean withTies;
+
+  private final Adjacency adjacency;
+
+  private final IntToDoubleFunction edgeCost;
+
+  private final int numVertices;
+
+  private BidirectionalSearch bidirectionalSearch;
+
+  private BestFirstSearch bestFirstSearch;
+
+  /**
+   * @param edgeCost
+   *          the cost of traversing an edge, which is required for CHEAPEST and otherwise ignored
+   */
+  public PathFinder(QueryPath path, Adjacency adjacency, IntToDoubleFunction edgeCost) {
+    this(path.getPathFindingGoal(), path.getMinHops(), path.getMaxHops(), path.getKValue(), path.getWithTies(),
+        adjacency, edgeCost);
+  }
+
+  /**
+   * @param maxHops
+   *          the maximum number of hops, or -1 if there is no maximum
+   * @param k
+   *          the number of paths to find per pair of vertices, for SHORTEST and CHEAPEST
+   * @param withTies
+   *          whether to find all the shortest or cheapest paths
+   * @param edgeCost
+   *          the cost of traversing an edge, which is required for CHEAPEST and otherwise ignored
+   */
+  public PathFinder(PathFindingGoal goal, long minHops, long maxHops, int k, boolean withTies, Adjacency adjacency,
+      IntToDoubleFunction edgeCost) {
+    if (minHops < 0 || (maxHops != -1 && maxHops < minHops)) {
+      throw new IllegalArgumentException("Invalid hop bounds {" + minHops + "," + maxHops + "}");
+    }
+    if (k < 1) {
+      throw new IllegalArgumentException("The number of paths should be at least 1 but got " + k);
+    }
+    if (goal == PathFindingGoal.ALL && maxHops == -1) {
+      throw new IllegalArgumentException("Finding ALL paths requires an upper bound on the number of hops");
+    }
+    if (goal == PathFindingGoal.CHEAPEST && edgeCost == null) {
+      throw new IllegalArgumentException("Finding CHEAPEST paths requires a cost function");
+    }
+    this.goal = goal;
+    this.minHops = minHops;
+    this.maxHops = maxHops;
+    this.k = k;
+    this.withTies = withTies;
+    this.adjacency = adjacency;
+    this.edgeCost = edgeCost;
+    this.numVertices = adjacency.getNumVertices();
+  }
+
+  /**
+   * @return true if there is a path from the source to the destination vertex that satisfies the hop bounds
+   */
+  public boolean reaches(int src, int dst) {
+    if (src == dst && minHops == 0) {
+      return true;
+    } else if (src != dst && minHops <= 1) {
+      return getBidirectionalSearch().search(src, dst) != NONE;
+    }
+    BitSet reachable = getReachable(src, false);
+    return reachable.get(dst);
+  }
+
+  /**
+   * @return the vertices that can be reached from the given vertex with a path that satisfies the hop bounds
+   */
+  public BitSet reachableFrom(int src) {
+    return getReachable(src, false);
+  }
+
+  /**
+   * @return the vertices that can reach the given vertex with a path that satisfies the hop bounds
+   */
+  public BitSet reachableTo(int dst) {
+    return getReachable(dst, true);
+  }
+
+  /**
+   * Level-synchronous breadth-first search over (vertex, min(hops, minHops)) states.
+   */
+  private BitSet getReachable(int start, boolean reverse) {
+    int levels = toIntExact(minHops) + 1;
+    checkNumStates(levels);
+    BitSet visited = new BitSet(numVertices * levels);
+    BitSet result = new BitSet(numVertices);
+    IntList[] frontier = { new IntList(), new IntList() };
+    frontier[0].add(start * levels);
+    visited.set(start * levels);
+    if (minHops == 0) {
+      result.set(start);
+    }
+    for (long hops = 0; frontier[0].size > 0 && (maxHops == -1 || hops < maxHops); hops++) {
+      IntList current = frontier[0];
+      IntList next = frontier[1];
+      next.clear();
+      for (int i = 0; i < current.size; i++) {
+        int state = current.get(i);
+        int nextLevel = Math.min(state % levels + 1, levels - 1);
+        adjacency.forEachNeighbor(state / levels, reverse, (edge, neighbor) -> {
+          int nextState = neighbor * levels + nextLevel;
+          if (!visited.get(nextState)) {
+            visited.set(nextState);
+            next.add(nextState);
+            if (nextLevel == levels - 1) {
+              result.set(neighbor);
+            }
+          }
+        });
+      }
+      frontier[0] = next;
+      frontier[1] = current;
+    }
+    return result;
+  }
+
+  /**
+   * @return the paths from the source to the destination vertex
+   */
+  public List<Path> findPaths(int src, int dst) {
+    List<Path> result = new ArrayList<>();
+    findPaths(src, dst, result::add);
+    return result;
+  }
+
+  /**
+   * Find the paths from the source to the destination vertex. For REACHES, a single shortest path is found.
+   *
+   * @return false if the consumer stopped the search
+   */
+  public boolean findPaths(int src, int dst, PathConsumer consumer) {
+    return consume(iteratePaths(src, dst), consumer);
+  }
+
+  /**
+   * Find the paths that start at the given vertex, for every vertex that can be reached. The paths to a particular
+   * destination are found in order of their length (SHORTEST) or cost (CHEAPEST).
+   *
+   * @return false if the consumer stopped the search
+   */
+  public boolean findPathsFrom(int src, PathConsumer consumer) {
+    return consume(iteratePathsFrom(src), consumer);
+  }
+
+  /**
+   * Find the paths that end at the given vertex, for every vertex that can reach it.
+   *
+   * @return false if the consumer stopped the search
+   */
+  public boolean findPathsTo(int dst, PathConsumer consumer) {
+    return consume(iteratePathsTo(dst), consumer);
+  }
+
+  private static boolean consume(PathIterator paths, PathConsumer consumer) {
+    try (PathIterator iterator = paths) {
+      for (Path path = iterator.next(); path != null; path = iterator.next()) {
+        if (!consumer.accept(path)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Start a search for the paths from the source to the destination vertex (see {@link #findPaths(int, int,
+   * PathConsumer)}).
+   */
+  public PathIterator iteratePaths(int src, int dst) {
+    switch (goal) {
+      case REACHES:
+        return iterateAnyShortestPath(src, dst);
+      case SHORTEST:
+        if (k == 1 && !withTies) {
+          return iterateAnyShortestPath(src, dst);
+        }
+        return getBestFirstSearch().start(src, dst, false);
+      case CHEAPEST:
+        return getBestFirstSearch().start(src, dst, false);
+      case ALL:
+        return new DepthFirstSearch(src, dst, false);
+      default:
+        throw new IllegalArgumentException(goal.toString());
+    }
+  }
+
+  /**
+   * Start a search for the paths that start at the given vertex (see {@link #findPathsFrom(int, PathConsumer)}).
+   */
+  public PathIterator iteratePathsFrom(int src) {
+    return iteratePaths(src, false);
+  }
+
+  /**
+   * Start a search for the paths that end at the given vertex (see {@link #findPathsTo(int, PathConsumer)}).
+   */
+  public PathIterator iteratePathsTo(int dst) {
+    return iteratePaths(dst, true);
+  }
+
+  private PathIterator iteratePaths(int start, boolean reverse) {
+    if (goal == PathFindingGoal.ALL) {
+      return new DepthFirstSearch(start, NONE, reverse);
+    }
+    return getBestFirstSearch().start(start, NONE, reverse);
+  }
+
+  private PathIterator iterateAnyShortestPath(int src, int dst) {
+    if (src == dst && minHops == 0) {
+      return new SinglePath(new Path(new int[] { src }, new int[0], 0));
+    } else if (src != dst && minHops <= 1) {
+      Path path = getBidirectionalSearch().searchPath(src, dst);
+      return path == null ? NO_PATHS : new SinglePath(path);
+    }
+    return getBestFirstSearch().start(src, dst, false);
+  }
+
+  private BidirectionalSearch getBidirectionalSearch() {
+    if (bidirectionalSearch == null) {
+      bidirectionalSearch = new BidirectionalSearch();
+    }
+    return bidirectionalSearch;
+  }
+
+  private BestFirstSearch getBestFirstSearch() {
+    if (bestFirstSearch == null) {
+      bestFirstSearch = new BestFirstSearch();
+    }
+    return bestFirstSearch;
+  }
+
+  private double getCost(int edge) {
+    double cost = edgeCost.applyAsDouble(edge);
+    if (!(cost >= 0)) {
+      throw new IllegalArgumentException("The cost of a path should be non-negative but got " + cost);
+    }
+    return cost;
+  }
+
+  private void checkNumStates(int levels) {
+    if ((long) numVertices * levels > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many hops for a graph with " + numVertices + " vertices");
+    }
+  }
+
+  private static int toIntExact(long hops) {
+    if (hops > Integer.MAX_VALUE - 1) {
+      throw new IllegalArgumentException("Too many hops: " + hops);
+    }
+    return (int) hops;
+  }
+
+  /**
+   * Breadth-first search from both ends that alternately expands the smallest frontier by one level, until the
+   * frontiers meet. At that point, all the vertices at which they meet have the same distance, so the first one gives
+   * a shortest path.
+   */
+  private class BidirectionalSearch implements Adjacency.NeighborVisitor {
+
+    final BitSet[] visited = { new BitSet(numVertices), new BitSet(numVertices) };
+
+    /**
+     * For every visited vertex, the edge through which it was reached and the vertex that it was reached from.
+     */
+    final int[][] parentEdges = { new int[numVertices], new int[numVertices] };
+
+    final int[][] parentVertices = { new int[numVertices], new int[numVertices] };
+
+    final IntList[] touched = { new IntList(), new IntList() };
+
+    final IntList[] frontiers = { new IntList(), new IntList() };
+
+    final IntList next = new IntList();
+
+    // the state of the visitor
+    int side;
+
+    int from;
+
+    int meetingVertex;
+
+    /**
+     * @return a vertex at which the searches from the source and the destination meet, or NONE
+     */
+    int search(int src, int dst) {
+      try {
+        for (int s = 0; s < 2; s++) {
+          int start = s == 0 ? src : dst;
+          visited[s].set(start);
+          touched[s].add(start);
+          frontiers[s].clear();
+          frontiers[s].add(start);
+        }
+        meetingVertex = NONE;
+        long hops = 0;
+        while (frontiers[0].size > 0 && frontiers[1].size > 0 && (maxHops == -1 || hops < maxHops)) {
+          side = frontiers[0].size <= frontiers[1].size ? 0 : 1;
+          IntList frontier = frontiers[side];
+          next.clear();
+          for (int i = 0; i < frontier.size && meetingVertex == NONE; i++) {
+            from = frontier.get(i);
+            adjacency.forEachNeighbor(from, side == 1, this);
+          }
+          if (meetingVertex != NONE) {
+            return meetingVertex;
+          }
+          frontier.clear();
+          frontier.addAll(next);
+          hops++;
+        }
+        return NONE;
+      } finally {
+        for (int s = 0; s < 2; s++) {
+          IntList touchedVertices = touched[s];
+          for (int i = 0; i < touchedVertices.size; i++) {
+            visited[s].clear(touchedVertices.get(i));
+          }
+          touchedVertices.clear();
+        }
+      }
+    }
+
+    @Override
+    public void visit(int edge, int neighbor) {
+      if (meetingVertex != NONE || visited[side].get(neighbor)) {
+        return;
+      }
+      visited[side].set(neighbor);
+      touched[side].add(neighbor);
+      parentEdges[side][neighbor] = edge;
+      parentVertices[side][neighbor] = from;
+      next.add(neighbor);
+      if (visited[1 - side].get(neighbor)) {
+        meetingVertex = neighbor;
+      }
+    }
+
+    /**
+     * @return a shortest path from the source to the destination vertex, or null if there is no path
+     */
+    Path searchPath(int src, int dst) {
+      int meeting = search(src, dst);
+      if (meeting == NONE) {
+        return null;
+      }
+      IntList vertices = new IntList();
+      IntList edges = new IntList();
+      for (int v = meeting; v != src; v = parentVertices[0][v]) {
+        vertices.add(v);
+        edges.add(parentEdges[0][v]);
+      }
+      vertices.add(src);
+      vertices.reverse();
+      edges.reverse();
+      for (int v = meeting; v != dst; v = parentVertices[1][v]) {
+        edges.add(parentEdges[1][v]);
+        vertices.add(parentVertices[1][v]);
+      }
+      return new Path(vertices.toArray(), edges.toArray(), edges.size);
+    }
+  }
+
+  /**
+   * Breadth-first search (SHORTEST and REACHES) or Dijkstra's algorithm (CHEAPEST) over (vertex, hops) states, in
+   * which every state is expanded at most k times or, with ties, as long as its cost is minimal. Partial paths are
+   * stored as a tree of nodes in primitive arrays.
+   */
+  private class BestFirstSearch implements PathIterator {
+
+    final boolean weighted = goal == PathFindingGoal.CHEAPEST;
+
+    final int levels;
+
+    // the nodes of the search tree
+    int numNodes;
+
+    int[] nodeStates = new int[16];
+
+    int[] nodeParents = new int[16];
+
+    int[] nodeEdges = new int[16];
+
+    int[] nodeHops = new int[16];
+
+    double[] nodeCosts = new double[16];
+
+    // the number of times that a state was expanded and the cost when it was first expanded
+    final int[] expansions;
+
+    final double[] bestCosts;
+
+    final IntList touchedStates = new IntList();
+
+    // the number of paths that were found per destination and the cost of the first one
+    final int[] numPaths;
+
+    final double[] bestPathCosts;
+
+    final IntList touchedVertices = new IntList();
+
+    final IntList queue = new IntList();
+
+    final DoubleIntHeap heap = new DoubleIntHeap();
+
+    // the current search
+    int dst;
+
+    boolean reverse;
+
+    boolean ended = true;
+
+    BestFirstSearch() {
+      // a cheaper path may have more hops, so states need to distinguish the number of hops up to the maximum
+      levels = toIntExact(weighted && maxHops != -1 ? maxHops : minHops) + 1;
+      checkNumStates(levels);
+      expansions = new int[numVertices * levels];
+      bestCosts = new double[numVertices * levels];
+      numPaths = new int[numVertices];
+      bestPathCosts = new double[numVertices];
+    }
+
+    /**
+     * Start a new search, which ends the current search, if any.
+     *
+     * @param dst
+     *          the destination vertex, or NONE to find paths to all vertices
+     * @param reverse
+     *          whether to search backwards from the start vertex
+     */
+    BestFirstSearch start(int start, int dst, boolean reverse) {
+      close();
+      this.dst = dst;
+      this.reverse = reverse;
+      ended = false;
+      numNodes = 0;
+      queue.clear();
+      heap.clear();
+      push(start * levels, NONE, NONE, 0, 0);
+      return this;
+    }
+
+    @Override
+    public Path next() {
+      while (!ended && (weighted ? heap.size > 0 : queue.head < queue.size)) {
+        int node = weighted ? heap.pop() : queue.get(queue.head++);
+        int state = nodeStates[node];
+        double cost = nodeCosts[node];
+        if (!startExpansion(state, cost)) {
+          continue;
+        }
+
+        Path path = null;
+        int vertex = state / levels;
+        if (nodeHops[node] >= minHops && (dst == NONE || vertex == dst)) {
+          if (acceptPath(vertex, cost)) {
+            path = createPath(node, cost);
+            if (dst != NONE && !withTies && numPaths[vertex] == k) {
+              close();
+              return reverse ? path.reverse() : path;
+            }
+          } else if (dst != NONE) {
+            // nodes are expanded in order of cost, so there are no more paths to the destination
+            break;
+          }
+        }
+
+        if (maxHops == -1 || nodeHops[node] < maxHops) {
+          expand(node, reverse);
+        }
+        if (path != null) {
+          return reverse ? path.reverse() : path;
+        }
+      }
+      close();
+      return null;
+    }
+
+    /**
+     * Reset the scratch space for the next search.
+     */
+    @Override
+    public void close() {
+      if (ended) {
+        return;
+      }
+      ended = true;
+      for (int i = 0; i < touchedStates.size; i++) {
+        expansions[touchedStates.get(i)] = 0;
+      }
+      touchedStates.clear();
+      for (int i = 0; i < touchedVertices.size; i++) {
+        numPaths[touchedVertices.get(i)] = 0;
+      }
+      touchedVertices.clear();
+    }
+
+    /**
+     * @return whether a path with the given cost is one of the k shortest or cheapest paths to the vertex
+     */
+    private boolean acceptPath(int vertex, double cost) {
+      int numPathsToVertex = numPaths[vertex];
+      if (numPathsToVertex == 0) {
+        bestPathCosts[vertex] = cost;
+        touchedVertices.add(vertex);
+      } else if (withTies ? cost > bestPathCosts[vertex] : numPathsToVertex >= k) {
+        return false;
+      }
+      numPaths[vertex] = numPathsToVertex + 1;
+      return true;
+    }
+
+    /**
+     * @return whether a node with the given state and cost should be expanded
+     */
+    private boolean startExpansion(int state, double cost) {
+      int numExpansions = expansions[state];
+      if (numExpansions == 0) {
+        bestCosts[state] = cost;
+        touchedStates.add(state);
+      } else if (withTies ? cost > bestCosts[state] : numExpansions >= k) {
+        return false;
+      }
+      expansions[state] = numExpansions + 1;
+      return true;
+    }
+
+    private void expand(int node, boolean reverse) {
+      int state = nodeStates[node];
+      int nextLevel = Math.min(state % levels + 1, levels - 1);
+      int hops = nodeHops[node] + 1;
+      double cost = nodeCosts[node];
+      adjacency.forEachNeighbor(state / levels, reverse, (edge, neighbor) -> {
+        int nextState = neighbor * levels + nextLevel;
+        if (!withTies && expansions[nextState] >= k) {
+          return;
+        }
+        double nextCost = weighted ? cost + getCost(edge) : hops;
+        if (withTies && nextCost == cost && isOnPath(node, nextState)) {
+          // a cycle of zero cost would give infinitely many cheapest paths
+          return;
+        }
+        push(nextState, node, edge, hops, nextCost);
+      });
+    }
+
+    private boolean isOnPath(int node, int state) {
+      for (int n = node; n != NONE; n = nodeParents[n]) {
+        if (nodeStates[n] == state) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void push(int state, int parent, int edge, int hops, double cost) {
+      if (numNodes == nodeStates.length) {
+        int capacity = numNodes * 2;
+        nodeStates = Arrays.copyOf(nodeStates, capacity);
+        nodeParents = Arrays.copyOf(nodeParents, capacity);
+        nodeEdges = Arrays.copyOf(nodeEdges, capacity);
+        nodeHops = Arrays.copyOf(nodeHops, capacity);
+        nodeCosts = Arrays.copyOf(nodeCosts, capacity);
+      }
+      int node = numNodes++;
+      nodeStates[node] = state;
+      nodeParents[node] = parent;
+      nodeEdges[node] = edge;
+      nodeHops[node] = hops;
+      nodeCosts[node] = cost;
+      if (weighted) {
+        heap.push(cost, node);
+      } else {
+        queue.add(node);
+      }
+    }
+
+    private Path createPath(int node, double cost) {
+      int length = nodeHops[node];
+      int[] vertices = new int[length + 1];
+      int[] edges = new int[length];
+      int n = node;
+      for (int i = length; i >= 0; i--) {
+        vertices[i] = nodeStates[n] / levels;
+        if (i > 0) {
+          edges[i - 1] = nodeEdges[n];
+        }
+        n = nodeParents[n];
+      }
+      return new Path(vertices, edges, cost);
+    }
+  }
+
+  /**
+   * Enumerates all the walks with at most maxHops hops. The search keeps a stack with the hops of every vertex of the
+   * current walk and the index of the hop that is taken next, such that it can be resumed after every walk.
+   */
+  private class DepthFirstSearch implements PathIterator {
+
+    final int dst;
+
+    final boolean reverse;
+
+    final IntList vertices = new IntList();
+
+    final IntList edges = new IntList();
+
+    /**
+     * For every vertex of the current walk, its hops (pairs of edge and neighbor) and the index of the next hop.
+     */
+    final List<IntList> hops = new ArrayList<>();
+
+    final IntList nextHops = new IntList();
+
+    /**
+     * The cost of every edge of the current walk.
+     */
+    double[] edgeCosts = new double[16];
+
+    double cost;
+
+    /**
+     * Whether the last vertex of the walk was reached but not yet visited.
+     */
+    boolean arrived = true;
+
+    DepthFirstSearch(int start, int dst, boolean reverse) {
+      this.dst = dst;
+      this.reverse = reverse;
+      vertices.add(start);
+    }
+
+    @Override
+    public Path next() {
+      while (vertices.size > 0) {
+        int depth = edges.size;
+        int vertex = vertices.get(depth);
+        if (arrived) {
+          arrived = false;
+          loadHops(depth, vertex);
+          if (depth >= minHops && (dst == NONE || vertex == dst)) {
+            Path path = new Path(vertices.toArray(), edges.toArray(), edgeCost == null ? depth : cost);
+            return reverse ? path.reverse() : path;
+          }
+          continue;
+        }
+
+        IntList vertexHops = hops.get(depth);
+        int hop = nextHops.get(depth);
+        if (hop < vertexHops.size) {
+          nextHops.elements[depth] = hop + 2;
+          int edge = vertexHops.get(hop);
+          double edgeCostValue = edgeCost == null ? 0 : getCost(edge);
+          if (depth == edgeCosts.length) {
+            edgeCosts = Arrays.copyOf(edgeCosts, depth * 2);
+          }
+          edgeCosts[depth] = edgeCostValue;
+          cost += edgeCostValue;
+          vertices.add(vertexHops.get(hop + 1));
+          edges.add(edge);
+          arrived = true;
+        } else {
+          // all the hops of the vertex were taken, so go back to the previous vertex
+          vertices.size--;
+          nextHops.size--;
+          if (depth > 0) {
+            edges.size--;
+            cost -= edgeCosts[depth - 1];
+          }
+        }
+      }
+      return null;
+    }
+
+    private void loadHops(int depth, int vertex) {
+      if (hops.size() == depth) {
+        hops.add(new IntList());
+      }
+      IntList vertexHops = hops.get(depth);
+      vertexHops.clear();
+      nextHops.add(0);
+      if (edges.size == maxHops) {
+        return;
+      }
+      adjacency.forEachNeighbor(vertex, reverse, (edge, neighbor) -> {
+        vertexHops.add(edge);
+        vertexHops.add(neighbor);
+      });
+    }
+
+    @Override
+    public void close() {
+      vertices.clear();
+    }
+  }
+
+  /**
+   * A search with at most a single path.
+   */
+  private static final class SinglePath implements PathIterator {
+
+    private Path path;
+
+    SinglePath(Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public Path next() {
+      Path result = path;
+      path = null;
+      return result;
+    }
+
+    @Override
+    public void close() {
+      path = null;
+    }
+  }
+
+  /**
+   * A binary min-heap of int values with double keys.
+   */
+  static final class DoubleIntHeap {
+
+    double[] keys = new double[16];
+
+    int[] values = new int[16];
+
+    int size;
+
+    void clear() {
+      size = 0;
+    }
+
+    void push(double key, int value) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (keys[parent] <= key) {
+          break;
+        }
+        keys[i] = keys[parent];
+        values[i] = values[parent];
+        i = parent;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+
+    /**
+     * @return the value with the smallest key
+     */
+    int pop() {
+      int result = values[0];
+      size--;
+      double key = keys[size];
+      int value = values[size];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && keys[child + 1] < keys[child]) {
+          child++;
+        }
+        if (key <= keys[child]) {
+          break;
+        }
+        keys[i] = keys[child];
+        values[i] = values[child];
+        i = child;
+      }
+      keys[i] = key;
+      values[i] = value;
+      return result;
+    }
+  }
+
+  /**
+   * A growable list of ints, with a head for use as a queue.
+   */
+  static final class IntList {
+
+    int[] elements = new int[16];
+
+    int size;
+
+    int head;
+
+    void add(int element) {
+      if (size == elements.length) {
+        elements = Arrays.copyOf(elements, size * 2);
+      }
+      elements[size++] = element;
+    }
+
+    void addAll(IntList other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.elements[i]);
+      }
+    }
+
+    int get(int index) {
+      return elements[index];
+    }
+
+    void clear() {
+      size = 0;
+      head = 0;
+    }
+
+    void reverse() {
+      for (int i = 0, j = size - 1; i < j; i++, j--) {
+        int tmp = elements[i];
+        elements[i] = elements[j];
+        elements[j] = tmp;
+      }
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+}
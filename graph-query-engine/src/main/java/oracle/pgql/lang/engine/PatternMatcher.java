@@ -0,0 +1,987 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.Supplier;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.PathFindingGoal;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+import oracle.pgql.lang.ir.unnest.RowsPerMatchType;
+import oracle.pgql.lang.planner.ExpandStep;
+import oracle.pgql.lang.planner.ExpansionDirection;
+import oracle.pgql.lang.planner.MatchPlan;
+import oracle.pgql.lang.planner.PlanStep;
+import oracle.pgql.lang.planner.ScanStep;
+
+/**
+ * Executes a {@link MatchPlan} on a {@link CsrGraph} by means of nested loops: every scan step loops over the
+ * candidate vertices and every expand step loops over the adjacency list of the vertex that was bound by an earlier
+ * step, or over the paths that are found by a {@link PathFinder} in case of a path pattern. Filters are evaluated as
+ * soon as the variables that they reference are bound. The loops are driven by {@link Matches}, which finds one match
+ * at a time on the thread that asks for it, such that matching only proceeds as far as the matches are consumed.
+ *
+ * The matches can also be found in parallel, in which case the candidates of the first scan are split into chunks that
+ * are matched by fork/join tasks. Compiled expressions are stateless, so the tasks only need their own frame.
+ */
+final class PatternMatcher {
+
+  /**
+   * The minimum number of candidates of the first scan for which matching is done in parallel.
+   */
+  static final int MIN_PARALLEL_CANDIDATES = 1024;
+
+  /**
+   * The number of chunks per thread. Having more chunks than threads allows idle threads to steal work from threads
+   * that got the chunks with the high-degree vertices.
+   */
+  private static final int CHUNKS_PER_THREAD = 16;
+
+  /**
+   * Receives the matches of the graph pattern.
+   */
+  @FunctionalInterface
+  interface MatchConsumer {
+
+    /**
+     * @return false to stop matching
+     */
+    boolean accept(Frame frame);
+  }
+
+  private final CsrGraph graph;
+
+  private final Step[] steps;
+
+  PatternMatcher(MatchPlan plan, Scope scope, ExpressionCompiler compiler) throws PgqlException {
+    this.graph = compiler.getGraph();
+    List<PlanStep> planSteps = plan == null ? new ArrayList<>() : plan.getSteps();
+    steps = new Step[planSteps.size()];
+    for (int i = 0; i < steps.length; i++) {
+      PlanStep planStep = planSteps.get(i);
+      Evaluator[] filters = compileFilters(planStep.getFilters(), scope, compiler);
+      switch (planStep.getStepType()) {
+        case SCAN:
+          steps[i] = new Scan((ScanStep) planStep, scope, filters);
+          break;
+        case EXPAND: {
+          ExpandStep expandStep = (ExpandStep) planStep;
+          if (expandStep.getConnection().getVariableType() == VariableType.PATH) {
+            steps[i] = new PathExpand(expandStep, scope, filters, compiler);
+          } else {
+            steps[i] = new Expand(expandStep, scope, filters);
+          }
+          break;
+        }
+        default:
+          throw new IllegalArgumentException(planStep.getStepType().toString());
+      }
+    }
+  }
+
+  /**
+   * @return the variable that is bound to the vertices or edges of the path for ONE ROW PER VERTEX and ONE ROW PER
+   *         EDGE, or null for ONE ROW PER MATCH
+   */
+  static QueryVariable getUnnestVariable(QueryPath path) {
+    RowsPerMatch rowsPerMatch = path.getRowsPerMatch();
+    if (rowsPerMatch == null) {
+      return null;
+    }
+    switch (rowsPerMatch.getRowsPerMatchType()) {
+      case ONE_ROW_PER_VERTEX:
+        return ((OneRowPerVertex) rowsPerMatch).getVertex();
+      case ONE_ROW_PER_EDGE:
+        return ((OneRowPerEdge) rowsPerMatch).getEdge();
+      default:
+        return null;
+    }
+  }
+
+  private static Evaluator[] compileFilters(List<QueryExpression> filters, Scope scope, ExpressionCompiler compiler)
+      throws PgqlException {
+    Evaluator[] result = new Evaluator[filters.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = compiler.compile(filters.get(i), scope);
+    }
+    return result;
+  }
+
+  /**
+   * Find all the matches and pass them to the consumer. A graph pattern without any vertices has a single (empty)
+   * match.
+   *
+   * @return false if the consumer stopped the matching
+   */
+  boolean match(Frame frame, MatchConsumer consumer) {
+    return consume(matches(frame), frame, consumer);
+  }
+
+  /**
+   * Start matching. The matches are found one at a time by {@link Matches#next()}, on the thread that calls it.
+   */
+  Matches matches(Frame frame) {
+    return matches(frame, steps.length == 0 ? null : steps[0].cursor());
+  }
+
+  private Matches matches(Frame frame, Cursor firstCursor) {
+    Cursor[] cursors = new Cursor[steps.length];
+    for (int i = 0; i < steps.length; i++) {
+      cursors[i] = i == 0 ? firstCursor : steps[i].cursor();
+    }
+    return new Matches(frame, cursors);
+  }
+
+  private static boolean consume(Matches matches, Frame frame, MatchConsumer consumer) {
+    try (Matches m = matches) {
+      while (m.next()) {
+        if (!consumer.accept(frame)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Find all the matches in parallel. Every chunk of candidates of the first scan is matched with its own frame and
+   * buffer, so that tasks do not contend with each other. The buffers are returned in the order of the chunks, such
+   * that processing them one after the other gives the matches in the same order as
+   * {@link #match(Frame, MatchConsumer)}.
+   *
+   * @param frameFactory
+   *          creates the frame for a chunk
+   * @param bufferFactory
+   *          creates the buffer for a chunk
+   * @param consumer
+   *          receives the matches of a chunk together with the buffer of the chunk
+   * @return the buffers of the chunks
+   */
+  <B> List<B> matchInParallel(ForkJoinPool pool, Supplier<Frame> frameFactory, Supplier<B> bufferFactory,
+      BiConsumer<B, Frame> consumer) {
+    int numCandidates = steps.length == 0 || !(steps[0] instanceof Scan) ? 0 : ((Scan) steps[0]).getNumCandidates();
+    if (numCandidates < MIN_PARALLEL_CANDIDATES || pool.getParallelism() == 1) {
+      B buffer = bufferFactory.get();
+      match(frameFactory.get(), f -> {
+        consumer.accept(buffer, f);
+        return true;
+      });
+      List<B> buffers = new ArrayList<>();
+      buffers.add(buffer);
+      return buffers;
+    }
+
+    int numChunks = (int) Math.min(numCandidates, (long) pool.getParallelism() * CHUNKS_PER_THREAD);
+    ChunkTask<B> task = new ChunkTask<>(numCandidates, numChunks, frameFactory, bufferFactory, consumer);
+    pool.invoke(task);
+    if (task.failure.get() != null) {
+      // rethrow the original exception, rather than a copy created by the fork/join framework
+      throw task.failure.get();
+    }
+    List<B> buffers = new ArrayList<>(numChunks);
+    for (Object buffer : task.buffers) {
+      @SuppressWarnings("unchecked")
+      B chunkBuffer = (B) buffer;
+      buffers.add(chunkBuffer);
+    }
+    return buffers;
+  }
+
+  /**
+   * Matches a range of chunks by splitting it in halves until a single chunk is left, such that idle threads can steal
+   * the larger halves. Every chunk writes to its own slot in the array of buffers.
+   */
+  private class ChunkTask<B> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    final int numCandidates;
+
+    final int numChunks;
+
+    final Supplier<Frame> frameFactory;
+
+    final Supplier<B> bufferFactory;
+
+    final BiConsumer<B, Frame> consumer;
+
+    final Object[] buffers;
+
+    final AtomicReference<RuntimeException> failure;
+
+    final int fromChunk;
+
+    final int toChunk;
+
+    ChunkTask(int numCandidates, int numChunks, Supplier<Frame> frameFactory, Supplier<B> bufferFactory,
+        BiConsumer<B, Frame> consumer) {
+      this(numCandidates, numChunks, frameFactory, bufferFactory, consumer, new Object[numChunks],
+          new AtomicReference<>(), 0, numChunks);
+    }
+
+    private ChunkTask(int numCandidates, int numChunks, Supplier<Frame> frameFactory, Supplier<B> bufferFactory,
+        BiConsumer<B, Frame> consumer, Object[] buffers, AtomicReference<RuntimeException> failure, int fromChunk,
+        int toChunk) {
+      this.numCandidates = numCandidates;
+      this.numChunks = numChunks;
+      this.frameFactory = frameFactory;
+      this.bufferFactory = bufferFactory;
+      this.consumer = consumer;
+      this.buffers = buffers;
+      this.failure = failure;
+      this.fromChunk = fromChunk;
+      this.toChunk = toChunk;
+    }
+
+    private ChunkTask<B> subtask(int from, int to) {
+      return new ChunkTask<>(numCandidates, numChunks, frameFactory, bufferFactory, consumer, buffers, failure, from,
+          to);
+    }
+
+    @Override
+    protected void compute() {
+      if (toChunk - fromChunk > 1) {
+        int middle = (fromChunk + toChunk) >>> 1;
+        invokeAll(subtask(fromChunk, middle), subtask(middle, toChunk));
+        return;
+      }
+      B buffer = bufferFactory.get();
+      buffers[fromChunk] = buffer;
+      if (failure.get() != null) {
+        return;
+      }
+      int fromCandidate = (int) ((long) numCandidates * fromChunk / numChunks);
+      int toCandidate = (int) ((long) numCandidates * (fromChunk + 1) / numChunks);
+      Frame frame = frameFactory.get();
+      try {
+        consume(matches(frame, ((Scan) steps[0]).cursor(fromCandidate, toCandidate)), frame, f -> {
+          consumer.accept(buffer, f);
+          // stop as soon as another chunk failed
+          return failure.get() == null;
+        });
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+      }
+    }
+  }
+
+  /**
+   * The matches of the graph pattern, which are found one at a time by backtracking over the cursors of the steps:
+   * {@link #next()} advances the cursor of the last step and, once a cursor has no more candidates, the cursor of the
+   * step before it, after which the cursors of the later steps are opened again for the new bindings. The frame holds
+   * the current match.
+   *
+   * Matches must be closed if they are not consumed until the end, such that the path searches are released.
+   */
+  static final class Matches implements AutoCloseable {
+
+    private final Frame frame;
+
+    private final Cursor[] cursors;
+
+    /**
+     * The number of cursors that are open.
+     */
+    private int numOpen;
+
+    private boolean started;
+
+    private boolean ended;
+
+    private Matches(Frame frame, Cursor[] cursors) {
+      this.frame = frame;
+      this.cursors = cursors;
+    }
+
+    /**
+     * Find the next match and bind it in the frame.
+     *
+     * @return false if there are no more matches
+     */
+    boolean next() {
+      if (ended) {
+        return false;
+      }
+      try {
+        if (!started) {
+          started = true;
+          if (cursors.length == 0) {
+            // the single (empty) match
+            return true;
+          }
+          cursors[0].open(frame);
+          numOpen = 1;
+        }
+        while (numOpen > 0) {
+          if (!cursors[numOpen - 1].advance(frame)) {
+            numOpen--;
+          } else if (numOpen == cursors.length) {
+            return true;
+          } else {
+            cursors[numOpen].open(frame);
+            numOpen++;
+          }
+        }
+        close();
+        return false;
+      } catch (RuntimeException | Error e) {
+        close();
+        throw e;
+      }
+    }
+
+    /**
+     * Stop matching and unbind the variables.
+     */
+    @Override
+    public void close() {
+      ended = true;
+      for (int i = numOpen - 1; i >= 0; i--) {
+        cursors[i].unbind(frame);
+      }
+      numOpen = 0;
+      for (Cursor cursor : cursors) {
+        cursor.close();
+      }
+    }
+  }
+
+  private static boolean passesFilters(Evaluator[] filters, Frame frame) {
+    for (Evaluator filter : filters) {
+      if (!filter.test(frame)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return for every label ID whether the label is one of the given labels, or null if all labels are allowed
+   */
+  private static boolean[] getLabelFilter(Set<String> labels, String[] labelNames, boolean vertexLabels,
+      CsrGraph graph) {
+    if (labels.isEmpty()) {
+      return null;
+    }
+    boolean[] result = new boolean[labelNames.length];
+    for (String label : labels) {
+      int labelId = vertexLabels ? graph.getVertexLabelId(label) : graph.getEdgeLabelId(label);
+      if (labelId != CsrGraph.NO_LABEL) {
+        result[labelId] = true;
+      }
+    }
+    return result;
+  }
+
+  private static boolean hasLabel(boolean[] labelFilter, int labelId) {
+    return labelFilter == null || (labelId != CsrGraph.NO_LABEL && labelFilter[labelId]);
+  }
+
+  private abstract class Step {
+
+    final Evaluator[] filters;
+
+    Step(Evaluator[] filters) {
+      this.filters = filters;
+    }
+
+    abstract Cursor cursor();
+  }
+
+  /**
+   * Iterates over the bindings of a step for the bindings of the steps before it.
+   */
+  private abstract static class Cursor {
+
+    /**
+     * Start iterating over the bindings for the current bindings of the earlier steps.
+     */
+    abstract void open(Frame frame);
+
+    /**
+     * Bind the next binding that passes the filters of the step.
+     *
+     * @return false if there are no more bindings, in which case the variables of the step are unbound
+     */
+    abstract boolean advance(Frame frame);
+
+    /**
+     * Stop iterating and unbind the variables of the step.
+     */
+    abstract void unbind(Frame frame);
+
+    /**
+     * Release the resources of the cursor once matching ends.
+     */
+    void close() {
+    }
+  }
+
+  private class Scan extends Step {
+
+    final int vertexSlot;
+
+    /**
+     * The candidate vertices, or null for all vertices.
+     */
+    final int[][] candidates;
+
+    Scan(ScanStep scanStep, Scope scope, Evaluator[] filters) {
+      super(filters);
+      this.vertexSlot = scope.getElementSlot(scanStep.getVertex());
+      if (scanStep.getLabels().isEmpty()) {
+        candidates = null;
+      } else {
+        List<int[]> verticesWithLabels = new ArrayList<>();
+        for (String label : scanStep.getLabels()) {
+          int labelId = graph.getVertexLabelId(label);
+          if (labelId != CsrGraph.NO_LABEL) {
+            verticesWithLabels.add(graph.getVerticesWithLabel(labelId));
+          }
+        }
+        candidates = verticesWithLabels.toArray(new int[0][]);
+      }
+    }
+
+    int getNumCandidates() {
+      if (candidates == null) {
+        return graph.getNumVertices();
+      }
+      int result = 0;
+      for (int[] vertices : candidates) {
+        result += vertices.length;
+      }
+      return result;
+    }
+
+    @Override
+    Cursor cursor() {
+      return cursor(0, getNumCandidates());
+    }
+
+    /**
+     * @return a cursor over the candidates with an index in the given range, where the candidates for multiple labels
+     *         are numbered consecutively
+     */
+    Cursor cursor(int fromIndex, int toIndex) {
+      return new Cursor() {
+
+        int index;
+
+        // the array of candidates that holds the candidate with the current index, and the index of its first element
+        int array;
+
+        int arrayOffset;
+
+        @Override
+        void open(Frame frame) {
+          index = fromIndex;
+          array = 0;
+          arrayOffset = 0;
+        }
+
+        @Override
+        boolean advance(Frame frame) {
+          while (index < toIndex) {
+            frame.elements[vertexSlot] = getCandidate(index++);
+            if (passesFilters(filters, frame)) {
+              return true;
+            }
+          }
+          unbind(frame);
+          return false;
+        }
+
+        private int getCandidate(int i) {
+          if (candidates == null) {
+            return i;
+          }
+          while (i - arrayOffset >= candidates[array].length) {
+            arrayOffset += candidates[array].length;
+            array++;
+          }
+          return candidates[array][i - arrayOffset];
+        }
+
+        @Override
+        void unbind(Frame frame) {
+          index = toIndex;
+          frame.elements[vertexSlot] = Frame.UNBOUND;
+        }
+      };
+    }
+  }
+
+  private class Expand extends Step {
+
+    final int fromSlot;
+
+    final int toSlot;
+
+    final int edgeSlot;
+
+    final boolean closing;
+
+    final boolean traverseOutEdges;
+
+    final boolean traverseInEdges;
+
+    final boolean[] edgeLabelFilter;
+
+    final boolean[] toVertexLabelFilter;
+
+    Expand(ExpandStep expandStep, Scope scope, Evaluator[] filters) {
+      super(filters);
+      this.fromSlot = scope.getElementSlot(expandStep.getFromVertex());
+      this.toSlot = scope.getElementSlot(expandStep.getToVertex());
+      this.edgeSlot = scope.getElementSlot(expandStep.getConnection());
+      this.closing = expandStep.isClosing();
+
+      Direction direction = expandStep.getConnection().getDirection();
+      boolean forward = expandStep.getExpansionDirection() == ExpansionDirection.FORWARD;
+      this.traverseOutEdges = direction == Direction.ANY || (direction == Direction.OUTGOING) == forward;
+      this.traverseInEdges = direction == Direction.ANY || (direction == Direction.INCOMING) == forward;
+      this.edgeLabelFilter = getLabelFilter(expandStep.getConnectionLabels(), graph.getEdgeLabelNames(), false, graph);
+      this.toVertexLabelFilter = getLabelFilter(expandStep.getToVertexLabels(), graph.getVertexLabelNames(), true,
+          graph);
+    }
+
+    @Override
+    Cursor cursor() {
+      return new ExpandCursor();
+    }
+
+    /**
+     * Iterates over the out-neighbors and then over the in-neighbors of the vertex that the expansion starts from.
+     */
+    private class ExpandCursor extends Cursor {
+
+      int from;
+
+      int boundTo;
+
+      boolean outPhase;
+
+      // the adjacency list that is traversed and the position in it
+      int[] neighbors;
+
+      int[] edges;
+
+      int position;
+
+      int end;
+
+      boolean skipSelfLoops;
+
+      @Override
+      void open(Frame frame) {
+        from = frame.elements[fromSlot];
+        boundTo = closing ? frame.elements[toSlot] : Frame.UNBOUND;
+        outPhase = traverseOutEdges;
+        if (traverseOutEdges) {
+          startPhase(graph.getOutBegin(), graph.getOutNeighbors(), graph.getOutEdges(), false);
+        } else {
+          startInPhase();
+        }
+      }
+
+      private void startInPhase() {
+        // for undirected edges, self-loops are only matched once
+        startPhase(graph.getInBegin(), graph.getInNeighbors(), graph.getInEdges(), traverseOutEdges);
+      }
+
+      private void startPhase(int[] begin, int[] neighbors, int[] edges, boolean skipSelfLoops) {
+        this.neighbors = neighbors;
+        this.edges = edges;
+        this.skipSelfLoops = skipSelfLoops;
+        position = begin[from];
+        end = begin[from + 1];
+      }
+
+      @Override
+      boolean advance(Frame frame) {
+        while (true) {
+          while (position < end) {
+            int to = neighbors[position];
+            int edge = edges[position];
+            position++;
+            if ((skipSelfLoops && to == from) || !hasLabel(edgeLabelFilter, graph.getEdgeLabelId(edge))) {
+              continue;
+            }
+            if (closing) {
+              if (to != boundTo) {
+                continue;
+              }
+            } else if (!hasLabel(toVertexLabelFilter, graph.getVertexLabelId(to))) {
+              continue;
+            } else {
+              frame.elements[toSlot] = to;
+            }
+            frame.elements[edgeSlot] = edge;
+            if (passesFilters(filters, frame)) {
+              return true;
+            }
+          }
+          if (outPhase && traverseInEdges) {
+            outPhase = false;
+            startInPhase();
+          } else {
+            unbind(frame);
+            return false;
+          }
+        }
+      }
+
+      @Override
+      void unbind(Frame frame) {
+        position = end;
+        outPhase = false;
+        frame.elements[edgeSlot] = Frame.UNBOUND;
+        if (!closing) {
+          frame.elements[toSlot] = Frame.UNBOUND;
+        }
+      }
+    }
+  }
+
+  /**
+   * Expands a path pattern by means of the {@link PathFinder}. The path pattern should consist of a single edge, such
+   * as -/:knows+/-> or ANY SHORTEST (a) -[e:knows WHERE e.weight > 10]->* (b). Every path that is found gives a match,
+   * except for reachability, where every vertex that is reachable gives a match.
+   *
+   * For ONE ROW PER VERTEX and ONE ROW PER EDGE, every path is unnested as soon as it is found: the variable is bound
+   * to one vertex or edge of the path after the other and each of them gives a match, such that only the current path
+   * is held in memory. The vertices and edges are unnested in order from the source to the destination of the path. A
+   * path without edges gives no matches for ONE ROW PER EDGE.
+   */
+  private class PathExpand extends Step {
+
+    final int fromSlot;
+
+    final int toSlot;
+
+    final boolean closing;
+
+    final boolean forward;
+
+    final QueryPath path;
+
+    final Direction direction;
+
+    /**
+     * Whether the first vertex of the path expression is the vertex at which a hop starts.
+     */
+    final boolean hopStartsAtFirstVertex;
+
+    /**
+     * Whether the first vertex of the path expression is the source of the edge of the path expression.
+     */
+    final boolean edgeStartsAtFirstVertex;
+
+    final boolean[] toVertexLabelFilter;
+
+    final Evaluator[] hopFilters;
+
+    final Evaluator cost;
+
+    final int numHopValues;
+
+    final RowsPerMatchType rowsPerMatchType;
+
+    /**
+     * The slot of the variable of ONE ROW PER VERTEX or ONE ROW PER EDGE.
+     */
+    final int unnestSlot;
+
+    /**
+     * A path search that is not in use by any cursor, per thread. Path finders are not thread-safe and hold scratch
+     * space for all the vertices of the graph, so every cursor takes a path search of its own, and hands it back once
+     * matching ends such that the next cursor on the same thread can reuse it.
+     */
+    final ThreadLocal<PathSearch> idleSearch = new ThreadLocal<>();
+
+    PathExpand(ExpandStep expandStep, Scope scope, Evaluator[] filters, ExpressionCompiler compiler)
+        throws PgqlException {
+      super(filters);
+      this.path = (QueryPath) expandStep.getConnection();
+      if (path.getConnections().size() != 1 || path.getConnections().get(0).getVariableType() != VariableType.EDGE) {
+        throw new PgqlException("Path patterns with more than a single edge are not supported by the in-memory engine");
+      }
+      this.fromSlot = scope.getElementSlot(expandStep.getFromVertex());
+      this.toSlot = scope.getElementSlot(expandStep.getToVertex());
+      this.closing = expandStep.isClosing();
+      this.forward = expandStep.getExpansionDirection() == ExpansionDirection.FORWARD;
+      this.toVertexLabelFilter = getLabelFilter(expandStep.getToVertexLabels(), graph.getVertexLabelNames(), true,
+          graph);
+
+      // the hops of the path follow the edge of the path expression in the direction of the path
+      VertexPairConnection edge = path.getConnections().get(0);
+      QueryVertex firstVertex = path.getVertices().get(0);
+      Direction edgeDirection = edge.getDirection();
+      if (edgeDirection != Direction.ANY && edge.getSrc() != firstVertex) {
+        edgeDirection = edgeDirection == Direction.OUTGOING ? Direction.INCOMING : Direction.OUTGOING;
+      }
+      Direction pathDirection = path.getDirection();
+      if (edgeDirection == Direction.ANY || pathDirection == Direction.ANY) {
+        this.direction = Direction.ANY;
+      } else {
+        this.direction = edgeDirection == pathDirection ? Direction.OUTGOING : Direction.INCOMING;
+      }
+      this.hopStartsAtFirstVertex = pathDirection != Direction.INCOMING;
+      this.edgeStartsAtFirstVertex = edge.getSrc() == firstVertex;
+
+      // constraints and cost are evaluated for every hop, with the start vertex, end vertex and edge of the hop bound
+      Scope hopScope = new Scope();
+      hopScope.addElement(path.getVertices().get(0));
+      hopScope.addElement(path.getVertices().get(1));
+      hopScope.addElement(edge);
+      List<QueryExpression> constraints = new ArrayList<>(path.getConstraints());
+      this.hopFilters = compileFilters(constraints, hopScope, compiler);
+      this.cost = path.getCost() == null ? null : compiler.compile(path.getCost(), hopScope);
+      this.numHopValues = hopScope.getNumValues();
+
+      QueryVariable unnestVariable = getUnnestVariable(path);
+      this.rowsPerMatchType = unnestVariable == null ? RowsPerMatchType.ONE_ROW_PER_MATCH
+          : path.getRowsPerMatch().getRowsPerMatchType();
+      this.unnestSlot = unnestVariable == null ? Scope.NOT_FOUND : scope.getElementSlot(unnestVariable);
+    }
+
+    @Override
+    Cursor cursor() {
+      return new PathExpandCursor();
+    }
+
+    /**
+     * @return a path search for the given values of the bind variables, which is reused if possible
+     */
+    private PathSearch acquireSearch(Object[] parameters) {
+      PathSearch pathSearch = idleSearch.get();
+      if (pathSearch != null && pathSearch.hopFrame.parameters == parameters) {
+        idleSearch.remove();
+        return pathSearch;
+      }
+      return new PathSearch(parameters);
+    }
+
+    /**
+     * Iterates over the paths that start or end at the vertex that the expansion starts from, or over the reachable
+     * vertices, and unnests every path into one binding per vertex or edge of the path for ONE ROW PER VERTEX and ONE
+     * ROW PER EDGE.
+     */
+    private class PathExpandCursor extends Cursor {
+
+      PathSearch pathSearch;
+
+      // the paths or, for reachability, the reachable vertices or whether the bound vertex is reachable
+      PathFinder.PathIterator paths;
+
+      BitSet reachable;
+
+      int nextReachable;
+
+      boolean reachesBoundVertex;
+
+      /**
+       * The current path, or null for reachability, and the index of the next row of the path.
+       */
+      Path currentPath;
+
+      int rowIndex;
+
+      int numRows;
+
+      @Override
+      void open(Frame frame) {
+        if (pathSearch == null) {
+          pathSearch = acquireSearch(frame.parameters);
+        }
+        PathFinder pathFinder = pathSearch.pathFinder;
+        int from = frame.elements[fromSlot];
+        rowIndex = 0;
+        numRows = 0;
+        // unnesting needs the actual paths rather than only the reachable vertices
+        boolean reaches = path.getPathFindingGoal() == PathFindingGoal.REACHES
+            && rowsPerMatchType == RowsPerMatchType.ONE_ROW_PER_MATCH;
+        if (closing) {
+          int src = forward ? from : frame.elements[toSlot];
+          int dst = forward ? frame.elements[toSlot] : from;
+          if (reaches) {
+            reachesBoundVertex = pathFinder.reaches(src, dst);
+          } else {
+            paths = pathFinder.iteratePaths(src, dst);
+          }
+        } else if (reaches) {
+          reachable = forward ? pathFinder.reachableFrom(from) : pathFinder.reachableTo(from);
+          nextReachable = 0;
+        } else {
+          paths = forward ? pathFinder.iteratePathsFrom(from) : pathFinder.iteratePathsTo(from);
+        }
+      }
+
+      @Override
+      boolean advance(Frame frame) {
+        while (true) {
+          while (rowIndex < numRows) {
+            int row = rowIndex++;
+            if (rowsPerMatchType == RowsPerMatchType.ONE_ROW_PER_VERTEX) {
+              frame.elements[unnestSlot] = currentPath.getVertex(row);
+            } else if (rowsPerMatchType == RowsPerMatchType.ONE_ROW_PER_EDGE) {
+              frame.elements[unnestSlot] = currentPath.getEdge(row);
+            }
+            if (passesFilters(filters, frame)) {
+              return true;
+            }
+          }
+          if (!nextPath(frame)) {
+            unbind(frame);
+            return false;
+          }
+        }
+      }
+
+      /**
+       * Move to the next path and bind its endpoint, skipping the endpoints that do not have the required labels.
+       *
+       * @return false if there are no more paths
+       */
+      private boolean nextPath(Frame frame) {
+        while (true) {
+          Path p = null;
+          int to;
+          if (paths != null) {
+            p = paths.next();
+            if (p == null) {
+              return false;
+            }
+            to = forward ? p.getDestination() : p.getSource();
+          } else if (reachable != null) {
+            to = reachable.nextSetBit(nextReachable);
+            if (to < 0) {
+              return false;
+            }
+            nextReachable = to + 1;
+          } else if (reachesBoundVertex) {
+            reachesBoundVertex = false;
+            to = frame.elements[toSlot];
+          } else {
+            return false;
+          }
+
+          if (!closing) {
+            if (!hasLabel(toVertexLabelFilter, graph.getVertexLabelId(to))) {
+              continue;
+            }
+            frame.elements[toSlot] = to;
+          }
+          currentPath = p;
+          rowIndex = 0;
+          switch (rowsPerMatchType) {
+            case ONE_ROW_PER_VERTEX:
+              numRows = p.getLength() + 1;
+              break;
+            case ONE_ROW_PER_EDGE:
+              numRows = p.getLength();
+              break;
+            default:
+              numRows = 1;
+          }
+          return true;
+        }
+      }
+
+      @Override
+      void unbind(Frame frame) {
+        if (paths != null) {
+          paths.close();
+          paths = null;
+        }
+        reachable = null;
+        reachesBoundVertex = false;
+        currentPath = null;
+        rowIndex = 0;
+        numRows = 0;
+        if (unnestSlot != Scope.NOT_FOUND) {
+          frame.elements[unnestSlot] = Frame.UNBOUND;
+        }
+        if (!closing) {
+          frame.elements[toSlot] = Frame.UNBOUND;
+        }
+      }
+
+      @Override
+      void close() {
+        if (pathSearch != null) {
+          idleSearch.set(pathSearch);
+          pathSearch = null;
+        }
+      }
+    }
+
+    private class PathSearch {
+
+      final Frame hopFrame;
+
+      final PathFinder pathFinder;
+
+      PathSearch(Object[] parameters) {
+        this.hopFrame = new Frame(parameters, 3, numHopValues);
+        CsrAdjacency.HopFilter hopFilter = hopFilters.length == 0 ? null : this::acceptHop;
+        IntToDoubleFunction edgeCost = cost == null ? null : this::getCost;
+        this.pathFinder = new PathFinder(path, new CsrAdjacency(graph, direction, hopFilter), edgeCost);
+      }
+
+      private void bindHop(int first, int edge, int second) {
+        hopFrame.elements[0] = first;
+        hopFrame.elements[1] = second;
+        hopFrame.elements[2] = edge;
+      }
+
+      private boolean acceptHop(int from, int edge, int to) {
+        if (hopStartsAtFirstVertex) {
+          bindHop(from, edge, to);
+        } else {
+          bindHop(to, edge, from);
+        }
+        return passesFilters(hopFilters, hopFrame);
+      }
+
+      /**
+       * The cost function only receives the edge, so the vertices of the path expression are bound to the endpoints of
+       * the edge.
+       */
+      private double getCost(int edge) {
+        int src = graph.getEdgeSource(edge);
+        int dst = graph.getEdgeDestination(edge);
+        if (edgeStartsAtFirstVertex) {
+          bindHop(src, edge, dst);
+        } else {
+          bindHop(dst, edge, src);
+        }
+        Object value = cost.evaluate(hopFrame);
+        if (!ValueUtils.isNumeric(value)) {
+          throw new IllegalArgumentException("The cost of a path should be numeric but got " + value);
+        }
+        return ((Number) value).doubleValue();
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+/**
+ * A compiled {@link oracle.pgql.lang.ir.QueryExpression} of which the values are produced without boxing: the values
+ * of numeric property columns and the IDs of vertices and edges. All values are encoded as a long: integers and IDs as
+ * is, floating point numbers by means of {@link Double#doubleToLongBits(double)}.
+ */
+interface PrimitiveEvaluator {
+
+  enum PrimitiveType {
+    INTEGER,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    VERTEX,
+    EDGE;
+
+    boolean isIntegral() {
+      return this == INTEGER || this == LONG;
+    }
+
+    boolean isNumeric() {
+      return this != VERTEX && this != EDGE;
+    }
+
+    /**
+     * @return the numeric value that is encoded by the given bits
+     */
+    double toDouble(long bits) {
+      return isIntegral() ? bits : Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * @return the value that is encoded by the given bits, as it is returned by {@link Evaluator#evaluate(Frame)}
+     */
+    Object box(long bits, CsrGraph graph) {
+      switch (this) {
+        case INTEGER:
+          return (int) bits;
+        case LONG:
+          return bits;
+        case FLOAT:
+          return (float) Double.longBitsToDouble(bits);
+        case DOUBLE:
+          return Double.longBitsToDouble(bits);
+        case VERTEX:
+          return new InMemoryVertex(graph, (int) bits);
+        case EDGE:
+          return new InMemoryEdge(graph, (int) bits);
+        default:
+          throw new IllegalArgumentException(toString());
+      }
+    }
+  }
+
+  PrimitiveType getType();
+
+  /**
+   * @return true if the expression evaluates to NULL
+   */
+  boolean isNull(Frame frame);
+
+  /**
+   * @return the encoded value of the expression, which is undefined if the expression evaluates to NULL
+   */
+  long evaluate(Frame frame);
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The values of a single vertex or edge property, stored in a primitive array that is indexed by the vertex or edge
+ * ID. Vertices and edges that do not have a value for the property are null.
+ *
+ * The type of the column is determined by the first value that is added to it: Integer, Long, Float, Double and
+ * Boolean values are stored in primitive arrays, while all other values (e.g. String or LocalDate) are stored in an
+ * object array.
+ */
+public abstract class PropertyColumn {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final String name;
+
+  private final BitSet nonNull = new BitSet();
+
+  protected PropertyColumn(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the Java type of the values in this column
+   */
+  public abstract Class<?> getValueType();
+
+  /**
+   * @return true if the vertex or edge with the given ID does not have a value for this property
+   */
+  public boolean isNull(int id) {
+    return !nonNull.get(id);
+  }
+
+  /**
+   * @return the value for the vertex or edge with the given ID, or null if it does not have a value
+   */
+  public Object get(int id) {
+    return isNull(id) ? null : getNonNull(id);
+  }
+
+  protected abstract Object getNonNull(int id);
+
+  void set(int id, Object value) {
+    if (value == null) {
+      nonNull.clear(id);
+      return;
+    }
+    if (!getValueType().isInstance(value)) {
+      throw new IllegalArgumentException("Value " + value + " of type " + value.getClass().getSimpleName()
+          + " cannot be stored in property " + name + " of type " + getValueType().getSimpleName());
+    }
+    ensureCapacity(id + 1);
+    setNonNull(id, value);
+    nonNull.set(id);
+  }
+
+  protected abstract void setNonNull(int id, Object value);
+
+  protected abstract void ensureCapacity(int capacity);
+
+  /**
+   * Reduce the capacity of the column to the given size.
+   */
+  protected abstract void trim(int size);
+
+  protected static int grow(int currentCapacity, int capacity) {
+    return Math.max(capacity, Math.max(INITIAL_CAPACITY, currentCapacity + (currentCapacity >> 1)));
+  }
+
+  static PropertyColumn create(String name, Object firstValue) {
+    if (firstValue instanceof Integer) {
+      return new IntColumn(name);
+    } else if (firstValue instanceof Long) {
+      return new LongColumn(name);
+    } else if (firstValue instanceof Float) {
+      return new FloatColumn(name);
+    } else if (firstValue instanceof Double) {
+      return new DoubleColumn(name);
+    } else if (firstValue instanceof Boolean) {
+      return new BooleanColumn(name);
+    } else {
+      return new ObjectColumn(name, firstValue.getClass());
+    }
+  }
+
+  public static class IntColumn extends PropertyColumn {
+
+    private int[] values = new int[0];
+
+    public IntColumn(String name) {
+      super(name);
+    }
+
+    @Override
+    public Class<?> getValueType() {
+      return Integer.class;
+    }
+
+    /**
+     * @return the value for the vertex or edge with the given ID, or 0 if it does not have a value
+     */
+    public int getInt(int id) {
+      return id < values.length ? values[id] : 0;
+    }
+
+    @Override
+    protected Object getNonNull(int id) {
+      return values[id];
+    }
+
+    @Override
+    protected void setNonNull(int id, Object value) {
+      values[id] = (Integer) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    protected void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  public static class LongColumn extends PropertyColumn {
+
+    private long[] values = new long[0];
+
+    public LongColumn(String name) {
+      super(name);
+    }
+
+    @Override
+    public Class<?> getValueType() {
+      return Long.class;
+    }
+
+    /**
+     * @return the value for the vertex or edge with the given ID, or 0 if it does not have a value
+     */
+    public long getLong(int id) {
+      return id < values.length ? values[id] : 0;
+    }
+
+    @Override
+    protected Object getNonNull(int id) {
+      return values[id];
+    }
+
+    @Override
+    protected void setNonNull(int id, Object value) {
+      values[id] = (Long) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    protected void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  public static class FloatColumn extends PropertyColumn {
+
+    private float[] values = new float[0];
+
+    public FloatColumn(String name) {
+      super(name);
+    }
+
+    @Override
+    public Class<?> getValueType() {
+      return Float.class;
+    }
+
+    /**
+     * @return the value for the vertex or edge with the given ID, or 0 if it does not have a value
+     */
+    public float getFloat(int id) {
+      return id < values.length ? values[id] : 0;
+    }
+
+    @Override
+    protected Object getNonNull(int id) {
+      return values[id];
+    }
+
+    @Override
+    protected void setNonNull(int id, Object value) {
+      values[id] = (Float) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    protected void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  public static class DoubleColumn extends PropertyColumn {
+
+    private double[] values = new double[0];
+
+    public DoubleColumn(String name) {
+      super(name);
+    }
+
+    @Override
+    public Class<?> getValueType() {
+      return Double.class;
+    }
+
+    /**
+     * @return the value for the vertex or edge with the given ID, or 0 if it does not have a value
+     */
+    public double getDouble(int id) {
+      return id < values.length ? values[id] : 0;
+    }
+
+    @Override
+    protected Object getNonNull(int id) {
+      return values[id];
+    }
+
+    @Override
+    protected void setNonNull(int id, Object value) {
+      values[id] = (Double) value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    protected void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+
+  public static class BooleanColumn extends PropertyColumn {
+
+    private final BitSet values = new BitSet();
+
+    public BooleanColumn(String name) {
+      super(name);
+    }
+
+    @Override
+    public Class<?> getValueType() {
+      return Boolean.class;
+    }
+
+    /**
+     * @return the value for the vertex or edge with the given ID, or false if it does not have a value
+     */
+    public boolean getBoolean(int id) {
+      return values.get(id);
+    }
+
+    @Override
+    protected Object getNonNull(int id) {
+      return values.get(id);
+    }
+
+    @Override
+    protected void setNonNull(int id, Object value) {
+      values.set(id, (Boolean) value);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+    }
+
+    @Override
+    protected void trim(int size) {
+    }
+  }
+
+  public static class ObjectColumn extends PropertyColumn {
+
+    private final Class<?> valueType;
+
+    private Object[] values = new Object[0];
+
+    public ObjectColumn(String name, Class<?> valueType) {
+      super(name);
+      this.valueType = valueType;
+    }
+
+    @Override
+    public Class<?> getValueType() {
+      return valueType;
+    }
+
+    @Override
+    protected Object getNonNull(int id) {
+      return values[id];
+    }
+
+    @Override
+    protected void setNonNull(int id, Object value) {
+      values[id] = value;
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    protected void trim(int size) {
+      values = Arrays.copyOf(values, size);
+    }
+  }
+}
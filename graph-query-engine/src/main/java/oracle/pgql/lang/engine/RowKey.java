@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Arrays;
+
+/**
+ * A tuple of values that can be used as a key in a hash map, e.g. for grouping or for removing duplicate rows. Two
+ * keys are equal if their values are pairwise equal according to {@link ValueUtils#equal(Object, Object)}, where NULL
+ * is considered equal to NULL.
+ */
+final class RowKey {
+
+  private final Object[] values;
+
+  private final int hashCode;
+
+  RowKey(Object[] values) {
+    this.values = values;
+    int hash = 1;
+    for (Object value : values) {
+      hash = 31 * hash + ValueUtils.hash(value);
+    }
+    this.hashCode = hash;
+  }
+
+  Object[] getValues() {
+    return values;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    RowKey other = (RowKey) obj;
+    if (hashCode != other.hashCode || values.length != other.values.length)
+      return false;
+    for (int i = 0; i < values.length; i++) {
+      if (!valuesEqual(values[i], other.values[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return whether the two values are equal, where NULL is considered equal to NULL and values of incompatible types
+   *         (e.g. a string and an integer) are not equal rather than an error
+   */
+  static boolean valuesEqual(Object value1, Object value2) {
+    if (value1 == null || value2 == null) {
+      return value1 == value2;
+    }
+    return comparable(value1, value2) && ValueUtils.equal(value1, value2);
+  }
+
+  private static boolean comparable(Object value1, Object value2) {
+    return value1.getClass() == value2.getClass() || (ValueUtils.isNumeric(value1) && ValueUtils.isNumeric(value2));
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(values);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import oracle.pgql.lang.ir.QueryVariable;
+
+/**
+ * Assigns the variables and expressions that are visible to a compiled expression to slots of a {@link Frame}:
+ * vertices and edges are assigned to element slots, while computed variables (ExpAsVar) and computed expressions
+ * (e.g. aggregations or GROUP BY expressions) are assigned to value slots.
+ *
+ * Lookups first compare by identity and then by (structural) equality, since the IR uses structural equality.
+ */
+final class Scope {
+
+  static final int NOT_FOUND = -1;
+
+  private final List<QueryVariable> elements = new ArrayList<>();
+
+  private final List<Object> valueKeys = new ArrayList<>();
+
+  private final List<Integer> valueSlots = new ArrayList<>();
+
+  private int numValues;
+
+  int addElement(QueryVariable variable) {
+    elements.add(variable);
+    return elements.size() - 1;
+  }
+
+  /**
+   * @param key
+   *          a variable or an expression
+   */
+  int addValue(Object key) {
+    int slot = numValues++;
+    addValue(key, slot);
+    return slot;
+  }
+
+  /**
+   * Make a variable or an expression refer to an existing value slot, e.g. to make both the GROUP BY variable and its
+   * expression refer to the grouping key.
+   */
+  void addValue(Object key, int slot) {
+    valueKeys.add(key);
+    valueSlots.add(slot);
+  }
+
+  int getElementSlot(QueryVariable variable) {
+    return indexOf(elements, variable);
+  }
+
+  int getValueSlot(Object key) {
+    int index = indexOf(valueKeys, key);
+    return index == NOT_FOUND ? NOT_FOUND : valueSlots.get(index);
+  }
+
+  int getNumElements() {
+    return elements.size();
+  }
+
+  int getNumValues() {
+    return numValues;
+  }
+
+  List<QueryVariable> getElements() {
+    return elements;
+  }
+
+  private static int indexOf(List<?> keys, Object key) {
+    for (int i = 0; i < keys.size(); i++) {
+      if (keys.get(i) == key) {
+        return i;
+      }
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      if (keys.get(i).equals(key)) {
+        return i;
+      }
+    }
+    return NOT_FOUND;
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import oracle.pgql.lang.engine.PrimitiveEvaluator.PrimitiveType;
+
+/**
+ * Keeps the first k rows according to the ORDER BY clause, for ORDER BY with LIMIT. The rows are kept in a bounded
+ * binary heap of which the root is the last row that is kept, such that a row that does not make it into the first k
+ * rows is rejected with a single comparison.
+ *
+ * Keys that are vertices, edges or numeric properties are evaluated as primitive values, and a row is only created once
+ * it makes it into the heap, such that rejected rows do not allocate any objects. Rows with equal keys are ordered by
+ * the order in which they were offered, such that the result is the same as for a stable sort of all the rows.
+ *
+ * NULL values sort after all other values in ascending order and before all other values in descending order.
+ */
+final class TopK {
+
+  private final int capacity;
+
+  /**
+   * The keys as primitive evaluators, with null entries for keys that are not primitive.
+   */
+  private final PrimitiveEvaluator[] primitiveKeys;
+
+  private final PrimitiveType[] types;
+
+  /**
+   * The keys as regular evaluators, or null if the keys are taken from the rows themselves.
+   */
+  private final Evaluator[] keys;
+
+  private final boolean[] ascending;
+
+  /**
+   * The index of the first key in a row.
+   */
+  private final int firstKeyInRow;
+
+  private final Function<Frame, Object[]> rowFactory;
+
+  private final int numKeys;
+
+  /**
+   * The keys, null flags, sequence numbers and rows of the entries. Entry IDs are indexes into these arrays; one entry
+   * is a scratch entry into which the next candidate is loaded.
+   */
+  private long[] bits = new long[0];
+
+  private Object[] objects = new Object[0];
+
+  private boolean[] nulls = new boolean[0];
+
+  private long[] sequences = new long[0];
+
+  private Object[][] rows = new Object[0][];
+
+  /**
+   * The IDs of the entries in the heap, where the root is the largest entry.
+   */
+  private int[] heap = new int[0];
+
+  private int size;
+
+  private int scratch;
+
+  private long nextSequence;
+
+  /**
+   * @param primitiveKeys
+   *          the keys as primitive evaluators, with null entries for keys that are not primitive
+   * @param keys
+   *          the keys, which are evaluated against the frames that are offered
+   * @param rowFactory
+   *          creates the row for a frame once it makes it into the first k rows; the row holds the values of the keys
+   *          at the given index
+   */
+  TopK(int capacity, PrimitiveEvaluator[] primitiveKeys, Evaluator[] keys, boolean[] ascending, int firstKeyInRow,
+      Function<Frame, Object[]> rowFactory) {
+    this.capacity = capacity;
+    this.primitiveKeys = primitiveKeys;
+    this.keys = keys;
+    this.ascending = ascending;
+    this.firstKeyInRow = firstKeyInRow;
+    this.rowFactory = rowFactory;
+    this.numKeys = ascending.length;
+    this.types = new PrimitiveType[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      types[i] = primitiveKeys[i] == null ? null : primitiveKeys[i].getType();
+    }
+    ensureEntries(Math.min(capacity, 64) + 1);
+  }
+
+  /**
+   * Offer the current match of the frame.
+   */
+  void offer(Frame frame) {
+    int offset = scratch * numKeys;
+    for (int i = 0; i < numKeys; i++) {
+      PrimitiveEvaluator primitiveKey = primitiveKeys[i];
+      if (primitiveKey != null) {
+        boolean isNull = primitiveKey.isNull(frame);
+        nulls[offset + i] = isNull;
+        bits[offset + i] = isNull ? 0 : primitiveKey.evaluate(frame);
+      } else {
+        Object value = keys[i].evaluate(frame);
+        nulls[offset + i] = value == null;
+        objects[offset + i] = value;
+      }
+    }
+    sequences[scratch] = nextSequence++;
+    if (accept()) {
+      rows[scratch] = rowFactory.apply(frame);
+      insertScratch();
+    }
+  }
+
+  /**
+   * Offer a row that already holds the values of the keys.
+   */
+  void offerRow(Object[] row) {
+    int offset = scratch * numKeys;
+    for (int i = 0; i < numKeys; i++) {
+      Object value = row[firstKeyInRow + i];
+      nulls[offset + i] = value == null;
+      objects[offset + i] = value;
+    }
+    sequences[scratch] = nextSequence++;
+    if (accept()) {
+      rows[scratch] = row;
+      insertScratch();
+    }
+  }
+
+  /**
+   * Offer the rows that were kept by another instance, as if they were offered to this instance after the rows that
+   * were offered so far.
+   */
+  void merge(TopK other) {
+    Integer[] otherEntries = new Integer[other.size];
+    for (int i = 0; i < other.size; i++) {
+      otherEntries[i] = other.heap[i];
+    }
+    Arrays.sort(otherEntries, (entry1, entry2) -> Long.compare(other.sequences[entry1], other.sequences[entry2]));
+    for (int entry : otherEntries) {
+      System.arraycopy(other.bits, entry * numKeys, bits, scratch * numKeys, numKeys);
+      System.arraycopy(other.objects, entry * numKeys, objects, scratch * numKeys, numKeys);
+      System.arraycopy(other.nulls, entry * numKeys, nulls, scratch * numKeys, numKeys);
+      sequences[scratch] = nextSequence++;
+      if (accept()) {
+        rows[scratch] = other.rows[entry];
+        insertScratch();
+      }
+    }
+  }
+
+  /**
+   * @return the rows that were kept, in order
+   */
+  List<Object[]> getRows() {
+    Integer[] entries = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      entries[i] = heap[i];
+    }
+    Arrays.sort(entries, this::compare);
+    List<Object[]> result = new ArrayList<>(size);
+    for (int entry : entries) {
+      result.add(rows[entry]);
+    }
+    return result;
+  }
+
+  /**
+   * @return whether the scratch entry makes it into the first k rows
+   */
+  private boolean accept() {
+    return size < capacity || (capacity > 0 && compare(scratch, heap[0]) < 0);
+  }
+
+  private void insertScratch() {
+    int entry = scratch;
+    if (size < capacity) {
+      heap[size] = entry;
+      siftUp(size);
+      size++;
+      ensureEntries(size + 1);
+      scratch = size;
+    } else {
+      scratch = heap[0];
+      rows[scratch] = null;
+      heap[0] = entry;
+      siftDown(0);
+    }
+  }
+
+  private void ensureEntries(int numEntries) {
+    if (numEntries <= sequences.length) {
+      return;
+    }
+    int newLength = (int) Math.min((long) capacity + 1, Math.max(numEntries, sequences.length * 2L));
+    bits = Arrays.copyOf(bits, newLength * numKeys);
+    objects = Arrays.copyOf(objects, newLength * numKeys);
+    nulls = Arrays.copyOf(nulls, newLength * numKeys);
+    sequences = Arrays.copyOf(sequences, newLength);
+    rows = Arrays.copyOf(rows, newLength);
+    heap = Arrays.copyOf(heap, newLength);
+  }
+
+  private void siftUp(int index) {
+    int entry = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (compare(entry, heap[parent]) <= 0) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = entry;
+  }
+
+  private void siftDown(int index) {
+    int entry = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && compare(heap[child + 1], heap[child]) > 0) {
+        child++;
+      }
+      if (compare(entry, heap[child]) >= 0) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = entry;
+  }
+
+  private int compare(int entry1, int entry2) {
+    int offset1 = entry1 * numKeys;
+    int offset2 = entry2 * numKeys;
+    for (int i = 0; i < numKeys; i++) {
+      boolean null1 = nulls[offset1 + i];
+      boolean null2 = nulls[offset2 + i];
+      int result;
+      if (null1 || null2) {
+        result = null1 ? (null2 ? 0 : 1) : -1;
+      } else if (types[i] == null) {
+        result = ValueUtils.compare(objects[offset1 + i], objects[offset2 + i]);
+      } else if (types[i].isNumeric() && !types[i].isIntegral()) {
+        result = Double.compare(Double.longBitsToDouble(bits[offset1 + i]), Double.longBitsToDouble(bits[offset2 + i]));
+      } else {
+        result = Long.compare(bits[offset1 + i], bits[offset2 + i]);
+      }
+      if (result != 0) {
+        return ascending[i] ? result : -result;
+      }
+    }
+    return Long.compare(sequences[entry1], sequences[entry2]);
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+
+/**
+ * Operations on the values that are produced by the in-memory engine. Integer values are represented as Integer or
+ * Long, decimal values as Float or Double, and vertices and edges as {@link InMemoryVertex} and {@link InMemoryEdge}.
+ *
+ * The operations throw an IllegalArgumentException if the types of the values are not compatible. None of the
+ * operations accept null values; null handling is left to the caller.
+ */
+public final class ValueUtils {
+
+  private ValueUtils() {
+  }
+
+  public static boolean isIntegral(Object value) {
+    return value instanceof Long || value instanceof Integer;
+  }
+
+  public static boolean isNumeric(Object value) {
+    return value instanceof Number;
+  }
+
+  /**
+   * @return a negative integer, zero, or a positive integer if the first value is less than, equal to, or greater
+   *         than the second value
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static int compare(Object value1, Object value2) {
+    if (isIntegral(value1) && isIntegral(value2)) {
+      return Long.compare(((Number) value1).longValue(), ((Number) value2).longValue());
+    } else if (isNumeric(value1) && isNumeric(value2)) {
+      return Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
+    } else if (value1 instanceof InMemoryVertex && value2 instanceof InMemoryVertex) {
+      return Integer.compare(((InMemoryVertex) value1).getId(), ((InMemoryVertex) value2).getId());
+    } else if (value1 instanceof InMemoryEdge && value2 instanceof InMemoryEdge) {
+      return Integer.compare(((InMemoryEdge) value1).getId(), ((InMemoryEdge) value2).getId());
+    } else if (value1 instanceof OffsetDateTime && value2 instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value1).toInstant().compareTo(((OffsetDateTime) value2).toInstant());
+    } else if (value1 instanceof Comparable && value1.getClass() == value2.getClass()) {
+      return ((Comparable) value1).compareTo(value2);
+    }
+    throw incompatibleTypes("compare", value1, value2);
+  }
+
+  public static boolean equal(Object value1, Object value2) {
+    if (isNumeric(value1) && isNumeric(value2)) {
+      return compare(value1, value2) == 0;
+    } else if (value1 instanceof OffsetDateTime && value2 instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value1).isEqual((OffsetDateTime) value2);
+    } else if (value1.getClass() == value2.getClass()) {
+      return value1.equals(value2);
+    }
+    throw incompatibleTypes("compare", value1, value2);
+  }
+
+  /**
+   * @return a hash code that is consistent with {@link #equal(Object, Object)}, e.g. 3 and 3.0 have the same hash code
+   */
+  public static int hash(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (isIntegral(value)) {
+      return Long.hashCode(((Number) value).longValue());
+    } else if (isNumeric(value)) {
+      double doubleValue = ((Number) value).doubleValue();
+      long longValue = (long) doubleValue;
+      return longValue == doubleValue ? Long.hashCode(longValue) : Double.hashCode(doubleValue);
+    } else if (value instanceof OffsetDateTime) {
+      return ((OffsetDateTime) value).toInstant().hashCode();
+    }
+    return value.hashCode();
+  }
+
+  public static Object add(Object value1, Object value2) {
+    if (value1 instanceof Integer && value2 instanceof Integer) {
+      return Math.addExact((Integer) value1, (Integer) value2);
+    } else if (isIntegral(value1) && isIntegral(value2)) {
+      return Math.addExact(((Number) value1).longValue(), ((Number) value2).longValue());
+    } else if (isNumeric(value1) && isNumeric(value2)) {
+      return ((Number) value1).doubleValue() + ((Number) value2).doubleValue();
+    }
+    throw incompatibleTypes("add", value1, value2);
+  }
+
+  public static Object subtract(Object value1, Object value2) {
+    if (value1 instanceof Integer && value2 instanceof Integer) {
+      return Math.subtractExact((Integer) value1, (Integer) value2);
+    } else if (isIntegral(value1) && isIntegral(value2)) {
+      return Math.subtractExact(((Number) value1).longValue(), ((Number) value2).longValue());
+    } else if (isNumeric(value1) && isNumeric(value2)) {
+      return ((Number) value1).doubleValue() - ((Number) value2).doubleValue();
+    }
+    throw incompatibleTypes("subtract", value1, value2);
+  }
+
+  public static Object multiply(Object value1, Object value2) {
+    if (value1 instanceof Integer && value2 instanceof Integer) {
+      return Math.multiplyExact((Integer) value1, (Integer) value2);
+    } else if (isIntegral(value1) && isIntegral(value2)) {
+      return Math.multiplyExact(((Number) value1).longValue(), ((Number) value2).longValue());
+    } else if (isNumeric(value1) && isNumeric(value2)) {
+      return ((Number) value1).doubleValue() * ((Number) value2).doubleValue();
+    }
+    throw incompatibleTypes("multiply", value1, value2);
+  }
+
+  /**
+   * Integer division truncates towards zero; division of an integer by zero throws an ArithmeticException.
+   */
+  public static Object divide(Object value1, Object value2) {
+    if (value1 instanceof Integer && value2 instanceof Integer) {
+      return (Integer) value1 / (Integer) value2;
+    } else if (isIntegral(value1) && isIntegral(value2)) {
+      return ((Number) value1).longValue() / ((Number) value2).longValue();
+    } else if (isNumeric(value1) && isNumeric(value2)) {
+      return ((Number) value1).doubleValue() / ((Number) value2).doubleValue();
+    }
+    throw incompatibleTypes("divide", value1, value2);
+  }
+
+  public static Object modulo(Object value1, Object value2) {
+    if (value1 instanceof Integer && value2 instanceof Integer) {
+      return (Integer) value1 % (Integer) value2;
+    } else if (isIntegral(value1) && isIntegral(value2)) {
+      return ((Number) value1).longValue() % ((Number) value2).longValue();
+    } else if (isNumeric(value1) && isNumeric(value2)) {
+      return ((Number) value1).doubleValue() % ((Number) value2).doubleValue();
+    }
+    throw incompatibleTypes("compute the modulo of", value1, value2);
+  }
+
+  public static Object negate(Object value) {
+    if (value instanceof Integer) {
+      return Math.negateExact((Integer) value);
+    } else if (value instanceof Long) {
+      return Math.negateExact((Long) value);
+    } else if (value instanceof Float) {
+      return -(Float) value;
+    } else if (value instanceof Double) {
+      return -(Double) value;
+    }
+    throw new IllegalArgumentException("Cannot negate " + describe(value));
+  }
+
+  /**
+   * @return the value as a boolean
+   */
+  public static boolean toBoolean(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    throw new IllegalArgumentException("Expected a boolean but got " + describe(value));
+  }
+
+  /**
+   * @return the value as a long, if it is an integer
+   */
+  public static long toLong(Object value) {
+    if (isIntegral(value)) {
+      return ((Number) value).longValue();
+    }
+    throw new IllegalArgumentException("Expected an integer but got " + describe(value));
+  }
+
+  /**
+   * Convert a value into a value of one of the types of PGQL: STRING, BOOLEAN, INTEGER, LONG, FLOAT, DOUBLE, DATE,
+   * TIME, TIMESTAMP, TIME WITH TIME ZONE or TIMESTAMP WITH TIME ZONE.
+   */
+  public static Object cast(Object value, String targetTypeName) {
+    String targetType = targetTypeName.toUpperCase();
+    switch (targetType) {
+      case "STRING":
+        return value.toString();
+      case "BOOLEAN":
+        if (value instanceof Boolean) {
+          return value;
+        } else if (value instanceof String) {
+          String string = ((String) value).trim();
+          if (string.equalsIgnoreCase("true")) {
+            return true;
+          } else if (string.equalsIgnoreCase("false")) {
+            return false;
+          }
+        }
+        break;
+      case "INTEGER":
+      case "INT":
+        if (value instanceof String) {
+          return Integer.parseInt(((String) value).trim());
+        } else if (isNumeric(value)) {
+          long longValue = isIntegral(value) ? ((Number) value).longValue() : (long) ((Number) value).doubleValue();
+          return Math.toIntExact(longValue);
+        }
+        break;
+      case "LONG":
+        if (value instanceof String) {
+          return Long.parseLong(((String) value).trim());
+        } else if (isNumeric(value)) {
+          return isIntegral(value) ? ((Number) value).longValue() : (long) ((Number) value).doubleValue();
+        }
+        break;
+      case "FLOAT":
+        if (value instanceof String) {
+          return Float.parseFloat(((String) value).trim());
+        } else if (isNumeric(value)) {
+          return ((Number) value).floatValue();
+        }
+        break;
+      case "DOUBLE":
+        if (value instanceof String) {
+          return Double.parseDouble(((String) value).trim());
+        } else if (isNumeric(value)) {
+          return ((Number) value).doubleValue();
+        }
+        break;
+      case "DATE":
+        if (value instanceof String) {
+          return LocalDate.parse(((String) value).trim());
+        } else if (value instanceof LocalDate) {
+          return value;
+        } else if (value instanceof LocalDateTime) {
+          return ((LocalDateTime) value).toLocalDate();
+        } else if (value instanceof OffsetDateTime) {
+          return ((OffsetDateTime) value).toLocalDate();
+        }
+        break;
+      case "TIME":
+        if (value instanceof String) {
+          return LocalTime.parse(((String) value).trim());
+        } else if (value instanceof LocalTime) {
+          return value;
+        } else if (value instanceof LocalDateTime) {
+          return ((LocalDateTime) value).toLocalTime();
+        } else if (value instanceof OffsetTime) {
+          return ((OffsetTime) value).toLocalTime();
+        }
+        break;
+      case "TIMESTAMP":
+        if (value instanceof String) {
+          return LocalDateTime.parse(((String) value).trim().replace(' ', 'T'));
+        } else if (value instanceof LocalDateTime) {
+          return value;
+        } else if (value instanceof LocalDate) {
+          return ((LocalDate) value).atStartOfDay();
+        } else if (value instanceof OffsetDateTime) {
+          return ((OffsetDateTime) value).toLocalDateTime();
+        }
+        break;
+      case "TIME WITH TIME ZONE":
+        if (value instanceof String) {
+          return OffsetTime.parse(((String) value).trim());
+        } else if (value instanceof OffsetTime) {
+          return value;
+        }
+        break;
+      case "TIMESTAMP WITH TIME ZONE":
+        if (value instanceof String) {
+          return OffsetDateTime.parse(((String) value).trim().replace(' ', 'T'));
+        } else if (value instanceof OffsetDateTime) {
+          return value;
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Cannot cast to " + targetTypeName);
+    }
+    throw new IllegalArgumentException("Cannot cast " + describe(value) + " to " + targetTypeName);
+  }
+
+  private static IllegalArgumentException incompatibleTypes(String operation, Object value1, Object value2) {
+    return new IllegalArgumentException("Cannot " + operation + " " + describe(value1) + " and " + describe(value2));
+  }
+
+  private static String describe(Object value) {
+    if (value instanceof InMemoryVertex) {
+      return "vertex";
+    } else if (value instanceof InMemoryEdge) {
+      return "edge";
+    }
+    return value.getClass().getSimpleName() + " " + value;
+  }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of consecutive rows of a {@link ResultSet}, stored per column rather than per row, as returned by
+ * {@link ResultSet#nextBatch(int)}. Every column is stored in a vector: integers, floating point numbers and booleans
+ * in primitive arrays, strings in a dictionary-encoded array, and other values (e.g. vertices, dates or lists) in an
+ * object array. NULL values are marked in a bitmap per vector.
+ *
+ * Just like for {@link ResultAccess}, columns are numbered starting from 1. Rows are numbered starting from 0, such
+ * that a row number can be used as an index into the arrays of the vectors.
+ */
+public final class ColumnBatch {
+
+  public enum VectorType {
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    STRING,
+    OBJECT
+  }
+
+  private final int numRows;
+
+  private final List<ColumnVector> columns;
+
+  /**
+   * @param columns
+   *          the vectors of the columns, which each have the given number of rows
+   */
+  public ColumnBatch(int numRows, List<ColumnVector> columns) {
+    this.numRows = numRows;
+    this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+  }
+
+  /**
+   * Create a batch from rows of values. The vector of every column is chosen from the type of the column in the
+   * metadata (see {@link ResultSetMetaData#getColumnTypeName(int)}), such that a column has the same vector type in
+   * every batch of a result set, also if the values of a batch are all NULL: INTEGER and LONG columns become a
+   * {@link LongVector}, FLOAT and DOUBLE columns a {@link DoubleVector}, BOOLEAN columns a {@link BooleanVector},
+   * STRING columns a {@link StringVector} and columns of other or unknown types an {@link ObjectVector}.
+   *
+   * @param rows
+   *          the rows, which each have at least as many values as there are columns in the metadata
+   * @throws IllegalArgumentException
+   *           if a value does not have the type of its column
+   */
+  public static ColumnBatch fromRows(List<Object[]> rows, ResultSetMetaData metaData) {
+    int numColumns = metaData.getColumnCount();
+    List<ColumnVector> columns = new ArrayList<>(numColumns);
+    for (int column = 0; column < numColumns; column++) {
+      String typeName = metaData.getColumnTypeName(column + 1);
+      columns.add(createVector(rows, column, getVectorType(typeName), typeName));
+    }
+    return new ColumnBatch(rows.size(), columns);
+  }
+
+  /**
+   * @return the type of the vector for a column with the given type name, which may be null if the type is not known
+   */
+  public static VectorType getVectorType(String typeName) {
+    if (typeName == null) {
+      return VectorType.OBJECT;
+    }
+    switch (typeName) {
+      case "INTEGER":
+      case "LONG":
+        return VectorType.LONG;
+      case "FLOAT":
+      case "DOUBLE":
+        return VectorType.DOUBLE;
+      case "BOOLEAN":
+        return VectorType.BOOLEAN;
+      case "STRING":
+        return VectorType.STRING;
+      default:
+        return VectorType.OBJECT;
+    }
+  }
+
+  private static ColumnVector createVector(List<Object[]> rows, int column, VectorType type, String typeName) {
+    int numRows = rows.size();
+    BitSet nulls = new BitSet(numRows);
+    for (int row = 0; row < numRows; row++) {
+      Object value = rows.get(row)[column];
+      if (value == null) {
+        nulls.set(row);
+      } else if (!fits(value, type)) {
+        throw new IllegalArgumentException("Column " + (column + 1) + " is of type " + typeName + " but row " + row
+            + " has a value of type " + value.getClass().getSimpleName());
+      }
+    }
+
+    switch (type) {
+      case LONG: {
+        long[] values = new long[numRows];
+        for (int row = nulls.nextClearBit(0); row < numRows; row = nulls.nextClearBit(row + 1)) {
+          values[row] = ((Number) rows.get(row)[column]).longValue();
+        }
+        return new LongVector(values, nulls);
+      }
+      case DOUBLE: {
+        double[] values = new double[numRows];
+        for (int row = nulls.nextClearBit(0); row < numRows; row = nulls.nextClearBit(row + 1)) {
+          values[row] = ((Number) rows.get(row)[column]).doubleValue();
+        }
+        return new DoubleVector(values, nulls);
+      }
+      case BOOLEAN: {
+        boolean[] values = new boolean[numRows];
+        for (int row = nulls.nextClearBit(0); row < numRows; row = nulls.nextClearBit(row + 1)) {
+          values[row] = (Boolean) rows.get(row)[column];
+        }
+        return new BooleanVector(values, nulls);
+      }
+      case STRING: {
+        int[] codes = new int[numRows];
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (int row = nulls.nextClearBit(0); row < numRows; row = nulls.nextClearBit(row + 1)) {
+          String value = (String) rows.get(row)[column];
+          Integer code = dictionary.get(value);
+          if (code == null) {
+            code = strings.size();
+            dictionary.put(value, code);
+            strings.add(value);
+          }
+          codes[row] = code;
+        }
+        return new StringVector(codes, strings.toArray(new String[strings.size()]), nulls);
+      }
+      default: {
+        Object[] values = new Object[numRows];
+        for (int row = 0; row < numRows; row++) {
+          values[row] = rows.get(row)[column];
+        }
+        return new ObjectVector(values, nulls);
+      }
+    }
+  }
+
+  private static boolean fits(Object value, VectorType type) {
+    switch (type) {
+      case LONG:
+        return value instanceof Long || value instanceof Integer;
+      case DOUBLE:
+        return value instanceof Double || value instanceof Float;
+      case BOOLEAN:
+        return value instanceof Boolean;
+      case STRING:
+        return value instanceof String;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * @return the number of rows, which is 0 if there were no more rows to fetch
+   */
+  public int getNumRows() {
+    return numRows;
+  }
+
+  public int getColumnCount() {
+    return columns.size();
+  }
+
+  /**
+   * @param columnIdx
+   *          the first column is 1, the second is 2, ...
+   */
+  public ColumnVector getColumn(int columnIdx) {
+    if (columnIdx < 1 || columnIdx > columns.size()) {
+      throw new IndexOutOfBoundsException("Column index " + columnIdx + " is out of range; the batch has "
+          + columns.size() + " columns");
+    }
+    return columns.get(columnIdx - 1);
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnBatch(" + columns.size() + " columns, " + numRows + " rows)";
+  }
+
+  /**
+   * The values of a single column of a batch.
+   */
+  public abstract static class ColumnVector {
+
+    private final BitSet nulls;
+
+    /**
+     * @param nulls
+     *          the rows of which the value is NULL
+     */
+    protected ColumnVector(BitSet nulls) {
+      this.nulls = nulls;
+    }
+
+    public abstract VectorType getType();
+
+    public boolean isNull(int row) {
+      return nulls.get(row);
+    }
+
+    /**
+     * @return the rows of which the value is NULL
+     */
+    public BitSet getNulls() {
+      return nulls;
+    }
+
+    /**
+     * @return the value of the given row as an object, or null if the value is NULL
+     */
+    public abstract Object getObject(int row);
+  }
+
+  /**
+   * A vector of integers, where values of type {@link Integer} are widened to longs.
+   */
+  public static final class LongVector extends ColumnVector {
+
+    private final long[] values;
+
+    /**
+     * @param values
+     *          the values, which are undefined for rows that are NULL
+     */
+    public LongVector(long[] values, BitSet nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    @Override
+    public VectorType getType() {
+      return VectorType.LONG;
+    }
+
+    public long getLong(int row) {
+      return values[row];
+    }
+
+    public long[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return isNull(row) ? null : values[row];
+    }
+  }
+
+  /**
+   * A vector of floating point numbers, where values of type {@link Float} are widened to doubles.
+   */
+  public static final class DoubleVector extends ColumnVector {
+
+    private final double[] values;
+
+    /**
+     * @param values
+     *          the values, which are undefined for rows that are NULL
+     */
+    public DoubleVector(double[] values, BitSet nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    @Override
+    public VectorType getType() {
+      return VectorType.DOUBLE;
+    }
+
+    public double getDouble(int row) {
+      return values[row];
+    }
+
+    public double[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return isNull(row) ? null : values[row];
+    }
+  }
+
+  public static final class BooleanVector extends ColumnVector {
+
+    private final boolean[] values;
+
+    /**
+     * @param values
+     *          the values, which are undefined for rows that are NULL
+     */
+    public BooleanVector(boolean[] values, BitSet nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    @Override
+    public VectorType getType() {
+      return VectorType.BOOLEAN;
+    }
+
+    public boolean getBoolean(int row) {
+      return values[row];
+    }
+
+    public boolean[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return isNull(row) ? null : values[row];
+    }
+  }
+
+  /**
+   * A vector of strings that is dictionary-encoded: every row holds the index of its string in the dictionary, such
+   * that repeated strings are stored once and can be compared by their codes.
+   */
+  public static final class StringVector extends ColumnVector {
+
+    private final int[] codes;
+
+    private final String[] dictionary;
+
+    /**
+     * @param codes
+     *          the index of the string of every row in the dictionary, which is undefined for rows that are NULL
+     * @param dictionary
+     *          the distinct strings
+     */
+    public StringVector(int[] codes, String[] dictionary, BitSet nulls) {
+      super(nulls);
+      this.codes = codes;
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    public VectorType getType() {
+      return VectorType.STRING;
+    }
+
+    public String getString(int row) {
+      return isNull(row) ? null : dictionary[codes[row]];
+    }
+
+    public int[] getCodes() {
+      return codes;
+    }
+
+    public String[] getDictionary() {
+      return dictionary;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return getString(row);
+    }
+  }
+
+  /**
+   * A vector of values that do not have a primitive representation, e.g. vertices, dates or lists, or of values of
+   * different types.
+   */
+  public static final class ObjectVector extends ColumnVector {
+
+    private final Object[] values;
+
+    public ObjectVector(Object[] values, BitSet nulls) {
+      super(nulls);
+      this.values = values;
+    }
+
+    @Override
+    public VectorType getType() {
+      return VectorType.OBJECT;
+    }
+
+    public Object[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return values[row];
+    }
+  }
+}
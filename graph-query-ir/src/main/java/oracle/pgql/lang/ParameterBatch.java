@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The values of the parameters of a batch of executions of a {@link PreparedStatement} (see
+ * {@link PreparedStatement#executeBatch(ParameterBatch)}). The values are bound per parameter, as an array with one
+ * value per execution, such that primitive values are not boxed and such that backends can apply the whole batch at
+ * once by means of {@link #getValues(int)}.
+ *
+ * A ParameterBatch is not thread-safe.
+ */
+public final class ParameterBatch {
+
+  private final int size;
+
+  /**
+   * The parameters by parameter index - 1, which are null if they were not set.
+   */
+  private final List<Parameter> parameters = new ArrayList<>();
+
+  @FunctionalInterface
+  private interface Setter {
+    void set(PreparedStatement statement, int parameterIndex, int execution) throws PgqlException;
+  }
+
+  private static final class Parameter {
+
+    final Object values;
+
+    final Setter setter;
+
+    Parameter(Object values, Setter setter) {
+      this.values = values;
+      this.setter = setter;
+    }
+  }
+
+  /**
+   * @param size
+   *          the number of executions, which is the length of the arrays of values
+   */
+  public ParameterBatch(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Size of a batch should not be negative but got " + size);
+    }
+    this.size = size;
+  }
+
+  /**
+   * Create a batch from sets of parameter values, one set per execution.
+   *
+   * @param sets
+   *          the sets of parameter values: the first value of a set is for parameter 1, the second for parameter 2, ...
+   * @throws IllegalArgumentException
+   *           if the sets do not all have the same number of values
+   */
+  public static ParameterBatch of(List<? extends List<?>> sets) {
+    ParameterBatch batch = new ParameterBatch(sets.size());
+    int numParameters = sets.isEmpty() ? 0 : sets.get(0).size();
+    for (int parameter = 0; parameter < numParameters; parameter++) {
+      Object[] values = new Object[sets.size()];
+      for (int execution = 0; execution < values.length; execution++) {
+        List<?> set = sets.get(execution);
+        if (set.size() != numParameters) {
+          throw new IllegalArgumentException("Set " + (execution + 1) + " of the batch has " + set.size()
+              + " values but set 1 has " + numParameters);
+        }
+        values[execution] = set.get(parameter);
+      }
+      batch.setObjects(parameter + 1, values);
+    }
+    return batch;
+  }
+
+  /**
+   * @return the number of executions
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of parameters, which is the highest index of a parameter that was set
+   */
+  public int getParameterCount() {
+    return parameters.size();
+  }
+
+  /**
+   * @param parameterIndex
+   *          the first parameter is 1, the second is 2, ...
+   * @return the array of values of the designated parameter, e.g. a <code>long[]</code> if the values were set through
+   *         {@link #setLongs(int, long[])}, or null if the parameter was not set
+   */
+  public Object getValues(int parameterIndex) {
+    Parameter parameter = parameterIndex > parameters.size() ? null : parameters.get(parameterIndex - 1);
+    return parameter == null ? null : parameter.values;
+  }
+
+  /**
+   * Sets the parameters of the statement to the values of the given execution, through the setter of
+   * {@link PreparedStatement} that corresponds to the type of the values, e.g. {@link PreparedStatement#setLong(int,
+   * long)} for values that were set through {@link #setLongs(int, long[])}.
+   *
+   * @param execution
+   *          the first execution is 0, the second is 1, ...
+   * @throws PgqlException
+   *           if no values were set for one of the parameters, or if the statement rejects a value
+   */
+  public void setParameters(PreparedStatement statement, int execution) throws PgqlException {
+    for (int i = 0; i < parameters.size(); i++) {
+      Parameter parameter = parameters.get(i);
+      if (parameter == null) {
+        throw new PgqlException("No value specified for parameter " + (i + 1));
+      }
+      parameter.setter.set(statement, i + 1, execution);
+    }
+  }
+
+  public void setBooleans(int parameterIndex, boolean[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setBoolean(index, x[execution]));
+  }
+
+  public void setInts(int parameterIndex, int[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setInt(index, x[execution]));
+  }
+
+  public void setLongs(int parameterIndex, long[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setLong(index, x[execution]));
+  }
+
+  public void setFloats(int parameterIndex, float[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setFloat(index, x[execution]));
+  }
+
+  public void setDoubles(int parameterIndex, double[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setDouble(index, x[execution]));
+  }
+
+  public void setStrings(int parameterIndex, String[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setString(index, x[execution]));
+  }
+
+  public void setDates(int parameterIndex, LocalDate[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setDate(index, x[execution]));
+  }
+
+  public void setTimes(int parameterIndex, LocalTime[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setTime(index, x[execution]));
+  }
+
+  public void setTimestamps(int parameterIndex, LocalDateTime[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setTimestamp(index, x[execution]));
+  }
+
+  public void setTimesWithTimezone(int parameterIndex, OffsetTime[] x) {
+    set(parameterIndex, x, x.length,
+        (statement, index, execution) -> statement.setTimeWithTimezone(index, x[execution]));
+  }
+
+  public void setTimestampsWithTimezone(int parameterIndex, OffsetDateTime[] x) {
+    set(parameterIndex, x, x.length,
+        (statement, index, execution) -> statement.setTimestampWithTimezone(index, x[execution]));
+  }
+
+  public void setArrays(int parameterIndex, List<?>[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setArray(index, x[execution]));
+  }
+
+  /**
+   * Sets the values of the designated parameter to values of any of the types accepted by
+   * {@link PreparedStatement#setObject(int, Object)}, through which they are set.
+   */
+  public void setObjects(int parameterIndex, Object[] x) {
+    set(parameterIndex, x, x.length, (statement, index, execution) -> statement.setObject(index, x[execution]));
+  }
+
+  private void set(int parameterIndex, Object values, int length, Setter setter) {
+    if (parameterIndex < 1) {
+      throw new IllegalArgumentException("Parameter index should be positive but got " + parameterIndex);
+    }
+    if (length != size) {
+      throw new IllegalArgumentException("Expected " + size + " values for parameter " + parameterIndex + " but got "
+          + length);
+    }
+    while (parameters.size() < parameterIndex) {
+      parameters.add(null);
+    }
+    parameters.set(parameterIndex - 1, new Parameter(values, setter));
+  }
+}
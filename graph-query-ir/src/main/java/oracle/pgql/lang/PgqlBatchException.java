@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+/**
+ * Thrown if the execution of a batch fails for one of its sets of parameter values (see
+ * {@link PreparedStatement#executeBatch(ParameterBatch)}). The sets before the failing set were executed.
+ */
+public class PgqlBatchException extends PgqlException {
+
+  private final int[] updateCounts;
+
+  public PgqlBatchException(String msg, int[] updateCounts, Throwable cause) {
+    super(msg, cause);
+    this.updateCounts = updateCounts.clone();
+  }
+
+  /**
+   * @return the update counts of the sets of parameter values that were executed before the failure, in order
+   */
+  public int[] getUpdateCounts() {
+    return updateCounts.clone();
+  }
+}
@@ -8,8 +8,11 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
+import java.util.Arrays;
 import java.util.List;
 
+import oracle.pgql.lang.ir.StatementType;
+
 /**
  * An object that represents a precompiled PGQL statement.
  * 
@@ -19,6 +22,12 @@ import java.util.List;
  */
 public interface PreparedStatement extends AutoCloseable {
 
+  /**
+   * The update count of a statement in a batch that was executed successfully but for which the number of affected
+   * vertices and edges is unknown (see {@link #executeBatch(List)}).
+   */
+  int SUCCESS_NO_INFO = -2;
+
   /**
    * Executes the PGQL query in this PreparedStatement object and returns the ResultSet object generated by the query.
    * 
@@ -165,6 +174,169 @@ public interface PreparedStatement extends AutoCloseable {
    */
   void setArray(int parameterIndex, List<?> x) throws PgqlException;
 
+  /**
+   * Sets the designated parameter to the given Java value, which must have one of the types accepted by the other
+   * setters (or be a Byte or Short, which are set as int).
+   *
+   * @param parameterIndex
+   *          the first parameter is 1, the second is 2, ...
+   * @param x
+   *          the parameter value
+   * @throws PgqlException
+   *           if the value is null or has an unsupported type
+   */
+  default void setObject(int parameterIndex, Object x) throws PgqlException {
+    if (x instanceof Boolean) {
+      setBoolean(parameterIndex, (Boolean) x);
+    } else if (x instanceof Integer || x instanceof Short || x instanceof Byte) {
+      setInt(parameterIndex, ((Number) x).intValue());
+    } else if (x instanceof Long) {
+      setLong(parameterIndex, (Long) x);
+    } else if (x instanceof Float) {
+      setFloat(parameterIndex, (Float) x);
+    } else if (x instanceof Double) {
+      setDouble(parameterIndex, (Double) x);
+    } else if (x instanceof String) {
+      setString(parameterIndex, (String) x);
+    } else if (x instanceof LocalDate) {
+      setDate(parameterIndex, (LocalDate) x);
+    } else if (x instanceof LocalTime) {
+      setTime(parameterIndex, (LocalTime) x);
+    } else if (x instanceof LocalDateTime) {
+      setTimestamp(parameterIndex, (LocalDateTime) x);
+    } else if (x instanceof OffsetTime) {
+      setTimeWithTimezone(parameterIndex, (OffsetTime) x);
+    } else if (x instanceof OffsetDateTime) {
+      setTimestampWithTimezone(parameterIndex, (OffsetDateTime) x);
+    } else if (x instanceof List) {
+      setArray(parameterIndex, (List<?>) x);
+    } else {
+      throw new PgqlException("Unsupported type for parameter " + parameterIndex + ": "
+          + (x == null ? "null" : x.getClass().getName()));
+    }
+  }
+
+  /**
+   * @return the type of the statement, or null if it is unknown to this PreparedStatement object
+   */
+  default StatementType getStatementType() throws PgqlException {
+    return null;
+  }
+
+  /**
+   * Adds the current values of the parameters to the batch of this statement (see {@link #executeBatch()}).
+   *
+   * The default implementation throws an exception, since only the implementation knows the current values of the
+   * parameters. Implementations that do not override the method support batches through
+   * {@link #executeBatch(ParameterBatch)} and {@link #executeBatch(List)}.
+   *
+   * @throws PgqlException
+   *           if the statement does not support this method, or if no value was set for one of the parameters
+   */
+  default void addBatch() throws PgqlException {
+    throw new PgqlException("addBatch() is not supported by " + getClass().getName()
+        + "; use executeBatch(ParameterBatch) instead");
+  }
+
+  /**
+   * Empties the batch of this statement. The default implementation throws an exception (see {@link #addBatch()}).
+   *
+   * @throws PgqlException
+   *           if the statement does not support this method
+   */
+  default void clearBatch() throws PgqlException {
+    throw new PgqlException("clearBatch() is not supported by " + getClass().getName()
+        + "; use executeBatch(ParameterBatch) instead");
+  }
+
+  /**
+   * Executes the INSERT/UPDATE/DELETE statement once for each set of parameter values that was added to the batch
+   * through {@link #addBatch()}, and empties the batch. The default implementation throws an exception (see
+   * {@link #addBatch()}).
+   *
+   * @return the update counts, one per set of parameter values, in the order in which they were added; an update count
+   *         is {@link #SUCCESS_NO_INFO} if the number of affected vertices and edges is unknown
+   * @throws PgqlBatchException
+   *           if the execution of the statement fails for one of the sets of parameter values, with the update counts
+   *           of the sets that were executed before
+   * @throws PgqlException
+   *           if the statement does not support this method or is a SELECT query
+   */
+  default int[] executeBatch() throws PgqlException {
+    throw new PgqlException("executeBatch() is not supported by " + getClass().getName()
+        + "; use executeBatch(ParameterBatch) instead");
+  }
+
+  /**
+   * Executes the INSERT/UPDATE/DELETE statement once for each set of parameter values, for example to insert many
+   * vertices with a single statement.
+   *
+   * The default implementation executes the statement through {@link #executeBatch(ParameterBatch)}, which sets the
+   * parameters through {@link #setObject(int, Object)}.
+   *
+   * @param batch
+   *          the sets of parameter values: the first value of a set is for parameter 1, the second for parameter 2, ...
+   * @return the update counts, one per set of parameter values; an update count is {@link #SUCCESS_NO_INFO} if the
+   *         number of affected vertices and edges is unknown
+   * @throws IllegalArgumentException
+   *           if the sets do not all have the same number of values
+   * @throws PgqlBatchException
+   *           if a value has an unsupported type or if the execution of the statement fails for one of the sets of
+   *           parameter values, with the update counts of the sets that were executed before
+   * @throws PgqlException
+   *           if the statement is a SELECT query, in which case nothing is executed
+   */
+  default int[] executeBatch(List<? extends List<?>> batch) throws PgqlException {
+    return executeBatch(ParameterBatch.of(batch));
+  }
+
+  /**
+   * Executes the INSERT/UPDATE/DELETE statement once for each execution of the batch, with the parameter values of
+   * that execution. Backends may override this method to apply the whole batch at once (see
+   * {@link ParameterBatch#getValues(int)}).
+   *
+   * The default implementation sets the parameters through {@link ParameterBatch#setParameters(PreparedStatement, int)}
+   * and calls {@link #execute()}, once for each execution. After the call, the parameters have the values of the last
+   * execution.
+   *
+   * @param batch
+   *          the parameter values, one per parameter and execution
+   * @return the update counts, one per execution; an update count is {@link #SUCCESS_NO_INFO} if the number of
+   *         affected vertices and edges is unknown
+   * @throws PgqlBatchException
+   *           if a value is rejected or if the statement fails for one of the executions, with the update counts of the
+   *           executions before
+   * @throws PgqlException
+   *           if the statement is a SELECT query, in which case nothing is executed
+   */
+  default int[] executeBatch(ParameterBatch batch) throws PgqlException {
+    if (getStatementType() == StatementType.SELECT) {
+      throw new PgqlException("A SELECT query cannot be executed as a batch");
+    }
+    int[] updateCounts = new int[batch.size()];
+    for (int i = 0; i < updateCounts.length; i++) {
+      boolean isSelect;
+      try {
+        batch.setParameters(this, i);
+        isSelect = execute();
+      } catch (PgqlException e) {
+        throw new PgqlBatchException("Execution of set " + (i + 1) + " of the batch failed: " + e.getMessage(),
+            Arrays.copyOf(updateCounts, i), e);
+      }
+      if (isSelect) {
+        // the statement type was not known in advance
+        ResultSet<?> resultSet = getResultSet();
+        if (resultSet != null) {
+          resultSet.close();
+        }
+        throw new PgqlBatchException("A SELECT query cannot be executed as a batch", Arrays.copyOf(updateCounts, i),
+            null);
+      }
+      updateCounts[i] = SUCCESS_NO_INFO;
+    }
+    return updateCounts;
+  }
+
   /**
    * Releases this statement's resources. Calling the method close on a Statement object that is already closed has no
    * effect.
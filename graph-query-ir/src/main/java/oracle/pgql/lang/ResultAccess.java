@@ -144,6 +144,136 @@ public interface ResultAccess {
    */
   public Boolean getBoolean(String columnName) throws PgqlException;
 
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>int</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(int)} to distinguish NULL from 0.
+   *
+   * @param columnIdx
+   *          column index
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default int getIntegerValue(int columnIdx) throws PgqlException {
+    Integer value = getInteger(columnIdx);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>int</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(String)} to distinguish NULL from 0.
+   *
+   * @param columnName
+   *          column name
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default int getIntegerValue(String columnName) throws PgqlException {
+    Integer value = getInteger(columnName);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>long</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(int)} to distinguish NULL from 0.
+   *
+   * @param columnIdx
+   *          column index
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default long getLongValue(int columnIdx) throws PgqlException {
+    Long value = getLong(columnIdx);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>long</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(String)} to distinguish NULL from 0.
+   *
+   * @param columnName
+   *          column name
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default long getLongValue(String columnName) throws PgqlException {
+    Long value = getLong(columnName);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>float</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(int)} to distinguish NULL from 0.
+   *
+   * @param columnIdx
+   *          column index
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default float getFloatValue(int columnIdx) throws PgqlException {
+    Float value = getFloat(columnIdx);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>float</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(String)} to distinguish NULL from 0.
+   *
+   * @param columnName
+   *          column name
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default float getFloatValue(String columnName) throws PgqlException {
+    Float value = getFloat(columnName);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>double</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(int)} to distinguish NULL from 0.
+   *
+   * @param columnIdx
+   *          column index
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default double getDoubleValue(int columnIdx) throws PgqlException {
+    Double value = getDouble(columnIdx);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>double</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(String)} to distinguish NULL from 0.
+   *
+   * @param columnName
+   *          column name
+   * @return the value, or <code>0</code> if the value is NULL
+   */
+  default double getDoubleValue(String columnName) throws PgqlException {
+    Double value = getDouble(columnName);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>boolean</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(int)} to distinguish NULL from false.
+   *
+   * @param columnIdx
+   *          column index
+   * @return the value, or <code>false</code> if the value is NULL
+   */
+  default boolean getBooleanValue(int columnIdx) throws PgqlException {
+    Boolean value = getBoolean(columnIdx);
+    return value == null ? false : value;
+  }
+
+  /**
+   * Retrieves the value of the designated column in the current row as a primitive <code>boolean</code>, which
+   * implementations can retrieve without boxing. Use {@link #isNull(String)} to distinguish NULL from false.
+   *
+   * @param columnName
+   *          column name
+   * @return the value, or <code>false</code> if the value is NULL
+   */
+  default boolean getBooleanValue(String columnName) throws PgqlException {
+    Boolean value = getBoolean(columnName);
+    return value == null ? false : value;
+  }
+
   /**
    * Retrieves the value of the designated column in the current row as vertex labels
    *
@@ -287,4 +417,29 @@ public interface ResultAccess {
    * @return {@link List}
    */
   public <T> List<T> getList(String columnName) throws PgqlException;
+
+  /**
+   * Whether the value of the designated column in the current row is NULL. Since the getters that return primitive
+   * values, such as {@link #getLongValue(int)}, return <code>0</code> or <code>false</code> for NULL, this is the way
+   * to tell NULL apart from those values. The default implementation retrieves the value by means of
+   * {@link #getObject(int)}; implementations can override it to check for NULL without retrieving the value.
+   *
+   * @param columnIdx
+   *          column index
+   * @return <code>true</code> if the value is NULL
+   */
+  default boolean isNull(int columnIdx) throws PgqlException {
+    return getObject(columnIdx) == null;
+  }
+
+  /**
+   * Whether the value of the designated column in the current row is NULL. See {@link #isNull(int)}.
+   *
+   * @param columnName
+   *          column name
+   * @return <code>true</code> if the value is NULL
+   */
+  default boolean isNull(String columnName) throws PgqlException {
+    return getObject(columnName) == null;
+  }
 }
@@ -3,6 +3,18 @@
  */
 package oracle.pgql.lang;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * A table of data representing the result of a PGQL query. The cursor is initially positioned before the first row.
  * After the first call to the function `next()`, the cursor will be located at the first row and you can retrieve
@@ -92,4 +104,191 @@ public interface ResultSet<T extends ResultAccess> extends AutoCloseable, Result
    */
   public ResultSetMetaData getMetaData() throws PgqlException;
 
+  /**
+   * Maps the given column name to its column index, by means of {@link ResultSetMetaData#findColumn(String)}. Callers
+   * that access the same columns for many rows can resolve the names once and use the getters by column index.
+   *
+   * @param columnName
+   *          the column name
+   * @return the index of the first column with the given name (the first column is 1, the second is 2, ...)
+   * @throws PgqlException if there is no column with the given name, if a connection error occurs or when this method
+   *           is called on a closed result set
+   */
+  public default int findColumn(String columnName) throws PgqlException {
+    return getMetaData().findColumn(columnName);
+  }
+
+  // the getters by column name resolve the name through findColumn(String) and use the getters by column index
+
+  @Override
+  public default Object getObject(String columnName) throws PgqlException {
+    return getObject(findColumn(columnName));
+  }
+
+  @Override
+  public default String getString(String columnName) throws PgqlException {
+    return getString(findColumn(columnName));
+  }
+
+  @Override
+  public default Integer getInteger(String columnName) throws PgqlException {
+    return getInteger(findColumn(columnName));
+  }
+
+  @Override
+  public default Long getLong(String columnName) throws PgqlException {
+    return getLong(findColumn(columnName));
+  }
+
+  @Override
+  public default Float getFloat(String columnName) throws PgqlException {
+    return getFloat(findColumn(columnName));
+  }
+
+  @Override
+  public default Double getDouble(String columnName) throws PgqlException {
+    return getDouble(findColumn(columnName));
+  }
+
+  @Override
+  public default Boolean getBoolean(String columnName) throws PgqlException {
+    return getBoolean(findColumn(columnName));
+  }
+
+  @Override
+  public default int getIntegerValue(String columnName) throws PgqlException {
+    return getIntegerValue(findColumn(columnName));
+  }
+
+  @Override
+  public default long getLongValue(String columnName) throws PgqlException {
+    return getLongValue(findColumn(columnName));
+  }
+
+  @Override
+  public default float getFloatValue(String columnName) throws PgqlException {
+    return getFloatValue(findColumn(columnName));
+  }
+
+  @Override
+  public default double getDoubleValue(String columnName) throws PgqlException {
+    return getDoubleValue(findColumn(columnName));
+  }
+
+  @Override
+  public default boolean getBooleanValue(String columnName) throws PgqlException {
+    return getBooleanValue(findColumn(columnName));
+  }
+
+  @Override
+  public default Set<String> getVertexLabels(String columnName) throws PgqlException {
+    return getVertexLabels(findColumn(columnName));
+  }
+
+  @Override
+  public default LocalDate getDate(String columnName) throws PgqlException {
+    return getDate(findColumn(columnName));
+  }
+
+  @Override
+  public default LocalTime getTime(String columnName) throws PgqlException {
+    return getTime(findColumn(columnName));
+  }
+
+  @Override
+  public default LocalDateTime getTimestamp(String columnName) throws PgqlException {
+    return getTimestamp(findColumn(columnName));
+  }
+
+  @Override
+  public default OffsetTime getTimeWithTimezone(String columnName) throws PgqlException {
+    return getTimeWithTimezone(findColumn(columnName));
+  }
+
+  @Override
+  public default OffsetDateTime getTimestampWithTimezone(String columnName) throws PgqlException {
+    return getTimestampWithTimezone(findColumn(columnName));
+  }
+
+  @Override
+  public default Date getLegacyDate(String columnName) throws PgqlException {
+    return getLegacyDate(findColumn(columnName));
+  }
+
+  @Override
+  public default <T> List<T> getList(String columnName) throws PgqlException {
+    return getList(findColumn(columnName));
+  }
+
+  @Override
+  public default boolean isNull(String columnName) throws PgqlException {
+    return isNull(findColumn(columnName));
+  }
+
+  /**
+   * Retrieves the number of rows of a scrollable result set.
+   *
+   * @return the number of rows, or -1 if the number of rows is not known in advance, e.g. because the result set is
+   * forward-only; the default implementation returns -1
+   * @throws PgqlException if a connection error occurs or when this method is called on a closed result set
+   */
+  public default long getNumRows() throws PgqlException {
+    return -1;
+  }
+
+  /**
+   * Retrieves the rows as a stream, in which every row is an array with the values of the columns. Unlike the
+   * iterator, which returns this result set for every row, the stream can be made parallel.
+   *
+   * If the number of rows is known (see {@link #getNumRows()}), the stream has all the rows and is sized, and it is
+   * split into ranges of row numbers that are fetched by means of {@link #absolute(long)}, such that the rows are
+   * processed in parallel by a parallel stream. Otherwise, the stream has the remaining rows, which are fetched by
+   * means of {@link #next()} and split off in batches. The cursor is moved while holding the lock of the result set,
+   * for a chunk of rows at a time. Implementations with rows in memory can override this method to hand over their
+   * rows without moving the cursor.
+   *
+   * The result set should not be accessed otherwise while the stream is in use, and the position of the cursor
+   * afterwards is not specified. Errors while fetching rows are thrown as {@link IllegalStateException} with the
+   * {@link PgqlException} as cause.
+   *
+   * @return the rows of the result set
+   * @throws PgqlException if a connection error occurs or when this method is called on a closed result set
+   */
+  public default Stream<Object[]> stream() throws PgqlException {
+    return StreamSupport.stream(new ResultSetSpliterator(this), false);
+  }
+
+  /**
+   * Moves the cursor forward by up to the given number of rows and retrieves the values of those rows per column, such
+   * that consumers can process the values in bulk rather than one row and one boxed value at a time. Afterwards, the
+   * cursor is positioned on the last row of the batch, or after the last row if the batch has fewer rows than
+   * requested. The vectors of the columns are chosen from the column types of the metadata, such that every batch of
+   * the result set has the same vector types (see {@link ColumnBatch#fromRows(List, ResultSetMetaData)}).
+   *
+   * The default implementation moves the cursor by means of {@link #next()} and retrieves the values by means of
+   * {@link #getObject(int)}; implementations can override it to hand over their rows in bulk.
+   *
+   * @param maxRows
+   *          the maximum number of rows in the batch
+   * @return the rows of the batch, which are 0 rows if there are no more rows
+   * @throws IllegalArgumentException
+   *           if the maximum number of rows is not positive
+   * @throws PgqlException if a connection error occurs or when this method is called on a closed result set
+   */
+  default ColumnBatch nextBatch(int maxRows) throws PgqlException {
+    if (maxRows <= 0) {
+      throw new IllegalArgumentException("Maximum number of rows should be positive but got " + maxRows);
+    }
+    ResultSetMetaData metaData = getMetaData();
+    int numColumns = metaData.getColumnCount();
+    List<Object[]> rows = new ArrayList<>(Math.min(maxRows, 1024));
+    while (rows.size() < maxRows && next()) {
+      Object[] row = new Object[numColumns];
+      for (int i = 0; i < numColumns; i++) {
+        row[i] = getObject(i + 1);
+      }
+      rows.add(row);
+    }
+    return ColumnBatch.fromRows(rows, metaData);
+  }
 }
@@ -3,20 +3,42 @@
  */
 package oracle.pgql.lang;
 
+import java.io.Flushable;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Prints result sets as tables. Rows are written as they are read, so
+ * printing does not hold all the rows in memory: the widths of the columns
+ * are computed from a sample of the first rows, and values of later rows that
+ * are wider than their column extend the row.
+ */
 public class ResultSetFormatter {
 
   private static final String NULL_STRING = "<null>";
   private static final long DEFAULT_PRINT_LIMIT = 1000;
 
+  /**
+   * The maximum number of rows from which the widths of the columns are
+   * computed.
+   */
+  private static final int SAMPLE_SIZE = 1000;
+
+  /**
+   * The number of characters that is buffered before it is written.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
   /**
    * Prints the specified number of results in the ResultSet to the given
    * PrintStream, starting from the provided index.
-   * 
+   *
    * @param resultSet <code>ResultSet</code> containing results
    * @param printStream <code>PrintStream</code> where the results should be
    *        printed
@@ -27,22 +49,68 @@ public class ResultSetFormatter {
    */
   public static void out(ResultSet<? extends ResultAccess> resultSet, PrintStream printStream, long numResults,
       int from) throws PgqlException {
-    out(resultSet, printStream, numResults, from, false);
+    outToPrintStream(resultSet, printStream, numResults, from, false);
   }
 
   /**
    * Prints all the results in the ResultSet to <code>System.out</code>.
-   * 
+   *
    * @param resultSet <code>ResultSet</code> containing results
    * @throws PgqlException if a connection error occurs or when this method is
    *         called on a closed result set
    */
   public static void out(ResultSet<? extends ResultAccess> resultSet) throws PgqlException {
-    out(resultSet, System.out, DEFAULT_PRINT_LIMIT, 0, true);
+    outToPrintStream(resultSet, System.out, DEFAULT_PRINT_LIMIT, 0, true);
+  }
+
+  /**
+   * Prints the specified number of results in the ResultSet to the given
+   * Appendable, starting from the provided index.
+   *
+   * @param resultSet <code>ResultSet</code> containing results
+   * @param appendable <code>Appendable</code> where the results should be
+   *        printed
+   * @param numResults number of results
+   * @param from index of first result that should be printed
+   * @throws PgqlException if a connection error occurs or when this method is
+   *         called on a closed result set
+   * @throws IOException if writing to the Appendable fails
+   */
+  public static void out(ResultSet<? extends ResultAccess> resultSet, Appendable appendable, long numResults,
+      int from) throws PgqlException, IOException {
+    out(resultSet, appendable, numResults, from, false);
   }
 
-  private static void out(ResultSet<? extends ResultAccess> resultSet, PrintStream printStream, long numResults,
-      int from, boolean truncate) throws PgqlException {
+  /**
+   * Prints the first 1000 results in the ResultSet to the given Appendable.
+   * If there are more results, the table ends with the number of results
+   * that were not printed, provided that the number of results is known
+   * without reading them (see {@link ResultSet#getNumRows()}).
+   *
+   * @param resultSet <code>ResultSet</code> containing results
+   * @param appendable <code>Appendable</code> where the results should be
+   *        printed
+   * @throws PgqlException if a connection error occurs or when this method is
+   *         called on a closed result set
+   * @throws IOException if writing to the Appendable fails
+   */
+  public static void out(ResultSet<? extends ResultAccess> resultSet, Appendable appendable)
+      throws PgqlException, IOException {
+    out(resultSet, appendable, DEFAULT_PRINT_LIMIT, 0, true);
+  }
+
+  private static void outToPrintStream(ResultSet<? extends ResultAccess> resultSet, PrintStream printStream,
+      long numResults, int from, boolean truncate) throws PgqlException {
+    try {
+      out(resultSet, printStream, numResults, from, truncate);
+    } catch (IOException e) {
+      // a PrintStream does not throw IOExceptions
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void out(ResultSet<? extends ResultAccess> resultSet, Appendable appendable, long numResults,
+      int from, boolean truncate) throws PgqlException, IOException {
     ResultSetMetaData metadata = resultSet.getMetaData();
     int numElements = metadata.getColumnCount();
 
@@ -54,27 +122,17 @@ public class ResultSetFormatter {
       }
     }
 
-    List<Object[]> rows = new ArrayList<>();
     Iterator<? extends ResultAccess> results = resultSet.iterator();
     for (int i = 0; i < from; i++) {
       if (results.hasNext()) {
         results.next();
       }
     }
-    int count = 0;
-    while (results.hasNext() && count < numResults) {
-      ResultAccess result = results.next();
-      Object[] row = new Object[numElements];
-      rows.add(row);
-      for (int i = 0; i < numElements; i++) {
-        Object elem = result.getObject(i + 1);
-        row[i] = elem;
-        int length = getLengthOfElem(elem);
-        if (length > columnWidth[i]) {
-          columnWidth[i] = length;
-        }
-      }
-      count++;
+
+    // the widths of the columns are computed from a sample of rows, which are printed after the header
+    List<Object[]> sample = new ArrayList<>();
+    while (sample.size() < Math.min(numResults, SAMPLE_SIZE) && results.hasNext()) {
+      sample.add(readRow(results.next(), numElements, columnWidth));
     }
 
     int totalWidth = -1;
@@ -82,18 +140,20 @@ public class ResultSetFormatter {
       totalWidth += columnWidth[i] + 3;
     }
 
-    String truncationMessage = "";
-    int countResults = count;
+    String truncationMessage = null;
     if (truncate) {
-      // Since there is no ResultSet API to get the number of results,
-      // we count till the end of the iterator
-      while (results.hasNext()) {
-        results.next();
-        countResults++;
+      // the number of truncated rows is only reported if it is known without reading all the rows
+      long numRows = resultSet.getNumRows();
+      if (numRows >= 0) {
+        long numTruncated = numRows - from - numResults;
+        if (numTruncated > 0) {
+          truncationMessage = "... truncated " + numTruncated + " rows ...";
+        }
+      } else if (sample.size() == numResults && results.hasNext()) {
+        truncationMessage = "... truncated rows ...";
       }
 
-      if (countResults > numResults) {
-        truncationMessage = "... truncated " + (countResults - DEFAULT_PRINT_LIMIT) + " rows ...";
+      if (truncationMessage != null) {
         int columnNum = 0;
         while (totalWidth < truncationMessage.length()) {
           if (columnWidth.length > 0) {
@@ -105,57 +165,87 @@ public class ResultSetFormatter {
       }
     }
 
-    printHorizontalLine(printStream, totalWidth);
+    BufferedAppendable out = new BufferedAppendable(appendable);
+    printHorizontalLine(out, totalWidth);
 
-    printStream.print("|");
+    out.append("|");
     if (numElements == 0) {
-      for (int i = 0; i < totalWidth; i++) {
-        printStream.print(" ");
-      }
-      printStream.print("|"); // zero columns
+      printSpaces(out, totalWidth);
+      out.append("|"); // zero columns
     } else {
       for (int i = 0; i < numElements; i++) {
-        printElem(printStream, metadata.getColumnName(i + 1), columnWidth[i]);
+        printElem(out, metadata.getColumnName(i + 1), columnWidth[i]);
       }
     }
-    printStream.println();
+    out.append(LINE_SEPARATOR);
 
-    printHorizontalLine(printStream, totalWidth);
+    printHorizontalLine(out, totalWidth);
 
-    for (int idx = 0; idx < count; idx++) {
-      printStream.print("|");
-      Object[] row = rows.get(idx);
-      if (numElements == 0) {
-        for (int i = 0; i < totalWidth; i++) {
-          printStream.print(" ");
-        }
-        printStream.print("|"); // zero columns
-      } else {
-        for (int i = 0; i < numElements; i++) {
-          printElem(printStream, row[i], columnWidth[i]);
-        }
-      }
-      printStream.println();
+    for (Object[] row : sample) {
+      printRow(out, row, columnWidth, totalWidth);
+    }
+    long count = sample.size();
+    sample.clear();
+    while (count < numResults && results.hasNext()) {
+      printRow(out, readRow(results.next(), numElements, null), columnWidth, totalWidth);
+      count++;
     }
 
-    if (truncate && countResults > numResults) {
-      printTruncationMessage(printStream, totalWidth, truncationMessage);
+    if (truncate && truncationMessage == null && count == numResults && results.hasNext()) {
+      // the sample did not reveal that rows are truncated, so the message did not widen the columns
+      truncationMessage = "... truncated rows ...";
+    }
+    if (truncationMessage != null) {
+      printTruncationMessage(out, totalWidth, truncationMessage);
     } else {
-      printHorizontalLine(printStream, totalWidth);
+      printHorizontalLine(out, totalWidth);
     }
+    out.flush();
   }
 
-  private static void printTruncationMessage(PrintStream printStream, int tableWidth, String truncationMessage) {
-    String before = "";
-    for (int i = 0; i < Math.floor((tableWidth - truncationMessage.length()) / 2); i++) {
-      before += ".";
+  /**
+   * @param columnWidth the widths of the columns, which are widened to fit
+   *        the values, or null
+   */
+  private static Object[] readRow(ResultAccess result, int numElements, int[] columnWidth) throws PgqlException {
+    Object[] row = new Object[numElements];
+    for (int i = 0; i < numElements; i++) {
+      Object elem = result.getObject(i + 1);
+      row[i] = elem;
+      if (columnWidth != null) {
+        int length = getLengthOfElem(elem);
+        if (length > columnWidth[i]) {
+          columnWidth[i] = length;
+        }
+      }
     }
-    String after = "";
-    for (int i = 0; i < tableWidth - before.length() - truncationMessage.length(); i++) {
-      after += ".";
+    return row;
+  }
+
+  private static void printRow(BufferedAppendable out, Object[] row, int[] columnWidth, int totalWidth)
+      throws IOException {
+    out.append("|");
+    if (row.length == 0) {
+      printSpaces(out, totalWidth);
+      out.append("|"); // zero columns
+    } else {
+      for (int i = 0; i < row.length; i++) {
+        printElem(out, row[i], columnWidth[i]);
+      }
     }
-    printStream.print("+" + before + truncationMessage + after + "+");
-    printStream.println();
+    out.append(LINE_SEPARATOR);
+  }
+
+  private static void printTruncationMessage(BufferedAppendable out, int tableWidth, String truncationMessage)
+      throws IOException {
+    int before = Math.max(0, (tableWidth - truncationMessage.length()) / 2);
+    int after = Math.max(0, tableWidth - before - truncationMessage.length());
+    out.append("+");
+    printChars(out, '.', before);
+    out.append(truncationMessage);
+    printChars(out, '.', after);
+    out.append("+");
+    out.append(LINE_SEPARATOR);
   }
 
   private static int getLengthOfElem(Object elem) {
@@ -166,28 +256,71 @@ public class ResultSetFormatter {
     return elem.toString().length();
   }
 
-  private static void printElem(PrintStream printStream, Object elem, int columnWidth) {
-    int length = getLengthOfElem(elem);
+  private static void printElem(BufferedAppendable out, Object elem, int columnWidth) throws IOException {
+    String string = elem == null ? NULL_STRING : elem.toString();
+    out.append(" ");
+    out.append(string);
+    printSpaces(out, columnWidth - string.length());
+    out.append(" |");
+  }
 
-    printStream.print(" ");
-    if (elem == null) {
-      printStream.print(NULL_STRING);
-    } else {
-      printStream.print(elem.toString());
-    }
+  private static void printHorizontalLine(BufferedAppendable out, int length) throws IOException {
+    out.append("+");
+    printChars(out, '-', length);
+    out.append("+");
+    out.append(LINE_SEPARATOR);
+  }
 
-    for (int i = length; i < columnWidth; i++) {
-      printStream.print(" ");
-    }
-    printStream.print(" |");
+  private static void printSpaces(BufferedAppendable out, int count) throws IOException {
+    printChars(out, ' ', count);
   }
 
-  private static void printHorizontalLine(PrintStream printStream, int length) {
-    printStream.print("+");
-    for (int i = 0; i < length; i++) {
-      printStream.print("-");
+  private static void printChars(BufferedAppendable out, char c, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      out.append(c);
     }
-    printStream.println("+");
   }
 
+  /**
+   * Collects the characters in a buffer and writes them to the underlying
+   * Appendable in large pieces, rather than one value or line at a time.
+   */
+  private static final class BufferedAppendable {
+
+    private final Appendable appendable;
+
+    private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+
+    BufferedAppendable(Appendable appendable) {
+      this.appendable = appendable;
+    }
+
+    void append(CharSequence chars) throws IOException {
+      buffer.append(chars);
+      if (buffer.length() >= BUFFER_SIZE) {
+        writeBuffer();
+      }
+    }
+
+    void append(char c) throws IOException {
+      buffer.append(c);
+      if (buffer.length() >= BUFFER_SIZE) {
+        writeBuffer();
+      }
+    }
+
+    void flush() throws IOException {
+      writeBuffer();
+      if (appendable instanceof Flushable) {
+        ((Flushable) appendable).flush();
+      }
+    }
+
+    private void writeBuffer() throws IOException {
+      if (buffer.length() > 0) {
+        appendable.append(buffer);
+        buffer.setLength(0);
+      }
+    }
+  }
 }
@@ -19,4 +19,33 @@ public interface ResultSetMetaData {
    * @return column name
    */
   public String getColumnName(int column);
+
+  /**
+   * Get the index of the column with the given name. Implementations are encouraged to look the name up in a
+   * precomputed index, such that callers can resolve column names in tight loops; the default implementation scans the
+   * column names. Callers that access the same columns for many rows can resolve the names once per result set.
+   *
+   * @param columnName the column name
+   * @return the index of the first column with the given name (the first column is 1, the second is 2, ...)
+   * @throws PgqlException if there is no column with the given name
+   */
+  public default int findColumn(String columnName) throws PgqlException {
+    for (int column = 1; column <= getColumnCount(); column++) {
+      if (getColumnName(column).equals(columnName)) {
+        return column;
+      }
+    }
+    throw new PgqlException("Column " + columnName + " does not exist");
+  }
+
+  /**
+   * Get the name of the data type of the designated column, e.g. INTEGER, STRING or VERTEX.
+   *
+   * @param column the first column is 1, the second is 2, ...
+   * @return the type name, or null if the type is not known; the default implementation does not know the type of any
+   * column
+   */
+  public default String getColumnTypeName(int column) {
+    return null;
+  }
 }
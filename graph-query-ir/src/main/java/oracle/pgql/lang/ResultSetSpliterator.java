@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * The spliterator of {@link ResultSet#stream()}. A spliterator of a scrollable result set covers a range of row
+ * numbers, which is split in halves, and positions the shared cursor by means of {@link ResultSet#absolute(long)}. A
+ * spliterator of a forward-only result set splits off batches of rows that it fetches with {@link ResultSet#next()}.
+ *
+ * The cursor is only accessed while holding the lock of the result set, and for a chunk of rows at a time, such that
+ * the workers of a parallel stream mostly process rows rather than wait for each other.
+ */
+final class ResultSetSpliterator implements Spliterator<Object[]> {
+
+  /**
+   * The number of rows that is fetched per acquisition of the lock.
+   */
+  private static final int CHUNK_SIZE = 256;
+
+  /**
+   * The increase of the size of the batches that are split off a forward-only result set, as for
+   * {@link Spliterators#spliteratorUnknownSize(java.util.Iterator, int)}.
+   */
+  private static final int BATCH_SIZE_INCREMENT = 1024;
+
+  private static final int MAX_BATCH_SIZE = 1 << 25;
+
+  private static final Object[][] EMPTY = new Object[0][];
+
+  private final ResultSet<? extends ResultAccess> resultSet;
+
+  private final int numColumns;
+
+  private final boolean scrollable;
+
+  /**
+   * The number of the next row that is fetched; only used if the result set is scrollable.
+   */
+  private long origin;
+
+  /**
+   * One more than the number of the last row; only used if the result set is scrollable.
+   */
+  private long fence;
+
+  /**
+   * Whether the forward-only result set has no more rows.
+   */
+  private boolean exhausted;
+
+  private int batchSize;
+
+  /**
+   * The rows that were fetched but not yet handed out.
+   */
+  private Object[][] chunk = EMPTY;
+
+  private int indexInChunk;
+
+  ResultSetSpliterator(ResultSet<? extends ResultAccess> resultSet) throws PgqlException {
+    this.resultSet = resultSet;
+    this.numColumns = resultSet.getMetaData().getColumnCount();
+    long numRows = resultSet.getNumRows();
+    this.scrollable = numRows >= 0;
+    this.origin = 1;
+    this.fence = numRows + 1;
+  }
+
+  private ResultSetSpliterator(ResultSetSpliterator parent, long origin, long fence) {
+    this.resultSet = parent.resultSet;
+    this.numColumns = parent.numColumns;
+    this.scrollable = true;
+    this.origin = origin;
+    this.fence = fence;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Object[]> action) {
+    if (indexInChunk == chunk.length) {
+      chunk = fetch(CHUNK_SIZE);
+      indexInChunk = 0;
+      if (chunk.length == 0) {
+        return false;
+      }
+    }
+    action.accept(chunk[indexInChunk++]);
+    return true;
+  }
+
+  @Override
+  public Spliterator<Object[]> trySplit() {
+    if (scrollable) {
+      // rows that were fetched already precede the range, so they cannot be split off with it
+      long mid = origin + (fence - origin) / 2;
+      if (indexInChunk < chunk.length || mid == origin) {
+        return null;
+      }
+      ResultSetSpliterator prefix = new ResultSetSpliterator(this, origin, mid);
+      origin = mid;
+      return prefix;
+    }
+
+    int numBuffered = chunk.length - indexInChunk;
+    batchSize = Math.min(batchSize + BATCH_SIZE_INCREMENT, MAX_BATCH_SIZE);
+    Object[][] fetched = fetch(batchSize);
+    if (numBuffered == 0 && fetched.length == 0) {
+      return null;
+    }
+    Object[][] batch = new Object[numBuffered + fetched.length][];
+    System.arraycopy(chunk, indexInChunk, batch, 0, numBuffered);
+    System.arraycopy(fetched, 0, batch, numBuffered, fetched.length);
+    chunk = EMPTY;
+    indexInChunk = 0;
+    return Spliterators.spliterator(batch, ORDERED | NONNULL);
+  }
+
+  /**
+   * @return up to the given number of rows, or no rows if there are no more rows
+   */
+  private Object[][] fetch(int maxRows) {
+    try {
+      synchronized (resultSet) {
+        if (scrollable) {
+          int numRows = (int) Math.min(maxRows, fence - origin);
+          if (numRows <= 0) {
+            return EMPTY;
+          }
+          Object[][] rows = new Object[numRows][];
+          if (!resultSet.absolute(origin)) {
+            throw new IllegalStateException("Row " + origin + " does not exist");
+          }
+          for (int i = 0; i < numRows; i++) {
+            if (i > 0 && !resultSet.next()) {
+              throw new IllegalStateException("Row " + (origin + i) + " does not exist");
+            }
+            rows[i] = getRow();
+          }
+          origin += numRows;
+          return rows;
+        }
+
+        Object[][] rows = new Object[Math.min(maxRows, CHUNK_SIZE)][];
+        int numRows = 0;
+        while (numRows < maxRows && !exhausted) {
+          if (!resultSet.next()) {
+            exhausted = true;
+            break;
+          }
+          if (numRows == rows.length) {
+            rows = Arrays.copyOf(rows, (int) Math.min((long) rows.length * 2, maxRows));
+          }
+          rows[numRows++] = getRow();
+        }
+        return numRows == rows.length ? rows : Arrays.copyOf(rows, numRows);
+      }
+    } catch (PgqlException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  private Object[] getRow() throws PgqlException {
+    Object[] row = new Object[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      row[i] = resultSet.getObject(i + 1);
+    }
+    return row;
+  }
+
+  @Override
+  public long estimateSize() {
+    return scrollable ? fence - origin + chunk.length - indexInChunk : Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return scrollable ? ORDERED | NONNULL | SIZED | SUBSIZED : ORDERED | NONNULL;
+  }
+}
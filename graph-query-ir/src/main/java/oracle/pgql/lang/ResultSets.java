@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Utilities for consuming result sets.
+ */
+public final class ResultSets {
+
+  private static final int DEFAULT_CHUNK_SIZE = 256;
+
+  private ResultSets() {
+  }
+
+  /**
+   * A producer of items for a single {@link Subscriber}, which receives items only as far as it requested them.
+   *
+   * The interfaces {@link Publisher}, {@link Subscriber} and {@link Subscription} have the same methods and contract
+   * as their counterparts in {@code java.util.concurrent.Flow} and the Reactive Streams specification, which are not
+   * available on all Java versions that this library supports. Bridging them to those of Java 9 and later takes a
+   * single forwarding class per interface.
+   */
+  public interface Publisher<T> {
+
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  public interface Subscription {
+
+    /**
+     * Request up to the given number of additional items. Demand accumulates over calls and is unbounded if it reaches
+     * {@link Long#MAX_VALUE}.
+     */
+    void request(long n);
+
+    void cancel();
+  }
+
+  /**
+   * See {@link #toPublisher(ResultSet, Executor, int)}; rows are fetched in chunks of 256 rows.
+   */
+  public static Publisher<Object[]> toPublisher(ResultSet<? extends ResultAccess> resultSet, Executor executor) {
+    return toPublisher(resultSet, executor, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Publish the remaining rows of a result set, each as an array with the values of the columns, to a single
+   * subscriber. Rows are fetched on the given executor, in chunks of at most the requested number of rows, and the
+   * subscriber is signaled on the same thread. A task only runs while the subscriber has outstanding demand, so no
+   * thread is blocked waiting for a slow subscriber. An executor that creates a thread per task, e.g. one of virtual
+   * threads, is a good fit, since only the result set itself blocks, while it fetches rows.
+   *
+   * The result set is closed once all rows are published, when fetching a row fails, when the subscriber cancels its
+   * subscription and when the subscriber throws an exception.
+   *
+   * @param resultSet
+   *          the result set, which should not be accessed otherwise until it is closed
+   * @param executor
+   *          the executor on which the rows are fetched and published
+   * @param chunkSize
+   *          the maximum number of rows that is fetched before the demand is updated
+   * @return a publisher that accepts one subscriber; later subscribers are signaled an {@link IllegalStateException}
+   * @throws IllegalArgumentException
+   *           if the chunk size is not positive
+   */
+  public static Publisher<Object[]> toPublisher(ResultSet<? extends ResultAccess> resultSet, Executor executor,
+      int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size should be positive but got " + chunkSize);
+    }
+    AtomicBoolean subscribed = new AtomicBoolean();
+    return subscriber -> {
+      if (subscribed.compareAndSet(false, true)) {
+        new ResultSetSubscription(resultSet, subscriber, executor, chunkSize).start();
+      } else {
+        subscriber.onSubscribe(new Subscription() {
+
+          @Override
+          public void request(long n) {
+          }
+
+          @Override
+          public void cancel() {
+          }
+        });
+        subscriber.onError(new IllegalStateException("The rows of a result set can be published only once"));
+      }
+    };
+  }
+
+  /**
+   * Fetches and publishes rows in tasks on the executor. Requests and cancellation only record the signal and schedule
+   * a task if none is scheduled or running yet, such that the tasks run one at a time and all accesses to the result
+   * set and all signals to the subscriber are serialized.
+   */
+  private static final class ResultSetSubscription implements Subscription, Runnable {
+
+    private final ResultSet<? extends ResultAccess> resultSet;
+
+    private final Subscriber<? super Object[]> subscriber;
+
+    private final Executor executor;
+
+    private final int chunkSize;
+
+    private final AtomicLong demand = new AtomicLong();
+
+    /**
+     * The number of signals since the running task started; a task is scheduled or running as long as it is positive.
+     */
+    private final AtomicInteger pendingSignals = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    private volatile IllegalArgumentException invalidRequest;
+
+    /**
+     * Whether the subscriber has been signaled onComplete or onError or has cancelled; only accessed by the tasks.
+     */
+    private boolean done;
+
+    ResultSetSubscription(ResultSet<? extends ResultAccess> resultSet, Subscriber<? super Object[]> subscriber,
+        Executor executor, int chunkSize) {
+      this.resultSet = resultSet;
+      this.subscriber = subscriber;
+      this.executor = executor;
+      this.chunkSize = chunkSize;
+    }
+
+    void start() {
+      try {
+        subscriber.onSubscribe(this);
+      } catch (RuntimeException e) {
+        cancel();
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Number of requested rows should be positive but got " + n);
+      } else {
+        demand.getAndAccumulate(n, (current, added) -> {
+          long sum = current + added;
+          return sum < 0 ? Long.MAX_VALUE : sum;
+        });
+      }
+      signal();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      signal();
+    }
+
+    private void signal() {
+      if (pendingSignals.getAndIncrement() == 0) {
+        schedule();
+      }
+    }
+
+    private void schedule() {
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        // there is no task that could run concurrently, so fail here
+        fail(e);
+      }
+    }
+
+    @Override
+    public void run() {
+      int signals = pendingSignals.get();
+      do {
+        while (publishChunk()) {
+          // the subscriber still has outstanding demand
+        }
+        // handle signals that arrived since the last check, without scheduling a new task
+        signals = pendingSignals.addAndGet(-signals);
+      } while (signals != 0);
+    }
+
+    /**
+     * @return whether there is outstanding demand after the chunk
+     */
+    private boolean publishChunk() {
+      if (done) {
+        return false;
+      }
+      if (cancelled) {
+        done = true;
+        closeQuietly();
+        return false;
+      }
+      if (invalidRequest != null) {
+        fail(invalidRequest);
+        return false;
+      }
+
+      long requested = demand.get();
+      int numRows = (int) Math.min(requested, chunkSize);
+      int numPublished = 0;
+      try {
+        int numColumns = numRows == 0 ? 0 : resultSet.getMetaData().getColumnCount();
+        while (numPublished < numRows && !cancelled) {
+          if (!resultSet.next()) {
+            complete();
+            return false;
+          }
+          Object[] row = new Object[numColumns];
+          for (int i = 0; i < numColumns; i++) {
+            row[i] = resultSet.getObject(i + 1);
+          }
+          numPublished++;
+          try {
+            subscriber.onNext(row);
+          } catch (RuntimeException e) {
+            // the subscriber is broken; treat it as cancelled
+            done = true;
+            closeQuietly();
+            return false;
+          }
+        }
+      } catch (PgqlException | RuntimeException e) {
+        fail(e);
+        return false;
+      }
+
+      if (requested == Long.MAX_VALUE) {
+        return !cancelled;
+      }
+      return demand.addAndGet(-numPublished) > 0 && !cancelled;
+    }
+
+    private void complete() {
+      done = true;
+      try {
+        resultSet.close();
+      } catch (PgqlException | RuntimeException e) {
+        signalError(e);
+        return;
+      }
+      try {
+        subscriber.onComplete();
+      } catch (RuntimeException e) {
+        // nothing left to do for a broken subscriber
+      }
+    }
+
+    private void fail(Throwable throwable) {
+      done = true;
+      closeQuietly();
+      signalError(throwable);
+    }
+
+    private void signalError(Throwable throwable) {
+      try {
+        subscriber.onError(throwable);
+      } catch (RuntimeException e) {
+        // nothing left to do for a broken subscriber
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        resultSet.close();
+      } catch (PgqlException | RuntimeException e) {
+        // the error cannot be signaled anymore, and closing a result set twice has no effect
+      }
+    }
+  }
+}
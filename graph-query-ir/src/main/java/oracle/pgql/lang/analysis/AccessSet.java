@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.analysis;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The labels and properties of vertices and edges that a query reads or writes (see {@link ReadWriteAnalysis}).
+ *
+ * A label is accessed if the query matches, inserts or deletes vertices or edges with the label; a property is
+ * accessed per label. The label null stands for any label: it is used for variables without label expression if no
+ * graph schema is available to resolve them against, and for vertices and edges that are inserted without labels.
+ */
+public class AccessSet {
+
+  private final Set<String> vertexLabels = new LinkedHashSet<>();
+
+  private final Map<String, Set<String>> vertexProperties = new LinkedHashMap<>();
+
+  private final Set<String> edgeLabels = new LinkedHashSet<>();
+
+  private final Map<String, Set<String>> edgeProperties = new LinkedHashMap<>();
+
+  AccessSet() {
+  }
+
+  /**
+   * @return the labels of the vertices that are accessed, which may include null for any label
+   */
+  public Set<String> getVertexLabels() {
+    return Collections.unmodifiableSet(vertexLabels);
+  }
+
+  /**
+   * @return per label, which may be null for any label, the vertex properties that are accessed
+   */
+  public Map<String, Set<String>> getVertexProperties() {
+    return unmodifiable(vertexProperties);
+  }
+
+  /**
+   * @return the labels of the edges that are accessed, which may include null for any label
+   */
+  public Set<String> getEdgeLabels() {
+    return Collections.unmodifiableSet(edgeLabels);
+  }
+
+  /**
+   * @return per label, which may be null for any label, the edge properties that are accessed
+   */
+  public Map<String, Set<String>> getEdgeProperties() {
+    return unmodifiable(edgeProperties);
+  }
+
+  public boolean isEmpty() {
+    return vertexLabels.isEmpty() && vertexProperties.isEmpty() && edgeLabels.isEmpty() && edgeProperties.isEmpty();
+  }
+
+  /**
+   * Whether writes may change what is read, for example to decide whether a cached result of a query is still valid
+   * after a modification. Writing a label (inserting or deleting vertices or edges with the label) affects all reads
+   * of the label and its properties, while writing a property affects only reads of the same property of the same
+   * label.
+   *
+   * @param writes
+   *          the write set of a modification
+   * @return true if this set, as a read set, may be affected by the writes
+   */
+  public boolean isAffectedBy(AccessSet writes) {
+    return isAffectedBy(vertexLabels, vertexProperties, writes.vertexLabels, writes.vertexProperties)
+        || isAffectedBy(edgeLabels, edgeProperties, writes.edgeLabels, writes.edgeProperties);
+  }
+
+  private static boolean isAffectedBy(Set<String> readLabels, Map<String, Set<String>> readProperties,
+      Set<String> writtenLabels, Map<String, Set<String>> writtenProperties) {
+    for (String writtenLabel : writtenLabels) {
+      if (overlaps(writtenLabel, readLabels) || overlaps(writtenLabel, readProperties.keySet())) {
+        return true;
+      }
+    }
+    for (Map.Entry<String, Set<String>> written : writtenProperties.entrySet()) {
+      for (Map.Entry<String, Set<String>> read : readProperties.entrySet()) {
+        if (overlaps(written.getKey(), read.getKey()) && !Collections.disjoint(written.getValue(), read.getValue())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean overlaps(String label, Set<String> labels) {
+    if (label == null) {
+      return !labels.isEmpty();
+    }
+    return labels.contains(label) || labels.contains(null);
+  }
+
+  private static boolean overlaps(String label1, String label2) {
+    return label1 == null || label2 == null || label1.equals(label2);
+  }
+
+  void addLabels(boolean vertex, Collection<String> labels) {
+    (vertex ? vertexLabels : edgeLabels).addAll(labels);
+  }
+
+  void addProperty(boolean vertex, Collection<String> labels, String propertyName) {
+    Map<String, Set<String>> properties = vertex ? vertexProperties : edgeProperties;
+    for (String label : labels) {
+      properties.computeIfAbsent(label, l -> new LinkedHashSet<>()).add(propertyName);
+    }
+  }
+
+  private static Map<String, Set<String>> unmodifiable(Map<String, Set<String>> properties) {
+    Map<String, Set<String>> result = new LinkedHashMap<>();
+    properties.forEach((label, propertyNames) -> result.put(label, Collections.unmodifiableSet(propertyNames)));
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  public String toString() {
+    return "vertices: " + toString(vertexLabels, vertexProperties) + "; edges: " + toString(edgeLabels, edgeProperties);
+  }
+
+  private static String toString(Set<String> labels, Map<String, Set<String>> properties) {
+    Set<String> allLabels = new LinkedHashSet<>(labels);
+    allLabels.addAll(properties.keySet());
+    return allLabels.stream() //
+        .map(label -> (label == null ? "*" : label) + (properties.containsKey(label) //
+            ? properties.get(label).stream().collect(Collectors.joining(", ", "(", ")"))
+            : "")) //
+        .collect(Collectors.joining(", ", "[", "]"));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.analysis;
+
+/**
+ * The result of {@link ReadWriteAnalyzer#analyze(oracle.pgql.lang.ir.GraphQuery,
+ * oracle.pgql.lang.metadata.AbstractMetadataProvider)}: the labels and properties that a query reads and writes.
+ */
+public class ReadWriteAnalysis {
+
+  private final AccessSet readSet;
+
+  private final AccessSet writeSet;
+
+  ReadWriteAnalysis(AccessSet readSet, AccessSet writeSet) {
+    this.readSet = readSet;
+    this.writeSet = writeSet;
+  }
+
+  /**
+   * @return the labels and properties that the query reads, including the ones read by INSERT/UPDATE/DELETE
+   */
+  public AccessSet getReadSet() {
+    return readSet;
+  }
+
+  /**
+   * @return the labels and properties that the query writes, which is empty for a SELECT query
+   */
+  public AccessSet getWriteSet() {
+    return writeSet;
+  }
+
+  /**
+   * @return true if the query only reads
+   */
+  public boolean isReadOnly() {
+    return writeSet.isEmpty();
+  }
+
+  /**
+   * Whether this query and the other query may not be executed concurrently without isolation, because one of them
+   * writes what the other one reads or writes.
+   */
+  public boolean conflictsWith(ReadWriteAnalysis other) {
+    return readSet.isAffectedBy(other.writeSet) || other.readSet.isAffectedBy(writeSet)
+        || writeSet.isAffectedBy(other.writeSet);
+  }
+
+  @Override
+  public String toString() {
+    return "reads " + readSet + "\nwrites " + writeSet;
+  }
+}
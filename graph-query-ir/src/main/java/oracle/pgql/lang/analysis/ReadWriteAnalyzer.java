@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.analysis;
+
+import static oracle.pgql.lang.ir.PgqlUtils.getConjuncts;
+import static oracle.pgql.lang.ir.PgqlUtils.isHasLabelFunctionForVar;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import oracle.pgql.lang.metadata.GraphSchema;
+import oracle.pgql.lang.metadata.Label;
+import oracle.pgql.lang.metadata.Property;
+import oracle.pgql.lang.util.AbstractQueryExpressionVisitor;
+
+/**
+ * Computes which labels and properties a SELECT query reads and which ones an INSERT/UPDATE/DELETE query writes, for
+ * example to invalidate cached query results or to detect conflicting queries.
+ *
+ * The labels of a vertex or edge variable are those of its label expression. A variable without label expression has
+ * all the vertex or edge labels of the graph schema, or any label (null) if no graph schema is available. Labels and
+ * properties are resolved against the graph schema in the same way as the parser does: first by exact match and then
+ * by upper-case match. The analysis is conservative: deleting a vertex writes all edge labels, since the edges of the
+ * vertex are deleted too, and reading or writing a property of a variable counts for all the labels of the variable,
+ * regardless of whether the graph schema defines the property for the label.
+ */
+public class ReadWriteAnalyzer {
+
+  private final AbstractMetadataProvider metadataProvider;
+
+  private final AccessSet readSet = new AccessSet();
+
+  private final AccessSet writeSet = new AccessSet();
+
+  /**
+   * The labels of the vertices and edges, which are resolved against the graph pattern that declares the variable.
+   */
+  private final Map<QueryVariable, Set<String>> labels = new IdentityHashMap<>();
+
+  private final AbstractQueryExpressionVisitor expressionVisitor;
+
+  private GraphSchema graphSchema;
+
+  private ReadWriteAnalyzer(AbstractMetadataProvider metadataProvider) {
+    this.metadataProvider = metadataProvider;
+    this.expressionVisitor = new AbstractQueryExpressionVisitor() {
+
+      @Override
+      public void visit(PropertyAccess propAccess) {
+        QueryVariable variable = propAccess.getVariable();
+        if (isVertexOrEdge(variable)) {
+          boolean vertex = variable.getVariableType() == VariableType.VERTEX;
+          Set<String> variableLabels = getLabels(variable);
+          readSet.addLabels(vertex, variableLabels);
+          for (String label : variableLabels) {
+            readSet.addProperty(vertex, Collections.singleton(label),
+                resolvePropertyName(vertex, label, propAccess.getPropertyName()));
+          }
+        }
+      }
+
+      @Override
+      public void visit(Exists exists) {
+        analyzeQuery(exists.getQuery());
+      }
+
+      @Override
+      public void visit(ScalarSubquery scalarSubquery) {
+        analyzeQuery(scalarSubquery.getQuery());
+      }
+    };
+  }
+
+  /**
+   * @param query
+   *          a SELECT or INSERT/UPDATE/DELETE query
+   * @param metadataProvider
+   *          the provider of the graph schema to resolve labels and properties against, or null
+   * @return the labels and properties that the query reads and writes
+   */
+  public static ReadWriteAnalysis analyze(GraphQuery query, AbstractMetadataProvider metadataProvider) {
+    ReadWriteAnalyzer analyzer = new ReadWriteAnalyzer(metadataProvider);
+    analyzer.analyzeQuery(query);
+    return new ReadWriteAnalysis(analyzer.readSet, analyzer.writeSet);
+  }
+
+  private void analyzeQuery(GraphQuery query) {
+    GraphSchema outerGraphSchema = graphSchema;
+    if (query.getGraphName() != null || graphSchema == null) {
+      graphSchema = getGraphSchema(query.getGraphName());
+    }
+
+    // the graph pattern first, since expressions reference its variables
+    GraphPattern graphPattern = query.getGraphPattern();
+    if (graphPattern != null) {
+      analyzeGraphPattern(graphPattern.getVertices(), graphPattern.getConnections(), graphPattern.getConstraints());
+    }
+    if (query.getGroupBy() != null) {
+      analyzeVariables(query.getGroupBy().getElements());
+    }
+    switch (query.getQueryType()) {
+      case SELECT:
+        if (((SelectQuery) query).getProjection() != null) {
+          analyzeVariables(((SelectQuery) query).getProjection().getElements());
+        }
+        break;
+      case MODIFY:
+        analyzeModifications(((ModifyQuery) query).getModifications());
+        break;
+      default:
+        throw new IllegalArgumentException(query.getQueryType().toString());
+    }
+    analyzeExpression(query.getHaving());
+    if (query.getOrderBy() != null && query.getOrderBy().getElements() != null) {
+      for (OrderByElem element : query.getOrderBy().getElements()) {
+        analyzeExpression(element.getExp());
+      }
+    }
+    analyzeExpression(query.getLimit());
+    analyzeExpression(query.getOffset());
+
+    graphSchema = outerGraphSchema;
+  }
+
+  private void analyzeGraphPattern(Collection<QueryVertex> vertices,
+      Collection<? extends VertexPairConnection> connections, Set<QueryExpression> constraints) {
+    for (QueryVertex vertex : vertices) {
+      declare(vertex, constraints);
+    }
+    for (VertexPairConnection connection : connections) {
+      if (connection.getVariableType() == VariableType.EDGE) {
+        declare(connection, constraints);
+      } else if (connection.getVariableType() == VariableType.PATH) {
+        QueryPath path = (QueryPath) connection;
+        CommonPathExpression commonPathExpression = path.getCommonPathExpression();
+        analyzeGraphPattern(commonPathExpression.getVertices(), commonPathExpression.getConnections(),
+            commonPathExpression.getConstraints());
+        analyzeExpression(commonPathExpression.getCost());
+        RowsPerMatch rowsPerMatch = path.getRowsPerMatch();
+        if (rowsPerMatch instanceof OneRowPerVertex) {
+          declare(((OneRowPerVertex) rowsPerMatch).getVertex(), Collections.emptySet());
+        } else if (rowsPerMatch instanceof OneRowPerEdge) {
+          declare(((OneRowPerEdge) rowsPerMatch).getEdge(), Collections.emptySet());
+        }
+      }
+    }
+    if (constraints != null) {
+      for (QueryExpression constraint : constraints) {
+        analyzeExpression(constraint);
+      }
+    }
+  }
+
+  /**
+   * Resolves the labels of a vertex or edge from the label expressions in the constraints of the graph pattern that
+   * declares it, and marks the labels as read. A variable that is declared by an enclosing query keeps its labels.
+   */
+  private void declare(QueryVariable variable, Set<QueryExpression> constraints) {
+    boolean vertex = variable.getVariableType() == VariableType.VERTEX;
+    Set<String> variableLabels = labels.get(variable);
+    if (variableLabels == null) {
+      for (QueryExpression constraint : constraints) {
+        for (QueryExpression conjunct : getConjuncts(constraint)) {
+          if (isHasLabelFunctionForVar(conjunct, variable)) {
+            Set<String> labelsOfConjunct = new LinkedHashSet<>();
+            addLabels(conjunct, vertex, labelsOfConjunct);
+            if (variableLabels == null) {
+              variableLabels = labelsOfConjunct;
+            } else {
+              variableLabels.retainAll(labelsOfConjunct); // intersection since this is a conjunction (AND)
+            }
+          }
+        }
+      }
+      if (variableLabels == null) {
+        variableLabels = getAllLabels(vertex);
+      }
+      labels.put(variable, variableLabels);
+    }
+    readSet.addLabels(vertex, variableLabels);
+  }
+
+  private void addLabels(QueryExpression labelExpression, boolean vertex, Set<String> result) {
+    switch (labelExpression.getExpType()) {
+      case FUNCTION_CALL: {
+        String label = ((ConstString) ((FunctionCall) labelExpression).getArgs().get(1)).getValue();
+        result.add(resolveLabel(vertex, label));
+        break;
+      }
+      case OR:
+        addLabels(((Or) labelExpression).getExp1(), vertex, result);
+        addLabels(((Or) labelExpression).getExp2(), vertex, result);
+        break;
+      default:
+        throw new IllegalArgumentException(labelExpression.getExpType().toString());
+    }
+  }
+
+  private Set<String> getLabels(QueryVariable variable) {
+    Set<String> variableLabels = labels.get(variable);
+    if (variableLabels == null) {
+      // not declared by a graph pattern, for example a variable in ONE ROW PER VERTEX of a path of another graph
+      variableLabels = getAllLabels(variable.getVariableType() == VariableType.VERTEX);
+      labels.put(variable, variableLabels);
+    }
+    return variableLabels;
+  }
+
+  private void analyzeModifications(List<Modification> modifications) {
+    if (modifications == null) {
+      return;
+    }
+    for (Modification modification : modifications) {
+      switch (modification.getModificationType()) {
+        case INSERT: {
+          InsertClause insertClause = (InsertClause) modification;
+          GraphSchema outerGraphSchema = graphSchema;
+          if (insertClause.getGraphName() != null) {
+            graphSchema = getGraphSchema(insertClause.getGraphName());
+          }
+          // declare all new vertices and edges first, since properties of one may be set to properties of another
+          for (Insertion insertion : insertClause.getInsertions()) {
+            analyzeInsertion(insertion);
+          }
+          for (Insertion insertion : insertClause.getInsertions()) {
+            AbstractInsertion abstractInsertion = (AbstractInsertion) insertion;
+            QueryVariable variable = insertion instanceof VertexInsertion ? ((VertexInsertion) insertion).getVertex()
+                : ((EdgeInsertion) insertion).getEdge();
+            analyzeSetPropertyExpressions(variable, abstractInsertion.getProperties());
+          }
+          graphSchema = outerGraphSchema;
+          break;
+        }
+        case UPDATE:
+          for (Update update : ((UpdateClause) modification).getUpdates()) {
+            analyzeSetPropertyExpressions(update.getElement().getVariable(), update.getSetPropertyExpressions());
+          }
+          break;
+        case DELETE:
+          for (VarRef deletion : ((DeleteClause) modification).getDeletions()) {
+            QueryVariable variable = deletion.getVariable();
+            boolean vertex = variable.getVariableType() == VariableType.VERTEX;
+            writeSet.addLabels(vertex, getLabels(variable));
+            if (vertex) {
+              writeSet.addLabels(false, getAllLabels(false));
+            }
+          }
+          break;
+        default:
+          throw new IllegalArgumentException(modification.getModificationType().toString());
+      }
+    }
+  }
+
+  private void analyzeInsertion(Insertion insertion) {
+    boolean vertex = insertion instanceof VertexInsertion;
+    QueryVariable variable = vertex ? ((VertexInsertion) insertion).getVertex() : ((EdgeInsertion) insertion).getEdge();
+    Set<String> insertionLabels = new LinkedHashSet<>();
+    List<QueryExpression> labelExpressions = ((AbstractInsertion) insertion).getLabels();
+    if (labelExpressions != null) {
+      for (QueryExpression labelExpression : labelExpressions) {
+        insertionLabels.add(resolveLabel(vertex, ((ConstString) labelExpression).getValue()));
+      }
+    }
+    if (insertionLabels.isEmpty()) {
+      insertionLabels.add(null);
+    }
+    labels.put(variable, insertionLabels);
+    writeSet.addLabels(vertex, insertionLabels);
+  }
+
+  private void analyzeSetPropertyExpressions(QueryVariable variable,
+      List<SetPropertyExpression> setPropertyExpressions) {
+    if (setPropertyExpressions == null) {
+      return;
+    }
+    boolean vertex = variable.getVariableType() == VariableType.VERTEX;
+    Set<String> variableLabels = getLabels(variable);
+    for (SetPropertyExpression setPropertyExpression : setPropertyExpressions) {
+      String propertyName = setPropertyExpression.getPropertyAccess().getPropertyName();
+      for (String label : variableLabels) {
+        writeSet.addProperty(vertex, Collections.singleton(label), resolvePropertyName(vertex, label, propertyName));
+      }
+      analyzeExpression(setPropertyExpression.getValueExpression());
+    }
+  }
+
+  private void analyzeVariables(List<ExpAsVar> expAsVars) {
+    if (expAsVars != null) {
+      for (ExpAsVar expAsVar : expAsVars) {
+        analyzeExpression(expAsVar.getExp());
+      }
+    }
+  }
+
+  private void analyzeExpression(QueryExpression exp) {
+    if (exp != null) {
+      exp.accept(expressionVisitor);
+    }
+  }
+
+  private GraphSchema getGraphSchema(SchemaQualifiedName graphName) {
+    if (metadataProvider == null) {
+      return null;
+    }
+    return (graphName == null ? metadataProvider.getGraphSchema() : metadataProvider.getGraphSchema(graphName))
+        .orElse(null);
+  }
+
+  private List<? extends Label> getSchemaLabels(boolean vertex) {
+    if (graphSchema == null) {
+      return null;
+    }
+    return vertex ? graphSchema.getVertexLabels() : graphSchema.getEdgeLabels();
+  }
+
+  private Set<String> getAllLabels(boolean vertex) {
+    Set<String> result = new LinkedHashSet<>();
+    List<? extends Label> schemaLabels = getSchemaLabels(vertex);
+    if (schemaLabels == null) {
+      result.add(null);
+    } else {
+      for (Label label : schemaLabels) {
+        result.add(label.getLabel());
+      }
+    }
+    return result;
+  }
+
+  private String resolveLabel(boolean vertex, String label) {
+    Label schemaLabel = getSchemaLabel(vertex, label);
+    return schemaLabel == null ? label : schemaLabel.getLabel();
+  }
+
+  private Label getSchemaLabel(boolean vertex, String label) {
+    List<? extends Label> schemaLabels = getSchemaLabels(vertex);
+    if (schemaLabels == null || label == null) {
+      return null;
+    }
+    // first try to find an exact match and then an inexact match
+    for (Label schemaLabel : schemaLabels) {
+      if (schemaLabel.getLabel().equals(label)) {
+        return schemaLabel;
+      }
+    }
+    for (Label schemaLabel : schemaLabels) {
+      if (schemaLabel.getLabel().toUpperCase().equals(label)) {
+        return schemaLabel;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Resolves a property name against the properties of the label or, if the label does not have the property, against
+   * the properties of the other labels, such that a property is spelled the same for all labels of a variable.
+   */
+  private String resolvePropertyName(boolean vertex, String label, String propertyName) {
+    Label schemaLabel = getSchemaLabel(vertex, label);
+    String result = schemaLabel == null ? null : resolvePropertyName(schemaLabel, propertyName);
+    List<? extends Label> schemaLabels = getSchemaLabels(vertex);
+    if (result == null && schemaLabels != null) {
+      for (Label otherLabel : schemaLabels) {
+        result = resolvePropertyName(otherLabel, propertyName);
+        if (result != null) {
+          break;
+        }
+      }
+    }
+    return result == null ? propertyName : result;
+  }
+
+  private static String resolvePropertyName(Label schemaLabel, String propertyName) {
+    if (schemaLabel.getProperties() == null) {
+      return null;
+    }
+    // first try to find an exact match and then an inexact match
+    for (Property property : schemaLabel.getProperties()) {
+      if (property.getName().equals(propertyName)) {
+        return property.getName();
+      }
+    }
+    for (Property property : schemaLabel.getProperties()) {
+      if (property.getName().toUpperCase().equals(propertyName)) {
+        return property.getName();
+      }
+    }
+    return null;
+  }
+
+  private static boolean isVertexOrEdge(QueryVariable variable) {
+    return variable.getVariableType() == VariableType.VERTEX || variable.getVariableType() == VariableType.EDGE;
+  }
+}
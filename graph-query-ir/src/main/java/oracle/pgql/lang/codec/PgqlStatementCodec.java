@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.codec;
+
+import java.util.Arrays;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.PathFindingGoal;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression.ExtractField;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.StatementType;
+import oracle.pgql.lang.ir.modify.InsertionType;
+import oracle.pgql.lang.ir.modify.ModificationType;
+import oracle.pgql.lang.ir.unnest.RowsPerMatchType;
+
+/**
+ * Encodes PGQL statements into a compact binary form and decodes them again, such that parsed statements can be
+ * shipped between processes or cached outside of the heap without printing and re-parsing them. All statements are
+ * supported: {@link oracle.pgql.lang.ir.SelectQuery}, {@link oracle.pgql.lang.ir.modify.ModifyQuery} and the DDL
+ * statements of {@link oracle.pgql.lang.ddl.propertygraph}.
+ *
+ * An encoded statement starts with the magic bytes {@code PGQL} and the version of the format, followed by a table with
+ * every distinct string of the statement, e.g. identifiers and string literals, and then by the statement itself, in
+ * which strings are indices into the table. Objects that the statement references more than once, such as variables
+ * that are referenced from expressions, are written once and referenced by their index afterwards, so that the decoded
+ * statement shares objects in the same way as the encoded one.
+ *
+ * A decoded statement is equal to the encoded one. Statements are only decoded if they were encoded with the same
+ * version of the format; other statements have to be parsed again.
+ */
+public final class PgqlStatementCodec {
+
+  /**
+   * The version of the format, which is incremented whenever the format changes.
+   */
+  public static final int VERSION = 1;
+
+  static final byte[] MAGIC = { 'P', 'G', 'Q', 'L' };
+
+  /*
+   * The codes of enum constants in the format are their indices in the following arrays. Constants that are added to
+   * the enums have to be appended to the arrays, such that existing codes stay the same.
+   */
+
+  static final StatementType[] STATEMENT_TYPES = { StatementType.SELECT, StatementType.GRAPH_MODIFY,
+      StatementType.CREATE_PROPERTY_GRAPH, StatementType.DROP_PROPERTY_GRAPH, StatementType.CREATE_EXTERNAL_SCHEMA,
+      StatementType.DROP_EXTERNAL_SCHEMA };
+
+  static final ExpressionType[] EXPRESSION_TYPES = { ExpressionType.INTEGER, ExpressionType.DECIMAL,
+      ExpressionType.STRING, ExpressionType.BOOLEAN, ExpressionType.DATE, ExpressionType.TIME, ExpressionType.TIMESTAMP,
+      ExpressionType.TIME_WITH_TIMEZONE, ExpressionType.TIMESTAMP_WITH_TIMEZONE, ExpressionType.SUB, ExpressionType.ADD,
+      ExpressionType.MUL, ExpressionType.DIV, ExpressionType.MOD, ExpressionType.UMIN, ExpressionType.AND,
+      ExpressionType.OR, ExpressionType.NOT, ExpressionType.EQUAL, ExpressionType.NOT_EQUAL, ExpressionType.GREATER,
+      ExpressionType.GREATER_EQUAL, ExpressionType.LESS, ExpressionType.LESS_EQUAL, ExpressionType.CONCAT,
+      ExpressionType.AGGR_COUNT, ExpressionType.AGGR_MIN, ExpressionType.AGGR_MAX, ExpressionType.AGGR_SUM,
+      ExpressionType.AGGR_AVG, ExpressionType.AGGR_ARRAY_AGG, ExpressionType.AGGR_LISTAGG, ExpressionType.VARREF,
+      ExpressionType.BIND_VARIABLE, ExpressionType.STAR, ExpressionType.SCALAR_SUBQUERY, ExpressionType.PROP_ACCESS,
+      ExpressionType.CAST, ExpressionType.EXISTS, ExpressionType.FUNCTION_CALL, ExpressionType.EXTRACT_EXPRESSION,
+      ExpressionType.IN_EXPRESSION, ExpressionType.IN_VALUE_LIST, ExpressionType.IS_NULL, ExpressionType.IF_ELSE,
+      ExpressionType.SIMPLE_CASE, ExpressionType.SUBSTRING, ExpressionType.BETWEEN_PREDICATE };
+
+  static final VariableType[] VARIABLE_TYPES = { VariableType.VERTEX, VariableType.EDGE, VariableType.PATH,
+      VariableType.EXP_AS_VAR };
+
+  static final Direction[] DIRECTIONS = { Direction.OUTGOING, Direction.INCOMING, Direction.ANY };
+
+  static final PathFindingGoal[] PATH_FINDING_GOALS = { PathFindingGoal.ALL, PathFindingGoal.REACHES,
+      PathFindingGoal.SHORTEST, PathFindingGoal.CHEAPEST };
+
+  static final RowsPerMatchType[] ROWS_PER_MATCH_TYPES = { RowsPerMatchType.ONE_ROW_PER_MATCH,
+      RowsPerMatchType.ONE_ROW_PER_VERTEX, RowsPerMatchType.ONE_ROW_PER_EDGE };
+
+  static final ExtractField[] EXTRACT_FIELDS = { ExtractField.YEAR, ExtractField.MONTH, ExtractField.DAY,
+      ExtractField.HOUR, ExtractField.MINUTE, ExtractField.SECOND, ExtractField.TIMEZONE_HOUR,
+      ExtractField.TIMEZONE_MINUTE };
+
+  static final ModificationType[] MODIFICATION_TYPES = { ModificationType.INSERT, ModificationType.UPDATE,
+      ModificationType.DELETE };
+
+  static final InsertionType[] INSERTION_TYPES = { InsertionType.VERTEX_INSERTION, InsertionType.EDGE_INSERTION };
+
+  /*
+   * An object that may be referenced more than once, i.e. an expression, a variable, a common path expression or a
+   * vertex table, is preceded by a tag: NULL, a REFERENCE followed by the index of an object that was written before,
+   * or a DEFINITION (for expressions and variables the code of their type plus DEFINITION) followed by the object.
+   */
+
+  static final int NULL = 0;
+
+  static final int REFERENCE = 1;
+
+  static final int DEFINITION = 2;
+
+  private PgqlStatementCodec() {
+  }
+
+  /**
+   * @param statement
+   *          a statement
+   * @return the encoded statement
+   */
+  public static byte[] encode(PgqlStatement statement) {
+    return new StatementWriter().write(statement);
+  }
+
+  /**
+   * @param bytes
+   *          an encoded statement
+   * @return the decoded statement
+   * @throws PgqlException
+   *           if the bytes are not an encoded statement, or if the statement was encoded with another version of the
+   *           format
+   */
+  public static PgqlStatement decode(byte[] bytes) throws PgqlException {
+    return decode(bytes, 0, bytes.length);
+  }
+
+  /**
+   * @param bytes
+   *          an array that holds an encoded statement
+   * @param offset
+   *          the position of the encoded statement in the array
+   * @param length
+   *          the number of bytes of the encoded statement
+   * @return the decoded statement
+   * @throws PgqlException
+   *           if the bytes are not an encoded statement, or if the statement was encoded with another version of the
+   *           format
+   */
+  public static PgqlStatement decode(byte[] bytes, int offset, int length) throws PgqlException {
+    return new StatementReader(bytes, offset, length).read();
+  }
+
+  /**
+   * @return the codes of the constants of an enum, indexed by their ordinal, or -1 for constants without a code
+   */
+  static <E extends Enum<E>> int[] getCodes(E[] constants) {
+    int[] codes = new int[constants[0].getDeclaringClass().getEnumConstants().length];
+    Arrays.fill(codes, -1);
+    for (int i = 0; i < constants.length; i++) {
+      codes[constants[i].ordinal()] = i;
+    }
+    return codes;
+  }
+}
@@ -0,0 +1,907 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.codec;
+
+import static oracle.pgql.lang.codec.PgqlStatementCodec.DEFINITION;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.DIRECTIONS;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.EXPRESSION_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.EXTRACT_FIELDS;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.INSERTION_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.MAGIC;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.MODIFICATION_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.NULL;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.PATH_FINDING_GOALS;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.REFERENCE;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.ROWS_PER_MATCH_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.STATEMENT_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.VARIABLE_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.VERSION;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ddl.propertygraph.CreateExternalSchema;
+import oracle.pgql.lang.ddl.propertygraph.CreatePropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.DropExternalSchema;
+import oracle.pgql.lang.ddl.propertygraph.DropPropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.EdgeTable;
+import oracle.pgql.lang.ddl.propertygraph.Key;
+import oracle.pgql.lang.ddl.propertygraph.Label;
+import oracle.pgql.lang.ddl.propertygraph.Property;
+import oracle.pgql.lang.ddl.propertygraph.VertexTable;
+import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.GroupBy;
+import oracle.pgql.lang.ir.OrderBy;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.Projection;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrArrayAgg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrAvg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrCount;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMax;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMin;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrSum;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Add;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Div;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mod;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mul;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Sub;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.UMin;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.ConcatExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDate;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTime;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimeWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestamp;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestampWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.And;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.GreaterEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Less;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.LessEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.NotEqual;
+import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.Star;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerMatch;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+
+/**
+ * Reads a statement in the format of {@link PgqlStatementCodec}, in the same order in which {@link StatementWriter}
+ * writes it.
+ */
+final class StatementReader {
+
+  private final byte[] bytes;
+
+  private int position;
+
+  private final int end;
+
+  private String[] strings;
+
+  /**
+   * The objects that were read, in the order in which their definitions were started. An object whose definition is
+   * started is already added, as null, such that the indices match those of the writer; variables are added as soon as
+   * they are created, so that they can be referenced from within their own definition.
+   */
+  private final List<Object> objects = new ArrayList<>();
+
+  StatementReader(byte[] bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.position = offset;
+    this.end = offset + length;
+  }
+
+  PgqlStatement read() throws PgqlException {
+    for (byte b : MAGIC) {
+      if (position >= end || bytes[position++] != b) {
+        throw new PgqlException("Not an encoded PGQL statement");
+      }
+    }
+    try {
+      long version = readUnsigned();
+      if (version != VERSION) {
+        throw new PgqlException("Statement was encoded with version " + version + " of the format but version "
+            + VERSION + " is supported");
+      }
+      strings = new String[readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        int length = readInt();
+        checkAvailable(length);
+        strings[i] = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+      }
+      PgqlStatement statement = readStatement();
+      if (position != end) {
+        throw new IllegalStateException((end - position) + " bytes remain after the statement");
+      }
+      return statement;
+    } catch (RuntimeException e) {
+      throw new PgqlException("Malformed encoded PGQL statement", e);
+    }
+  }
+
+  private PgqlStatement readStatement() {
+    switch (STATEMENT_TYPES[readInt()]) {
+      case SELECT:
+        return readSelectQuery();
+      case GRAPH_MODIFY: {
+        ModifyQuery modifyQuery = new ModifyQuery(null, null, null, null, null, null, null, null, null);
+        readGraphQuery(modifyQuery);
+        modifyQuery.setModifications(readModifications());
+        return modifyQuery;
+      }
+      case CREATE_PROPERTY_GRAPH: {
+        SchemaQualifiedName graphName = readSchemaQualifiedName();
+        List<VertexTable> vertexTables = null;
+        int numVertexTables = readSize();
+        if (numVertexTables != -1) {
+          vertexTables = new ArrayList<>(numVertexTables);
+          for (int i = 0; i < numVertexTables; i++) {
+            vertexTables.add(readVertexTable());
+          }
+        }
+        List<EdgeTable> edgeTables = null;
+        int numEdgeTables = readSize();
+        if (numEdgeTables != -1) {
+          edgeTables = new ArrayList<>(numEdgeTables);
+          for (int i = 0; i < numEdgeTables; i++) {
+            edgeTables.add(readEdgeTable());
+          }
+        }
+        CreatePropertyGraph createPropertyGraph = new CreatePropertyGraph(graphName, vertexTables, edgeTables);
+        createPropertyGraph.setOptions(readStrings());
+        return createPropertyGraph;
+      }
+      case DROP_PROPERTY_GRAPH:
+        return new DropPropertyGraph(readSchemaQualifiedName());
+      case CREATE_EXTERNAL_SCHEMA: {
+        String localSchemaName = readString();
+        String url = readString();
+        String userName = readString();
+        String keystoreAlias = readString();
+        String dataSourceName = readString();
+        String remoteSchemaName = readString();
+        CreateExternalSchema createExternalSchema = new CreateExternalSchema(localSchemaName, url, userName,
+            keystoreAlias, remoteSchemaName);
+        createExternalSchema.setDataSourceName(dataSourceName);
+        return createExternalSchema;
+      }
+      case DROP_EXTERNAL_SCHEMA:
+        return new DropExternalSchema(readString());
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private SelectQuery readSelectQuery() {
+    SelectQuery selectQuery = new SelectQuery(null, null, (SchemaQualifiedName) null, null, null, null, null, null,
+        null);
+    readGraphQuery(selectQuery);
+    if (readBoolean()) {
+      boolean distinct = readBoolean();
+      selectQuery.setProjection(new Projection(distinct, readVariables()));
+    }
+    return selectQuery;
+  }
+
+  private void readGraphQuery(GraphQuery graphQuery) {
+    List<CommonPathExpression> commonPathExpressions = null;
+    int numCommonPathExpressions = readSize();
+    if (numCommonPathExpressions != -1) {
+      commonPathExpressions = new ArrayList<>(numCommonPathExpressions);
+      for (int i = 0; i < numCommonPathExpressions; i++) {
+        commonPathExpressions.add(readCommonPathExpression());
+      }
+    }
+    graphQuery.setCommonPathExpressions(commonPathExpressions);
+    graphQuery.setGraphName(readSchemaQualifiedName());
+    if (readBoolean()) {
+      LinkedHashSet<QueryVertex> vertices = readVariableSet();
+      LinkedHashSet<VertexPairConnection> connections = readVariableSet();
+      LinkedHashSet<QueryExpression> constraints = readExpressionSet();
+      graphQuery.setGraphPattern(new GraphPattern(vertices, connections, constraints));
+    }
+    if (readBoolean()) {
+      graphQuery.setGroupBy(new GroupBy(readVariables()));
+    }
+    graphQuery.setHaving(readExpression());
+    if (readBoolean()) {
+      List<OrderByElem> elements = null;
+      int numElements = readSize();
+      if (numElements != -1) {
+        elements = new ArrayList<>(numElements);
+        for (int i = 0; i < numElements; i++) {
+          QueryExpression exp = readExpression();
+          elements.add(new OrderByElem(exp, readBoolean()));
+        }
+      }
+      graphQuery.setOrderBy(new OrderBy(elements));
+    }
+    graphQuery.setLimit(readExpression());
+    graphQuery.setOffset(readExpression());
+  }
+
+  private CommonPathExpression readCommonPathExpression() {
+    int tag = readInt();
+    if (tag != DEFINITION) {
+      return (CommonPathExpression) readReference(tag);
+    }
+    int index = objects.size();
+    objects.add(null);
+    String name = readString();
+    List<QueryVertex> vertices = readVariables();
+    List<VertexPairConnection> connections = readVariables();
+    LinkedHashSet<QueryExpression> constraints = readExpressionSet();
+    CommonPathExpression commonPathExpression = new CommonPathExpression(name, vertices, connections, constraints,
+        readExpression());
+    objects.set(index, commonPathExpression);
+    return commonPathExpression;
+  }
+
+  private List<Modification> readModifications() {
+    int numModifications = readSize();
+    if (numModifications == -1) {
+      return null;
+    }
+    List<Modification> modifications = new ArrayList<>(numModifications);
+    for (int i = 0; i < numModifications; i++) {
+      switch (MODIFICATION_TYPES[readInt()]) {
+        case INSERT: {
+          SchemaQualifiedName graphName = readSchemaQualifiedName();
+          List<Insertion> insertions = null;
+          int numInsertions = readSize();
+          if (numInsertions != -1) {
+            insertions = new ArrayList<>(numInsertions);
+            for (int j = 0; j < numInsertions; j++) {
+              switch (INSERTION_TYPES[readInt()]) {
+                case VERTEX_INSERTION: {
+                  QueryVertex vertex = (QueryVertex) readVariable();
+                  List<QueryExpression> labels = readExpressions();
+                  insertions.add(new VertexInsertion(vertex, labels, readSetPropertyExpressions()));
+                  break;
+                }
+                case EDGE_INSERTION: {
+                  QueryEdge edge = (QueryEdge) readVariable();
+                  List<QueryExpression> labels = readExpressions();
+                  insertions.add(new EdgeInsertion(edge, labels, readSetPropertyExpressions()));
+                  break;
+                }
+                default:
+                  throw new IllegalStateException();
+              }
+            }
+          }
+          modifications.add(new InsertClause(graphName, insertions));
+          break;
+        }
+        case UPDATE: {
+          List<Update> updates = null;
+          int numUpdates = readSize();
+          if (numUpdates != -1) {
+            updates = new ArrayList<>(numUpdates);
+            for (int j = 0; j < numUpdates; j++) {
+              VarRef element = (VarRef) readExpression();
+              updates.add(new Update(element, readSetPropertyExpressions()));
+            }
+          }
+          modifications.add(new UpdateClause(updates));
+          break;
+        }
+        case DELETE:
+          modifications.add(new DeleteClause(readExpressions()));
+          break;
+        default:
+          throw new IllegalStateException();
+      }
+    }
+    return modifications;
+  }
+
+  private List<SetPropertyExpression> readSetPropertyExpressions() {
+    int numSetPropertyExpressions = readSize();
+    if (numSetPropertyExpressions == -1) {
+      return null;
+    }
+    List<SetPropertyExpression> setPropertyExpressions = new ArrayList<>(numSetPropertyExpressions);
+    for (int i = 0; i < numSetPropertyExpressions; i++) {
+      PropertyAccess propertyAccess = (PropertyAccess) readExpression();
+      setPropertyExpressions.add(new SetPropertyExpression(propertyAccess, readExpression()));
+    }
+    return setPropertyExpressions;
+  }
+
+  private VertexTable readVertexTable() {
+    int tag = readInt();
+    if (tag != DEFINITION) {
+      return (VertexTable) readReference(tag);
+    }
+    int index = objects.size();
+    objects.add(null);
+    SchemaQualifiedName tableName = readSchemaQualifiedName();
+    String tableAlias = readString();
+    Key key = readKey();
+    VertexTable vertexTable = new VertexTable(tableName, tableAlias, key, readLabels());
+    objects.set(index, vertexTable);
+    return vertexTable;
+  }
+
+  private EdgeTable readEdgeTable() {
+    SchemaQualifiedName tableName = readSchemaQualifiedName();
+    String tableAlias = readString();
+    Key key = readKey();
+    List<Label> labels = readLabels();
+    VertexTable sourceVertexTable = readVertexTable();
+    Key edgeSourceKey = readKey();
+    Key sourceVertexKey = readKey();
+    VertexTable destinationVertexTable = readVertexTable();
+    Key edgeDestinationKey = readKey();
+    Key destinationVertexKey = readKey();
+    return new EdgeTable(tableName, tableAlias, key, sourceVertexTable, edgeSourceKey, sourceVertexKey,
+        destinationVertexTable, edgeDestinationKey, destinationVertexKey, labels);
+  }
+
+  private List<Label> readLabels() {
+    int numLabels = readSize();
+    if (numLabels == -1) {
+      return null;
+    }
+    List<Label> labels = new ArrayList<>(numLabels);
+    for (int i = 0; i < numLabels; i++) {
+      String name = readString();
+      boolean propertiesAreAllColumns = readBoolean();
+      List<String> propertiesAreAllColumnsExcept = readStrings();
+      List<Property> properties = null;
+      int numProperties = readSize();
+      if (numProperties != -1) {
+        properties = new ArrayList<>(numProperties);
+        for (int j = 0; j < numProperties; j++) {
+          QueryExpression valueExpression = readExpression();
+          properties.add(new Property(valueExpression, readString()));
+        }
+      }
+      Label label = new Label(name, properties);
+      label.setPropertiesAreAllColumns(propertiesAreAllColumns);
+      label.setPropertiesAreAllColumnsExcept(propertiesAreAllColumnsExcept);
+      labels.add(label);
+    }
+    return labels;
+  }
+
+  private Key readKey() {
+    return readBoolean() ? new Key(readStrings()) : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends QueryVariable> List<T> readVariables() {
+    int numVariables = readSize();
+    if (numVariables == -1) {
+      return null;
+    }
+    List<T> variables = new ArrayList<>(numVariables);
+    for (int i = 0; i < numVariables; i++) {
+      variables.add((T) readVariable());
+    }
+    return variables;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends QueryVariable> LinkedHashSet<T> readVariableSet() {
+    int numVariables = readSize();
+    if (numVariables == -1) {
+      return null;
+    }
+    LinkedHashSet<T> variables = new LinkedHashSet<>();
+    for (int i = 0; i < numVariables; i++) {
+      variables.add((T) readVariable());
+    }
+    return variables;
+  }
+
+  private QueryVariable readVariable() {
+    int tag = readInt();
+    if (tag < DEFINITION) {
+      return (QueryVariable) readReference(tag);
+    }
+    VariableType variableType = VARIABLE_TYPES[tag - DEFINITION];
+    String name = readString();
+    boolean anonymous = readBoolean();
+    switch (variableType) {
+      case VERTEX: {
+        QueryVertex vertex = new QueryVertex(name, anonymous);
+        objects.add(vertex);
+        vertex.setConstraints(readExpressionSet());
+        return vertex;
+      }
+      case EDGE: {
+        QueryEdge edge = new QueryEdge(null, null, name, anonymous, null);
+        objects.add(edge);
+        readConnection(edge);
+        edge.setConstraints(readExpressionSet());
+        return edge;
+      }
+      case PATH: {
+        QueryPath path = new QueryPath(null, null, name, null, anonymous, 0, 0, null, 0, false, null, null);
+        objects.add(path);
+        readConnection(path);
+        path.setCommonPathExpression(readCommonPathExpression());
+        path.setMinHops(readSigned());
+        path.setMaxHops(readSigned());
+        path.setPathFindingGoal(PATH_FINDING_GOALS[readInt()]);
+        path.setKValue((int) readSigned());
+        path.setWithTies(readBoolean());
+        path.setRowsPerMatch(readRowsPerMatch());
+        return path;
+      }
+      case EXP_AS_VAR: {
+        ExpAsVar expAsVar = new ExpAsVar(null, name, anonymous);
+        objects.add(expAsVar);
+        expAsVar.setNameOriginText(readString());
+        expAsVar.setExp(readExpression());
+        return expAsVar;
+      }
+      default:
+        throw new IllegalStateException(variableType.toString());
+    }
+  }
+
+  private void readConnection(VertexPairConnection connection) {
+    connection.setDirection(readDirection());
+    connection.setSrc((QueryVertex) readVariable());
+    connection.setDst((QueryVertex) readVariable());
+  }
+
+  private RowsPerMatch readRowsPerMatch() {
+    if (!readBoolean()) {
+      return null;
+    }
+    switch (ROWS_PER_MATCH_TYPES[readInt()]) {
+      case ONE_ROW_PER_MATCH:
+        return new OneRowPerMatch();
+      case ONE_ROW_PER_VERTEX:
+        return new OneRowPerVertex((QueryVertex) readVariable());
+      case ONE_ROW_PER_EDGE:
+        return new OneRowPerEdge((QueryEdge) readVariable());
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends QueryExpression> List<T> readExpressions() {
+    int numExpressions = readSize();
+    if (numExpressions == -1) {
+      return null;
+    }
+    List<T> expressions = new ArrayList<>(numExpressions);
+    for (int i = 0; i < numExpressions; i++) {
+      expressions.add((T) readExpression());
+    }
+    return expressions;
+  }
+
+  private LinkedHashSet<QueryExpression> readExpressionSet() {
+    int numExpressions = readSize();
+    if (numExpressions == -1) {
+      return null;
+    }
+    LinkedHashSet<QueryExpression> expressions = new LinkedHashSet<>();
+    for (int i = 0; i < numExpressions; i++) {
+      expressions.add(readExpression());
+    }
+    return expressions;
+  }
+
+  private QueryExpression readExpression() {
+    int tag = readInt();
+    if (tag < DEFINITION) {
+      return (QueryExpression) readReference(tag);
+    }
+    ExpressionType expType = EXPRESSION_TYPES[tag - DEFINITION];
+    int index = objects.size();
+    objects.add(null);
+    QueryExpression exp;
+    switch (expType) {
+      case INTEGER:
+        exp = new ConstInteger(readSigned());
+        break;
+      case DECIMAL:
+        exp = new ConstDecimal(readDouble());
+        break;
+      case STRING:
+        exp = new ConstString(readString());
+        break;
+      case BOOLEAN:
+        exp = new ConstBoolean(readBoolean());
+        break;
+      case DATE:
+        exp = new ConstDate(readDate());
+        break;
+      case TIME:
+        exp = new ConstTime(readTime());
+        break;
+      case TIMESTAMP:
+        exp = new ConstTimestamp(readTimestamp());
+        break;
+      case TIME_WITH_TIMEZONE: {
+        LocalTime time = readTime();
+        exp = new ConstTimeWithTimezone(OffsetTime.of(time, readOffset()));
+        break;
+      }
+      case TIMESTAMP_WITH_TIMEZONE: {
+        LocalDateTime timestamp = readTimestamp();
+        exp = new ConstTimestampWithTimezone(OffsetDateTime.of(timestamp, readOffset()));
+        break;
+      }
+      case SUB:
+        exp = new Sub(readExpression(), readExpression());
+        break;
+      case ADD:
+        exp = new Add(readExpression(), readExpression());
+        break;
+      case MUL:
+        exp = new Mul(readExpression(), readExpression());
+        break;
+      case DIV:
+        exp = new Div(readExpression(), readExpression());
+        break;
+      case MOD:
+        exp = new Mod(readExpression(), readExpression());
+        break;
+      case UMIN:
+        exp = new UMin(readExpression());
+        break;
+      case AND:
+        exp = new And(readExpression(), readExpression());
+        break;
+      case OR:
+        exp = new Or(readExpression(), readExpression());
+        break;
+      case NOT:
+        exp = new Not(readExpression());
+        break;
+      case EQUAL:
+        exp = new Equal(readExpression(), readExpression());
+        break;
+      case NOT_EQUAL:
+        exp = new NotEqual(readExpression(), readExpression());
+        break;
+      case GREATER:
+        exp = new Greater(readExpression(), readExpression());
+        break;
+      case GREATER_EQUAL:
+        exp = new GreaterEqual(readExpression(), readExpression());
+        break;
+      case LESS:
+        exp = new Less(readExpression(), readExpression());
+        break;
+      case LESS_EQUAL:
+        exp = new LessEqual(readExpression(), readExpression());
+        break;
+      case CONCAT:
+        exp = new ConcatExpression(readExpression(), readExpression());
+        break;
+      case AGGR_COUNT:
+        exp = new AggrCount(readBoolean(), readExpression());
+        break;
+      case AGGR_MIN:
+        exp = new AggrMin(readBoolean(), readExpression());
+        break;
+      case AGGR_MAX:
+        exp = new AggrMax(readBoolean(), readExpression());
+        break;
+      case AGGR_SUM:
+        exp = new AggrSum(readBoolean(), readExpression());
+        break;
+      case AGGR_AVG:
+        exp = new AggrAvg(readBoolean(), readExpression());
+        break;
+      case AGGR_ARRAY_AGG:
+        exp = new AggrArrayAgg(readBoolean(), readExpression());
+        break;
+      case AGGR_LISTAGG:
+        exp = new AggrListagg(readBoolean(), readExpression(), readString());
+        break;
+      case VARREF:
+        exp = new VarRef(readVariable());
+        break;
+      case BIND_VARIABLE:
+        exp = new BindVariable((int) readSigned());
+        break;
+      case STAR:
+        exp = new Star();
+        break;
+      case SCALAR_SUBQUERY:
+        exp = new ScalarSubquery(readSelectQuery());
+        break;
+      case EXISTS:
+        exp = new Exists(readSelectQuery());
+        break;
+      case PROP_ACCESS:
+        exp = new PropertyAccess(readVariable(), readString());
+        break;
+      case CAST:
+        exp = new Cast(readExpression(), readString());
+        break;
+      case FUNCTION_CALL: {
+        String schemaName = readString();
+        String packageName = readString();
+        String functionName = readString();
+        exp = new FunctionCall(schemaName, packageName, functionName, readExpressions());
+        break;
+      }
+      case EXTRACT_EXPRESSION:
+        exp = new ExtractExpression(EXTRACT_FIELDS[readInt()], readExpression());
+        break;
+      case IN_EXPRESSION:
+        exp = new InPredicate(readExpression(), readExpression());
+        break;
+      case IN_VALUE_LIST:
+        exp = readInValueList();
+        break;
+      case IS_NULL:
+        exp = new IsNull(readExpression());
+        break;
+      case IF_ELSE:
+        exp = new IfElse(readExpression(), readExpression(), readExpression());
+        break;
+      case SIMPLE_CASE: {
+        QueryExpression caseOperand = readExpression();
+        List<WhenThenExpression> whenThenExps = null;
+        int numWhenThenExps = readSize();
+        if (numWhenThenExps != -1) {
+          whenThenExps = new ArrayList<>(numWhenThenExps);
+          for (int i = 0; i < numWhenThenExps; i++) {
+            whenThenExps.add(new WhenThenExpression(readExpression(), readExpression()));
+          }
+        }
+        QueryExpression elseExp = readExpression();
+        exp = new SimpleCase(caseOperand, whenThenExps, elseExp, (IfElse) readExpression());
+        break;
+      }
+      case SUBSTRING:
+        exp = new SubstringExpression(readExpression(), readExpression(), readExpression());
+        break;
+      case BETWEEN_PREDICATE:
+        exp = new BetweenPredicate(readExpression(), readExpression(), readExpression());
+        break;
+      default:
+        throw new IllegalStateException(expType.toString());
+    }
+    objects.set(index, exp);
+    return exp;
+  }
+
+  private InValueList readInValueList() {
+    ExpressionType elementType = EXPRESSION_TYPES[readInt()];
+    int size = readInt();
+    switch (elementType) {
+      case INTEGER: {
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readSigned();
+        }
+        return new InValueList(values);
+      }
+      case DECIMAL: {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readDouble();
+        }
+        return new InValueList(values);
+      }
+      case BOOLEAN: {
+        boolean[] values = new boolean[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readBoolean();
+        }
+        return new InValueList(values);
+      }
+      case STRING: {
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readString();
+        }
+        return new InValueList(values);
+      }
+      case DATE: {
+        LocalDate[] values = new LocalDate[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readDate();
+        }
+        return new InValueList(values);
+      }
+      case TIME: {
+        LocalTime[] values = new LocalTime[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readTime();
+        }
+        return new InValueList(values);
+      }
+      case TIMESTAMP: {
+        LocalDateTime[] values = new LocalDateTime[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = readTimestamp();
+        }
+        return new InValueList(values);
+      }
+      default:
+        throw new IllegalStateException(elementType.toString());
+    }
+  }
+
+  private LocalDate readDate() {
+    return LocalDate.ofEpochDay(readSigned());
+  }
+
+  private LocalTime readTime() {
+    return LocalTime.ofNanoOfDay(readUnsigned());
+  }
+
+  private LocalDateTime readTimestamp() {
+    LocalDate date = readDate();
+    return LocalDateTime.of(date, readTime());
+  }
+
+  private ZoneOffset readOffset() {
+    return ZoneOffset.ofTotalSeconds((int) readSigned());
+  }
+
+  private SchemaQualifiedName readSchemaQualifiedName() {
+    if (!readBoolean()) {
+      return null;
+    }
+    String schemaName = readString();
+    return new SchemaQualifiedName(schemaName, readString());
+  }
+
+  /**
+   * @return the object with the index that follows the tag, or null if the tag is NULL
+   */
+  private Object readReference(int tag) {
+    switch (tag) {
+      case NULL:
+        return null;
+      case REFERENCE:
+        return objects.get(readInt());
+      default:
+        throw new IllegalStateException("Unexpected tag " + tag);
+    }
+  }
+
+  private List<String> readStrings() {
+    int numStrings = readSize();
+    if (numStrings == -1) {
+      return null;
+    }
+    List<String> values = new ArrayList<>(numStrings);
+    for (int i = 0; i < numStrings; i++) {
+      values.add(readString());
+    }
+    return values;
+  }
+
+  private String readString() {
+    int index = readInt();
+    return index == 0 ? null : strings[index - 1];
+  }
+
+  /**
+   * @return the size of a collection, or -1 if the collection is null
+   */
+  private int readSize() {
+    return readInt() - 1;
+  }
+
+  /**
+   * @return the direction, or null for the edge of ONE ROW PER EDGE
+   */
+  private Direction readDirection() {
+    int code = readInt();
+    return code == 0 ? null : DIRECTIONS[code - 1];
+  }
+
+  private boolean readBoolean() {
+    checkAvailable(1);
+    return bytes[position++] != 0;
+  }
+
+  private double readDouble() {
+    checkAvailable(8);
+    long bits = 0;
+    for (int i = 0; i < 8; i++) {
+      bits |= (bytes[position++] & 0xFFL) << (8 * i);
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
+  private long readSigned() {
+    long value = readUnsigned();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private int readInt() {
+    long value = readUnsigned();
+    if (value > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Number out of range: " + value);
+    }
+    return (int) value;
+  }
+
+  private long readUnsigned() {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      checkAvailable(1);
+      byte b = bytes[position++];
+      value |= (b & 0x7FL) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed number");
+  }
+
+  private void checkAvailable(int numBytes) {
+    if (numBytes < 0 || end - position < numBytes) {
+      throw new IllegalStateException("Unexpected end of encoded statement");
+    }
+  }
+}
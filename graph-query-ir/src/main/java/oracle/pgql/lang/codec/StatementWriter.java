@@ -0,0 +1,805 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.codec;
+
+import static oracle.pgql.lang.codec.PgqlStatementCodec.DEFINITION;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.DIRECTIONS;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.EXPRESSION_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.EXTRACT_FIELDS;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.INSERTION_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.MAGIC;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.MODIFICATION_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.NULL;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.PATH_FINDING_GOALS;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.REFERENCE;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.ROWS_PER_MATCH_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.STATEMENT_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.VARIABLE_TYPES;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.VERSION;
+import static oracle.pgql.lang.codec.PgqlStatementCodec.getCodes;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import oracle.pgql.lang.ddl.propertygraph.CreateExternalSchema;
+import oracle.pgql.lang.ddl.propertygraph.CreatePropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.DropExternalSchema;
+import oracle.pgql.lang.ddl.propertygraph.DropPropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.EdgeTable;
+import oracle.pgql.lang.ddl.propertygraph.ElementTable;
+import oracle.pgql.lang.ddl.propertygraph.Key;
+import oracle.pgql.lang.ddl.propertygraph.Label;
+import oracle.pgql.lang.ddl.propertygraph.Property;
+import oracle.pgql.lang.ddl.propertygraph.VertexTable;
+import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDate;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTime;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimeWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestamp;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestampWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+
+/**
+ * Writes a statement in the format of {@link PgqlStatementCodec}. The statement is written before the string table,
+ * since the strings are only known once the statement is written, and the two are put together at the end.
+ */
+final class StatementWriter {
+
+  private static final int[] STATEMENT_TYPE_CODES = getCodes(STATEMENT_TYPES);
+
+  private static final int[] EXPRESSION_TYPE_CODES = getCodes(EXPRESSION_TYPES);
+
+  private static final int[] VARIABLE_TYPE_CODES = getCodes(VARIABLE_TYPES);
+
+  private static final int[] DIRECTION_CODES = getCodes(DIRECTIONS);
+
+  private static final int[] PATH_FINDING_GOAL_CODES = getCodes(PATH_FINDING_GOALS);
+
+  private static final int[] ROWS_PER_MATCH_TYPE_CODES = getCodes(ROWS_PER_MATCH_TYPES);
+
+  private static final int[] EXTRACT_FIELD_CODES = getCodes(EXTRACT_FIELDS);
+
+  private static final int[] MODIFICATION_TYPE_CODES = getCodes(MODIFICATION_TYPES);
+
+  private static final int[] INSERTION_TYPE_CODES = getCodes(INSERTION_TYPES);
+
+  private byte[] buffer = new byte[256];
+
+  private int position;
+
+  /**
+   * The indices of the strings in the string table.
+   */
+  private final Map<String, Integer> stringIndices = new HashMap<>();
+
+  private final List<String> strings = new ArrayList<>();
+
+  /**
+   * The indices of the objects that were written, in the order in which their definitions were started.
+   */
+  private final Map<Object, Integer> objectIndices = new IdentityHashMap<>();
+
+  byte[] write(PgqlStatement statement) {
+    writeStatement(statement);
+
+    byte[] body = buffer;
+    int bodyLength = position;
+    buffer = new byte[bodyLength + 64];
+    position = 0;
+    for (byte b : MAGIC) {
+      writeByte(b);
+    }
+    writeUnsigned(VERSION);
+    writeUnsigned(strings.size());
+    for (String string : strings) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      writeUnsigned(bytes.length);
+      writeBytes(bytes, bytes.length);
+    }
+    writeBytes(body, bodyLength);
+    return Arrays.copyOf(buffer, position);
+  }
+
+  private void writeStatement(PgqlStatement statement) {
+    writeCode(STATEMENT_TYPE_CODES, statement.getStatementType());
+    switch (statement.getStatementType()) {
+      case SELECT:
+        writeSelectQuery((SelectQuery) statement);
+        break;
+      case GRAPH_MODIFY: {
+        ModifyQuery modifyQuery = (ModifyQuery) statement;
+        writeGraphQuery(modifyQuery);
+        writeModifications(modifyQuery.getModifications());
+        break;
+      }
+      case CREATE_PROPERTY_GRAPH: {
+        CreatePropertyGraph createPropertyGraph = (CreatePropertyGraph) statement;
+        writeSchemaQualifiedName(createPropertyGraph.getGraphName());
+        List<VertexTable> vertexTables = createPropertyGraph.getVertexTables();
+        writeSize(vertexTables);
+        if (vertexTables != null) {
+          for (VertexTable vertexTable : vertexTables) {
+            writeVertexTable(vertexTable);
+          }
+        }
+        List<EdgeTable> edgeTables = createPropertyGraph.getEdgeTables();
+        writeSize(edgeTables);
+        if (edgeTables != null) {
+          for (EdgeTable edgeTable : edgeTables) {
+            writeEdgeTable(edgeTable);
+          }
+        }
+        writeStrings(createPropertyGraph.getOptions());
+        break;
+      }
+      case DROP_PROPERTY_GRAPH:
+        writeSchemaQualifiedName(((DropPropertyGraph) statement).getGraphName());
+        break;
+      case CREATE_EXTERNAL_SCHEMA: {
+        CreateExternalSchema createExternalSchema = (CreateExternalSchema) statement;
+        writeString(createExternalSchema.getLocalSchemaName());
+        writeString(createExternalSchema.getUrl());
+        writeString(createExternalSchema.getUserName());
+        writeString(createExternalSchema.getKeystoreAlias());
+        writeString(createExternalSchema.getDataSourceName());
+        writeString(createExternalSchema.getRemoteSchemaName());
+        break;
+      }
+      case DROP_EXTERNAL_SCHEMA:
+        writeString(((DropExternalSchema) statement).getSchemaName());
+        break;
+      default:
+        throw new IllegalArgumentException(statement.getStatementType().toString());
+    }
+  }
+
+  private void writeSelectQuery(SelectQuery selectQuery) {
+    writeGraphQuery(selectQuery);
+    writeBoolean(selectQuery.getProjection() != null);
+    if (selectQuery.getProjection() != null) {
+      writeBoolean(selectQuery.getProjection().isDistinct());
+      writeVariables(selectQuery.getProjection().getElements());
+    }
+  }
+
+  private void writeGraphQuery(GraphQuery graphQuery) {
+    List<CommonPathExpression> commonPathExpressions = graphQuery.getCommonPathExpressions();
+    writeSize(commonPathExpressions);
+    if (commonPathExpressions != null) {
+      for (CommonPathExpression commonPathExpression : commonPathExpressions) {
+        writeCommonPathExpression(commonPathExpression);
+      }
+    }
+    writeSchemaQualifiedName(graphQuery.getGraphName());
+    GraphPattern graphPattern = graphQuery.getGraphPattern();
+    writeBoolean(graphPattern != null);
+    if (graphPattern != null) {
+      writeVariables(graphPattern.getVertices());
+      writeVariables(graphPattern.getConnections());
+      writeExpressions(graphPattern.getConstraints());
+    }
+    writeBoolean(graphQuery.getGroupBy() != null);
+    if (graphQuery.getGroupBy() != null) {
+      writeVariables(graphQuery.getGroupBy().getElements());
+    }
+    writeExpression(graphQuery.getHaving());
+    writeBoolean(graphQuery.getOrderBy() != null);
+    if (graphQuery.getOrderBy() != null) {
+      List<OrderByElem> elements = graphQuery.getOrderBy().getElements();
+      writeSize(elements);
+      if (elements != null) {
+        for (OrderByElem element : elements) {
+          writeExpression(element.getExp());
+          writeBoolean(element.isAscending());
+        }
+      }
+    }
+    writeExpression(graphQuery.getLimit());
+    writeExpression(graphQuery.getOffset());
+  }
+
+  private void writeCommonPathExpression(CommonPathExpression commonPathExpression) {
+    if (writeReference(commonPathExpression)) {
+      return;
+    }
+    writeUnsigned(DEFINITION);
+    writeString(commonPathExpression.getName());
+    writeVariables(commonPathExpression.getVertices());
+    writeVariables(commonPathExpression.getConnections());
+    writeExpressions(commonPathExpression.getConstraints());
+    writeExpression(commonPathExpression.getCost());
+  }
+
+  private void writeModifications(List<Modification> modifications) {
+    writeSize(modifications);
+    if (modifications == null) {
+      return;
+    }
+    for (Modification modification : modifications) {
+      writeCode(MODIFICATION_TYPE_CODES, modification.getModificationType());
+      switch (modification.getModificationType()) {
+        case INSERT: {
+          InsertClause insertClause = (InsertClause) modification;
+          writeSchemaQualifiedName(insertClause.getGraphName());
+          List<Insertion> insertions = insertClause.getInsertions();
+          writeSize(insertions);
+          if (insertions != null) {
+            for (Insertion insertion : insertions) {
+              writeCode(INSERTION_TYPE_CODES, insertion.getInsertionType());
+              switch (insertion.getInsertionType()) {
+                case VERTEX_INSERTION:
+                  writeVariable(((VertexInsertion) insertion).getVertex());
+                  break;
+                case EDGE_INSERTION:
+                  writeVariable(((EdgeInsertion) insertion).getEdge());
+                  break;
+                default:
+                  throw new IllegalArgumentException(insertion.getInsertionType().toString());
+              }
+              writeExpressions(((AbstractInsertion) insertion).getLabels());
+              writeSetPropertyExpressions(((AbstractInsertion) insertion).getProperties());
+            }
+          }
+          break;
+        }
+        case UPDATE: {
+          List<Update> updates = ((UpdateClause) modification).getUpdates();
+          writeSize(updates);
+          if (updates != null) {
+            for (Update update : updates) {
+              writeExpression(update.getElement());
+              writeSetPropertyExpressions(update.getSetPropertyExpressions());
+            }
+          }
+          break;
+        }
+        case DELETE:
+          writeExpressions(((DeleteClause) modification).getDeletions());
+          break;
+        default:
+          throw new IllegalArgumentException(modification.getModificationType().toString());
+      }
+    }
+  }
+
+  private void writeSetPropertyExpressions(List<SetPropertyExpression> setPropertyExpressions) {
+    writeSize(setPropertyExpressions);
+    if (setPropertyExpressions != null) {
+      for (SetPropertyExpression setPropertyExpression : setPropertyExpressions) {
+        writeExpression(setPropertyExpression.getPropertyAccess());
+        writeExpression(setPropertyExpression.getValueExpression());
+      }
+    }
+  }
+
+  private void writeVertexTable(VertexTable vertexTable) {
+    if (writeReference(vertexTable)) {
+      return;
+    }
+    writeUnsigned(DEFINITION);
+    writeElementTable(vertexTable);
+  }
+
+  private void writeEdgeTable(EdgeTable edgeTable) {
+    writeElementTable(edgeTable);
+    writeVertexTable(edgeTable.getSourceVertexTable());
+    writeKey(edgeTable.getEdgeSourceKey());
+    writeKey(edgeTable.getSourceVertexKey());
+    writeVertexTable(edgeTable.getDestinationVertexTable());
+    writeKey(edgeTable.getEdgeDestinationKey());
+    writeKey(edgeTable.getDestinationVertexKey());
+  }
+
+  private void writeElementTable(ElementTable elementTable) {
+    writeSchemaQualifiedName(elementTable.getTableName());
+    writeString(elementTable.getTableAlias());
+    writeKey(elementTable.getKey());
+    List<Label> labels = elementTable.getLabels();
+    writeSize(labels);
+    if (labels == null) {
+      return;
+    }
+    for (Label label : labels) {
+      writeString(label.getName());
+      writeBoolean(label.isPropertiesAreAllColumns());
+      writeStrings(label.getPropertiesAreAllColumnsExcept());
+      List<Property> properties = label.getProperties();
+      writeSize(properties);
+      if (properties != null) {
+        for (Property property : properties) {
+          writeExpression(property.getValueExpression());
+          writeString(property.getPropertyName());
+        }
+      }
+    }
+  }
+
+  private void writeKey(Key key) {
+    writeBoolean(key != null);
+    if (key != null) {
+      writeStrings(key.getColumnNames());
+    }
+  }
+
+  private void writeVariables(Collection<? extends QueryVariable> variables) {
+    writeSize(variables);
+    if (variables != null) {
+      for (QueryVariable variable : variables) {
+        writeVariable(variable);
+      }
+    }
+  }
+
+  private void writeVariable(QueryVariable variable) {
+    if (writeReference(variable)) {
+      return;
+    }
+    writeUnsigned(DEFINITION + VARIABLE_TYPE_CODES[variable.getVariableType().ordinal()]);
+    writeString(variable.getName());
+    writeBoolean(variable.isAnonymous());
+    switch (variable.getVariableType()) {
+      case VERTEX:
+        writeExpressions(((QueryVertex) variable).getConstraints());
+        break;
+      case EDGE:
+        writeConnection((QueryEdge) variable);
+        writeExpressions(((QueryEdge) variable).getConstraints());
+        break;
+      case PATH: {
+        QueryPath path = (QueryPath) variable;
+        writeConnection(path);
+        writeCommonPathExpression(path.getCommonPathExpression());
+        writeSigned(path.getMinHops());
+        writeSigned(path.getMaxHops());
+        writeCode(PATH_FINDING_GOAL_CODES, path.getPathFindingGoal());
+        writeSigned(path.getKValue());
+        writeBoolean(path.getWithTies());
+        writeRowsPerMatch(path.getRowsPerMatch());
+        break;
+      }
+      case EXP_AS_VAR:
+        writeString(((ExpAsVar) variable).getNameOriginText());
+        writeExpression(((ExpAsVar) variable).getExp());
+        break;
+      default:
+        throw new IllegalArgumentException(variable.getVariableType().toString());
+    }
+  }
+
+  private void writeConnection(VertexPairConnection connection) {
+    writeDirection(connection.getDirection());
+    writeVariable(connection.getSrc());
+    writeVariable(connection.getDst());
+  }
+
+  private void writeRowsPerMatch(RowsPerMatch rowsPerMatch) {
+    writeBoolean(rowsPerMatch != null);
+    if (rowsPerMatch == null) {
+      return;
+    }
+    writeCode(ROWS_PER_MATCH_TYPE_CODES, rowsPerMatch.getRowsPerMatchType());
+    switch (rowsPerMatch.getRowsPerMatchType()) {
+      case ONE_ROW_PER_MATCH:
+        break;
+      case ONE_ROW_PER_VERTEX:
+        writeVariable(((OneRowPerVertex) rowsPerMatch).getVertex());
+        break;
+      case ONE_ROW_PER_EDGE:
+        writeVariable(((OneRowPerEdge) rowsPerMatch).getEdge());
+        break;
+      default:
+        throw new IllegalArgumentException(rowsPerMatch.getRowsPerMatchType().toString());
+    }
+  }
+
+  private void writeExpressions(Collection<? extends QueryExpression> expressions) {
+    writeSize(expressions);
+    if (expressions != null) {
+      for (QueryExpression expression : expressions) {
+        writeExpression(expression);
+      }
+    }
+  }
+
+  private void writeExpression(QueryExpression exp) {
+    if (writeReference(exp)) {
+      return;
+    }
+    ExpressionType expType = exp.getExpType();
+    int code = EXPRESSION_TYPE_CODES[expType.ordinal()];
+    if (code == -1) {
+      throw new IllegalArgumentException(expType.toString());
+    }
+    writeUnsigned(DEFINITION + code);
+    switch (expType) {
+      case INTEGER:
+        writeSigned(((ConstInteger) exp).getValue());
+        break;
+      case DECIMAL:
+        writeDouble(((ConstDecimal) exp).getValue());
+        break;
+      case STRING:
+        writeString(((ConstString) exp).getValue());
+        break;
+      case BOOLEAN:
+        writeBoolean(((ConstBoolean) exp).getValue());
+        break;
+      case DATE:
+        writeDate(((ConstDate) exp).getValue());
+        break;
+      case TIME:
+        writeTime(((ConstTime) exp).getValue());
+        break;
+      case TIMESTAMP:
+        writeTimestamp(((ConstTimestamp) exp).getValue());
+        break;
+      case TIME_WITH_TIMEZONE: {
+        OffsetTime value = ((ConstTimeWithTimezone) exp).getValue();
+        writeTime(value.toLocalTime());
+        writeSigned(value.getOffset().getTotalSeconds());
+        break;
+      }
+      case TIMESTAMP_WITH_TIMEZONE: {
+        OffsetDateTime value = ((ConstTimestampWithTimezone) exp).getValue();
+        writeTimestamp(value.toLocalDateTime());
+        writeSigned(value.getOffset().getTotalSeconds());
+        break;
+      }
+      case SUB:
+      case ADD:
+      case MUL:
+      case DIV:
+      case MOD:
+      case AND:
+      case OR:
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+      case CONCAT:
+        writeExpression(((BinaryExpression) exp).getExp1());
+        writeExpression(((BinaryExpression) exp).getExp2());
+        break;
+      case UMIN:
+      case NOT:
+        writeExpression(((UnaryExpression) exp).getExp());
+        break;
+      case AGGR_COUNT:
+      case AGGR_MIN:
+      case AGGR_MAX:
+      case AGGR_SUM:
+      case AGGR_AVG:
+      case AGGR_ARRAY_AGG:
+      case AGGR_LISTAGG:
+        writeBoolean(((AbstractAggregation) exp).isDistinct());
+        writeExpression(((AbstractAggregation) exp).getExp());
+        if (expType == ExpressionType.AGGR_LISTAGG) {
+          writeString(((AggrListagg) exp).getSeparator());
+        }
+        break;
+      case VARREF:
+        writeVariable(((VarRef) exp).getVariable());
+        break;
+      case BIND_VARIABLE:
+        writeSigned(((BindVariable) exp).getParameterIndex());
+        break;
+      case STAR:
+        break;
+      case SCALAR_SUBQUERY:
+      case EXISTS:
+        writeSelectQuery(((Subquery) exp).getQuery());
+        break;
+      case PROP_ACCESS:
+        writeVariable(((PropertyAccess) exp).getVariable());
+        writeString(((PropertyAccess) exp).getPropertyName());
+        break;
+      case CAST:
+        writeExpression(((Cast) exp).getExp());
+        writeString(((Cast) exp).getTargetTypeName());
+        break;
+      case FUNCTION_CALL: {
+        FunctionCall functionCall = (FunctionCall) exp;
+        writeString(functionCall.getSchemaName());
+        writeString(functionCall.getPackageName());
+        writeString(functionCall.getFunctionName());
+        writeExpressions(functionCall.getArgs());
+        break;
+      }
+      case EXTRACT_EXPRESSION:
+        writeCode(EXTRACT_FIELD_CODES, ((ExtractExpression) exp).getField());
+        writeExpression(((ExtractExpression) exp).getExp());
+        break;
+      case IN_EXPRESSION:
+        writeExpression(((InPredicate) exp).getExp());
+        writeExpression(((InPredicate) exp).getInValueList());
+        break;
+      case IN_VALUE_LIST:
+        writeInValueList((InValueList) exp);
+        break;
+      case IS_NULL:
+        writeExpression(((IsNull) exp).getExp());
+        break;
+      case IF_ELSE:
+        writeExpression(((IfElse) exp).getExp1());
+        writeExpression(((IfElse) exp).getExp2());
+        writeExpression(((IfElse) exp).getExp3());
+        break;
+      case SIMPLE_CASE: {
+        SimpleCase simpleCase = (SimpleCase) exp;
+        writeExpression(simpleCase.getCaseOperand());
+        List<WhenThenExpression> whenThenExps = simpleCase.getWhenThenExps();
+        writeSize(whenThenExps);
+        if (whenThenExps != null) {
+          for (WhenThenExpression whenThenExp : whenThenExps) {
+            writeExpression(whenThenExp.getWhen());
+            writeExpression(whenThenExp.getThen());
+          }
+        }
+        writeExpression(simpleCase.getElseExp());
+        writeExpression(simpleCase.getIfElseRepresentation());
+        break;
+      }
+      case SUBSTRING:
+        writeExpression(((SubstringExpression) exp).getExp());
+        writeExpression(((SubstringExpression) exp).getStartPosition());
+        writeExpression(((SubstringExpression) exp).getStringLength());
+        break;
+      case BETWEEN_PREDICATE:
+        writeExpression(((BetweenPredicate) exp).getExp1());
+        writeExpression(((BetweenPredicate) exp).getExp2());
+        writeExpression(((BetweenPredicate) exp).getExp3());
+        break;
+      default:
+        throw new IllegalArgumentException(expType.toString());
+    }
+  }
+
+  private void writeInValueList(InValueList inValueList) {
+    ExpressionType elementType = inValueList.getArrayElementType();
+    writeCode(EXPRESSION_TYPE_CODES, elementType);
+    writeUnsigned(inValueList.getSize());
+    switch (elementType) {
+      case INTEGER:
+        for (long value : inValueList.getIntegerValues()) {
+          writeSigned(value);
+        }
+        break;
+      case DECIMAL:
+        for (double value : inValueList.getDecimalValues()) {
+          writeDouble(value);
+        }
+        break;
+      case BOOLEAN:
+        for (boolean value : inValueList.getBooleanValues()) {
+          writeBoolean(value);
+        }
+        break;
+      case STRING:
+        for (String value : inValueList.getStringValues()) {
+          writeString(value);
+        }
+        break;
+      case DATE:
+        for (LocalDate value : inValueList.getDateValues()) {
+          writeDate(value);
+        }
+        break;
+      case TIME:
+        for (LocalTime value : inValueList.getTimeValues()) {
+          writeTime(value);
+        }
+        break;
+      case TIMESTAMP:
+        for (LocalDateTime value : inValueList.getTimestampValues()) {
+          writeTimestamp(value);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(elementType.toString());
+    }
+  }
+
+  private void writeDate(LocalDate value) {
+    writeSigned(value.toEpochDay());
+  }
+
+  private void writeTime(LocalTime value) {
+    writeUnsigned(value.toNanoOfDay());
+  }
+
+  private void writeTimestamp(LocalDateTime value) {
+    writeDate(value.toLocalDate());
+    writeTime(value.toLocalTime());
+  }
+
+  private void writeSchemaQualifiedName(SchemaQualifiedName name) {
+    writeBoolean(name != null);
+    if (name != null) {
+      writeString(name.getSchemaName());
+      writeString(name.getName());
+    }
+  }
+
+  /**
+   * Writes the tag of an object that may be referenced more than once, unless it is an object that is defined now.
+   *
+   * @return true if the tag was written, i.e. if the object is null or was written before
+   */
+  private boolean writeReference(Object object) {
+    if (object == null) {
+      writeUnsigned(NULL);
+      return true;
+    }
+    Integer index = objectIndices.get(object);
+    if (index != null) {
+      writeUnsigned(REFERENCE);
+      writeUnsigned(index);
+      return true;
+    }
+    objectIndices.put(object, objectIndices.size());
+    return false;
+  }
+
+  private void writeStrings(List<String> values) {
+    writeSize(values);
+    if (values != null) {
+      for (String value : values) {
+        writeString(value);
+      }
+    }
+  }
+
+  /**
+   * Writes the index of the string in the string table plus one, or zero for null.
+   */
+  private void writeString(String value) {
+    if (value == null) {
+      writeUnsigned(0);
+      return;
+    }
+    Integer index = stringIndices.get(value);
+    if (index == null) {
+      index = strings.size();
+      stringIndices.put(value, index);
+      strings.add(value);
+    }
+    writeUnsigned(index + 1);
+  }
+
+  /**
+   * Writes the size of the collection plus one, or zero for null.
+   */
+  private void writeSize(Collection<?> collection) {
+    writeUnsigned(collection == null ? 0 : collection.size() + 1);
+  }
+
+  private <E extends Enum<E>> void writeCode(int[] codes, E constant) {
+    int code = codes[constant.ordinal()];
+    if (code == -1) {
+      throw new IllegalArgumentException(constant.toString());
+    }
+    writeUnsigned(code);
+  }
+
+  /**
+   * Writes the code of the direction plus one, or zero for null, which is the direction of the edge of ONE ROW PER
+   * EDGE.
+   */
+  private void writeDirection(Direction direction) {
+    writeUnsigned(direction == null ? 0 : DIRECTION_CODES[direction.ordinal()] + 1);
+  }
+
+  private void writeBoolean(boolean value) {
+    writeByte(value ? 1 : 0);
+  }
+
+  private void writeDouble(double value) {
+    long bits = Double.doubleToRawLongBits(value);
+    ensure(8);
+    for (int i = 0; i < 8; i++) {
+      buffer[position++] = (byte) (bits >>> (8 * i));
+    }
+  }
+
+  /**
+   * Writes a signed number as a variable-length number, zigzag encoded such that small negative numbers are short too.
+   */
+  private void writeSigned(long value) {
+    writeUnsigned((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Writes a number as a sequence of bytes with seven bits each, starting with the lowest bits, in which the highest
+   * bit of a byte is set if another byte follows.
+   */
+  private void writeUnsigned(long value) {
+    ensure(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeByte(int value) {
+    ensure(1);
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeBytes(byte[] bytes, int length) {
+    ensure(length);
+    System.arraycopy(bytes, 0, buffer, position, length);
+    position += length;
+  }
+
+  private void ensure(int numBytes) {
+    if (buffer.length - position < numBytes) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + numBytes));
+    }
+  }
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import oracle.pgql.lang.ColumnBatch;
+import oracle.pgql.lang.ColumnBatch.BooleanVector;
+import oracle.pgql.lang.ColumnBatch.ColumnVector;
+import oracle.pgql.lang.ColumnBatch.DoubleVector;
+import oracle.pgql.lang.ColumnBatch.LongVector;
+import oracle.pgql.lang.ColumnBatch.StringVector;
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ResultSetMetaData;
+
+/**
+ * Exports result sets in the Arrow IPC streaming format: a schema message, a record batch message per batch of rows
+ * and an end-of-stream marker, as can be read by e.g. {@code pyarrow.ipc.open_stream}. The messages are encoded
+ * directly, without depending on the Arrow libraries.
+ *
+ * Every column becomes a nullable field of one of the following types:
+ * <ul>
+ * <li>Int64 for integers</li>
+ * <li>Float64 for floating point numbers</li>
+ * <li>Bool for booleans</li>
+ * <li>Date32 for dates</li>
+ * <li>Timestamp with microsecond precision and without time zone for timestamps</li>
+ * <li>Utf8 for strings and for all other values, e.g. vertices, which are written as their string representation</li>
+ * </ul>
+ * Since the schema precedes the rows, the type of a column is taken from the metadata of the result set (see
+ * {@link ResultSetMetaData#getColumnTypeName(int)}) or, if the metadata does not know the type, from the first value
+ * in the first batch of rows. A value that does not match the type of its column, e.g. a string in an Int64 column,
+ * fails the export.
+ */
+public final class ArrowIpcExporter extends ResultSetExporter {
+
+  private static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+  private static final int CONTINUATION_MARKER = 0xFFFFFFFF;
+
+  private static final short METADATA_VERSION_V5 = 4;
+
+  private static final byte MESSAGE_HEADER_SCHEMA = 1;
+
+  private static final byte MESSAGE_HEADER_RECORD_BATCH = 3;
+
+  private enum ArrowType {
+    INT64(2),
+    FLOAT64(3),
+    UTF8(5),
+    BOOL(6),
+    DATE32(8),
+    TIMESTAMP(10);
+
+    /**
+     * The type of the member of the Type union of the Arrow schema.
+     */
+    final byte unionType;
+
+    ArrowType(int unionType) {
+      this.unionType = (byte) unionType;
+    }
+  }
+
+  private ResultSetMetaData metaData;
+
+  /**
+   * The types of the columns, or null as long as the schema has not been written.
+   */
+  private ArrowType[] types;
+
+  public ArrowIpcExporter() {
+    this(DEFAULT_BUFFER_SIZE, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param bufferSize
+   *          the size of the buffer in bytes, which is at least 1024
+   * @param batchSize
+   *          the maximum number of rows per record batch
+   */
+  public ArrowIpcExporter(int bufferSize, int batchSize) {
+    super(bufferSize, batchSize, ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Override
+  void writeStart(ResultSetMetaData metaData) {
+    this.metaData = metaData;
+    this.types = null;
+  }
+
+  @Override
+  void writeBatch(ColumnBatch batch) throws PgqlException, IOException {
+    if (types == null) {
+      writeSchema(batch);
+    }
+
+    int numRows = batch.getNumRows();
+    int numColumns = types.length;
+    long[] nodes = new long[2 * numColumns];
+    List<Object> buffers = new ArrayList<>();
+    for (int i = 0; i < numColumns; i++) {
+      ColumnVector vector = batch.getColumn(i + 1);
+      BitSet nulls = vector.getNulls();
+      nodes[2 * i] = numRows;
+      nodes[2 * i + 1] = nulls.cardinality();
+      buffers.add(nulls.isEmpty() ? new byte[0] : getValidity(nulls, numRows));
+      encodeValues(vector, i, numRows, buffers);
+    }
+
+    // the buffers are laid out in the body one after the other, each at a multiple of 8 bytes
+    long[] bufferLocations = new long[2 * buffers.size()];
+    long bodyLength = 0;
+    for (int i = 0; i < buffers.size(); i++) {
+      long length = getLength(buffers.get(i));
+      bufferLocations[2 * i] = bodyLength;
+      bufferLocations[2 * i + 1] = length;
+      bodyLength += align(length);
+    }
+
+    FlatBufferTable recordBatch = new FlatBufferTable() //
+        .addLong(0, numRows) //
+        .addLongPairs(1, nodes) //
+        .addLongPairs(2, bufferLocations);
+    writeMessage(MESSAGE_HEADER_RECORD_BATCH, recordBatch, bodyLength);
+    for (Object buffer : buffers) {
+      writeBuffer(buffer);
+    }
+  }
+
+  @Override
+  void writeEnd() throws IOException {
+    if (types == null) {
+      writeSchema(null);
+    }
+    ensure(8).putInt(CONTINUATION_MARKER).putInt(0);
+  }
+
+  private void writeSchema(ColumnBatch firstBatch) throws IOException {
+    int numColumns = metaData.getColumnCount();
+    types = new ArrowType[numColumns];
+    List<FlatBufferTable> fields = new ArrayList<>(numColumns);
+    for (int i = 0; i < numColumns; i++) {
+      types[i] = getType(metaData.getColumnTypeName(i + 1), firstBatch, i + 1);
+      fields.add(new FlatBufferTable() //
+          .addString(0, metaData.getColumnName(i + 1)) //
+          .addBool(1, true) //
+          .addByte(2, types[i].unionType) //
+          .addTable(3, getTypeTable(types[i])) //
+          .addTables(5, new ArrayList<>()));
+    }
+    FlatBufferTable schema = new FlatBufferTable() //
+        .addShort(0, 0) // little endian
+        .addTables(1, fields);
+    writeMessage(MESSAGE_HEADER_SCHEMA, schema, 0);
+  }
+
+  /**
+   * @param firstBatch
+   *          the first batch of rows, or null if there are no rows
+   */
+  private static ArrowType getType(String typeName, ColumnBatch firstBatch, int column) {
+    if (typeName != null) {
+      switch (typeName) {
+        case "INTEGER":
+        case "LONG":
+          return ArrowType.INT64;
+        case "FLOAT":
+        case "DOUBLE":
+          return ArrowType.FLOAT64;
+        case "BOOLEAN":
+          return ArrowType.BOOL;
+        case "DATE":
+          return ArrowType.DATE32;
+        case "TIMESTAMP":
+          return ArrowType.TIMESTAMP;
+        default:
+          return ArrowType.UTF8;
+      }
+    }
+    if (firstBatch == null) {
+      return ArrowType.UTF8;
+    }
+    ColumnVector firstValues = firstBatch.getColumn(column);
+    switch (firstValues.getType()) {
+      case LONG:
+        return ArrowType.INT64;
+      case DOUBLE:
+        return ArrowType.FLOAT64;
+      case BOOLEAN:
+        return ArrowType.BOOL;
+      case STRING:
+        return ArrowType.UTF8;
+      default:
+        int firstValue = firstValues.getNulls().nextClearBit(0);
+        Object value = firstValue < firstBatch.getNumRows() ? firstValues.getObject(firstValue) : null;
+        if (value instanceof Long || value instanceof Integer) {
+          return ArrowType.INT64;
+        } else if (value instanceof Double || value instanceof Float) {
+          return ArrowType.FLOAT64;
+        } else if (value instanceof Boolean) {
+          return ArrowType.BOOL;
+        } else if (value instanceof LocalDate) {
+          return ArrowType.DATE32;
+        } else if (value instanceof LocalDateTime) {
+          return ArrowType.TIMESTAMP;
+        }
+        return ArrowType.UTF8;
+    }
+  }
+
+  private static FlatBufferTable getTypeTable(ArrowType type) {
+    switch (type) {
+      case INT64:
+        return new FlatBufferTable().addInt(0, 64).addBool(1, true);
+      case FLOAT64:
+        return new FlatBufferTable().addShort(0, 2); // double precision
+      case DATE32:
+        return new FlatBufferTable().addShort(0, 0); // days
+      case TIMESTAMP:
+        return new FlatBufferTable().addShort(0, 2); // microseconds
+      default:
+        return new FlatBufferTable();
+    }
+  }
+
+  /**
+   * Write an encapsulated message: a continuation marker, the size of the metadata, the metadata and the body.
+   */
+  private void writeMessage(byte headerType, FlatBufferTable header, long bodyLength) throws IOException {
+    byte[] message = new FlatBufferTable() //
+        .addShort(0, METADATA_VERSION_V5) //
+        .addByte(1, headerType) //
+        .addTable(2, header) //
+        .addLong(3, bodyLength) //
+        .serialize();
+    ensure(8).putInt(CONTINUATION_MARKER).putInt(message.length);
+    put(message);
+  }
+
+  /**
+   * @return the validity bitmap, in which the bits of the rows that are not NULL are set
+   */
+  private static byte[] getValidity(BitSet nulls, int numRows) {
+    byte[] validity = new byte[(numRows + 7) / 8];
+    for (int row = nulls.nextClearBit(0); row < numRows; row = nulls.nextClearBit(row + 1)) {
+      validity[row >> 3] |= 1 << (row & 7);
+    }
+    return validity;
+  }
+
+  /**
+   * Add the buffers with the values of the column to the list of buffers: a long[] or double[] for fixed-width values,
+   * a byte[] for a bitmap of booleans, and an int[] with offsets followed by a byte[][] with the bytes of every row for
+   * strings.
+   */
+  private void encodeValues(ColumnVector vector, int column, int numRows, List<Object> buffers) throws PgqlException {
+    switch (types[column]) {
+      case INT64: {
+        if (vector instanceof LongVector) {
+          buffers.add(((LongVector) vector).getValues());
+          return;
+        }
+        long[] values = new long[numRows];
+        for (int row = 0; row < numRows; row++) {
+          Object value = vector.getObject(row);
+          if (value != null) {
+            if (!(value instanceof Long || value instanceof Integer)) {
+              throw typeMismatch(value, column);
+            }
+            values[row] = ((Number) value).longValue();
+          }
+        }
+        buffers.add(values);
+        return;
+      }
+      case FLOAT64: {
+        if (vector instanceof DoubleVector) {
+          buffers.add(((DoubleVector) vector).getValues());
+          return;
+        }
+        double[] values = new double[numRows];
+        for (int row = 0; row < numRows; row++) {
+          Object value = vector.getObject(row);
+          if (value != null) {
+            if (!(value instanceof Number)) {
+              throw typeMismatch(value, column);
+            }
+            values[row] = ((Number) value).doubleValue();
+          }
+        }
+        buffers.add(values);
+        return;
+      }
+      case BOOL: {
+        byte[] bitmap = new byte[(numRows + 7) / 8];
+        for (int row = 0; row < numRows; row++) {
+          boolean value;
+          if (vector.isNull(row)) {
+            continue;
+          } else if (vector instanceof BooleanVector) {
+            value = ((BooleanVector) vector).getBoolean(row);
+          } else if (vector.getObject(row) instanceof Boolean) {
+            value = (Boolean) vector.getObject(row);
+          } else {
+            throw typeMismatch(vector.getObject(row), column);
+          }
+          if (value) {
+            bitmap[row >> 3] |= 1 << (row & 7);
+          }
+        }
+        buffers.add(bitmap);
+        return;
+      }
+      case DATE32: {
+        // days since the epoch, as 32-bit integers
+        int[] values = new int[numRows];
+        for (int row = 0; row < numRows; row++) {
+          Object value = vector.getObject(row);
+          if (value != null) {
+            if (!(value instanceof LocalDate)) {
+              throw typeMismatch(value, column);
+            }
+            values[row] = (int) ((LocalDate) value).toEpochDay();
+          }
+        }
+        buffers.add(values);
+        return;
+      }
+      case TIMESTAMP: {
+        long[] values = new long[numRows];
+        for (int row = 0; row < numRows; row++) {
+          Object value = vector.getObject(row);
+          if (value != null) {
+            if (!(value instanceof LocalDateTime)) {
+              throw typeMismatch(value, column);
+            }
+            LocalDateTime timestamp = (LocalDateTime) value;
+            values[row] = timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1000;
+          }
+        }
+        buffers.add(values);
+        return;
+      }
+      default: {
+        byte[][] values = new byte[numRows][];
+        byte[][] encodedStrings = vector instanceof StringVector
+            ? new byte[((StringVector) vector).getDictionary().length][]
+            : null;
+        int[] offsets = new int[numRows + 1];
+        for (int row = 0; row < numRows; row++) {
+          byte[] bytes;
+          if (vector.isNull(row)) {
+            bytes = new byte[0];
+          } else if (encodedStrings != null) {
+            StringVector strings = (StringVector) vector;
+            int code = strings.getCodes()[row];
+            if (encodedStrings[code] == null) {
+              encodedStrings[code] = strings.getDictionary()[code].getBytes(StandardCharsets.UTF_8);
+            }
+            bytes = encodedStrings[code];
+          } else {
+            bytes = vector.getObject(row).toString().getBytes(StandardCharsets.UTF_8);
+          }
+          values[row] = bytes;
+          offsets[row + 1] = offsets[row] + bytes.length;
+        }
+        buffers.add(offsets);
+        buffers.add(values);
+      }
+    }
+  }
+
+  private PgqlException typeMismatch(Object value, int column) {
+    return new PgqlException("Column " + metaData.getColumnName(column + 1) + " has type "
+        + types[column].name().toLowerCase() + " in the Arrow schema, but has a value of type "
+        + value.getClass().getSimpleName() + ": " + value);
+  }
+
+  private static long getLength(Object buffer) {
+    if (buffer instanceof byte[]) {
+      return ((byte[]) buffer).length;
+    } else if (buffer instanceof int[]) {
+      return 4L * ((int[]) buffer).length;
+    } else if (buffer instanceof long[]) {
+      return 8L * ((long[]) buffer).length;
+    } else if (buffer instanceof double[]) {
+      return 8L * ((double[]) buffer).length;
+    }
+    long length = 0;
+    for (byte[] bytes : (byte[][]) buffer) {
+      length += bytes.length;
+    }
+    return length;
+  }
+
+  private static long align(long length) {
+    return (length + 7) & ~7L;
+  }
+
+  /**
+   * Write the buffer, padded to a multiple of 8 bytes.
+   */
+  private void writeBuffer(Object buffer) throws IOException {
+    if (buffer instanceof byte[]) {
+      put((byte[]) buffer);
+    } else if (buffer instanceof int[]) {
+      int[] values = (int[]) buffer;
+      for (int offset = 0; offset < values.length;) {
+        ByteBuffer out = ensure(4);
+        int length = Math.min(values.length - offset, out.remaining() / 4);
+        out.asIntBuffer().put(values, offset, length);
+        out.position(out.position() + 4 * length);
+        offset += length;
+      }
+    } else if (buffer instanceof long[]) {
+      long[] values = (long[]) buffer;
+      for (int offset = 0; offset < values.length;) {
+        ByteBuffer out = ensure(8);
+        int length = Math.min(values.length - offset, out.remaining() / 8);
+        out.asLongBuffer().put(values, offset, length);
+        out.position(out.position() + 8 * length);
+        offset += length;
+      }
+    } else if (buffer instanceof double[]) {
+      double[] values = (double[]) buffer;
+      for (int offset = 0; offset < values.length;) {
+        ByteBuffer out = ensure(8);
+        int length = Math.min(values.length - offset, out.remaining() / 8);
+        out.asDoubleBuffer().put(values, offset, length);
+        out.position(out.position() + 8 * length);
+        offset += length;
+      }
+    } else {
+      for (byte[] bytes : (byte[][]) buffer) {
+        put(bytes);
+      }
+    }
+    long length = getLength(buffer);
+    ByteBuffer out = ensure(8);
+    for (long i = length; i < align(length); i++) {
+      out.put((byte) 0);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.export;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import oracle.pgql.lang.ColumnBatch;
+import oracle.pgql.lang.ColumnBatch.BooleanVector;
+import oracle.pgql.lang.ColumnBatch.ColumnVector;
+import oracle.pgql.lang.ColumnBatch.DoubleVector;
+import oracle.pgql.lang.ColumnBatch.LongVector;
+import oracle.pgql.lang.ColumnBatch.StringVector;
+import oracle.pgql.lang.ResultSetMetaData;
+
+/**
+ * Exports result sets as CSV according to RFC 4180, encoded as UTF-8: a header with the column names is followed by a
+ * line per row, fields are separated by commas, lines end with CRLF, and fields that contain a comma, a double quote
+ * or a line break are enclosed in double quotes, in which double quotes are escaped by doubling them.
+ *
+ * NULL values are written as empty fields, while empty strings are written as {@code ""}, such that the two can be told
+ * apart. Values that are not numbers, booleans or strings, e.g. dates or vertices, are written as their string
+ * representation.
+ */
+public final class CsvExporter extends ResultSetExporter {
+
+  private static final int BATCH_SIZE = 4096;
+
+  private static final byte[] CRLF = { '\r', '\n' };
+
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+  private boolean[] floatColumns;
+
+  public CsvExporter() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize
+   *          the size of the buffer in bytes, which is at least 1024
+   */
+  public CsvExporter(int bufferSize) {
+    super(bufferSize, BATCH_SIZE, ByteOrder.BIG_ENDIAN);
+  }
+
+  @Override
+  void writeStart(ResultSetMetaData metaData) throws IOException {
+    int numColumns = metaData.getColumnCount();
+    floatColumns = new boolean[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      if (i > 0) {
+        put((byte) ',');
+      }
+      put(encodeField(metaData.getColumnName(i + 1)));
+      floatColumns[i] = "FLOAT".equals(metaData.getColumnTypeName(i + 1));
+    }
+    put(CRLF);
+  }
+
+  @Override
+  void writeBatch(ColumnBatch batch) throws IOException {
+    int numColumns = batch.getColumnCount();
+    ColumnVector[] vectors = new ColumnVector[numColumns];
+    byte[][][] encodedStrings = new byte[numColumns][][];
+    for (int i = 0; i < numColumns; i++) {
+      vectors[i] = batch.getColumn(i + 1);
+      if (vectors[i] instanceof StringVector) {
+        encodedStrings[i] = new byte[((StringVector) vectors[i]).getDictionary().length][];
+      }
+    }
+
+    for (int row = 0; row < batch.getNumRows(); row++) {
+      for (int i = 0; i < numColumns; i++) {
+        if (i > 0) {
+          put((byte) ',');
+        }
+        ColumnVector vector = vectors[i];
+        if (vector.isNull(row)) {
+          continue;
+        }
+        switch (vector.getType()) {
+          case LONG:
+            putLong(((LongVector) vector).getLong(row));
+            break;
+          case DOUBLE:
+            putNumber(((DoubleVector) vector).getDouble(row), floatColumns[i]);
+            break;
+          case BOOLEAN:
+            put(((BooleanVector) vector).getBoolean(row) ? TRUE : FALSE);
+            break;
+          case STRING: {
+            StringVector strings = (StringVector) vector;
+            int code = strings.getCodes()[row];
+            byte[] encoded = encodedStrings[i][code];
+            if (encoded == null) {
+              encoded = encodeField(strings.getDictionary()[code]);
+              encodedStrings[i][code] = encoded;
+            }
+            put(encoded);
+            break;
+          }
+          default:
+            putObject(vector.getObject(row), floatColumns[i]);
+        }
+      }
+      put(CRLF);
+    }
+  }
+
+  @Override
+  void writeEnd() {
+  }
+
+  private void putNumber(double value, boolean isFloat) throws IOException {
+    if (isFloat) {
+      putFloat((float) value);
+    } else {
+      putDouble(value);
+    }
+  }
+
+  private void putObject(Object value, boolean isFloat) throws IOException {
+    if (value instanceof Long || value instanceof Integer) {
+      putLong(((Number) value).longValue());
+    } else if (value instanceof Double) {
+      putNumber((Double) value, isFloat);
+    } else if (value instanceof Float) {
+      putFloat((Float) value);
+    } else if (value instanceof Boolean) {
+      put((Boolean) value ? TRUE : FALSE);
+    } else {
+      put(encodeField(value.toString()));
+    }
+  }
+
+  /**
+   * @return the field as UTF-8, enclosed in double quotes if needed
+   */
+  private static byte[] encodeField(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    // the special characters are ASCII, so they cannot occur inside the encoding of another character
+    boolean quote = bytes.length == 0;
+    int numQuotes = 0;
+    for (byte b : bytes) {
+      if (b == '"') {
+        numQuotes++;
+        quote = true;
+      } else if (b == ',' || b == '\r' || b == '\n') {
+        quote = true;
+      }
+    }
+    if (!quote) {
+      return bytes;
+    }
+    byte[] field = new byte[bytes.length + numQuotes + 2];
+    int index = 0;
+    field[index++] = '"';
+    for (byte b : bytes) {
+      if (b == '"') {
+        field[index++] = '"';
+      }
+      field[index++] = b;
+    }
+    field[index] = '"';
+    return field;
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.export;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A table of a FlatBuffers buffer, as used for the metadata of Arrow IPC messages, with just the kinds of fields that
+ * those messages need: scalars, strings, tables, vectors of tables and vectors of structs of two longs.
+ *
+ * Unlike the FlatBuffers builder, which writes a buffer from the back to the front, the tables are serialized from the
+ * front to the back, with the children of a table after the table itself. Since the offsets to children are unsigned,
+ * they have to point forward, which they do. Every table has its own vtable, directly in front of it.
+ */
+final class FlatBufferTable {
+
+  private static final int KIND_SCALAR = 0;
+
+  private static final int KIND_TABLE = 1;
+
+  private static final int KIND_STRING = 2;
+
+  private static final int KIND_TABLES = 3;
+
+  private static final int KIND_LONG_PAIRS = 4;
+
+  private static final class Field {
+
+    final int kind;
+
+    /**
+     * The size of the field in the table, which is 4 bytes for an offset to a child.
+     */
+    final int size;
+
+    final Object value;
+
+    Field(int kind, int size, Object value) {
+      this.kind = kind;
+      this.size = size;
+      this.value = value;
+    }
+  }
+
+  private final TreeMap<Integer, Field> fields = new TreeMap<>();
+
+  FlatBufferTable addBool(int slot, boolean value) {
+    return add(slot, KIND_SCALAR, 1, value ? 1L : 0L);
+  }
+
+  FlatBufferTable addByte(int slot, int value) {
+    return add(slot, KIND_SCALAR, 1, (long) value);
+  }
+
+  FlatBufferTable addShort(int slot, int value) {
+    return add(slot, KIND_SCALAR, 2, (long) value);
+  }
+
+  FlatBufferTable addInt(int slot, int value) {
+    return add(slot, KIND_SCALAR, 4, (long) value);
+  }
+
+  FlatBufferTable addLong(int slot, long value) {
+    return add(slot, KIND_SCALAR, 8, value);
+  }
+
+  FlatBufferTable addTable(int slot, FlatBufferTable table) {
+    return add(slot, KIND_TABLE, 4, table);
+  }
+
+  FlatBufferTable addString(int slot, String value) {
+    return add(slot, KIND_STRING, 4, value);
+  }
+
+  FlatBufferTable addTables(int slot, List<FlatBufferTable> tables) {
+    return add(slot, KIND_TABLES, 4, tables);
+  }
+
+  /**
+   * @param values
+   *          the two longs of every struct, one struct after the other
+   */
+  FlatBufferTable addLongPairs(int slot, long[] values) {
+    return add(slot, KIND_LONG_PAIRS, 4, values);
+  }
+
+  private FlatBufferTable add(int slot, int kind, int size, Object value) {
+    fields.put(slot, new Field(kind, size, value));
+    return this;
+  }
+
+  /**
+   * @return the buffer with this table as root, padded to a multiple of 8 bytes
+   */
+  byte[] serialize() {
+    Writer writer = new Writer();
+    writer.putInt(0);
+    int root = writer.writeTable(this);
+    writer.patchOffset(0, root);
+    writer.pad(8);
+    return Arrays.copyOf(writer.out.array(), writer.out.position());
+  }
+
+  private static final class Writer {
+
+    ByteBuffer out = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private void ensure(int numBytes) {
+      if (out.remaining() < numBytes) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + numBytes))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        out.flip();
+        larger.put(out);
+        out = larger;
+      }
+    }
+
+    void pad(int alignment) {
+      while (out.position() % alignment != 0) {
+        putByte(0);
+      }
+    }
+
+    void putByte(int value) {
+      ensure(1);
+      out.put((byte) value);
+    }
+
+    void putShort(int value) {
+      ensure(2);
+      out.putShort((short) value);
+    }
+
+    void putInt(int value) {
+      ensure(4);
+      out.putInt(value);
+    }
+
+    void putLong(long value) {
+      ensure(8);
+      out.putLong(value);
+    }
+
+    /**
+     * Point the offset at the given position to the given target, which lies after it.
+     */
+    void patchOffset(int position, int target) {
+      out.putInt(position, target - position);
+    }
+
+    /**
+     * @return the position of the table, which is where its offset to the vtable is
+     */
+    int writeTable(FlatBufferTable table) {
+      int numSlots = table.fields.isEmpty() ? 0 : table.fields.lastKey() + 1;
+      int vtableSize = 4 + 2 * numSlots;
+
+      // the table starts at a multiple of 8 bytes, so aligning the fields within the table aligns them in the buffer
+      int[] fieldOffsets = new int[numSlots];
+      int tableSize = 4;
+      for (int slot : table.fields.keySet()) {
+        int size = table.fields.get(slot).size;
+        tableSize = (tableSize + size - 1) / size * size;
+        fieldOffsets[slot] = tableSize;
+        tableSize += size;
+      }
+
+      while ((out.position() + vtableSize) % 8 != 0) {
+        putByte(0);
+      }
+      int vtable = out.position();
+      putShort(vtableSize);
+      putShort(tableSize);
+      for (int fieldOffset : fieldOffsets) {
+        putShort(fieldOffset);
+      }
+
+      int tableStart = out.position();
+      putInt(tableStart - vtable);
+      for (int slot : table.fields.keySet()) {
+        Field field = table.fields.get(slot);
+        while (out.position() < tableStart + fieldOffsets[slot]) {
+          putByte(0);
+        }
+        if (field.kind != KIND_SCALAR) {
+          putInt(0); // patched once the child is written
+        } else if (field.size == 1) {
+          putByte((int) (long) (Long) field.value);
+        } else if (field.size == 2) {
+          putShort((int) (long) (Long) field.value);
+        } else if (field.size == 4) {
+          putInt((int) (long) (Long) field.value);
+        } else {
+          putLong((Long) field.value);
+        }
+      }
+
+      for (int slot : table.fields.keySet()) {
+        Field field = table.fields.get(slot);
+        if (field.kind != KIND_SCALAR) {
+          patchOffset(tableStart + fieldOffsets[slot], writeChild(field));
+        }
+      }
+      return tableStart;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int writeChild(Field field) {
+      switch (field.kind) {
+        case KIND_TABLE:
+          return writeTable((FlatBufferTable) field.value);
+        case KIND_STRING: {
+          byte[] bytes = ((String) field.value).getBytes(StandardCharsets.UTF_8);
+          pad(4);
+          int position = out.position();
+          putInt(bytes.length);
+          ensure(bytes.length + 1);
+          out.put(bytes).put((byte) 0);
+          return position;
+        }
+        case KIND_TABLES: {
+          List<FlatBufferTable> tables = (List<FlatBufferTable>) field.value;
+          pad(4);
+          int position = out.position();
+          putInt(tables.size());
+          for (int i = 0; i < tables.size(); i++) {
+            putInt(0);
+          }
+          for (int i = 0; i < tables.size(); i++) {
+            patchOffset(position + 4 + 4 * i, writeTable(tables.get(i)));
+          }
+          return position;
+        }
+        case KIND_LONG_PAIRS: {
+          long[] values = (long[]) field.value;
+          // the structs are aligned to 8 bytes, and the length of the vector precedes them
+          while ((out.position() + 4) % 8 != 0) {
+            putByte(0);
+          }
+          int position = out.position();
+          putInt(values.length / 2);
+          for (long value : values) {
+            putLong(value);
+          }
+          return position;
+        }
+        default:
+          throw new IllegalStateException("Unknown kind of field: " + field.kind);
+      }
+    }
+  }
+}
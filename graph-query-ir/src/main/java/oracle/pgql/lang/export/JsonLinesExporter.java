@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.export;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import oracle.pgql.lang.ColumnBatch;
+import oracle.pgql.lang.ColumnBatch.BooleanVector;
+import oracle.pgql.lang.ColumnBatch.ColumnVector;
+import oracle.pgql.lang.ColumnBatch.DoubleVector;
+import oracle.pgql.lang.ColumnBatch.LongVector;
+import oracle.pgql.lang.ColumnBatch.StringVector;
+import oracle.pgql.lang.ResultSetMetaData;
+
+/**
+ * Exports result sets as JSON Lines, encoded as UTF-8: every row is a JSON object on a line of its own, with a member
+ * per column. Numbers and booleans are written as JSON numbers and booleans, NULL values as {@code null}, lists and
+ * sets as arrays, and other values, e.g. dates or vertices, as strings with their string representation. Floating
+ * point numbers that are not finite have no JSON representation and are written as the strings {@code "NaN"},
+ * {@code "Infinity"} and {@code "-Infinity"}.
+ */
+public final class JsonLinesExporter extends ResultSetExporter {
+
+  private static final int BATCH_SIZE = 4096;
+
+  private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte[] END_OF_ROW = { '}', '\n' };
+
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The encoded names of the columns, each preceded by the start of the object or by a comma, and followed by a colon.
+   */
+  private byte[][] keys;
+
+  private boolean[] floatColumns;
+
+  public JsonLinesExporter() {
+    this(DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param bufferSize
+   *          the size of the buffer in bytes, which is at least 1024
+   */
+  public JsonLinesExporter(int bufferSize) {
+    super(bufferSize, BATCH_SIZE, ByteOrder.BIG_ENDIAN);
+  }
+
+  @Override
+  void writeStart(ResultSetMetaData metaData) {
+    int numColumns = metaData.getColumnCount();
+    keys = new byte[numColumns][];
+    floatColumns = new boolean[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      byte[] name = encodeString(metaData.getColumnName(i + 1));
+      byte[] key = new byte[name.length + 2];
+      key[0] = (byte) (i == 0 ? '{' : ',');
+      System.arraycopy(name, 0, key, 1, name.length);
+      key[key.length - 1] = ':';
+      keys[i] = key;
+      floatColumns[i] = "FLOAT".equals(metaData.getColumnTypeName(i + 1));
+    }
+  }
+
+  @Override
+  void writeBatch(ColumnBatch batch) throws IOException {
+    int numColumns = batch.getColumnCount();
+    ColumnVector[] vectors = new ColumnVector[numColumns];
+    byte[][][] encodedStrings = new byte[numColumns][][];
+    for (int i = 0; i < numColumns; i++) {
+      vectors[i] = batch.getColumn(i + 1);
+      if (vectors[i] instanceof StringVector) {
+        encodedStrings[i] = new byte[((StringVector) vectors[i]).getDictionary().length][];
+      }
+    }
+
+    for (int row = 0; row < batch.getNumRows(); row++) {
+      if (numColumns == 0) {
+        put((byte) '{');
+      }
+      for (int i = 0; i < numColumns; i++) {
+        put(keys[i]);
+        ColumnVector vector = vectors[i];
+        if (vector.isNull(row)) {
+          put(NULL);
+          continue;
+        }
+        switch (vector.getType()) {
+          case LONG:
+            putLong(((LongVector) vector).getLong(row));
+            break;
+          case DOUBLE:
+            putNumber(((DoubleVector) vector).getDouble(row), floatColumns[i]);
+            break;
+          case BOOLEAN:
+            put(((BooleanVector) vector).getBoolean(row) ? TRUE : FALSE);
+            break;
+          case STRING: {
+            StringVector strings = (StringVector) vector;
+            int code = strings.getCodes()[row];
+            byte[] encoded = encodedStrings[i][code];
+            if (encoded == null) {
+              encoded = encodeString(strings.getDictionary()[code]);
+              encodedStrings[i][code] = encoded;
+            }
+            put(encoded);
+            break;
+          }
+          default:
+            putValue(vector.getObject(row), floatColumns[i]);
+        }
+      }
+      put(END_OF_ROW);
+    }
+  }
+
+  @Override
+  void writeEnd() {
+  }
+
+  private void putNumber(double value, boolean isFloat) throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      put(encodeString(Double.toString(value)));
+    } else if (isFloat) {
+      putFloat((float) value);
+    } else {
+      putDouble(value);
+    }
+  }
+
+  private void putValue(Object value, boolean isFloat) throws IOException {
+    if (value == null) {
+      put(NULL);
+    } else if (value instanceof Long || value instanceof Integer) {
+      putLong(((Number) value).longValue());
+    } else if (value instanceof Double) {
+      putNumber((Double) value, isFloat);
+    } else if (value instanceof Float) {
+      putNumber((Float) value, true);
+    } else if (value instanceof Boolean) {
+      put((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof Collection) {
+      put((byte) '[');
+      boolean first = true;
+      for (Object element : (Collection<?>) value) {
+        if (!first) {
+          put((byte) ',');
+        }
+        first = false;
+        putValue(element, false);
+      }
+      put((byte) ']');
+    } else {
+      put(encodeString(value.toString()));
+    }
+  }
+
+  /**
+   * @return the string as a JSON string in UTF-8, enclosed in double quotes and with the necessary characters escaped
+   */
+  private static byte[] encodeString(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    // the characters that are escaped are ASCII, so they cannot occur inside the encoding of another character
+    int length = bytes.length + 2;
+    for (byte b : bytes) {
+      if (b == '"' || b == '\\' || getShortEscape(b) != 0) {
+        length++;
+      } else if (b >= 0 && b < 0x20) {
+        length += 5;
+      }
+    }
+    byte[] string = new byte[length];
+    int index = 0;
+    string[index++] = '"';
+    for (byte b : bytes) {
+      if (b == '"' || b == '\\') {
+        string[index++] = '\\';
+        string[index++] = b;
+      } else if (getShortEscape(b) != 0) {
+        string[index++] = '\\';
+        string[index++] = getShortEscape(b);
+      } else if (b >= 0 && b < 0x20) {
+        string[index++] = '\\';
+        string[index++] = 'u';
+        string[index++] = '0';
+        string[index++] = '0';
+        string[index++] = HEX_DIGITS[b >> 4];
+        string[index++] = HEX_DIGITS[b & 0xF];
+      } else {
+        string[index++] = b;
+      }
+    }
+    string[index] = '"';
+    return string;
+  }
+
+  /**
+   * @return the letter of the two-character escape sequence of the control character, or 0 if it has none
+   */
+  private static byte getShortEscape(byte b) {
+    switch (b) {
+      case '\b':
+        return 'b';
+      case '\f':
+        return 'f';
+      case '\n':
+        return 'n';
+      case '\r':
+        return 'r';
+      case '\t':
+        return 't';
+      default:
+        return 0;
+    }
+  }
+}
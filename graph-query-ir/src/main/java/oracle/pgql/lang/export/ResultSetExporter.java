@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+import oracle.pgql.lang.ColumnBatch;
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ResultAccess;
+import oracle.pgql.lang.ResultSet;
+import oracle.pgql.lang.ResultSetMetaData;
+
+/**
+ * Writes the rows of result sets to channels in a file format. The rows are fetched in batches by means of
+ * {@link ResultSet#nextBatch(int)}, such that integers, floating point numbers and booleans are encoded from primitive
+ * arrays, without creating strings, and every distinct string of a batch is encoded once. The encoded rows are
+ * collected in a direct buffer that is written to the channel whenever it is full; the buffer is allocated once per
+ * exporter and reused for every export, so an exporter is not thread-safe.
+ */
+public abstract class ResultSetExporter {
+
+  static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private final ByteBuffer buffer;
+
+  private final int batchSize;
+
+  /**
+   * Holds the digits of an integer, which are produced from the last to the first.
+   */
+  private final byte[] digits = new byte[19];
+
+  /**
+   * Holds the characters of a floating point number.
+   */
+  private final StringBuilder number = new StringBuilder(32);
+
+  private WritableByteChannel channel;
+
+  /**
+   * @param bufferSize
+   *          the size of the buffer in bytes, which is at least 1024
+   * @param batchSize
+   *          the number of rows that is fetched at once
+   */
+  ResultSetExporter(int bufferSize, int batchSize, ByteOrder byteOrder) {
+    if (bufferSize < 1024) {
+      throw new IllegalArgumentException("Buffer size should be at least 1024 bytes but got " + bufferSize);
+    }
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size should be positive but got " + batchSize);
+    }
+    this.buffer = ByteBuffer.allocateDirect(bufferSize).order(byteOrder);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Write the remaining rows of the result set to the channel. The channel is not closed.
+   *
+   * @return the number of rows that were written
+   * @throws PgqlException
+   *           if fetching the rows fails or a value cannot be represented in the file format
+   * @throws IOException
+   *           if writing to the channel fails
+   */
+  public long export(ResultSet<? extends ResultAccess> resultSet, WritableByteChannel channel)
+      throws PgqlException, IOException {
+    this.channel = channel;
+    buffer.clear();
+    try {
+      writeStart(resultSet.getMetaData());
+      long numRows = 0;
+      ColumnBatch batch = resultSet.nextBatch(batchSize);
+      while (batch.getNumRows() > 0) {
+        writeBatch(batch);
+        numRows += batch.getNumRows();
+        batch = resultSet.nextBatch(batchSize);
+      }
+      writeEnd();
+      flush();
+      return numRows;
+    } finally {
+      this.channel = null;
+    }
+  }
+
+  abstract void writeStart(ResultSetMetaData metaData) throws PgqlException, IOException;
+
+  abstract void writeBatch(ColumnBatch batch) throws PgqlException, IOException;
+
+  abstract void writeEnd() throws PgqlException, IOException;
+
+  /**
+   * Make room for the given number of bytes, which is at most the capacity of the buffer.
+   */
+  final ByteBuffer ensure(int numBytes) throws IOException {
+    if (buffer.remaining() < numBytes) {
+      flush();
+    }
+    return buffer;
+  }
+
+  final void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  final void put(byte b) throws IOException {
+    ensure(1).put(b);
+  }
+
+  final void put(byte[] bytes) throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      int length = Math.min(bytes.length - offset, buffer.capacity());
+      ensure(length).put(bytes, offset, length);
+      offset += length;
+    }
+  }
+
+  /**
+   * Write the decimal representation of the integer, without creating a string.
+   */
+  final void putLong(long value) throws IOException {
+    ByteBuffer out = ensure(digits.length + 1);
+    if (value == Long.MIN_VALUE) {
+      // the only value of which the negation is not a long
+      out.put((byte) '-').put((byte) '9');
+      value = 223372036854775808L;
+    } else if (value < 0) {
+      out.put((byte) '-');
+      value = -value;
+    }
+    int index = digits.length;
+    do {
+      digits[--index] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    out.put(digits, index, digits.length - index);
+  }
+
+  /**
+   * Write the representation of the floating point number that {@link Double#toString(double)} gives, without creating
+   * a string.
+   */
+  final void putDouble(double value) throws IOException {
+    number.setLength(0);
+    putNumber(number.append(value));
+  }
+
+  /**
+   * Write the representation of the floating point number that {@link Float#toString(float)} gives, without creating
+   * a string.
+   */
+  final void putFloat(float value) throws IOException {
+    number.setLength(0);
+    putNumber(number.append(value));
+  }
+
+  private void putNumber(StringBuilder chars) throws IOException {
+    ByteBuffer out = ensure(chars.length());
+    for (int i = 0; i < chars.length(); i++) {
+      out.put((byte) chars.charAt(i));
+    }
+  }
+}
@@ -0,0 +1,700 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.ir;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.UMin;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDate;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTime;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimeWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestamp;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestampWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+
+/**
+ * Replaces the bind variables of a query by constants, such that backends that need a concrete query, for example to
+ * translate it into SQL, do not need to parse the query again with the values inlined.
+ *
+ * The query itself is not modified. Instead, the parts of the query that contain bind variables are copied, while the
+ * parts without bind variables are shared between the query and the concrete query. Vertices and edges are always
+ * shared, including the constraints that were pushed down to them (see
+ * {@link oracle.pgql.lang.optimizer.ConjunctAnalyzer}), so constraints should be pushed down after substitution.
+ *
+ * Example:
+ *
+ * <pre>
+ * GraphQuery query = BindVariableSubstitutor.substitute(pgqlResult.getGraphQuery(), Arrays.asList(30, "Alice"));
+ * </pre>
+ */
+public class BindVariableSubstitutor {
+
+  private final QueryExpression[] constants;
+
+  /**
+   * The copies of the expressions, variables and path expressions that contain bind variables, such that objects that
+   * appear more than once in the query also appear more than once in the concrete query. Objects without bind
+   * variables are their own substitutes and are not recorded.
+   */
+  private final Map<Object, Object> substitutes = new IdentityHashMap<>();
+
+  private BindVariableSubstitutor(QueryExpression[] constants) {
+    this.constants = constants;
+  }
+
+  /**
+   * @param query
+   *          a SELECT or MODIFY query
+   * @param bindValues
+   *          the values of the bind variables: the first value is for the bind variable with parameter index 0 (see
+   *          {@link BindVariable#getParameterIndex()}), etc. Values have the same types as the ones that can be set
+   *          through {@link oracle.pgql.lang.PreparedStatement}; a list is substituted by a list of values for an IN
+   *          predicate.
+   * @return the query with its bind variables replaced by constants, or the query itself if it has no bind variables
+   * @throws PgqlException
+   *           if a value is missing or null, or has an unsupported type
+   */
+  public static GraphQuery substitute(GraphQuery query, List<?> bindValues) throws PgqlException {
+    QueryExpression[] constants = new QueryExpression[bindValues.size()];
+    for (int i = 0; i < constants.length; i++) {
+      constants[i] = toConstant(bindValues.get(i));
+    }
+    return new BindVariableSubstitutor(constants).substituteQuery(query);
+  }
+
+  /**
+   * @param value
+   *          the value of a bind variable
+   * @return the constant for the value
+   * @throws PgqlException
+   *           if the value is null, since there is no NULL literal, or if the value has an unsupported type
+   */
+  public static QueryExpression toConstant(Object value) throws PgqlException {
+    if (value == null) {
+      throw new PgqlException("A bind value cannot be null");
+    } else if (value instanceof Boolean) {
+      return new ConstBoolean((Boolean) value);
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return new ConstInteger(((Number) value).longValue());
+    } else if (value instanceof Double || value instanceof Float) {
+      return new ConstDecimal(((Number) value).doubleValue());
+    } else if (value instanceof String) {
+      return new ConstString((String) value);
+    } else if (value instanceof LocalDate) {
+      return new ConstDate((LocalDate) value);
+    } else if (value instanceof LocalTime) {
+      return new ConstTime((LocalTime) value);
+    } else if (value instanceof LocalDateTime) {
+      return new ConstTimestamp((LocalDateTime) value);
+    } else if (value instanceof OffsetTime) {
+      return new ConstTimeWithTimezone((OffsetTime) value);
+    } else if (value instanceof OffsetDateTime) {
+      return new ConstTimestampWithTimezone((OffsetDateTime) value);
+    } else if (value instanceof List) {
+      return toInValueList((List<?>) value);
+    } else {
+      throw new PgqlException("Unsupported type of bind value: " + value.getClass().getName());
+    }
+  }
+
+  /**
+   * Converts a list into a list of values for an IN predicate. Like for the list literals in the query, integers and
+   * decimals are converted into decimals if they are mixed, and times and timestamps with time zone are converted into
+   * times and timestamps in UTC.
+   */
+  private static InValueList toInValueList(List<?> values) throws PgqlException {
+    if (values.isEmpty()) {
+      throw new PgqlException("A list of bind values cannot be empty");
+    }
+    Class<?> type = null;
+    for (Object value : values) {
+      if (value == null) {
+        throw new PgqlException("A list of bind values cannot contain null");
+      }
+      Class<?> valueType = getListElementType(value);
+      if (type == null || type == valueType) {
+        type = valueType;
+      } else if (Number.class.isAssignableFrom(type) && Number.class.isAssignableFrom(valueType)) {
+        type = Double.class;
+      } else {
+        throw new PgqlException("A list of bind values cannot contain both " + type.getSimpleName() + " and "
+            + valueType.getSimpleName() + " values");
+      }
+    }
+
+    int size = values.size();
+    if (type == Long.class) {
+      long[] integerValues = new long[size];
+      for (int i = 0; i < size; i++) {
+        integerValues[i] = ((Number) values.get(i)).longValue();
+      }
+      return new InValueList(integerValues);
+    } else if (type == Double.class) {
+      double[] decimalValues = new double[size];
+      for (int i = 0; i < size; i++) {
+        decimalValues[i] = ((Number) values.get(i)).doubleValue();
+      }
+      return new InValueList(decimalValues);
+    } else if (type == Boolean.class) {
+      boolean[] booleanValues = new boolean[size];
+      for (int i = 0; i < size; i++) {
+        booleanValues[i] = (Boolean) values.get(i);
+      }
+      return new InValueList(booleanValues);
+    } else if (type == String.class) {
+      return new InValueList(values.toArray(new String[size]));
+    } else if (type == LocalDate.class) {
+      return new InValueList(values.toArray(new LocalDate[size]));
+    } else if (type == LocalTime.class) {
+      LocalTime[] timeValues = new LocalTime[size];
+      for (int i = 0; i < size; i++) {
+        Object value = values.get(i);
+        timeValues[i] = value instanceof OffsetTime
+            ? ((OffsetTime) value).withOffsetSameInstant(ZoneOffset.UTC).toLocalTime()
+            : (LocalTime) value;
+      }
+      return new InValueList(timeValues);
+    } else {
+      LocalDateTime[] timestampValues = new LocalDateTime[size];
+      for (int i = 0; i < size; i++) {
+        Object value = values.get(i);
+        timestampValues[i] = value instanceof OffsetDateTime
+            ? ((OffsetDateTime) value).withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime()
+            : (LocalDateTime) value;
+      }
+      return new InValueList(timestampValues);
+    }
+  }
+
+  private static Class<?> getListElementType(Object value) throws PgqlException {
+    if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return Long.class;
+    } else if (value instanceof Double || value instanceof Float) {
+      return Double.class;
+    } else if (value instanceof Boolean || value instanceof String || value instanceof LocalDate) {
+      return value.getClass();
+    } else if (value instanceof LocalTime || value instanceof OffsetTime) {
+      return LocalTime.class;
+    } else if (value instanceof LocalDateTime || value instanceof OffsetDateTime) {
+      return LocalDateTime.class;
+    } else {
+      throw new PgqlException("Unsupported type of bind value in list: " + value.getClass().getName());
+    }
+  }
+
+  private GraphQuery substituteQuery(GraphQuery query) throws PgqlException {
+    List<CommonPathExpression> commonPathExpressions = query.getCommonPathExpressions();
+    List<CommonPathExpression> newCommonPathExpressions = commonPathExpressions;
+    if (commonPathExpressions != null) {
+      List<CommonPathExpression> substitutedCommonPathExpressions = new ArrayList<>(commonPathExpressions.size());
+      for (CommonPathExpression commonPathExpression : commonPathExpressions) {
+        substitutedCommonPathExpressions.add(substituteCommonPathExpression(commonPathExpression));
+      }
+      if (isChanged(commonPathExpressions, substitutedCommonPathExpressions)) {
+        newCommonPathExpressions = substitutedCommonPathExpressions;
+      }
+    }
+
+    GraphPattern graphPattern = substituteGraphPattern(query.getGraphPattern());
+
+    // GROUP BY before SELECT and SELECT before HAVING and ORDER BY, since expressions may reference the variables
+    GroupBy groupBy = query.getGroupBy();
+    if (groupBy != null) {
+      List<ExpAsVar> elements = substituteVariables(groupBy.getElements());
+      if (elements != groupBy.getElements()) {
+        groupBy = new GroupBy(elements);
+      }
+    }
+
+    boolean changed;
+    Projection projection = null;
+    List<Modification> modifications = null;
+    switch (query.getQueryType()) {
+      case SELECT:
+        projection = ((SelectQuery) query).getProjection();
+        if (projection != null) {
+          List<ExpAsVar> elements = substituteVariables(projection.getElements());
+          if (elements != projection.getElements()) {
+            projection = new Projection(projection.isDistinct(), elements);
+          }
+        }
+        changed = projection != ((SelectQuery) query).getProjection();
+        break;
+      case MODIFY:
+        modifications = substituteModifications(((ModifyQuery) query).getModifications());
+        changed = modifications != ((ModifyQuery) query).getModifications();
+        break;
+      default:
+        throw new IllegalArgumentException(query.getQueryType().toString());
+    }
+
+    QueryExpression having = substituteExpression(query.getHaving());
+    OrderBy orderBy = substituteOrderBy(query.getOrderBy());
+    QueryExpression limit = substituteExpression(query.getLimit());
+    QueryExpression offset = substituteExpression(query.getOffset());
+
+    changed |= newCommonPathExpressions != commonPathExpressions || graphPattern != query.getGraphPattern()
+        || groupBy != query.getGroupBy() || having != query.getHaving() || orderBy != query.getOrderBy()
+        || limit != query.getLimit() || offset != query.getOffset();
+    if (!changed) {
+      return query;
+    }
+
+    if (query.getQueryType() == QueryType.SELECT) {
+      return new SelectQuery(newCommonPathExpressions, projection, query.getGraphName(), graphPattern, groupBy, having,
+          orderBy, limit, offset);
+    } else {
+      return new ModifyQuery(newCommonPathExpressions, modifications, query.getGraphName(), graphPattern, groupBy,
+          having, orderBy, limit, offset);
+    }
+  }
+
+  private CommonPathExpression substituteCommonPathExpression(CommonPathExpression commonPathExpression)
+      throws PgqlException {
+    if (commonPathExpression == null) {
+      return null;
+    }
+    CommonPathExpression substitute = (CommonPathExpression) substitutes.get(commonPathExpression);
+    if (substitute != null) {
+      return substitute;
+    }
+
+    Set<QueryExpression> constraints = substituteExpressions(commonPathExpression.getConstraints());
+    QueryExpression cost = substituteExpression(commonPathExpression.getCost());
+    if (constraints == commonPathExpression.getConstraints() && cost == commonPathExpression.getCost()) {
+      return commonPathExpression;
+    }
+    substitute = new CommonPathExpression(commonPathExpression.getName(), commonPathExpression.getVertices(),
+        commonPathExpression.getConnections(), constraints, cost);
+    substitutes.put(commonPathExpression, substitute);
+    return substitute;
+  }
+
+  private GraphPattern substituteGraphPattern(GraphPattern graphPattern) throws PgqlException {
+    if (graphPattern == null) {
+      return null;
+    }
+    List<VertexPairConnection> connections = new ArrayList<>(graphPattern.getConnections().size());
+    for (VertexPairConnection connection : graphPattern.getConnections()) {
+      connections.add(substituteVariable(connection));
+    }
+    boolean connectionsChanged = isChanged(graphPattern.getConnections(), connections);
+    Set<QueryExpression> constraints = substituteExpressions(graphPattern.getConstraints());
+    if (!connectionsChanged && constraints == graphPattern.getConstraints()) {
+      return graphPattern;
+    }
+    GraphPattern substitute = new GraphPattern(graphPattern.getVertices(), null, null);
+    substitute.setConnections(connectionsChanged ? new LinkedHashSet<>(connections) : graphPattern.getConnections());
+    substitute.setConstraints(constraints);
+    return substitute;
+  }
+
+  private OrderBy substituteOrderBy(OrderBy orderBy) throws PgqlException {
+    if (orderBy == null || orderBy.getElements() == null) {
+      return orderBy;
+    }
+    List<OrderByElem> elements = new ArrayList<>(orderBy.getElements().size());
+    boolean changed = false;
+    for (OrderByElem element : orderBy.getElements()) {
+      QueryExpression exp = substituteExpression(element.getExp());
+      if (exp == element.getExp()) {
+        elements.add(element);
+      } else {
+        elements.add(new OrderByElem(exp, element.isAscending()));
+        changed = true;
+      }
+    }
+    return changed ? new OrderBy(elements) : orderBy;
+  }
+
+  private List<Modification> substituteModifications(List<Modification> modifications) throws PgqlException {
+    if (modifications == null) {
+      return null;
+    }
+    List<Modification> substitutedModifications = new ArrayList<>(modifications.size());
+    for (Modification modification : modifications) {
+      substitutedModifications.add(substituteModification(modification));
+    }
+    return isChanged(modifications, substitutedModifications) ? substitutedModifications : modifications;
+  }
+
+  private Modification substituteModification(Modification modification) throws PgqlException {
+    switch (modification.getModificationType()) {
+      case INSERT: {
+        InsertClause insertClause = (InsertClause) modification;
+        List<Insertion> insertions = new ArrayList<>(insertClause.getInsertions().size());
+        for (Insertion insertion : insertClause.getInsertions()) {
+          insertions.add(substituteInsertion(insertion));
+        }
+        return isChanged(insertClause.getInsertions(), insertions)
+            ? new InsertClause(insertClause.getGraphName(), insertions)
+            : modification;
+      }
+      case UPDATE: {
+        UpdateClause updateClause = (UpdateClause) modification;
+        List<Update> updates = new ArrayList<>(updateClause.getUpdates().size());
+        for (Update update : updateClause.getUpdates()) {
+          List<SetPropertyExpression> setPropertyExpressions = substituteSetPropertyExpressions(
+              update.getSetPropertyExpressions());
+          updates.add(setPropertyExpressions == update.getSetPropertyExpressions() //
+              ? update
+              : new Update(update.getElement(), setPropertyExpressions));
+        }
+        return isChanged(updateClause.getUpdates(), updates) ? new UpdateClause(updates) : modification;
+      }
+      case DELETE:
+        // only references to vertices and edges
+        return modification;
+      default:
+        throw new IllegalArgumentException(modification.getModificationType().toString());
+    }
+  }
+
+  private Insertion substituteInsertion(Insertion insertion) throws PgqlException {
+    AbstractInsertion abstractInsertion = (AbstractInsertion) insertion;
+    List<QueryExpression> labels = substituteExpressions(abstractInsertion.getLabels());
+    List<SetPropertyExpression> properties = substituteSetPropertyExpressions(abstractInsertion.getProperties());
+    if (labels == abstractInsertion.getLabels() && properties == abstractInsertion.getProperties()) {
+      return insertion;
+    }
+    switch (insertion.getInsertionType()) {
+      case VERTEX_INSERTION:
+        return new VertexInsertion(((VertexInsertion) insertion).getVertex(), labels, properties);
+      case EDGE_INSERTION:
+        return new EdgeInsertion(((EdgeInsertion) insertion).getEdge(), labels, properties);
+      default:
+        throw new IllegalArgumentException(insertion.getInsertionType().toString());
+    }
+  }
+
+  private List<SetPropertyExpression> substituteSetPropertyExpressions(
+      List<SetPropertyExpression> setPropertyExpressions) throws PgqlException {
+    if (setPropertyExpressions == null) {
+      return null;
+    }
+    List<SetPropertyExpression> substitutedSetPropertyExpressions = new ArrayList<>(setPropertyExpressions.size());
+    boolean changed = false;
+    for (SetPropertyExpression setPropertyExpression : setPropertyExpressions) {
+      QueryExpression valueExpression = substituteExpression(setPropertyExpression.getValueExpression());
+      if (valueExpression == setPropertyExpression.getValueExpression()) {
+        substitutedSetPropertyExpressions.add(setPropertyExpression);
+      } else {
+        substitutedSetPropertyExpressions
+            .add(new SetPropertyExpression(setPropertyExpression.getPropertyAccess(), valueExpression));
+        changed = true;
+      }
+    }
+    return changed ? substitutedSetPropertyExpressions : setPropertyExpressions;
+  }
+
+  private <T extends QueryVariable> List<T> substituteVariables(List<T> variables) throws PgqlException {
+    if (variables == null) {
+      return null;
+    }
+    List<T> substitutedVariables = new ArrayList<>(variables.size());
+    for (T variable : variables) {
+      substitutedVariables.add(substituteVariable(variable));
+    }
+    return isChanged(variables, substitutedVariables) ? substitutedVariables : variables;
+  }
+
+  /**
+   * Only expressions as variables and paths, through their path expressions, can contain bind variables.
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends QueryVariable> T substituteVariable(T variable) throws PgqlException {
+    if (variable == null || variable.getVariableType() == VariableType.VERTEX
+        || variable.getVariableType() == VariableType.EDGE) {
+      return variable;
+    }
+    QueryVariable substitute = (QueryVariable) substitutes.get(variable);
+    if (substitute != null) {
+      return (T) substitute;
+    }
+
+    substitute = variable;
+    if (variable.getVariableType() == VariableType.EXP_AS_VAR) {
+      ExpAsVar expAsVar = (ExpAsVar) variable;
+      QueryExpression exp = substituteExpression(expAsVar.getExp());
+      if (exp != expAsVar.getExp()) {
+        substitute = new ExpAsVar(exp, expAsVar.getName(), expAsVar.isAnonymous(), expAsVar.getNameOriginText());
+      }
+    } else if (variable.getVariableType() == VariableType.PATH) {
+      QueryPath path = (QueryPath) variable;
+      CommonPathExpression commonPathExpression = substituteCommonPathExpression(path.getCommonPathExpression());
+      if (commonPathExpression != path.getCommonPathExpression()) {
+        substitute = new QueryPath(path.getSrc(), path.getDst(), path.getName(), commonPathExpression,
+            path.isAnonymous(), path.getMinHops(), path.getMaxHops(), path.getPathFindingGoal(), path.getKValue(),
+            path.getWithTies(), path.getDirection(), path.getRowsPerMatch());
+      }
+    }
+    if (substitute != variable) {
+      substitutes.put(variable, substitute);
+    }
+    return (T) substitute;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <C extends Collection<QueryExpression>> C substituteExpressions(C exps) throws PgqlException {
+    if (exps == null) {
+      return null;
+    }
+    List<QueryExpression> substitutedExps = new ArrayList<>(exps.size());
+    for (QueryExpression exp : exps) {
+      substitutedExps.add(substituteExpression(exp));
+    }
+    if (!isChanged(exps, substitutedExps)) {
+      return exps;
+    }
+    return exps instanceof Set ? (C) new LinkedHashSet<>(substitutedExps) : (C) substitutedExps;
+  }
+
+  private QueryExpression substituteExpression(QueryExpression exp) throws PgqlException {
+    if (exp == null) {
+      return null;
+    }
+    if (substitutes.containsKey(exp)) {
+      return (QueryExpression) substitutes.get(exp);
+    }
+    QueryExpression substitute = substituteChildren(exp);
+    if (substitute != exp) {
+      substitutes.put(exp, substitute);
+    }
+    return substitute;
+  }
+
+  private QueryExpression substituteChildren(QueryExpression exp) throws PgqlException {
+    switch (exp.getExpType()) {
+      case BIND_VARIABLE: {
+        int parameterIndex = ((BindVariable) exp).getParameterIndex();
+        if (parameterIndex >= constants.length) {
+          throw new PgqlException("No value for bind variable " + (parameterIndex + 1) + "; only " + constants.length
+              + " values were provided");
+        }
+        return constants[parameterIndex];
+      }
+      case SUB:
+      case ADD:
+      case MUL:
+      case DIV:
+      case MOD:
+      case AND:
+      case OR:
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+      case CONCAT: {
+        BinaryExpression binaryExpression = (BinaryExpression) exp;
+        QueryExpression exp1 = substituteExpression(binaryExpression.getExp1());
+        QueryExpression exp2 = substituteExpression(binaryExpression.getExp2());
+        if (exp1 == binaryExpression.getExp1() && exp2 == binaryExpression.getExp2()) {
+          return exp;
+        }
+        return QueryExpressions.createBinaryExpression(binaryExpression, exp1, exp2);
+      }
+      case UMIN:
+      case NOT: {
+        QueryExpression operand = substituteExpression(((UnaryExpression) exp).getExp());
+        if (operand == ((UnaryExpression) exp).getExp()) {
+          return exp;
+        }
+        return exp.getExpType() == QueryExpression.ExpressionType.UMIN ? new UMin(operand) : new Not(operand);
+      }
+      case AGGR_COUNT:
+      case AGGR_MIN:
+      case AGGR_MAX:
+      case AGGR_SUM:
+      case AGGR_AVG:
+      case AGGR_ARRAY_AGG:
+      case AGGR_LISTAGG: {
+        AbstractAggregation aggregation = (AbstractAggregation) exp;
+        QueryExpression operand = substituteExpression(aggregation.getExp());
+        if (operand == aggregation.getExp()) {
+          return exp;
+        }
+        return QueryExpressions.createAggregation(aggregation, operand);
+      }
+      case VARREF: {
+        QueryVariable variable = substituteVariable(((VarRef) exp).getVariable());
+        return variable == ((VarRef) exp).getVariable() ? exp : new VarRef(variable);
+      }
+      case PROP_ACCESS: {
+        PropertyAccess propertyAccess = (PropertyAccess) exp;
+        QueryVariable variable = substituteVariable(propertyAccess.getVariable());
+        return variable == propertyAccess.getVariable() ? exp
+            : new PropertyAccess(variable, propertyAccess.getPropertyName());
+      }
+      case SCALAR_SUBQUERY:
+      case EXISTS: {
+        SelectQuery query = ((Subquery) exp).getQuery();
+        SelectQuery substitutedQuery = (SelectQuery) substituteQuery(query);
+        if (substitutedQuery == query) {
+          return exp;
+        }
+        return exp.getExpType() == QueryExpression.ExpressionType.EXISTS ? new Exists(substitutedQuery)
+            : new ScalarSubquery(substitutedQuery);
+      }
+      case CAST: {
+        Cast cast = (Cast) exp;
+        QueryExpression operand = substituteExpression(cast.getExp());
+        return operand == cast.getExp() ? exp : new Cast(operand, cast.getTargetTypeName());
+      }
+      case FUNCTION_CALL: {
+        FunctionCall functionCall = (FunctionCall) exp;
+        List<QueryExpression> args = substituteExpressions(functionCall.getArgs());
+        return args == functionCall.getArgs() ? exp
+            : new FunctionCall(functionCall.getSchemaName(), functionCall.getPackageName(),
+                functionCall.getFunctionName(), args);
+      }
+      case EXTRACT_EXPRESSION: {
+        ExtractExpression extractExpression = (ExtractExpression) exp;
+        QueryExpression operand = substituteExpression(extractExpression.getExp());
+        return operand == extractExpression.getExp() ? exp
+            : new ExtractExpression(extractExpression.getField(), operand);
+      }
+      case IN_EXPRESSION: {
+        InPredicate inPredicate = (InPredicate) exp;
+        QueryExpression operand = substituteExpression(inPredicate.getExp());
+        QueryExpression inValueList = substituteExpression(inPredicate.getInValueList());
+        if (operand == inPredicate.getExp() && inValueList == inPredicate.getInValueList()) {
+          return exp;
+        }
+        return new InPredicate(operand, inValueList);
+      }
+      case IS_NULL: {
+        QueryExpression operand = substituteExpression(((IsNull) exp).getExp());
+        return operand == ((IsNull) exp).getExp() ? exp : new IsNull(operand);
+      }
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) exp;
+        QueryExpression exp1 = substituteExpression(ifElse.getExp1());
+        QueryExpression exp2 = substituteExpression(ifElse.getExp2());
+        QueryExpression exp3 = substituteExpression(ifElse.getExp3());
+        if (exp1 == ifElse.getExp1() && exp2 == ifElse.getExp2() && exp3 == ifElse.getExp3()) {
+          return exp;
+        }
+        return new IfElse(exp1, exp2, exp3);
+      }
+      case SIMPLE_CASE:
+        return substituteSimpleCase((SimpleCase) exp);
+      case SUBSTRING: {
+        SubstringExpression substringExpression = (SubstringExpression) exp;
+        QueryExpression operand = substituteExpression(substringExpression.getExp());
+        QueryExpression startPosition = substituteExpression(substringExpression.getStartPosition());
+        QueryExpression stringLength = substituteExpression(substringExpression.getStringLength());
+        if (operand == substringExpression.getExp() && startPosition == substringExpression.getStartPosition()
+            && stringLength == substringExpression.getStringLength()) {
+          return exp;
+        }
+        return new SubstringExpression(operand, startPosition, stringLength);
+      }
+      case BETWEEN_PREDICATE: {
+        BetweenPredicate betweenPredicate = (BetweenPredicate) exp;
+        QueryExpression exp1 = substituteExpression(betweenPredicate.getExp1());
+        QueryExpression exp2 = substituteExpression(betweenPredicate.getExp2());
+        QueryExpression exp3 = substituteExpression(betweenPredicate.getExp3());
+        if (exp1 == betweenPredicate.getExp1() && exp2 == betweenPredicate.getExp2()
+            && exp3 == betweenPredicate.getExp3()) {
+          return exp;
+        }
+        return new BetweenPredicate(exp1, exp2, exp3);
+      }
+      default:
+        // constants, lists of values and *
+        return exp;
+    }
+  }
+
+  private QueryExpression substituteSimpleCase(SimpleCase simpleCase) throws PgqlException {
+    QueryExpression caseOperand = substituteExpression(simpleCase.getCaseOperand());
+    boolean changed = caseOperand != simpleCase.getCaseOperand();
+    List<WhenThenExpression> whenThenExps = simpleCase.getWhenThenExps();
+    if (whenThenExps != null) {
+      List<WhenThenExpression> substitutedWhenThenExps = new ArrayList<>(whenThenExps.size());
+      boolean whenThenExpsChanged = false;
+      for (WhenThenExpression whenThenExp : whenThenExps) {
+        QueryExpression when = substituteExpression(whenThenExp.getWhen());
+        QueryExpression then = substituteExpression(whenThenExp.getThen());
+        if (when == whenThenExp.getWhen() && then == whenThenExp.getThen()) {
+          substitutedWhenThenExps.add(whenThenExp);
+        } else {
+          substitutedWhenThenExps.add(new WhenThenExpression(when, then));
+          whenThenExpsChanged = true;
+        }
+      }
+      if (whenThenExpsChanged) {
+        whenThenExps = substitutedWhenThenExps;
+        changed = true;
+      }
+    }
+    QueryExpression elseExp = substituteExpression(simpleCase.getElseExp());
+    QueryExpression ifElseRepresentation = substituteExpression(simpleCase.getIfElseRepresentation());
+    if (!changed && elseExp == simpleCase.getElseExp()
+        && ifElseRepresentation == simpleCase.getIfElseRepresentation()) {
+      return simpleCase;
+    }
+    return new SimpleCase(caseOperand, whenThenExps, elseExp, (IfElse) ifElseRepresentation);
+  }
+
+  private static boolean isChanged(Collection<?> original, List<?> substitutes) {
+    int i = 0;
+    for (Object element : original) {
+      if (element != substitutes.get(i++)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
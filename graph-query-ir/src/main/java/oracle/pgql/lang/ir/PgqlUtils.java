@@ -36,6 +36,7 @@ import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrSum;
 import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
 import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
 import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.And;
 import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
 import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
 import oracle.pgql.lang.ir.QueryVariable.VariableType;
@@ -164,6 +165,45 @@ public class PgqlUtils {
     return result;
   }
 
+  /**
+   * @param exp
+   *          a query expression
+   * @return the conjuncts of the expression, i.e. the operands of the (nested) AND expressions, in the order in which
+   *         they appear in the expression; or a singleton list with the expression itself if it is not an AND
+   */
+  public static List<QueryExpression> getConjuncts(QueryExpression exp) {
+    List<QueryExpression> result = new ArrayList<>();
+    addConjuncts(exp, result);
+    return result;
+  }
+
+  private static void addConjuncts(QueryExpression exp, List<QueryExpression> result) {
+    if (exp.getExpType() == ExpressionType.AND) {
+      And and = (And) exp;
+      addConjuncts(and.getExp1(), result);
+      addConjuncts(and.getExp2(), result);
+    } else {
+      result.add(exp);
+    }
+  }
+
+  /**
+   * @param conjuncts
+   *          a non-empty list of expressions
+   * @return a left-deep AND expression of the given conjuncts, or the conjunct itself if there is only one
+   */
+  public static QueryExpression createConjunction(List<QueryExpression> conjuncts) {
+    if (conjuncts.isEmpty()) {
+      throw new IllegalArgumentException("at least one conjunct expected");
+    }
+    Iterator<QueryExpression> it = conjuncts.iterator();
+    QueryExpression result = it.next();
+    while (it.hasNext()) {
+      result = new And(result, it.next());
+    }
+    return result;
+  }
+
   public static String printConnectionWithSrcAndDst(VertexPairConnection connection) {
     return connection.getSrc() + " " + connection + " " + connection.getDst();
   }
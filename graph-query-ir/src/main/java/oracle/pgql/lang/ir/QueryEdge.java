@@ -5,12 +5,30 @@ package oracle.pgql.lang.ir;
 
 import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class QueryEdge extends VertexPairConnection {
 
+  private Set<QueryExpression> constraints = new LinkedHashSet<>();
+
   public QueryEdge(QueryVertex src, QueryVertex dst, String name, boolean anonymous, Direction direction) {
     super(src, dst, name, anonymous, direction);
   }
 
+  /**
+   * @return the constraints that reference no other variable than this edge and that can therefore be evaluated
+   *         when the edge is scanned; these constraints are also part of {@link GraphPattern#getConstraints()} and
+   *         are populated by {@link oracle.pgql.lang.optimizer.ConjunctAnalyzer}
+   */
+  public Set<QueryExpression> getConstraints() {
+    return constraints;
+  }
+
+  public void setConstraints(Set<QueryExpression> constraints) {
+    this.constraints = constraints;
+  }
+
   @Override
   public VariableType getVariableType() {
     return VariableType.EDGE;
@@ -1394,6 +1394,30 @@ public interface QueryExpression {
         this.arrayElementType = arrayElementType;
       }
 
+      /**
+       * @return the number of values in the list
+       */
+      public int getSize() {
+        switch (arrayElementType) {
+          case INTEGER:
+            return integerValues.length;
+          case DECIMAL:
+            return decimalValues.length;
+          case BOOLEAN:
+            return booleanValues.length;
+          case STRING:
+            return stringValues.length;
+          case DATE:
+            return dateValues.length;
+          case TIME:
+            return timeValues.length;
+          case TIMESTAMP:
+            return timestampValues.length;
+          default:
+            throw new IllegalArgumentException(arrayElementType.toString());
+        }
+      }
+
       public long[] getIntegerValues() {
         return integerValues;
       }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.ir;
+
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrArrayAgg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrAvg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrCount;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMax;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMin;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrSum;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Add;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Div;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mod;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mul;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Sub;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ConcatExpression;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.And;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.GreaterEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Less;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.LessEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.NotEqual;
+
+/**
+ * Factories for expressions, for visitors that rebuild expressions with new operands, such as the
+ * {@link BindVariableSubstitutor} and the {@link StatementCopier}.
+ */
+final class QueryExpressions {
+
+  private QueryExpressions() {
+  }
+
+  /**
+   * @return a binary expression of the same type as the given one, with the given operands
+   */
+  static QueryExpression createBinaryExpression(BinaryExpression exp, QueryExpression exp1, QueryExpression exp2) {
+    switch (exp.getExpType()) {
+      case SUB:
+        return new Sub(exp1, exp2);
+      case ADD:
+        return new Add(exp1, exp2);
+      case MUL:
+        return new Mul(exp1, exp2);
+      case DIV:
+        return new Div(exp1, exp2);
+      case MOD:
+        return new Mod(exp1, exp2);
+      case AND:
+        return new And(exp1, exp2);
+      case OR:
+        return new Or(exp1, exp2);
+      case EQUAL:
+        return new Equal(exp1, exp2);
+      case NOT_EQUAL:
+        return new NotEqual(exp1, exp2);
+      case GREATER:
+        return new Greater(exp1, exp2);
+      case GREATER_EQUAL:
+        return new GreaterEqual(exp1, exp2);
+      case LESS:
+        return new Less(exp1, exp2);
+      case LESS_EQUAL:
+        return new LessEqual(exp1, exp2);
+      case CONCAT:
+        return new ConcatExpression(exp1, exp2);
+      default:
+        throw new IllegalArgumentException(exp.getExpType().toString());
+    }
+  }
+
+  /**
+   * @return an aggregation of the same type as the given one, including whether it is DISTINCT and the separator of a
+   *         LISTAGG, with the given operand
+   */
+  static QueryExpression createAggregation(AbstractAggregation aggregation, QueryExpression exp) {
+    boolean distinct = aggregation.isDistinct();
+    switch (aggregation.getExpType()) {
+      case AGGR_COUNT:
+        return new AggrCount(distinct, exp);
+      case AGGR_MIN:
+        return new AggrMin(distinct, exp);
+      case AGGR_MAX:
+        return new AggrMax(distinct, exp);
+      case AGGR_SUM:
+        return new AggrSum(distinct, exp);
+      case AGGR_AVG:
+        return new AggrAvg(distinct, exp);
+      case AGGR_ARRAY_AGG:
+        return new AggrArrayAgg(distinct, exp);
+      case AGGR_LISTAGG:
+        return new AggrListagg(distinct, exp, ((AggrListagg) aggregation).getSeparator());
+      default:
+        throw new IllegalArgumentException(aggregation.getExpType().toString());
+    }
+  }
+}
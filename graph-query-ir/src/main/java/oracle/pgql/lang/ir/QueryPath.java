@@ -51,6 +51,14 @@ public class QueryPath extends VertexPairConnection {
         new OneRowPerMatch());
   }
 
+  public CommonPathExpression getCommonPathExpression() {
+    return commonPathExpression;
+  }
+
+  public void setCommonPathExpression(CommonPathExpression commonPathExpression) {
+    this.commonPathExpression = commonPathExpression;
+  }
+
   public String getPathExpressionName() {
     return commonPathExpression.getName();
   }
@@ -5,12 +5,30 @@ package oracle.pgql.lang.ir;
 
 import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class QueryVertex extends QueryVariable {
 
+  private Set<QueryExpression> constraints = new LinkedHashSet<>();
+
   public QueryVertex(String name, boolean anonymous) {
     super(name, anonymous);
   }
 
+  /**
+   * @return the constraints that reference no other variable than this vertex and that can therefore be evaluated
+   *         when the vertex is scanned; these constraints are also part of {@link GraphPattern#getConstraints()} and
+   *         are populated by {@link oracle.pgql.lang.optimizer.ConjunctAnalyzer}
+   */
+  public Set<QueryExpression> getConstraints() {
+    return constraints;
+  }
+
+  public void setConstraints(Set<QueryExpression> constraints) {
+    this.constraints = constraints;
+  }
+
   @Override
   public VariableType getVariableType() {
     return VariableType.VERTEX;
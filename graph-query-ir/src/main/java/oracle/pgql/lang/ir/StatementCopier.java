@@ -0,0 +1,638 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.ir;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import oracle.pgql.lang.ddl.propertygraph.CreateExternalSchema;
+import oracle.pgql.lang.ddl.propertygraph.CreatePropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.DropExternalSchema;
+import oracle.pgql.lang.ddl.propertygraph.DropPropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.EdgeTable;
+import oracle.pgql.lang.ddl.propertygraph.Key;
+import oracle.pgql.lang.ddl.propertygraph.Label;
+import oracle.pgql.lang.ddl.propertygraph.Property;
+import oracle.pgql.lang.ddl.propertygraph.VertexTable;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.UMin;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDate;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTime;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimeWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestamp;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestampWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.Star;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerMatch;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+
+/**
+ * Creates deep copies of statements, such that a statement that is cached, for example per query string, can be
+ * handed out to multiple threads that each modify their own copy, without parsing the query again.
+ *
+ * The copy is equal to the original but shares no mutable objects with it. Objects that appear more than once in the
+ * original, such as a vertex that is referenced from an expression, an expression that is both a constraint of the
+ * graph pattern and of a vertex, or a vertex table that is the source of an edge table, also appear more than once in
+ * the copy. Strings, enums and date/time values are immutable and are shared.
+ *
+ * Example:
+ *
+ * <pre>
+ * SelectQuery query = StatementCopier.copy((SelectQuery) cachedResult.getPgqlStatement());
+ * </pre>
+ */
+public class StatementCopier {
+
+  /**
+   * The copies of the objects that were copied so far, such that objects that appear more than once in the statement
+   * are copied only once.
+   */
+  private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+  private StatementCopier() {
+  }
+
+  /**
+   * @param statement
+   *          the statement to copy
+   * @return a deep copy of the statement, or null if the statement is null
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends PgqlStatement> T copy(T statement) {
+    if (statement == null) {
+      return null;
+    }
+    return (T) new StatementCopier().copyStatement(statement);
+  }
+
+  private PgqlStatement copyStatement(PgqlStatement statement) {
+    switch (statement.getStatementType()) {
+      case SELECT:
+      case GRAPH_MODIFY:
+        return copyQuery((GraphQuery) statement);
+      case CREATE_PROPERTY_GRAPH: {
+        CreatePropertyGraph createPropertyGraph = (CreatePropertyGraph) statement;
+        List<VertexTable> vertexTables = null;
+        if (createPropertyGraph.getVertexTables() != null) {
+          vertexTables = new ArrayList<>(createPropertyGraph.getVertexTables().size());
+          for (VertexTable vertexTable : createPropertyGraph.getVertexTables()) {
+            vertexTables.add(copyVertexTable(vertexTable));
+          }
+        }
+        List<EdgeTable> edgeTables = null;
+        if (createPropertyGraph.getEdgeTables() != null) {
+          edgeTables = new ArrayList<>(createPropertyGraph.getEdgeTables().size());
+          for (EdgeTable edgeTable : createPropertyGraph.getEdgeTables()) {
+            edgeTables.add(copyEdgeTable(edgeTable));
+          }
+        }
+        CreatePropertyGraph copy = new CreatePropertyGraph(
+            copySchemaQualifiedName(createPropertyGraph.getGraphName()), vertexTables, edgeTables);
+        copy.setOptions(copyStrings(createPropertyGraph.getOptions()));
+        return copy;
+      }
+      case DROP_PROPERTY_GRAPH:
+        return new DropPropertyGraph(copySchemaQualifiedName(((DropPropertyGraph) statement).getGraphName()));
+      case CREATE_EXTERNAL_SCHEMA: {
+        CreateExternalSchema createExternalSchema = (CreateExternalSchema) statement;
+        CreateExternalSchema copy = new CreateExternalSchema(createExternalSchema.getLocalSchemaName(),
+            createExternalSchema.getUrl(), createExternalSchema.getUserName(), createExternalSchema.getKeystoreAlias(),
+            createExternalSchema.getRemoteSchemaName());
+        copy.setDataSourceName(createExternalSchema.getDataSourceName());
+        return copy;
+      }
+      case DROP_EXTERNAL_SCHEMA:
+        return new DropExternalSchema(((DropExternalSchema) statement).getSchemaName());
+      default:
+        throw new IllegalArgumentException(statement.getStatementType().toString());
+    }
+  }
+
+  private GraphQuery copyQuery(GraphQuery query) {
+    List<CommonPathExpression> commonPathExpressions = null;
+    if (query.getCommonPathExpressions() != null) {
+      commonPathExpressions = new ArrayList<>(query.getCommonPathExpressions().size());
+      for (CommonPathExpression commonPathExpression : query.getCommonPathExpressions()) {
+        commonPathExpressions.add(copyCommonPathExpression(commonPathExpression));
+      }
+    }
+
+    GraphPattern graphPattern = null;
+    if (query.getGraphPattern() != null) {
+      GraphPattern original = query.getGraphPattern();
+      graphPattern = new GraphPattern(null, null, null);
+      graphPattern.setVertices(copyVariableSet(original.getVertices()));
+      graphPattern.setConnections(copyVariableSet(original.getConnections()));
+      graphPattern.setConstraints(copyExpressionSet(original.getConstraints()));
+    }
+
+    // GROUP BY before SELECT and SELECT before HAVING and ORDER BY, since expressions may reference the variables
+    GroupBy groupBy = query.getGroupBy() == null ? null : new GroupBy(copyVariables(query.getGroupBy().getElements()));
+
+    Projection projection = null;
+    List<Modification> modifications = null;
+    switch (query.getQueryType()) {
+      case SELECT: {
+        Projection original = ((SelectQuery) query).getProjection();
+        if (original != null) {
+          projection = new Projection(original.isDistinct(), copyVariables(original.getElements()));
+        }
+        break;
+      }
+      case MODIFY:
+        modifications = copyModifications(((ModifyQuery) query).getModifications());
+        break;
+      default:
+        throw new IllegalArgumentException(query.getQueryType().toString());
+    }
+
+    QueryExpression having = copyExpression(query.getHaving());
+    OrderBy orderBy = null;
+    if (query.getOrderBy() != null) {
+      List<OrderByElem> elements = null;
+      if (query.getOrderBy().getElements() != null) {
+        elements = new ArrayList<>(query.getOrderBy().getElements().size());
+        for (OrderByElem element : query.getOrderBy().getElements()) {
+          elements.add(new OrderByElem(copyExpression(element.getExp()), element.isAscending()));
+        }
+      }
+      orderBy = new OrderBy(elements);
+    }
+    QueryExpression limit = copyExpression(query.getLimit());
+    QueryExpression offset = copyExpression(query.getOffset());
+
+    SchemaQualifiedName graphName = copySchemaQualifiedName(query.getGraphName());
+    if (query.getQueryType() == QueryType.SELECT) {
+      return new SelectQuery(commonPathExpressions, projection, graphName, graphPattern, groupBy, having, orderBy,
+          limit, offset);
+    } else {
+      return new ModifyQuery(commonPathExpressions, modifications, graphName, graphPattern, groupBy, having, orderBy,
+          limit, offset);
+    }
+  }
+
+  private CommonPathExpression copyCommonPathExpression(CommonPathExpression commonPathExpression) {
+    if (commonPathExpression == null) {
+      return null;
+    }
+    CommonPathExpression copy = (CommonPathExpression) copies.get(commonPathExpression);
+    if (copy != null) {
+      return copy;
+    }
+    List<QueryVertex> vertices = copyVariables(commonPathExpression.getVertices());
+    List<VertexPairConnection> connections = copyVariables(commonPathExpression.getConnections());
+    Set<QueryExpression> constraints = copyExpressionSet(commonPathExpression.getConstraints());
+    copy = new CommonPathExpression(commonPathExpression.getName(), vertices, connections, constraints,
+        copyExpression(commonPathExpression.getCost()));
+    copies.put(commonPathExpression, copy);
+    return copy;
+  }
+
+  private List<Modification> copyModifications(List<Modification> modifications) {
+    if (modifications == null) {
+      return null;
+    }
+    List<Modification> copy = new ArrayList<>(modifications.size());
+    for (Modification modification : modifications) {
+      switch (modification.getModificationType()) {
+        case INSERT: {
+          InsertClause insertClause = (InsertClause) modification;
+          List<Insertion> insertions = null;
+          if (insertClause.getInsertions() != null) {
+            insertions = new ArrayList<>(insertClause.getInsertions().size());
+            for (Insertion insertion : insertClause.getInsertions()) {
+              insertions.add(copyInsertion(insertion));
+            }
+          }
+          copy.add(new InsertClause(copySchemaQualifiedName(insertClause.getGraphName()), insertions));
+          break;
+        }
+        case UPDATE: {
+          UpdateClause updateClause = (UpdateClause) modification;
+          List<Update> updates = null;
+          if (updateClause.getUpdates() != null) {
+            updates = new ArrayList<>(updateClause.getUpdates().size());
+            for (Update update : updateClause.getUpdates()) {
+              updates.add(new Update(copyExpression(update.getElement()),
+                  copySetPropertyExpressions(update.getSetPropertyExpressions())));
+            }
+          }
+          copy.add(new UpdateClause(updates));
+          break;
+        }
+        case DELETE:
+          copy.add(new DeleteClause(copyExpressions(((DeleteClause) modification).getDeletions())));
+          break;
+        default:
+          throw new IllegalArgumentException(modification.getModificationType().toString());
+      }
+    }
+    return copy;
+  }
+
+  private Insertion copyInsertion(Insertion insertion) {
+    switch (insertion.getInsertionType()) {
+      case VERTEX_INSERTION: {
+        VertexInsertion vertexInsertion = (VertexInsertion) insertion;
+        QueryVertex vertex = copyVariable(vertexInsertion.getVertex());
+        return new VertexInsertion(vertex, copyExpressions(vertexInsertion.getLabels()),
+            copySetPropertyExpressions(vertexInsertion.getProperties()));
+      }
+      case EDGE_INSERTION: {
+        EdgeInsertion edgeInsertion = (EdgeInsertion) insertion;
+        QueryEdge edge = copyVariable(edgeInsertion.getEdge());
+        return new EdgeInsertion(edge, copyExpressions(edgeInsertion.getLabels()),
+            copySetPropertyExpressions(edgeInsertion.getProperties()));
+      }
+      default:
+        throw new IllegalArgumentException(insertion.getInsertionType().toString());
+    }
+  }
+
+  private List<SetPropertyExpression> copySetPropertyExpressions(List<SetPropertyExpression> setPropertyExpressions) {
+    if (setPropertyExpressions == null) {
+      return null;
+    }
+    List<SetPropertyExpression> copy = new ArrayList<>(setPropertyExpressions.size());
+    for (SetPropertyExpression setPropertyExpression : setPropertyExpressions) {
+      PropertyAccess propertyAccess = copyExpression(setPropertyExpression.getPropertyAccess());
+      copy.add(new SetPropertyExpression(propertyAccess, copyExpression(setPropertyExpression.getValueExpression())));
+    }
+    return copy;
+  }
+
+  private VertexTable copyVertexTable(VertexTable vertexTable) {
+    if (vertexTable == null) {
+      return null;
+    }
+    VertexTable copy = (VertexTable) copies.get(vertexTable);
+    if (copy != null) {
+      return copy;
+    }
+    copy = new VertexTable(copySchemaQualifiedName(vertexTable.getTableName()), vertexTable.getTableAlias(),
+        copyKey(vertexTable.getKey()), copyLabels(vertexTable.getLabels()));
+    copies.put(vertexTable, copy);
+    return copy;
+  }
+
+  private EdgeTable copyEdgeTable(EdgeTable edgeTable) {
+    return new EdgeTable(copySchemaQualifiedName(edgeTable.getTableName()), edgeTable.getTableAlias(),
+        copyKey(edgeTable.getKey()), copyVertexTable(edgeTable.getSourceVertexTable()),
+        copyKey(edgeTable.getEdgeSourceKey()), copyKey(edgeTable.getSourceVertexKey()),
+        copyVertexTable(edgeTable.getDestinationVertexTable()), copyKey(edgeTable.getEdgeDestinationKey()),
+        copyKey(edgeTable.getDestinationVertexKey()), copyLabels(edgeTable.getLabels()));
+  }
+
+  private List<Label> copyLabels(List<Label> labels) {
+    if (labels == null) {
+      return null;
+    }
+    List<Label> copy = new ArrayList<>(labels.size());
+    for (Label label : labels) {
+      List<Property> properties = null;
+      if (label.getProperties() != null) {
+        properties = new ArrayList<>(label.getProperties().size());
+        for (Property property : label.getProperties()) {
+          properties.add(new Property(copyExpression(property.getValueExpression()), property.getPropertyName()));
+        }
+      }
+      Label labelCopy = new Label(label.getName(), properties);
+      labelCopy.setPropertiesAreAllColumns(label.isPropertiesAreAllColumns());
+      labelCopy.setPropertiesAreAllColumnsExcept(copyStrings(label.getPropertiesAreAllColumnsExcept()));
+      copy.add(labelCopy);
+    }
+    return copy;
+  }
+
+  private Key copyKey(Key key) {
+    if (key == null) {
+      return null;
+    }
+    Key copy = (Key) copies.get(key);
+    if (copy == null) {
+      copy = new Key(copyStrings(key.getColumnNames()));
+      copies.put(key, copy);
+    }
+    return copy;
+  }
+
+  private SchemaQualifiedName copySchemaQualifiedName(SchemaQualifiedName name) {
+    return name == null ? null : new SchemaQualifiedName(name.getSchemaName(), name.getName());
+  }
+
+  private static List<String> copyStrings(List<String> strings) {
+    return strings == null ? null : new ArrayList<>(strings);
+  }
+
+  private <T extends QueryVariable> List<T> copyVariables(List<T> variables) {
+    if (variables == null) {
+      return null;
+    }
+    List<T> copy = new ArrayList<>(variables.size());
+    for (T variable : variables) {
+      copy.add(copyVariable(variable));
+    }
+    return copy;
+  }
+
+  private <T extends QueryVariable> Set<T> copyVariableSet(Set<T> variables) {
+    if (variables == null) {
+      return null;
+    }
+    Set<T> copy = new LinkedHashSet<>();
+    for (T variable : variables) {
+      copy.add(copyVariable(variable));
+    }
+    return copy;
+  }
+
+  /**
+   * The copy of a variable is registered before its constraints and path expression are copied, since those may
+   * reference the variable itself.
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends QueryVariable> T copyVariable(T variable) {
+    if (variable == null) {
+      return null;
+    }
+    QueryVariable copy = (QueryVariable) copies.get(variable);
+    if (copy != null) {
+      return (T) copy;
+    }
+    switch (variable.getVariableType()) {
+      case VERTEX: {
+        QueryVertex vertex = (QueryVertex) variable;
+        QueryVertex vertexCopy = new QueryVertex(vertex.getName(), vertex.isAnonymous());
+        copies.put(vertex, vertexCopy);
+        vertexCopy.setConstraints(copyExpressionSet(vertex.getConstraints()));
+        return (T) vertexCopy;
+      }
+      case EDGE: {
+        QueryEdge edge = (QueryEdge) variable;
+        QueryEdge edgeCopy = new QueryEdge(null, null, edge.getName(), edge.isAnonymous(), edge.getDirection());
+        copies.put(edge, edgeCopy);
+        edgeCopy.setSrc(copyVariable(edge.getSrc()));
+        edgeCopy.setDst(copyVariable(edge.getDst()));
+        edgeCopy.setConstraints(copyExpressionSet(edge.getConstraints()));
+        return (T) edgeCopy;
+      }
+      case PATH: {
+        QueryPath path = (QueryPath) variable;
+        QueryPath pathCopy = new QueryPath(null, null, path.getName(), null, path.isAnonymous(), path.getMinHops(),
+            path.getMaxHops(), path.getPathFindingGoal(), path.getKValue(), path.getWithTies(), path.getDirection(),
+            null);
+        copies.put(path, pathCopy);
+        pathCopy.setSrc(copyVariable(path.getSrc()));
+        pathCopy.setDst(copyVariable(path.getDst()));
+        pathCopy.setCommonPathExpression(copyCommonPathExpression(path.getCommonPathExpression()));
+        pathCopy.setRowsPerMatch(copyRowsPerMatch(path.getRowsPerMatch()));
+        return (T) pathCopy;
+      }
+      case EXP_AS_VAR: {
+        ExpAsVar expAsVar = (ExpAsVar) variable;
+        ExpAsVar expAsVarCopy = new ExpAsVar(null, expAsVar.getName(), expAsVar.isAnonymous(),
+            expAsVar.getNameOriginText());
+        copies.put(expAsVar, expAsVarCopy);
+        expAsVarCopy.setExp(copyExpression(expAsVar.getExp()));
+        return (T) expAsVarCopy;
+      }
+      default:
+        throw new IllegalArgumentException(variable.getVariableType().toString());
+    }
+  }
+
+  private RowsPerMatch copyRowsPerMatch(RowsPerMatch rowsPerMatch) {
+    if (rowsPerMatch == null) {
+      return null;
+    }
+    switch (rowsPerMatch.getRowsPerMatchType()) {
+      case ONE_ROW_PER_MATCH:
+        return new OneRowPerMatch();
+      case ONE_ROW_PER_VERTEX:
+        return new OneRowPerVertex(copyVariable(((OneRowPerVertex) rowsPerMatch).getVertex()));
+      case ONE_ROW_PER_EDGE:
+        return new OneRowPerEdge(copyVariable(((OneRowPerEdge) rowsPerMatch).getEdge()));
+      default:
+        throw new IllegalArgumentException(rowsPerMatch.getRowsPerMatchType().toString());
+    }
+  }
+
+  private <T extends QueryExpression> List<T> copyExpressions(List<T> exps) {
+    if (exps == null) {
+      return null;
+    }
+    List<T> copy = new ArrayList<>(exps.size());
+    for (T exp : exps) {
+      copy.add(copyExpression(exp));
+    }
+    return copy;
+  }
+
+  private Set<QueryExpression> copyExpressionSet(Set<QueryExpression> exps) {
+    if (exps == null) {
+      return null;
+    }
+    Set<QueryExpression> copy = new LinkedHashSet<>();
+    for (QueryExpression exp : exps) {
+      copy.add(copyExpression(exp));
+    }
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends QueryExpression> T copyExpression(T exp) {
+    if (exp == null) {
+      return null;
+    }
+    QueryExpression copy = (QueryExpression) copies.get(exp);
+    if (copy == null) {
+      copy = copyChildren(exp);
+      copies.put(exp, copy);
+    }
+    return (T) copy;
+  }
+
+  private QueryExpression copyChildren(QueryExpression exp) {
+    switch (exp.getExpType()) {
+      case INTEGER:
+        return new ConstInteger(((ConstInteger) exp).getValue());
+      case DECIMAL:
+        return new ConstDecimal(((ConstDecimal) exp).getValue());
+      case STRING:
+        return new ConstString(((ConstString) exp).getValue());
+      case BOOLEAN:
+        return new ConstBoolean(((ConstBoolean) exp).getValue());
+      case DATE:
+        return new ConstDate(((ConstDate) exp).getValue());
+      case TIME:
+        return new ConstTime(((ConstTime) exp).getValue());
+      case TIMESTAMP:
+        return new ConstTimestamp(((ConstTimestamp) exp).getValue());
+      case TIME_WITH_TIMEZONE:
+        return new ConstTimeWithTimezone(((ConstTimeWithTimezone) exp).getValue());
+      case TIMESTAMP_WITH_TIMEZONE:
+        return new ConstTimestampWithTimezone(((ConstTimestampWithTimezone) exp).getValue());
+      case SUB:
+      case ADD:
+      case MUL:
+      case DIV:
+      case MOD:
+      case AND:
+      case OR:
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+      case CONCAT: {
+        BinaryExpression binaryExpression = (BinaryExpression) exp;
+        return QueryExpressions.createBinaryExpression(binaryExpression,
+            copyExpression(binaryExpression.getExp1()), copyExpression(binaryExpression.getExp2()));
+      }
+      case UMIN:
+      case NOT: {
+        QueryExpression operand = copyExpression(((UnaryExpression) exp).getExp());
+        return exp.getExpType() == QueryExpression.ExpressionType.UMIN ? new UMin(operand) : new Not(operand);
+      }
+      case AGGR_COUNT:
+      case AGGR_MIN:
+      case AGGR_MAX:
+      case AGGR_SUM:
+      case AGGR_AVG:
+      case AGGR_ARRAY_AGG:
+      case AGGR_LISTAGG: {
+        AbstractAggregation aggregation = (AbstractAggregation) exp;
+        return QueryExpressions.createAggregation(aggregation, copyExpression(aggregation.getExp()));
+      }
+      case VARREF:
+        return new VarRef(copyVariable(((VarRef) exp).getVariable()));
+      case BIND_VARIABLE:
+        return new BindVariable(((BindVariable) exp).getParameterIndex());
+      case STAR:
+        return new Star();
+      case SCALAR_SUBQUERY:
+        return new ScalarSubquery((SelectQuery) copyQuery(((Subquery) exp).getQuery()));
+      case EXISTS:
+        return new Exists((SelectQuery) copyQuery(((Subquery) exp).getQuery()));
+      case PROP_ACCESS: {
+        PropertyAccess propertyAccess = (PropertyAccess) exp;
+        return new PropertyAccess(copyVariable(propertyAccess.getVariable()), propertyAccess.getPropertyName());
+      }
+      case CAST: {
+        Cast cast = (Cast) exp;
+        return new Cast(copyExpression(cast.getExp()), cast.getTargetTypeName());
+      }
+      case FUNCTION_CALL: {
+        FunctionCall functionCall = (FunctionCall) exp;
+        return new FunctionCall(functionCall.getSchemaName(), functionCall.getPackageName(),
+            functionCall.getFunctionName(), copyExpressions(functionCall.getArgs()));
+      }
+      case EXTRACT_EXPRESSION: {
+        ExtractExpression extractExpression = (ExtractExpression) exp;
+        return new ExtractExpression(extractExpression.getField(), copyExpression(extractExpression.getExp()));
+      }
+      case IN_EXPRESSION: {
+        InPredicate inPredicate = (InPredicate) exp;
+        return new InPredicate(copyExpression(inPredicate.getExp()), copyExpression(inPredicate.getInValueList()));
+      }
+      case IN_VALUE_LIST:
+        return copyInValueList((InValueList) exp);
+      case IS_NULL:
+        return new IsNull(copyExpression(((IsNull) exp).getExp()));
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) exp;
+        return new IfElse(copyExpression(ifElse.getExp1()), copyExpression(ifElse.getExp2()),
+            copyExpression(ifElse.getExp3()));
+      }
+      case SIMPLE_CASE: {
+        SimpleCase simpleCase = (SimpleCase) exp;
+        QueryExpression caseOperand = copyExpression(simpleCase.getCaseOperand());
+        List<WhenThenExpression> whenThenExps = null;
+        if (simpleCase.getWhenThenExps() != null) {
+          whenThenExps = new ArrayList<>(simpleCase.getWhenThenExps().size());
+          for (WhenThenExpression whenThenExp : simpleCase.getWhenThenExps()) {
+            whenThenExps.add(
+                new WhenThenExpression(copyExpression(whenThenExp.getWhen()), copyExpression(whenThenExp.getThen())));
+          }
+        }
+        return new SimpleCase(caseOperand, whenThenExps, copyExpression(simpleCase.getElseExp()),
+            copyExpression(simpleCase.getIfElseRepresentation()));
+      }
+      case SUBSTRING: {
+        SubstringExpression substringExpression = (SubstringExpression) exp;
+        return new SubstringExpression(copyExpression(substringExpression.getExp()),
+            copyExpression(substringExpression.getStartPosition()),
+            copyExpression(substringExpression.getStringLength()));
+      }
+      case BETWEEN_PREDICATE: {
+        BetweenPredicate betweenPredicate = (BetweenPredicate) exp;
+        return new BetweenPredicate(copyExpression(betweenPredicate.getExp1()),
+            copyExpression(betweenPredicate.getExp2()), copyExpression(betweenPredicate.getExp3()));
+      }
+      default:
+        throw new IllegalArgumentException(exp.getExpType().toString());
+    }
+  }
+
+  private static InValueList copyInValueList(InValueList inValueList) {
+    switch (inValueList.getArrayElementType()) {
+      case INTEGER:
+        return new InValueList(inValueList.getIntegerValues().clone());
+      case DECIMAL:
+        return new InValueList(inValueList.getDecimalValues().clone());
+      case BOOLEAN:
+        return new InValueList(inValueList.getBooleanValues().clone());
+      case STRING:
+        return new InValueList(inValueList.getStringValues().clone());
+      case DATE:
+        return new InValueList(inValueList.getDateValues().clone());
+      case TIME:
+        return new InValueList(inValueList.getTimeValues().clone());
+      case TIMESTAMP:
+        return new InValueList(inValueList.getTimestampValues().clone());
+      default:
+        throw new IllegalArgumentException(inValueList.getArrayElementType().toString());
+    }
+  }
+}
@@ -163,4 +163,15 @@ public abstract class AbstractMetadataProvider {
   public Optional<List<DataTypeSynonym>> getDataTypeSynonyms() {
     return Optional.empty();
   }
+
+  /**
+   * Gets a fingerprint of the metadata, i.e. a string that changes whenever the metadata changes, such as a hash of the
+   * graph schemas or the version of a catalog. Parse results are only cached (see oracle.pgql.lang.ParseCache) for
+   * providers that have a fingerprint.
+   *
+   * @return the fingerprint of the metadata
+   */
+  public Optional<String> getFingerprint() {
+    return Optional.empty();
+  }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.metadata;
+
+import java.util.Optional;
+
+import oracle.pgql.lang.ir.Direction;
+
+/**
+ * Statistics about the data of a graph, used for cost-based decisions such as choosing the order in which the vertices
+ * and edges of a graph pattern are matched.
+ * 
+ * All method in this class return an Optional so that implementations can choose to only implement a subset and
+ * incrementally provide more statistics over time. Statistics are allowed to be approximate.
+ */
+public abstract class AbstractStatisticsProvider {
+
+  /**
+   * @return the total number of vertices in the graph
+   */
+  public Optional<Long> getVertexCount() {
+    return Optional.empty();
+  }
+
+  /**
+   * @param label
+   *          a vertex label
+   * @return the number of vertices with the given label
+   */
+  public Optional<Long> getVertexCount(String label) {
+    return Optional.empty();
+  }
+
+  /**
+   * @return the total number of edges in the graph
+   */
+  public Optional<Long> getEdgeCount() {
+    return Optional.empty();
+  }
+
+  /**
+   * @param label
+   *          an edge label
+   * @return the number of edges with the given label
+   */
+  public Optional<Long> getEdgeCount(String label) {
+    return Optional.empty();
+  }
+
+  /**
+   * Get the average degree of vertices with a particular label, counting only edges with a particular label.
+   * 
+   * Examples:
+   * 
+   * - "Person", "knows", OUTGOING => average number of outgoing knows edges per Person vertex
+   * 
+   * - null, "likes", INCOMING => average number of incoming likes edges per vertex
+   * 
+   * - "Person", null, ANY => average number of incoming plus outgoing edges per Person vertex
+   * 
+   * @param vertexLabel
+   *          a vertex label, or null for all vertices
+   * @param edgeLabel
+   *          an edge label, or null for all edges
+   * @param direction
+   *          OUTGOING for the out-degree, INCOMING for the in-degree and ANY for the sum of the two
+   * @return the average degree
+   */
+  public Optional<Double> getAverageDegree(String vertexLabel, String edgeLabel, Direction direction) {
+    return getDegreeDistribution(vertexLabel, edgeLabel, direction).map(DegreeDistribution::getAverageDegree);
+  }
+
+  /**
+   * Get the distribution of the degrees of vertices with a particular label, counting only edges with a particular
+   * label. See {@link #getAverageDegree(String, String, Direction)} for the meaning of the parameters.
+   * 
+   * @return the degree distribution
+   */
+  public Optional<DegreeDistribution> getDegreeDistribution(String vertexLabel, String edgeLabel,
+      Direction direction) {
+    return Optional.empty();
+  }
+
+  /**
+   * Get the histogram of the values of a numeric property.
+   * 
+   * @param label
+   *          a vertex or edge label, or null for all vertices and edges
+   * @param propertyName
+   *          the name of the property
+   * @return the histogram of the (non-null) values of the property
+   */
+  public Optional<Histogram> getHistogram(String label, String propertyName) {
+    return getPropertyStatistics(label, propertyName).map(PropertyStatistics::getHistogram);
+  }
+
+  /**
+   * Get the number of (distinct) values, the number of nulls and the minimum and maximum value of a property.
+   * 
+   * @param label
+   *          a vertex or edge label, or null for all vertices and edges
+   * @param propertyName
+   *          the name of the property
+   * @return the statistics of the property
+   */
+  public Optional<PropertyStatistics> getPropertyStatistics(String label, String propertyName) {
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.metadata;
+
+import java.util.Arrays;
+
+/**
+ * The distribution of the degrees of a set of vertices, stored as pairs of a degree and the number of vertices that
+ * have that degree.
+ */
+public class DegreeDistribution {
+
+  private final long[] degrees;
+
+  private final long[] vertexCounts;
+
+  private final long totalVertexCount;
+
+  private final long totalDegree;
+
+  /**
+   * @param degrees
+   *          the distinct degrees, in ascending order
+   * @param vertexCounts
+   *          for each degree, the number of vertices with that degree
+   */
+  public DegreeDistribution(long[] degrees, long[] vertexCounts) {
+    if (degrees.length != vertexCounts.length) {
+      throw new IllegalArgumentException("expected as many degrees as vertex counts");
+    }
+    long totalVertexCount = 0;
+    long totalDegree = 0;
+    for (int i = 0; i < degrees.length; i++) {
+      if (i > 0 && degrees[i] <= degrees[i - 1]) {
+        throw new IllegalArgumentException("degrees are not distinct and in ascending order");
+      }
+      totalVertexCount += vertexCounts[i];
+      totalDegree += degrees[i] * vertexCounts[i];
+    }
+    this.degrees = degrees;
+    this.vertexCounts = vertexCounts;
+    this.totalVertexCount = totalVertexCount;
+    this.totalDegree = totalDegree;
+  }
+
+  public long[] getDegrees() {
+    return degrees;
+  }
+
+  public long[] getVertexCounts() {
+    return vertexCounts;
+  }
+
+  public long getTotalVertexCount() {
+    return totalVertexCount;
+  }
+
+  /**
+   * @return the sum of the degrees of all vertices, which is the number of edges
+   */
+  public long getTotalDegree() {
+    return totalDegree;
+  }
+
+  public double getAverageDegree() {
+    return totalVertexCount == 0 ? 0 : (double) totalDegree / totalVertexCount;
+  }
+
+  public long getMaxDegree() {
+    return degrees.length == 0 ? 0 : degrees[degrees.length - 1];
+  }
+
+  /**
+   * @param percentile
+   *          a number between 0 and 100
+   * @return the smallest degree such that at least the given percentage of vertices have that degree or less
+   */
+  public long getPercentile(double percentile) {
+    double threshold = totalVertexCount * percentile / 100;
+    long cumulativeCount = 0;
+    for (int i = 0; i < degrees.length; i++) {
+      cumulativeCount += vertexCounts[i];
+      if (cumulativeCount >= threshold) {
+        return degrees[i];
+      }
+    }
+    return getMaxDegree();
+  }
+
+  @Override
+  public String toString() {
+    return "DegreeDistribution [degrees=" + Arrays.toString(degrees) + ", vertexCounts="
+        + Arrays.toString(vertexCounts) + "]";
+  }
+}
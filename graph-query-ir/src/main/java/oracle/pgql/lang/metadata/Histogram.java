@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.metadata;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of the values of a numeric property.
+ * 
+ * The values are divided into buckets: bucket i holds the values in the range [bucketBoundaries[i],
+ * bucketBoundaries[i + 1]) except for the last bucket, which is inclusive on both ends. For each bucket, the number of
+ * values and the number of distinct values is kept. Within a bucket, values are assumed to be uniformly distributed.
+ */
+public class Histogram {
+
+  private final double[] bucketBoundaries;
+
+  private final long[] bucketCounts;
+
+  private final long[] bucketDistinctCounts;
+
+  private final long totalCount;
+
+  /**
+   * @param bucketBoundaries
+   *          the n + 1 boundaries of the n buckets, in ascending order
+   * @param bucketCounts
+   *          the number of values in each bucket
+   * @param bucketDistinctCounts
+   *          the number of distinct values in each bucket
+   */
+  public Histogram(double[] bucketBoundaries, long[] bucketCounts, long[] bucketDistinctCounts) {
+    if (bucketCounts.length == 0 || bucketBoundaries.length != bucketCounts.length + 1
+        || bucketDistinctCounts.length != bucketCounts.length) {
+      throw new IllegalArgumentException("expected n + 1 bucket boundaries and n (distinct) counts, with n > 0");
+    }
+    for (int i = 1; i < bucketBoundaries.length; i++) {
+      if (bucketBoundaries[i] < bucketBoundaries[i - 1]) {
+        throw new IllegalArgumentException("bucket boundaries are not in ascending order");
+      }
+    }
+    this.bucketBoundaries = bucketBoundaries;
+    this.bucketCounts = bucketCounts;
+    this.bucketDistinctCounts = bucketDistinctCounts;
+    this.totalCount = Arrays.stream(bucketCounts).sum();
+  }
+
+  public double[] getBucketBoundaries() {
+    return bucketBoundaries;
+  }
+
+  public long[] getBucketCounts() {
+    return bucketCounts;
+  }
+
+  public long[] getBucketDistinctCounts() {
+    return bucketDistinctCounts;
+  }
+
+  public int getNumBuckets() {
+    return bucketCounts.length;
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  public double getMin() {
+    return bucketBoundaries[0];
+  }
+
+  public double getMax() {
+    return bucketBoundaries[bucketBoundaries.length - 1];
+  }
+
+  /**
+   * @return the estimated fraction of values that are equal to the given value
+   */
+  public double getEqualSelectivity(double value) {
+    int bucket = findBucket(value);
+    if (bucket == -1 || totalCount == 0) {
+      return 0;
+    }
+    long distinctCount = Math.max(1, bucketDistinctCounts[bucket]);
+    return (double) bucketCounts[bucket] / distinctCount / totalCount;
+  }
+
+  /**
+   * @return the estimated fraction of values that are smaller than (or equal to, if inclusive) the given value
+   */
+  public double getLessThanSelectivity(double value, boolean inclusive) {
+    if (totalCount == 0 || value < getMin()) {
+      return 0;
+    }
+    if (value > getMax()) {
+      return 1;
+    }
+
+    double count = 0;
+    for (int i = 0; i < bucketCounts.length; i++) {
+      double lower = bucketBoundaries[i];
+      double upper = bucketBoundaries[i + 1];
+      if (value >= upper) {
+        count += bucketCounts[i];
+      } else {
+        if (upper > lower) {
+          count += bucketCounts[i] * (value - lower) / (upper - lower);
+        }
+        break;
+      }
+    }
+    double selectivity = count / totalCount;
+    if (inclusive) {
+      selectivity += getEqualSelectivity(value);
+    }
+    return Math.min(1, selectivity);
+  }
+
+  /**
+   * @return the estimated fraction of values that are greater than (or equal to, if inclusive) the given value
+   */
+  public double getGreaterThanSelectivity(double value, boolean inclusive) {
+    return Math.max(0, 1 - getLessThanSelectivity(value, !inclusive));
+  }
+
+  private int findBucket(double value) {
+    if (value < getMin() || value > getMax()) {
+      return -1;
+    }
+    for (int i = 0; i < bucketCounts.length - 1; i++) {
+      if (value < bucketBoundaries[i + 1]) {
+        return i;
+      }
+    }
+    return bucketCounts.length - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "Histogram [bucketBoundaries=" + Arrays.toString(bucketBoundaries) + ", bucketCounts="
+        + Arrays.toString(bucketCounts) + ", bucketDistinctCounts=" + Arrays.toString(bucketDistinctCounts) + "]";
+  }
+}
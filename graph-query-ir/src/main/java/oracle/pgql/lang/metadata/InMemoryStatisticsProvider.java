@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.metadata;
+
+import static oracle.pgql.lang.ir.PgqlUtils.printLiteral;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ir.Direction;
+
+/**
+ * Statistics that are kept in memory and that can be stored to and loaded from a text file.
+ * 
+ * The file has one statistic per line, with tab-separated fields. Empty lines and lines starting with # are ignored.
+ * An empty label field stands for all labels (i.e. a null label). Minimum and maximum values are PGQL literals.
+ * 
+ * <pre>
+ * VERTEX_COUNT  [label]  count
+ * EDGE_COUNT    [label]  count
+ * DEGREE        [vertex label]  [edge label]  OUTGOING|INCOMING|ANY  degree:vertexCount degree:vertexCount ...
+ * PROPERTY      [label]  property  count  nullCount  distinctCount  [min]  [max]
+ * HISTOGRAM     [label]  property  boundary,boundary,...  count,count,...  distinctCount,distinctCount,...
+ * </pre>
+ * 
+ * For example:
+ * 
+ * <pre>
+ * VERTEX_COUNT        5000
+ * VERTEX_COUNT  Person  4000
+ * EDGE_COUNT    knows  80000
+ * DEGREE  Person  knows  OUTGOING  0:100 10:1900 30:2000
+ * PROPERTY  Person  age  3900  100  80  0  99
+ * HISTOGRAM  Person  age  0.0,30.0,99.0  2000,1900  30,50
+ * </pre>
+ */
+public class InMemoryStatisticsProvider extends AbstractStatisticsProvider {
+
+  private static final String VERTEX_COUNT = "VERTEX_COUNT";
+
+  private static final String EDGE_COUNT = "EDGE_COUNT";
+
+  private static final String DEGREE = "DEGREE";
+
+  private static final String PROPERTY = "PROPERTY";
+
+  private static final String HISTOGRAM = "HISTOGRAM";
+
+  private final Map<String, Long> vertexCounts = new LinkedHashMap<>();
+
+  private final Map<String, Long> edgeCounts = new LinkedHashMap<>();
+
+  private final Map<List<Object>, DegreeDistribution> degreeDistributions = new LinkedHashMap<>();
+
+  private final Map<List<String>, PropertyStatistics> propertyStatistics = new LinkedHashMap<>();
+
+  private final Map<List<String>, Histogram> histograms = new LinkedHashMap<>();
+
+  @Override
+  public Optional<Long> getVertexCount() {
+    return Optional.ofNullable(vertexCounts.get(null));
+  }
+
+  @Override
+  public Optional<Long> getVertexCount(String label) {
+    return Optional.ofNullable(vertexCounts.get(label));
+  }
+
+  @Override
+  public Optional<Long> getEdgeCount() {
+    return Optional.ofNullable(edgeCounts.get(null));
+  }
+
+  @Override
+  public Optional<Long> getEdgeCount(String label) {
+    return Optional.ofNullable(edgeCounts.get(label));
+  }
+
+  @Override
+  public Optional<DegreeDistribution> getDegreeDistribution(String vertexLabel, String edgeLabel,
+      Direction direction) {
+    return Optional.ofNullable(degreeDistributions.get(Arrays.asList(vertexLabel, edgeLabel, direction)));
+  }
+
+  @Override
+  public Optional<Histogram> getHistogram(String label, String propertyName) {
+    Histogram histogram = histograms.get(Arrays.asList(label, propertyName));
+    return histogram == null ? super.getHistogram(label, propertyName) : Optional.of(histogram);
+  }
+
+  @Override
+  public Optional<PropertyStatistics> getPropertyStatistics(String label, String propertyName) {
+    return Optional.ofNullable(propertyStatistics.get(Arrays.asList(label, propertyName)));
+  }
+
+  /**
+   * @param label
+   *          a vertex label, or null for the total number of vertices
+   */
+  public void setVertexCount(String label, long count) {
+    vertexCounts.put(label, count);
+  }
+
+  /**
+   * @param label
+   *          an edge label, or null for the total number of edges
+   */
+  public void setEdgeCount(String label, long count) {
+    edgeCounts.put(label, count);
+  }
+
+  public void setDegreeDistribution(String vertexLabel, String edgeLabel, Direction direction,
+      DegreeDistribution degreeDistribution) {
+    degreeDistributions.put(Arrays.asList(vertexLabel, edgeLabel, direction), degreeDistribution);
+  }
+
+  public void setPropertyStatistics(String label, String propertyName, PropertyStatistics statistics) {
+    propertyStatistics.put(Arrays.asList(label, propertyName), statistics);
+    if (statistics.getHistogram() != null) {
+      histograms.put(Arrays.asList(label, propertyName), statistics.getHistogram());
+    }
+  }
+
+  public void setHistogram(String label, String propertyName, Histogram histogram) {
+    histograms.put(Arrays.asList(label, propertyName), histogram);
+  }
+
+  public static InMemoryStatisticsProvider load(Path path) throws IOException, PgqlException {
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return load(reader);
+    }
+  }
+
+  public static InMemoryStatisticsProvider load(Reader reader) throws IOException, PgqlException {
+    InMemoryStatisticsProvider statistics = new InMemoryStatisticsProvider();
+    BufferedReader bufferedReader = new BufferedReader(reader);
+    String line;
+    int lineNumber = 0;
+    while ((line = bufferedReader.readLine()) != null) {
+      lineNumber++;
+      if (line.trim().isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      try {
+        statistics.parseLine(line.split("\t", -1));
+      } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+        throw new PgqlException("Invalid statistics at line " + lineNumber + ": " + line, e);
+      }
+    }
+    return statistics;
+  }
+
+  private void parseLine(String[] fields) {
+    switch (fields[0]) {
+      case VERTEX_COUNT:
+        checkNumFields(fields, 3);
+        setVertexCount(parseLabel(fields[1]), Long.parseLong(fields[2]));
+        break;
+      case EDGE_COUNT:
+        checkNumFields(fields, 3);
+        setEdgeCount(parseLabel(fields[1]), Long.parseLong(fields[2]));
+        break;
+      case DEGREE: {
+        checkNumFields(fields, 5);
+        String[] pairs = fields[4].trim().isEmpty() ? new String[0] : fields[4].trim().split(" +");
+        long[] degrees = new long[pairs.length];
+        long[] counts = new long[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+          String[] pair = pairs[i].split(":");
+          if (pair.length != 2) {
+            throw new IllegalArgumentException("expected degree:vertexCount but got " + pairs[i]);
+          }
+          degrees[i] = Long.parseLong(pair[0]);
+          counts[i] = Long.parseLong(pair[1]);
+        }
+        setDegreeDistribution(parseLabel(fields[1]), parseLabel(fields[2]), Direction.valueOf(fields[3]),
+            new DegreeDistribution(degrees, counts));
+        break;
+      }
+      case PROPERTY:
+        checkNumFields(fields, 8);
+        propertyStatistics.put(Arrays.asList(parseLabel(fields[1]), fields[2]),
+            new PropertyStatistics(Long.parseLong(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                parseLiteral(fields[6]), parseLiteral(fields[7]), null));
+        break;
+      case HISTOGRAM:
+        checkNumFields(fields, 6);
+        setHistogram(parseLabel(fields[1]), fields[2], new Histogram( //
+            Arrays.stream(fields[3].split(",")).mapToDouble(Double::parseDouble).toArray(), //
+            Arrays.stream(fields[4].split(",")).mapToLong(Long::parseLong).toArray(), //
+            Arrays.stream(fields[5].split(",")).mapToLong(Long::parseLong).toArray()));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown statistic " + fields[0]);
+    }
+  }
+
+  private static void checkNumFields(String[] fields, int expectedNumFields) {
+    if (fields.length != expectedNumFields) {
+      throw new IllegalArgumentException("expected " + expectedNumFields + " fields but got " + fields.length);
+    }
+  }
+
+  private static String parseLabel(String field) {
+    return field.isEmpty() ? null : field;
+  }
+
+  private static Object parseLiteral(String literal) {
+    if (literal.isEmpty()) {
+      return null;
+    } else if (literal.startsWith("'")) {
+      return unquote(literal);
+    } else if (literal.startsWith("DATE ")) {
+      return LocalDate.parse(unquote(literal.substring(5)));
+    } else if (literal.startsWith("TIMESTAMP ")) {
+      return LocalDateTime.parse(unquote(literal.substring(10)).replace(' ', 'T'));
+    } else if (literal.startsWith("TIME ")) {
+      return LocalTime.parse(unquote(literal.substring(5)));
+    } else if (literal.equals("true") || literal.equals("false")) {
+      return Boolean.parseBoolean(literal);
+    } else if (literal.contains(".") || literal.contains("E") || literal.contains("e")) {
+      return Double.parseDouble(literal);
+    } else {
+      return Long.parseLong(literal);
+    }
+  }
+
+  private static String unquote(String literal) {
+    if (literal.length() < 2 || !literal.startsWith("'") || !literal.endsWith("'")) {
+      throw new IllegalArgumentException("expected a quoted literal but got " + literal);
+    }
+    return literal.substring(1, literal.length() - 1).replace("''", "'");
+  }
+
+  public void store(Path path) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      store(writer);
+    }
+  }
+
+  public void store(Writer writer) throws IOException {
+    BufferedWriter bufferedWriter = new BufferedWriter(writer);
+    for (Map.Entry<String, Long> entry : vertexCounts.entrySet()) {
+      writeLine(bufferedWriter, VERTEX_COUNT, printLabel(entry.getKey()), entry.getValue());
+    }
+    for (Map.Entry<String, Long> entry : edgeCounts.entrySet()) {
+      writeLine(bufferedWriter, EDGE_COUNT, printLabel(entry.getKey()), entry.getValue());
+    }
+    for (Map.Entry<List<Object>, DegreeDistribution> entry : degreeDistributions.entrySet()) {
+      List<Object> key = entry.getKey();
+      DegreeDistribution distribution = entry.getValue();
+      StringBuilder pairs = new StringBuilder();
+      for (int i = 0; i < distribution.getDegrees().length; i++) {
+        pairs.append(i == 0 ? "" : " ").append(distribution.getDegrees()[i]).append(':')
+            .append(distribution.getVertexCounts()[i]);
+      }
+      writeLine(bufferedWriter, DEGREE, printLabel((String) key.get(0)), printLabel((String) key.get(1)), key.get(2),
+          pairs);
+    }
+    for (Map.Entry<List<String>, PropertyStatistics> entry : propertyStatistics.entrySet()) {
+      PropertyStatistics statistics = entry.getValue();
+      writeLine(bufferedWriter, PROPERTY, printLabel(entry.getKey().get(0)), entry.getKey().get(1),
+          statistics.getCount(), statistics.getNullCount(), statistics.getDistinctCount(),
+          printValue(statistics.getMinValue()), printValue(statistics.getMaxValue()));
+    }
+    for (Map.Entry<List<String>, Histogram> entry : histograms.entrySet()) {
+      Histogram histogram = entry.getValue();
+      writeLine(bufferedWriter, HISTOGRAM, printLabel(entry.getKey().get(0)), entry.getKey().get(1),
+          Arrays.stream(histogram.getBucketBoundaries()).mapToObj(Double::toString).collect(Collectors.joining(",")),
+          Arrays.stream(histogram.getBucketCounts()).mapToObj(Long::toString).collect(Collectors.joining(",")),
+          Arrays.stream(histogram.getBucketDistinctCounts()).mapToObj(Long::toString)
+              .collect(Collectors.joining(",")));
+    }
+    bufferedWriter.flush();
+  }
+
+  private static void writeLine(BufferedWriter writer, Object... fields) throws IOException {
+    writer.write(Arrays.stream(fields).map(Object::toString).collect(Collectors.joining("\t")));
+    writer.newLine();
+  }
+
+  private static String printLabel(String label) {
+    return label == null ? "" : label;
+  }
+
+  private static String printValue(Object value) {
+    if (value == null) {
+      return "";
+    } else if (value instanceof String) {
+      return printLiteral((String) value);
+    } else if (value instanceof LocalDate) {
+      return printLiteral((LocalDate) value);
+    } else if (value instanceof LocalTime) {
+      return printLiteral((LocalTime) value);
+    } else if (value instanceof LocalDateTime) {
+      return printLiteral((LocalDateTime) value);
+    } else if (value instanceof Double || value instanceof Float) {
+      return Double.toString(((Number) value).doubleValue());
+    } else {
+      return value.toString();
+    }
+  }
+}
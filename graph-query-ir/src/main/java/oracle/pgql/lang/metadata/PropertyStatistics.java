@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.metadata;
+
+/**
+ * Statistics about the values of a property of the vertices or edges with a particular label.
+ * 
+ * The minimum and maximum value are Java objects of the same types as in {@link oracle.pgql.lang.ResultAccess}, e.g.
+ * Long, Double, String, Boolean, LocalDate, LocalTime or LocalDateTime.
+ */
+public class PropertyStatistics {
+
+  private final long count;
+
+  private final long nullCount;
+
+  private final long distinctCount;
+
+  private final Object minValue;
+
+  private final Object maxValue;
+
+  private final Histogram histogram;
+
+  /**
+   * @param count
+   *          the number of non-null values
+   * @param nullCount
+   *          the number of vertices or edges for which the property is null or missing
+   * @param distinctCount
+   *          the number of distinct non-null values
+   * @param minValue
+   *          the smallest value, or null if unknown
+   * @param maxValue
+   *          the largest value, or null if unknown
+   * @param histogram
+   *          the histogram of the values (numeric properties only), or null if unknown
+   */
+  public PropertyStatistics(long count, long nullCount, long distinctCount, Object minValue, Object maxValue,
+      Histogram histogram) {
+    this.count = count;
+    this.nullCount = nullCount;
+    this.distinctCount = distinctCount;
+    this.minValue = minValue;
+    this.maxValue = maxValue;
+    this.histogram = histogram;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getNullCount() {
+    return nullCount;
+  }
+
+  public long getDistinctCount() {
+    return distinctCount;
+  }
+
+  public Object getMinValue() {
+    return minValue;
+  }
+
+  public Object getMaxValue() {
+    return maxValue;
+  }
+
+  public Histogram getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * @return the fraction of vertices or edges for which the property is not null
+   */
+  public double getNonNullFraction() {
+    long total = count + nullCount;
+    return total == 0 ? 0 : (double) count / total;
+  }
+
+  @Override
+  public String toString() {
+    return "PropertyStatistics [count=" + count + ", nullCount=" + nullCount + ", distinctCount=" + distinctCount
+        + ", minValue=" + minValue + ", maxValue=" + maxValue + ", histogram=" + histogram + "]";
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import static oracle.pgql.lang.optimizer.ConstantUtils.isFalse;
+import static oracle.pgql.lang.optimizer.ConstantUtils.isTrue;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.GreaterEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Less;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.LessEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.NotEqual;
+
+/**
+ * Simplifies boolean expressions in a way that preserves three-valued logic:
+ *
+ * - x AND true => x, x AND false => false
+ *
+ * - x OR true => true, x OR false => x
+ *
+ * - NOT NOT x => x
+ *
+ * - NOT (x = y) => x <> y, NOT (x < y) => x >= y, etc.
+ *
+ * - CASE WHEN true THEN x ELSE y END => x, CASE WHEN false THEN x ELSE y END => y
+ */
+public class BooleanSimplificationRule implements RewriteRule {
+
+  public static final String NAME = "boolean simplification";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public QueryExpression rewrite(QueryExpression exp, RewriteContext context) {
+    switch (exp.getExpType()) {
+      case AND: {
+        BinaryExpression and = (BinaryExpression) exp;
+        if (isFalse(and.getExp1()) || isFalse(and.getExp2())) {
+          return new ConstBoolean(false);
+        } else if (isTrue(and.getExp1())) {
+          return and.getExp2();
+        } else if (isTrue(and.getExp2())) {
+          return and.getExp1();
+        }
+        return exp;
+      }
+      case OR: {
+        BinaryExpression or = (BinaryExpression) exp;
+        if (isTrue(or.getExp1()) || isTrue(or.getExp2())) {
+          return new ConstBoolean(true);
+        } else if (isFalse(or.getExp1())) {
+          return or.getExp2();
+        } else if (isFalse(or.getExp2())) {
+          return or.getExp1();
+        }
+        return exp;
+      }
+      case NOT:
+        return rewriteNot(((Not) exp).getExp(), exp);
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) exp;
+        if (isTrue(ifElse.getExp1())) {
+          return ifElse.getExp2();
+        } else if (isFalse(ifElse.getExp1()) && ifElse.getExp3() != null) {
+          return ifElse.getExp3();
+        }
+        return exp;
+      }
+      default:
+        return exp;
+    }
+  }
+
+  private QueryExpression rewriteNot(QueryExpression operand, QueryExpression not) {
+    switch (operand.getExpType()) {
+      case NOT:
+        return ((Not) operand).getExp();
+      case EQUAL: {
+        BinaryExpression equal = (BinaryExpression) operand;
+        return new NotEqual(equal.getExp1(), equal.getExp2());
+      }
+      case NOT_EQUAL: {
+        BinaryExpression notEqual = (BinaryExpression) operand;
+        return new Equal(notEqual.getExp1(), notEqual.getExp2());
+      }
+      case GREATER: {
+        BinaryExpression greater = (BinaryExpression) operand;
+        return new LessEqual(greater.getExp1(), greater.getExp2());
+      }
+      case GREATER_EQUAL: {
+        BinaryExpression greaterEqual = (BinaryExpression) operand;
+        return new Less(greaterEqual.getExp1(), greaterEqual.getExp2());
+      }
+      case LESS: {
+        BinaryExpression less = (BinaryExpression) operand;
+        return new GreaterEqual(less.getExp1(), less.getExp2());
+      }
+      case LESS_EQUAL: {
+        BinaryExpression lessEqual = (BinaryExpression) operand;
+        return new Greater(lessEqual.getExp1(), lessEqual.getExp2());
+      }
+      default:
+        return not;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import java.util.Set;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryVariable;
+
+/**
+ * A single conjunct of the constraints of a graph pattern, together with the variables that it references.
+ */
+public class Conjunct {
+
+  private final QueryExpression exp;
+
+  private final Set<QueryVariable> variables;
+
+  private final ConjunctType conjunctType;
+
+  public Conjunct(QueryExpression exp, Set<QueryVariable> variables) {
+    this.exp = exp;
+    this.variables = variables;
+    switch (variables.size()) {
+      case 0:
+        this.conjunctType = ConjunctType.VARIABLE_FREE;
+        break;
+      case 1:
+        this.conjunctType = ConjunctType.SINGLE_VARIABLE;
+        break;
+      case 2:
+        this.conjunctType = ConjunctType.TWO_VARIABLE;
+        break;
+      default:
+        this.conjunctType = ConjunctType.MULTI_VARIABLE;
+    }
+  }
+
+  public QueryExpression getExp() {
+    return exp;
+  }
+
+  /**
+   * @return the variables referenced by the conjunct, including variables of the graph patterns of subqueries
+   */
+  public Set<QueryVariable> getVariables() {
+    return variables;
+  }
+
+  public ConjunctType getConjunctType() {
+    return conjunctType;
+  }
+
+  public boolean references(QueryVariable variable) {
+    return variables.contains(variable);
+  }
+
+  @Override
+  public String toString() {
+    return conjunctType + " " + exp;
+  }
+}
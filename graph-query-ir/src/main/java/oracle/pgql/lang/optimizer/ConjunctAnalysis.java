@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import oracle.pgql.lang.ir.QueryVariable;
+
+/**
+ * The result of {@link ConjunctAnalyzer#analyze(oracle.pgql.lang.ir.GraphPattern)}.
+ */
+public class ConjunctAnalysis {
+
+  private final List<Conjunct> conjuncts;
+
+  ConjunctAnalysis(List<Conjunct> conjuncts) {
+    this.conjuncts = Collections.unmodifiableList(conjuncts);
+  }
+
+  /**
+   * @return all the conjuncts of the graph pattern, in the order in which they appear in the query
+   */
+  public List<Conjunct> getConjuncts() {
+    return conjuncts;
+  }
+
+  public List<Conjunct> getConjuncts(ConjunctType conjunctType) {
+    return conjuncts.stream() //
+        .filter(c -> c.getConjunctType() == conjunctType) //
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return the conjuncts that reference the given variable (and possibly other variables)
+   */
+  public List<Conjunct> getConjuncts(QueryVariable variable) {
+    return conjuncts.stream() //
+        .filter(c -> c.references(variable)) //
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return the conjuncts that reference exactly the two given variables
+   */
+  public List<Conjunct> getJoinConjuncts(QueryVariable variable1, QueryVariable variable2) {
+    return conjuncts.stream() //
+        .filter(c -> c.getConjunctType() == ConjunctType.TWO_VARIABLE) //
+        .filter(c -> c.references(variable1) && c.references(variable2)) //
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public String toString() {
+    return conjuncts.stream() //
+        .map(Conjunct::toString) //
+        .collect(Collectors.joining("\n"));
+  }
+}
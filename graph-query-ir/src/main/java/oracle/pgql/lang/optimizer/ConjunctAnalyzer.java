@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import static oracle.pgql.lang.ir.PgqlUtils.getConjuncts;
+import static oracle.pgql.lang.ir.PgqlUtils.getVariables;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.VertexPairConnection;
+
+/**
+ * Splits the constraints of a graph pattern into conjuncts and classifies each conjunct by the number of variables
+ * it references (see {@link ConjunctType}).
+ *
+ * Single-variable conjuncts that reference a vertex or an edge of the graph pattern are attached to that vertex or
+ * edge (see {@link QueryVertex#getConstraints()} and {@link QueryEdge#getConstraints()}) such that they can be pushed
+ * down into the scan of the vertex or edge. The constraints of the graph pattern itself are left unchanged.
+ */
+public class ConjunctAnalyzer {
+
+  public static ConjunctAnalysis analyze(GraphPattern graphPattern) {
+    for (QueryVertex vertex : graphPattern.getVertices()) {
+      vertex.setConstraints(new LinkedHashSet<>());
+    }
+    for (VertexPairConnection connection : graphPattern.getConnections()) {
+      if (connection.getVariableType() == QueryVariable.VariableType.EDGE) {
+        ((QueryEdge) connection).setConstraints(new LinkedHashSet<>());
+      }
+    }
+
+    List<Conjunct> conjuncts = new ArrayList<>();
+    for (QueryExpression constraint : graphPattern.getConstraints()) {
+      for (QueryExpression exp : getConjuncts(constraint)) {
+        Conjunct conjunct = new Conjunct(exp, new LinkedHashSet<>(getVariables(exp)));
+        conjuncts.add(conjunct);
+        if (conjunct.getConjunctType() == ConjunctType.SINGLE_VARIABLE) {
+          attach(graphPattern, conjunct);
+        }
+      }
+    }
+    return new ConjunctAnalysis(conjuncts);
+  }
+
+  private static void attach(GraphPattern graphPattern, Conjunct conjunct) {
+    QueryVariable variable = conjunct.getVariables().iterator().next();
+    switch (variable.getVariableType()) {
+      case VERTEX:
+        for (QueryVertex vertex : graphPattern.getVertices()) {
+          if (vertex.equals(variable)) {
+            vertex.getConstraints().add(conjunct.getExp());
+          }
+        }
+        break;
+      case EDGE:
+        for (VertexPairConnection connection : graphPattern.getConnections()) {
+          if (connection.equals(variable)) {
+            ((QueryEdge) connection).getConstraints().add(conjunct.getExp());
+          }
+        }
+        break;
+      default:
+        // paths and variables from outer queries are not scanned as part of this graph pattern
+    }
+  }
+}
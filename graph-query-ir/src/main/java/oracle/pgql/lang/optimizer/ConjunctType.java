@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+public enum ConjunctType {
+
+  /**
+   * A conjunct that does not reference any variable, e.g. "? > 10"
+   */
+  VARIABLE_FREE,
+
+  /**
+   * A conjunct that references a single variable, e.g. "n.age > 10"; it can be evaluated as soon as the variable is
+   * bound
+   */
+  SINGLE_VARIABLE,
+
+  /**
+   * A conjunct that references two variables, e.g. "n.age > m.age"; it can be evaluated as a join condition
+   */
+  TWO_VARIABLE,
+
+  /**
+   * A conjunct that references three or more variables, e.g. "n.age + m.age > o.age"
+   */
+  MULTI_VARIABLE
+}
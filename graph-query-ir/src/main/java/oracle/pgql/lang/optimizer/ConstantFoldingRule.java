@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import static oracle.pgql.lang.optimizer.ConstantUtils.compare;
+import static oracle.pgql.lang.optimizer.ConstantUtils.getDoubleValue;
+import static oracle.pgql.lang.optimizer.ConstantUtils.getLongValue;
+import static oracle.pgql.lang.optimizer.ConstantUtils.isConstant;
+import static oracle.pgql.lang.optimizer.ConstantUtils.isEqual;
+import static oracle.pgql.lang.optimizer.ConstantUtils.isNumeric;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+
+/**
+ * Evaluates arithmetic, comparison, concatenation and NOT expressions of which all operands are constants.
+ *
+ * Examples:
+ *
+ * - 60 * 60 * 24 => 86400
+ *
+ * - 'abc' || 'def' => 'abcdef'
+ *
+ * - DATE '2000-01-01' < DATE '2001-01-01' => true
+ *
+ * Expressions are not folded if the outcome may differ between backends, for example for integer overflows, divisions
+ * by zero and the ordering of strings.
+ */
+public class ConstantFoldingRule implements RewriteRule {
+
+  public static final String NAME = "constant folding";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public QueryExpression rewrite(QueryExpression exp, RewriteContext context) {
+    switch (exp.getExpType()) {
+      case ADD:
+      case SUB:
+      case MUL:
+      case DIV:
+      case MOD: {
+        BinaryExpression binaryExpression = (BinaryExpression) exp;
+        QueryExpression exp1 = binaryExpression.getExp1();
+        QueryExpression exp2 = binaryExpression.getExp2();
+        if (isNumeric(exp1) && isNumeric(exp2)) {
+          QueryExpression result = foldArithmetic(exp.getExpType(), exp1, exp2);
+          return result == null ? exp : result;
+        }
+        return exp;
+      }
+      case UMIN: {
+        QueryExpression operand = ((UnaryExpression) exp).getExp();
+        if (operand.getExpType() == ExpressionType.INTEGER && getLongValue(operand) != Long.MIN_VALUE) {
+          return new ConstInteger(-getLongValue(operand));
+        } else if (operand.getExpType() == ExpressionType.DECIMAL) {
+          return new ConstDecimal(-getDoubleValue(operand));
+        }
+        return exp;
+      }
+      case NOT: {
+        QueryExpression operand = ((UnaryExpression) exp).getExp();
+        if (operand.getExpType() == ExpressionType.BOOLEAN) {
+          return new ConstBoolean(!((ConstBoolean) operand).getValue());
+        }
+        return exp;
+      }
+      case CONCAT: {
+        BinaryExpression concat = (BinaryExpression) exp;
+        if (concat.getExp1().getExpType() == ExpressionType.STRING
+            && concat.getExp2().getExpType() == ExpressionType.STRING) {
+          return new ConstString(((ConstString) concat.getExp1()).getValue() + ((ConstString) concat.getExp2()).getValue());
+        }
+        return exp;
+      }
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL: {
+        BinaryExpression comparison = (BinaryExpression) exp;
+        if (isConstant(comparison.getExp1()) && isConstant(comparison.getExp2())) {
+          Boolean result = foldComparison(exp.getExpType(), comparison.getExp1(), comparison.getExp2());
+          return result == null ? exp : new ConstBoolean(result);
+        }
+        return exp;
+      }
+      case BETWEEN_PREDICATE: {
+        BetweenPredicate between = (BetweenPredicate) exp;
+        if (isConstant(between.getExp1()) && isConstant(between.getExp2()) && isConstant(between.getExp3())) {
+          Integer lowerComparison = compare(between.getExp1(), between.getExp2());
+          Integer upperComparison = compare(between.getExp1(), between.getExp3());
+          if (lowerComparison != null && upperComparison != null) {
+            return new ConstBoolean(lowerComparison >= 0 && upperComparison <= 0);
+          }
+        }
+        return exp;
+      }
+      case IS_NULL: {
+        // there are no NULL literals, so a constant is never NULL
+        if (isConstant(((IsNull) exp).getExp())) {
+          return new ConstBoolean(false);
+        }
+        return exp;
+      }
+      default:
+        return exp;
+    }
+  }
+
+  private QueryExpression foldArithmetic(ExpressionType expType, QueryExpression exp1, QueryExpression exp2) {
+    if (exp1.getExpType() == ExpressionType.INTEGER && exp2.getExpType() == ExpressionType.INTEGER) {
+      long value1 = getLongValue(exp1);
+      long value2 = getLongValue(exp2);
+      try {
+        switch (expType) {
+          case ADD:
+            return new ConstInteger(Math.addExact(value1, value2));
+          case SUB:
+            return new ConstInteger(Math.subtractExact(value1, value2));
+          case MUL:
+            return new ConstInteger(Math.multiplyExact(value1, value2));
+          case DIV:
+            // backends differ in whether integer division truncates, so only fold exact divisions
+            if (value2 == 0 || value1 % value2 != 0 || (value1 == Long.MIN_VALUE && value2 == -1)) {
+              return null;
+            }
+            return new ConstInteger(value1 / value2);
+          case MOD:
+            if (value2 == 0) {
+              return null;
+            }
+            return new ConstInteger(value1 % value2);
+          default:
+            throw new IllegalArgumentException(expType.toString());
+        }
+      } catch (ArithmeticException e) {
+        return null; // overflow
+      }
+    }
+
+    double value1 = getDoubleValue(exp1);
+    double value2 = getDoubleValue(exp2);
+    switch (expType) {
+      case ADD:
+        return new ConstDecimal(value1 + value2);
+      case SUB:
+        return new ConstDecimal(value1 - value2);
+      case MUL:
+        return new ConstDecimal(value1 * value2);
+      case DIV:
+        if (value2 == 0) {
+          return null;
+        }
+        return new ConstDecimal(value1 / value2);
+      case MOD:
+        return null;
+      default:
+        throw new IllegalArgumentException(expType.toString());
+    }
+  }
+
+  private Boolean foldComparison(ExpressionType expType, QueryExpression exp1, QueryExpression exp2) {
+    switch (expType) {
+      case EQUAL: {
+        return isEqual(exp1, exp2);
+      }
+      case NOT_EQUAL: {
+        Boolean equal = isEqual(exp1, exp2);
+        return equal == null ? null : !equal;
+      }
+      default:
+        break;
+    }
+
+    Integer comparison = compare(exp1, exp2);
+    if (comparison == null) {
+      return null;
+    }
+    switch (expType) {
+      case GREATER:
+        return comparison > 0;
+      case GREATER_EQUAL:
+        return comparison >= 0;
+      case LESS:
+        return comparison < 0;
+      case LESS_EQUAL:
+        return comparison <= 0;
+      default:
+        throw new IllegalArgumentException(expType.toString());
+    }
+  }
+}
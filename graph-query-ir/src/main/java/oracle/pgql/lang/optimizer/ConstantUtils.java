@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+
+class ConstantUtils {
+
+  static boolean isConstant(QueryExpression exp) {
+    switch (exp.getExpType()) {
+      case INTEGER:
+      case DECIMAL:
+      case STRING:
+      case BOOLEAN:
+      case DATE:
+      case TIME:
+      case TIMESTAMP:
+      case TIME_WITH_TIMEZONE:
+      case TIMESTAMP_WITH_TIMEZONE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  static boolean isNumeric(QueryExpression exp) {
+    return exp.getExpType() == ExpressionType.INTEGER || exp.getExpType() == ExpressionType.DECIMAL;
+  }
+
+  static boolean isTrue(QueryExpression exp) {
+    return exp.getExpType() == ExpressionType.BOOLEAN && ((ConstBoolean) exp).getValue();
+  }
+
+  static boolean isFalse(QueryExpression exp) {
+    return exp.getExpType() == ExpressionType.BOOLEAN && !((ConstBoolean) exp).getValue();
+  }
+
+  static double getDoubleValue(QueryExpression exp) {
+    return ((Number) ((Constant<?>) exp).getValue()).doubleValue();
+  }
+
+  static long getLongValue(QueryExpression exp) {
+    return ((Number) ((Constant<?>) exp).getValue()).longValue();
+  }
+
+  /**
+   * Compares two constants. Only constants that have a well-defined ordering independent of the backend are compared,
+   * which excludes strings (collations differ between backends) and values with time zones.
+   *
+   * @return a negative number, zero or a positive number if the first constant is less than, equal to or greater than
+   *         the second constant; or null if the constants cannot be compared
+   */
+  static Integer compare(QueryExpression exp1, QueryExpression exp2) {
+    if (isNumeric(exp1) && isNumeric(exp2)) {
+      if (exp1.getExpType() == ExpressionType.INTEGER && exp2.getExpType() == ExpressionType.INTEGER) {
+        return Long.compare(getLongValue(exp1), getLongValue(exp2));
+      }
+      double value1 = getDoubleValue(exp1);
+      double value2 = getDoubleValue(exp2);
+      return value1 < value2 ? -1 : (value1 > value2 ? 1 : 0);
+    }
+    if (exp1.getExpType() != exp2.getExpType()) {
+      return null;
+    }
+    Object value1 = ((Constant<?>) exp1).getValue();
+    Object value2 = ((Constant<?>) exp2).getValue();
+    switch (exp1.getExpType()) {
+      case DATE:
+        return ((LocalDate) value1).compareTo((LocalDate) value2);
+      case TIME:
+        return ((LocalTime) value1).compareTo((LocalTime) value2);
+      case TIMESTAMP:
+        return ((LocalDateTime) value1).compareTo((LocalDateTime) value2);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Tests two constants for equality. In addition to the constants that can be compared (see
+   * {@link #compare(QueryExpression, QueryExpression)}), strings and booleans can be tested for equality.
+   *
+   * @return true or false if the constants are equal or not equal; or null if the constants cannot be tested for
+   *         equality
+   */
+  static Boolean isEqual(QueryExpression exp1, QueryExpression exp2) {
+    Integer comparison = compare(exp1, exp2);
+    if (comparison != null) {
+      return comparison == 0;
+    }
+    if (exp1.getExpType() == exp2.getExpType()
+        && (exp1.getExpType() == ExpressionType.STRING || exp1.getExpType() == ExpressionType.BOOLEAN)) {
+      return ((Constant<?>) exp1).getValue().equals(((Constant<?>) exp2).getValue());
+    }
+    return null;
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import static oracle.pgql.lang.ir.PgqlUtils.getConjuncts;
+import static oracle.pgql.lang.optimizer.ConstantUtils.compare;
+import static oracle.pgql.lang.optimizer.ConstantUtils.isConstant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+
+/**
+ * Detects conjunctions that can never be satisfied and replaces them by FALSE, for example:
+ *
+ * - n.age = 18 AND n.age = 20
+ *
+ * - n.age > 30 AND n.age <= 20
+ *
+ * - n.age = 18 AND n.age <> 18
+ *
+ * - n.active AND NOT n.active
+ *
+ * Such a conjunction evaluates to either FALSE or NULL, so the rule only fires in a filter context (see
+ * {@link RewriteContext#isFilterContext()}).
+ */
+public class ContradictionDetectionRule implements RewriteRule {
+
+  public static final String NAME = "contradiction detection";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public QueryExpression rewrite(QueryExpression exp, RewriteContext context) {
+    if (!context.isFilterContext() || exp.getExpType() != ExpressionType.AND) {
+      return exp;
+    }
+
+    List<QueryExpression> conjuncts = getConjuncts(exp);
+    List<Range> ranges = new ArrayList<>();
+    for (QueryExpression conjunct : conjuncts) {
+      if (conjunct.getExpType() == ExpressionType.NOT && conjuncts.contains(((Not) conjunct).getExp())) {
+        return new ConstBoolean(false);
+      }
+
+      if (!(conjunct instanceof BinaryExpression) || !isComparison(conjunct.getExpType())) {
+        continue;
+      }
+      BinaryExpression comparison = (BinaryExpression) conjunct;
+      QueryExpression operand;
+      QueryExpression constant;
+      ExpressionType comparisonType = conjunct.getExpType();
+      if (isConstant(comparison.getExp2()) && !isConstant(comparison.getExp1())) {
+        operand = comparison.getExp1();
+        constant = comparison.getExp2();
+      } else if (isConstant(comparison.getExp1()) && !isConstant(comparison.getExp2())) {
+        operand = comparison.getExp2();
+        constant = comparison.getExp1();
+        comparisonType = flip(comparisonType);
+      } else {
+        continue;
+      }
+
+      Range range = getRange(ranges, operand);
+      if (!range.add(comparisonType, constant)) {
+        return new ConstBoolean(false);
+      }
+    }
+    return exp;
+  }
+
+  private static boolean isComparison(ExpressionType expType) {
+    switch (expType) {
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * 5 < x => x > 5
+   */
+  private static ExpressionType flip(ExpressionType expType) {
+    switch (expType) {
+      case GREATER:
+        return ExpressionType.LESS;
+      case GREATER_EQUAL:
+        return ExpressionType.LESS_EQUAL;
+      case LESS:
+        return ExpressionType.GREATER;
+      case LESS_EQUAL:
+        return ExpressionType.GREATER_EQUAL;
+      default:
+        return expType;
+    }
+  }
+
+  private static Range getRange(List<Range> ranges, QueryExpression operand) {
+    for (Range range : ranges) {
+      if (range.operand.equals(operand)) {
+        return range;
+      }
+    }
+    Range range = new Range(operand);
+    ranges.add(range);
+    return range;
+  }
+
+  /**
+   * The range of values that an operand can take, given the comparisons seen so far.
+   */
+  private static class Range {
+
+    final QueryExpression operand;
+
+    QueryExpression equalTo;
+
+    final List<QueryExpression> notEqualTo = new ArrayList<>();
+
+    QueryExpression lowerBound;
+
+    boolean lowerBoundInclusive;
+
+    QueryExpression upperBound;
+
+    boolean upperBoundInclusive;
+
+    Range(QueryExpression operand) {
+      this.operand = operand;
+    }
+
+    /**
+     * @return false if the range became empty
+     */
+    boolean add(ExpressionType comparisonType, QueryExpression constant) {
+      switch (comparisonType) {
+        case EQUAL:
+          if (equalTo != null) {
+            Boolean equal = ConstantUtils.isEqual(equalTo, constant);
+            if (equal != null && !equal) {
+              return false;
+            }
+          } else {
+            equalTo = constant;
+          }
+          break;
+        case NOT_EQUAL:
+          notEqualTo.add(constant);
+          break;
+        case GREATER:
+        case GREATER_EQUAL: {
+          boolean inclusive = comparisonType == ExpressionType.GREATER_EQUAL;
+          Integer comparison = lowerBound == null ? null : compare(constant, lowerBound);
+          if (lowerBound == null || (comparison != null && (comparison > 0 || (comparison == 0 && !inclusive)))) {
+            lowerBound = constant;
+            lowerBoundInclusive = inclusive;
+          }
+          break;
+        }
+        case LESS:
+        case LESS_EQUAL: {
+          boolean inclusive = comparisonType == ExpressionType.LESS_EQUAL;
+          Integer comparison = upperBound == null ? null : compare(constant, upperBound);
+          if (upperBound == null || (comparison != null && (comparison < 0 || (comparison == 0 && !inclusive)))) {
+            upperBound = constant;
+            upperBoundInclusive = inclusive;
+          }
+          break;
+        }
+        default:
+          throw new IllegalArgumentException(comparisonType.toString());
+      }
+      return !isEmpty();
+    }
+
+    private boolean isEmpty() {
+      if (lowerBound != null && upperBound != null) {
+        Integer comparison = compare(lowerBound, upperBound);
+        if (comparison != null && (comparison > 0 || (comparison == 0 && !(lowerBoundInclusive && upperBoundInclusive)))) {
+          return true;
+        }
+      }
+      if (equalTo != null) {
+        for (QueryExpression value : notEqualTo) {
+          Boolean equal = ConstantUtils.isEqual(equalTo, value);
+          if (equal != null && equal) {
+            return true;
+          }
+        }
+        if (lowerBound != null) {
+          Integer comparison = compare(equalTo, lowerBound);
+          if (comparison != null && (comparison < 0 || (comparison == 0 && !lowerBoundInclusive))) {
+            return true;
+          }
+        }
+        if (upperBound != null) {
+          Integer comparison = compare(equalTo, upperBound);
+          if (comparison != null && (comparison > 0 || (comparison == 0 && !upperBoundInclusive))) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+}
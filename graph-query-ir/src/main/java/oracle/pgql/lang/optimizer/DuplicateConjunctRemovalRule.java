@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import static oracle.pgql.lang.ir.PgqlUtils.createConjunction;
+import static oracle.pgql.lang.ir.PgqlUtils.getConjuncts;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+
+/**
+ * Removes duplicate operands from AND and OR expressions, for example:
+ *
+ * - n.age > 18 AND n.name = 'Ann' AND n.age > 18 => n.age > 18 AND n.name = 'Ann'
+ *
+ * - has_label(n, 'Person') OR has_label(n, 'Person') => has_label(n, 'Person')
+ */
+public class DuplicateConjunctRemovalRule implements RewriteRule {
+
+  public static final String NAME = "duplicate conjunct removal";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public QueryExpression rewrite(QueryExpression exp, RewriteContext context) {
+    switch (exp.getExpType()) {
+      case AND: {
+        List<QueryExpression> conjuncts = getConjuncts(exp);
+        LinkedHashSet<QueryExpression> distinctConjuncts = new LinkedHashSet<>(conjuncts);
+        if (distinctConjuncts.size() == conjuncts.size()) {
+          return exp;
+        }
+        return createConjunction(new ArrayList<>(distinctConjuncts));
+      }
+      case OR: {
+        List<QueryExpression> disjuncts = new ArrayList<>();
+        addDisjuncts(exp, disjuncts);
+        LinkedHashSet<QueryExpression> distinctDisjuncts = new LinkedHashSet<>(disjuncts);
+        if (distinctDisjuncts.size() == disjuncts.size()) {
+          return exp;
+        }
+        QueryExpression result = null;
+        for (QueryExpression disjunct : distinctDisjuncts) {
+          result = result == null ? disjunct : new Or(result, disjunct);
+        }
+        return result;
+      }
+      default:
+        return exp;
+    }
+  }
+
+  private void addDisjuncts(QueryExpression exp, List<QueryExpression> result) {
+    if (exp.getExpType() == ExpressionType.OR) {
+      Or or = (Or) exp;
+      addDisjuncts(or.getExp1(), result);
+      addDisjuncts(or.getExp2(), result);
+    } else {
+      result.add(exp);
+    }
+  }
+}
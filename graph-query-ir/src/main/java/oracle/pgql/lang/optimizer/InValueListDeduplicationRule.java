@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDate;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTime;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestamp;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+
+/**
+ * Removes duplicate values from IN value lists and turns an IN predicate with a single value into an equality:
+ *
+ * - n.age IN (20, 30, 20) => n.age IN (20, 30)
+ *
+ * - n.name IN ('Ann', 'Ann') => n.name = 'Ann'
+ */
+public class InValueListDeduplicationRule implements RewriteRule {
+
+  public static final String NAME = "IN value list deduplication";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public QueryExpression rewrite(QueryExpression exp, RewriteContext context) {
+    if (exp.getExpType() != ExpressionType.IN_EXPRESSION) {
+      return exp;
+    }
+    InPredicate inPredicate = (InPredicate) exp;
+    if (inPredicate.getInValueList().getExpType() != ExpressionType.IN_VALUE_LIST) {
+      return exp; // e.g. a bind variable
+    }
+    InValueList inValueList = (InValueList) inPredicate.getInValueList();
+
+    int size = inValueList.getSize();
+    if (size == 1) {
+      return new Equal(inPredicate.getExp(), getValue(inValueList, 0));
+    }
+
+    InValueList deduplicated = deduplicate(inValueList);
+    if (deduplicated == null) {
+      return exp;
+    }
+    if (deduplicated.getSize() == 1) {
+      return new Equal(inPredicate.getExp(), getValue(deduplicated, 0));
+    }
+    return new InPredicate(inPredicate.getExp(), deduplicated);
+  }
+
+  private static QueryExpression getValue(InValueList inValueList, int i) {
+    switch (inValueList.getArrayElementType()) {
+      case INTEGER:
+        return new ConstInteger(inValueList.getIntegerValues()[i]);
+      case DECIMAL:
+        return new ConstDecimal(inValueList.getDecimalValues()[i]);
+      case BOOLEAN:
+        return new ConstBoolean(inValueList.getBooleanValues()[i]);
+      case STRING:
+        return new ConstString(inValueList.getStringValues()[i]);
+      case DATE:
+        return new ConstDate(inValueList.getDateValues()[i]);
+      case TIME:
+        return new ConstTime(inValueList.getTimeValues()[i]);
+      case TIMESTAMP:
+        return new ConstTimestamp(inValueList.getTimestampValues()[i]);
+      default:
+        throw new IllegalArgumentException(inValueList.getArrayElementType().toString());
+    }
+  }
+
+  /**
+   * @return a new value list without duplicates, or null if there were no duplicates
+   */
+  private static InValueList deduplicate(InValueList inValueList) {
+    switch (inValueList.getArrayElementType()) {
+      case INTEGER: {
+        long[] values = inValueList.getIntegerValues();
+        long[] distinctValues = Arrays.stream(values).distinct().toArray();
+        return distinctValues.length == values.length ? null : new InValueList(distinctValues);
+      }
+      case DECIMAL: {
+        double[] values = inValueList.getDecimalValues();
+        double[] distinctValues = Arrays.stream(values).distinct().toArray();
+        return distinctValues.length == values.length ? null : new InValueList(distinctValues);
+      }
+      case BOOLEAN: {
+        boolean[] values = inValueList.getBooleanValues();
+        boolean containsTrue = false;
+        boolean containsFalse = false;
+        for (boolean value : values) {
+          containsTrue |= value;
+          containsFalse |= !value;
+        }
+        if (values.length <= 1 || values.length == 2 && containsTrue && containsFalse) {
+          return null;
+        }
+        return containsTrue && containsFalse ? new InValueList(new boolean[] { values[0], !values[0] })
+            : new InValueList(new boolean[] { values[0] });
+      }
+      case STRING: {
+        String[] values = inValueList.getStringValues();
+        Set<String> distinctValues = new LinkedHashSet<>(Arrays.asList(values));
+        return distinctValues.size() == values.length ? null
+            : new InValueList(distinctValues.toArray(new String[distinctValues.size()]));
+      }
+      case DATE: {
+        LocalDate[] values = inValueList.getDateValues();
+        Set<LocalDate> distinctValues = new LinkedHashSet<>(Arrays.asList(values));
+        return distinctValues.size() == values.length ? null
+            : new InValueList(distinctValues.toArray(new LocalDate[distinctValues.size()]));
+      }
+      case TIME: {
+        LocalTime[] values = inValueList.getTimeValues();
+        Set<LocalTime> distinctValues = new LinkedHashSet<>(Arrays.asList(values));
+        return distinctValues.size() == values.length ? null
+            : new InValueList(distinctValues.toArray(new LocalTime[distinctValues.size()]));
+      }
+      case TIMESTAMP: {
+        LocalDateTime[] values = inValueList.getTimestampValues();
+        Set<LocalDateTime> distinctValues = new LinkedHashSet<>(Arrays.asList(values));
+        return distinctValues.size() == values.length ? null
+            : new InValueList(distinctValues.toArray(new LocalDateTime[distinctValues.size()]));
+      }
+      default:
+        throw new IllegalArgumentException(inValueList.getArrayElementType().toString());
+    }
+  }
+}
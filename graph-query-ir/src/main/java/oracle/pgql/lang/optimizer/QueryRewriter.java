@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import static oracle.pgql.lang.ir.PgqlUtils.createConjunction;
+import static oracle.pgql.lang.ir.PgqlUtils.getConjuncts;
+import static oracle.pgql.lang.optimizer.ConstantUtils.isFalse;
+import static oracle.pgql.lang.optimizer.ConstantUtils.isTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.TernaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+
+/**
+ * Rule-based rewriter for the PGQL IR. This allows for optimizations on top of the ones performed by the parser.
+ *
+ * The rewriter applies its rules bottom-up to all the expressions in a query, including the expressions in
+ * subqueries and path pattern definitions, and repeats the rules for an expression until none of them fires anymore.
+ * The query is rewritten in place.
+ *
+ * Example:
+ *
+ * <pre>
+ * RewriteResult result = new QueryRewriter().rewrite(pgqlResult.getGraphQuery());
+ * if (result.isUnsatisfiable()) {
+ *   // no need to execute the query as it will not return any results
+ * }
+ * </pre>
+ */
+public class QueryRewriter {
+
+  private static final int MAX_ITERATIONS_PER_EXPRESSION = 16;
+
+  private final List<RewriteRule> rules;
+
+  /**
+   * Creates a rewriter with the default rules (see {@link #getDefaultRules()}).
+   */
+  public QueryRewriter() {
+    this(getDefaultRules());
+  }
+
+  /**
+   * @param rules
+   *          the rules to apply, in the order in which they are to be tried
+   */
+  public QueryRewriter(List<RewriteRule> rules) {
+    this.rules = new ArrayList<>(rules);
+  }
+
+  /**
+   * @return a new, modifiable list with the built-in rules, which can be extended with custom rules
+   */
+  public static List<RewriteRule> getDefaultRules() {
+    List<RewriteRule> result = new ArrayList<>();
+    result.add(new ConstantFoldingRule());
+    result.add(new BooleanSimplificationRule());
+    result.add(new InValueListDeduplicationRule());
+    result.add(new DuplicateConjunctRemovalRule());
+    result.add(new ContradictionDetectionRule());
+    return result;
+  }
+
+  public List<RewriteRule> getRules() {
+    return Collections.unmodifiableList(rules);
+  }
+
+  /**
+   * Rewrites a query in place.
+   *
+   * @param query
+   *          a SELECT or MODIFY query
+   * @return the rules that fired
+   */
+  public RewriteResult rewrite(GraphQuery query) {
+    RewriteResult result = new RewriteResult();
+    rewriteQuery(query, result, true);
+    return result;
+  }
+
+  /**
+   * Rewrites an expression. Note that subexpressions may be rewritten in place.
+   *
+   * @param exp
+   *          the expression to rewrite
+   * @param context
+   *          the context in which the expression appears
+   * @param result
+   *          collects the rules that fired
+   * @return the rewritten expression
+   */
+  public QueryExpression rewrite(QueryExpression exp, RewriteContext context, RewriteResult result) {
+    rewriteChildren(exp, context, result);
+
+    for (int i = 0; i < MAX_ITERATIONS_PER_EXPRESSION; i++) {
+      boolean fired = false;
+      for (RewriteRule rule : rules) {
+        QueryExpression rewrittenExp = rule.rewrite(exp, context);
+        if (rewrittenExp != exp) {
+          result.ruleFired(rule);
+          exp = rewrittenExp;
+          fired = true;
+        }
+      }
+      if (!fired) {
+        break;
+      }
+    }
+    return exp;
+  }
+
+  /**
+   * Rewrites an expression that appears in the SELECT, ORDER BY, etc.
+   *
+   * @return the rewritten expression
+   */
+  public QueryExpression rewrite(QueryExpression exp, RewriteResult result) {
+    return rewrite(exp, RewriteContext.VALUE, result);
+  }
+
+  private void rewriteQuery(GraphQuery query, RewriteResult result, boolean topLevelQuery) {
+    Set<Set<QueryExpression>> visitedPathConstraints = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (CommonPathExpression commonPathExpression : query.getCommonPathExpressions()) {
+      commonPathExpression.setConstraints(rewriteConstraints(commonPathExpression.getConstraints(), result));
+      visitedPathConstraints.add(commonPathExpression.getConstraints());
+      if (commonPathExpression.getCost() != null) {
+        commonPathExpression.setCost(rewrite(commonPathExpression.getCost(), result));
+      }
+    }
+
+    switch (query.getQueryType()) {
+      case SELECT:
+        for (ExpAsVar expAsVar : ((SelectQuery) query).getProjection().getElements()) {
+          expAsVar.setExp(rewrite(expAsVar.getExp(), result));
+        }
+        break;
+      case MODIFY:
+        for (Modification modification : ((ModifyQuery) query).getModifications()) {
+          rewriteModification(modification, result);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(query.getQueryType().toString());
+    }
+
+    GraphPattern graphPattern = query.getGraphPattern();
+    if (graphPattern != null) {
+      for (VertexPairConnection connection : graphPattern.getConnections()) {
+        if (connection.getVariableType() == VariableType.PATH) {
+          QueryPath path = (QueryPath) connection;
+          if (visitedPathConstraints.add(path.getConstraints())) {
+            path.setConstraints(rewriteConstraints(path.getConstraints(), result));
+            visitedPathConstraints.add(path.getConstraints());
+            if (path.getCost() != null) {
+              path.setCost(rewrite(path.getCost(), result));
+            }
+          }
+        }
+      }
+
+      Set<QueryExpression> constraints = rewriteConstraints(graphPattern.getConstraints(), result);
+      graphPattern.setConstraints(constraints);
+      if (topLevelQuery && constraints.size() == 1 && isFalse(constraints.iterator().next())) {
+        result.setUnsatisfiable(true);
+      }
+    }
+
+    if (query.getGroupBy() != null) {
+      for (ExpAsVar expAsVar : query.getGroupBy().getElements()) {
+        expAsVar.setExp(rewrite(expAsVar.getExp(), result));
+      }
+    }
+
+    if (query.getHaving() != null) {
+      QueryExpression having = rewrite(query.getHaving(), RewriteContext.FILTER, result);
+      query.setHaving(isTrue(having) ? null : having);
+    }
+
+    if (query.getOrderBy() != null) {
+      for (OrderByElem orderByElem : query.getOrderBy().getElements()) {
+        orderByElem.setExp(rewrite(orderByElem.getExp(), result));
+      }
+    }
+
+    if (query.getLimit() != null) {
+      query.setLimit(rewrite(query.getLimit(), result));
+    }
+    if (query.getOffset() != null) {
+      query.setOffset(rewrite(query.getOffset(), result));
+    }
+  }
+
+  /**
+   * Rewrites the constraints as a single conjunction such that e.g. contradictions between different constraints are
+   * detected. If no rule fired, the original constraints are returned such that their structure is preserved.
+   */
+  private Set<QueryExpression> rewriteConstraints(Set<QueryExpression> constraints, RewriteResult result) {
+    if (constraints.isEmpty()) {
+      return constraints;
+    }
+
+    int numFiringsBefore = result.getNumFirings();
+    QueryExpression conjunction = rewrite(createConjunction(new ArrayList<>(constraints)), RewriteContext.FILTER,
+        result);
+    if (result.getNumFirings() == numFiringsBefore) {
+      return constraints;
+    }
+
+    LinkedHashSet<QueryExpression> rewrittenConstraints = new LinkedHashSet<>();
+    for (QueryExpression conjunct : getConjuncts(conjunction)) {
+      if (isFalse(conjunct)) {
+        rewrittenConstraints.clear();
+        rewrittenConstraints.add(new ConstBoolean(false));
+        break;
+      } else if (!isTrue(conjunct)) {
+        rewrittenConstraints.add(conjunct);
+      }
+    }
+    return rewrittenConstraints;
+  }
+
+  private void rewriteModification(Modification modification, RewriteResult result) {
+    switch (modification.getModificationType()) {
+      case INSERT:
+        for (Insertion insertion : ((InsertClause) modification).getInsertions()) {
+          rewriteSetPropertyExpressions(((AbstractInsertion) insertion).getProperties(), result);
+        }
+        break;
+      case UPDATE:
+        for (Update update : ((UpdateClause) modification).getUpdates()) {
+          rewriteSetPropertyExpressions(update.getSetPropertyExpressions(), result);
+        }
+        break;
+      case DELETE:
+        break;
+      default:
+        throw new IllegalArgumentException(modification.getModificationType().toString());
+    }
+  }
+
+  private void rewriteSetPropertyExpressions(List<SetPropertyExpression> setPropertyExpressions,
+      RewriteResult result) {
+    if (setPropertyExpressions == null) {
+      return;
+    }
+    for (SetPropertyExpression setPropertyExpression : setPropertyExpressions) {
+      setPropertyExpression.setValueExpression(rewrite(setPropertyExpression.getValueExpression(), result));
+    }
+  }
+
+  private void rewriteChildren(QueryExpression exp, RewriteContext context, RewriteResult result) {
+    switch (exp.getExpType()) {
+      case SUB:
+      case ADD:
+      case MUL:
+      case DIV:
+      case MOD:
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+      case CONCAT: {
+        BinaryExpression binaryExpression = (BinaryExpression) exp;
+        binaryExpression.setExp1(rewrite(binaryExpression.getExp1(), result));
+        binaryExpression.setExp2(rewrite(binaryExpression.getExp2(), result));
+        break;
+      }
+      case AND:
+      case OR: {
+        // NULL and FALSE are interchangeable in the operands of AND and OR if they are interchangeable in the AND or OR
+        BinaryExpression binaryExpression = (BinaryExpression) exp;
+        binaryExpression.setExp1(rewrite(binaryExpression.getExp1(), context, result));
+        binaryExpression.setExp2(rewrite(binaryExpression.getExp2(), context, result));
+        break;
+      }
+      case UMIN:
+      case NOT:
+      case AGGR_COUNT:
+      case AGGR_MIN:
+      case AGGR_MAX:
+      case AGGR_SUM:
+      case AGGR_AVG:
+      case AGGR_ARRAY_AGG:
+      case AGGR_LISTAGG: {
+        UnaryExpression unaryExpression = (UnaryExpression) exp;
+        unaryExpression.setExp(rewrite(unaryExpression.getExp(), result));
+        break;
+      }
+      case BETWEEN_PREDICATE: {
+        TernaryExpression ternaryExpression = (TernaryExpression) exp;
+        ternaryExpression.setExp1(rewrite(ternaryExpression.getExp1(), result));
+        ternaryExpression.setExp2(rewrite(ternaryExpression.getExp2(), result));
+        ternaryExpression.setExp3(rewrite(ternaryExpression.getExp3(), result));
+        break;
+      }
+      case CAST: {
+        Cast cast = (Cast) exp;
+        cast.setExp(rewrite(cast.getExp(), result));
+        break;
+      }
+      case EXISTS:
+      case SCALAR_SUBQUERY:
+        rewriteQuery(((Subquery) exp).getQuery(), result, false);
+        break;
+      case FUNCTION_CALL: {
+        FunctionCall functionCall = (FunctionCall) exp;
+        List<QueryExpression> args = new ArrayList<>();
+        for (QueryExpression arg : functionCall.getArgs()) {
+          args.add(rewrite(arg, result));
+        }
+        functionCall.setArgs(args);
+        break;
+      }
+      case EXTRACT_EXPRESSION: {
+        ExtractExpression extractExpression = (ExtractExpression) exp;
+        extractExpression.setExp(rewrite(extractExpression.getExp(), result));
+        break;
+      }
+      case IN_EXPRESSION: {
+        InPredicate inPredicate = (InPredicate) exp;
+        inPredicate.setExp(rewrite(inPredicate.getExp(), result));
+        inPredicate.setInValueList(rewrite(inPredicate.getInValueList(), result));
+        break;
+      }
+      case IS_NULL: {
+        IsNull isNull = (IsNull) exp;
+        isNull.setExp(rewrite(isNull.getExp(), result));
+        break;
+      }
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) exp;
+        ifElse.setExp1(rewrite(ifElse.getExp1(), RewriteContext.FILTER, result));
+        ifElse.setExp2(rewrite(ifElse.getExp2(), context, result));
+        if (ifElse.getExp3() != null) {
+          ifElse.setExp3(rewrite(ifElse.getExp3(), context, result));
+        }
+        break;
+      }
+      case SIMPLE_CASE: {
+        SimpleCase simpleCase = (SimpleCase) exp;
+        simpleCase.setCaseOperand(rewrite(simpleCase.getCaseOperand(), result));
+        for (WhenThenExpression whenThenExpression : simpleCase.getWhenThenExps()) {
+          whenThenExpression.setWhen(rewrite(whenThenExpression.getWhen(), result));
+          whenThenExpression.setThen(rewrite(whenThenExpression.getThen(), context, result));
+        }
+        if (simpleCase.getElseExp() != null) {
+          simpleCase.setElseExp(rewrite(simpleCase.getElseExp(), context, result));
+        }
+        if (simpleCase.getIfElseRepresentation() != null) {
+          // only rewrite the subexpressions since the representation needs to remain a CASE
+          rewriteChildren(simpleCase.getIfElseRepresentation(), context, result);
+        }
+        break;
+      }
+      case SUBSTRING: {
+        SubstringExpression substringExpression = (SubstringExpression) exp;
+        substringExpression.setExp(rewrite(substringExpression.getExp(), result));
+        substringExpression.setStartPosition(rewrite(substringExpression.getStartPosition(), result));
+        if (substringExpression.getStringLength() != null) {
+          substringExpression.setStringLength(rewrite(substringExpression.getStringLength(), result));
+        }
+        break;
+      }
+      default:
+        // constants, variable references, property accesses, bind variables, etc. don't have subexpressions
+        break;
+    }
+  }
+}
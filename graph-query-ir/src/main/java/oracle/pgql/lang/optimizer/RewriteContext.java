@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+/**
+ * The context in which an expression is rewritten.
+ */
+public class RewriteContext {
+
+  /**
+   * The context of a WHERE or HAVING condition.
+   */
+  public static final RewriteContext FILTER = new RewriteContext(true);
+
+  /**
+   * The context of an expression in e.g. the SELECT, GROUP BY or ORDER BY.
+   */
+  public static final RewriteContext VALUE = new RewriteContext(false);
+
+  private final boolean filterContext;
+
+  private RewriteContext(boolean filterContext) {
+    this.filterContext = filterContext;
+  }
+
+  /**
+   * Whether the expression is (part of) a filter, for example a WHERE or HAVING condition, such that NULL and FALSE have
+   * the same effect. This is not the case for e.g. expressions in the SELECT or ORDER BY, or for expressions nested
+   * inside a NOT.
+   *
+   * @return true if a rule is allowed to rewrite an expression that evaluates to NULL into FALSE
+   */
+  public boolean isFilterContext() {
+    return filterContext;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports what a {@link QueryRewriter} did to a query.
+ */
+public class RewriteResult {
+
+  private final Map<String, Integer> firedRules = new LinkedHashMap<>();
+
+  private int numFirings;
+
+  private boolean unsatisfiable;
+
+  /**
+   * @return the names of the rules that fired, in the order in which they first fired, together with the number of times
+   *         they fired
+   */
+  public Map<String, Integer> getFiredRules() {
+    return Collections.unmodifiableMap(firedRules);
+  }
+
+  /**
+   * @return true if any of the rules fired
+   */
+  public boolean isQueryRewritten() {
+    return numFirings > 0;
+  }
+
+  /**
+   * @param ruleName
+   *          the name of a rule
+   * @return true if the rule fired at least once
+   */
+  public boolean hasFired(String ruleName) {
+    return firedRules.containsKey(ruleName);
+  }
+
+  /**
+   * @return true if the WHERE clause of the query was reduced to FALSE, meaning that the query does not match anything
+   */
+  public boolean isUnsatisfiable() {
+    return unsatisfiable;
+  }
+
+  void ruleFired(RewriteRule rule) {
+    firedRules.merge(rule.getName(), 1, Integer::sum);
+    numFirings++;
+  }
+
+  int getNumFirings() {
+    return numFirings;
+  }
+
+  void setUnsatisfiable(boolean unsatisfiable) {
+    this.unsatisfiable = unsatisfiable;
+  }
+
+  @Override
+  public String toString() {
+    return "RewriteResult [firedRules=" + firedRules + ", unsatisfiable=" + unsatisfiable + "]";
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.optimizer;
+
+import oracle.pgql.lang.ir.QueryExpression;
+
+/**
+ * A rewrite rule that can be plugged into a {@link QueryRewriter}.
+ *
+ * Rules are applied bottom-up, meaning that by the time a rule is applied to an expression, the rules have already been
+ * applied to all the subexpressions.
+ */
+public interface RewriteRule {
+
+  /**
+   * @return the name of the rule, as reported in {@link RewriteResult#getFiredRules()}
+   */
+  String getName();
+
+  /**
+   * @param exp
+   *          the expression to rewrite
+   * @param context
+   *          the context in which the expression appears
+   * @return the rewritten expression, or the given expression itself (same instance) if the rule does not apply
+   */
+  QueryExpression rewrite(QueryExpression exp, RewriteContext context);
+}
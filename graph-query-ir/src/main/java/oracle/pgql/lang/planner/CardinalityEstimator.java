@@ -0,0 +1,520 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.PathFindingGoal;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.metadata.AbstractStatisticsProvider;
+import oracle.pgql.lang.metadata.Histogram;
+import oracle.pgql.lang.metadata.PropertyStatistics;
+
+/**
+ * Estimates the number of vertices and edges that match a label expression, average degrees and the selectivity of
+ * constraints, based on whatever statistics the {@link AbstractStatisticsProvider} provides. Missing statistics are
+ * replaced by defaults. Constraints are assumed to be independent of each other.
+ */
+public class CardinalityEstimator {
+
+  public static final long DEFAULT_VERTEX_COUNT = 1000;
+
+  public static final double DEFAULT_AVERAGE_DEGREE = 10;
+
+  public static final double DEFAULT_LABEL_SELECTIVITY = 0.1;
+
+  public static final double DEFAULT_EQUAL_SELECTIVITY = 0.1;
+
+  public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+  public static final double DEFAULT_SELECTIVITY = 0.5;
+
+  /**
+   * Default ratio between the number of distinct values of an expression and the number of rows
+   */
+  public static final double DEFAULT_DISTINCT_FRACTION = 0.1;
+
+  /**
+   * Upper bound on the number of hops that is assumed for paths without a maximum number of hops
+   */
+  public static final long DEFAULT_MAX_HOPS = 10;
+
+  private final AbstractStatisticsProvider statistics;
+
+  public CardinalityEstimator(AbstractStatisticsProvider statistics) {
+    this.statistics = statistics;
+  }
+
+  public AbstractStatisticsProvider getStatistics() {
+    return statistics;
+  }
+
+  public double getVertexCount() {
+    return statistics.getVertexCount().orElse(DEFAULT_VERTEX_COUNT);
+  }
+
+  /**
+   * @param labels
+   *          the labels of the vertex, or an empty set for any label
+   */
+  public double getVertexCount(Set<String> labels) {
+    if (labels.isEmpty()) {
+      return getVertexCount();
+    }
+    double result = 0;
+    for (String label : labels) {
+      Optional<Long> count = statistics.getVertexCount(label);
+      result += count.isPresent() ? count.get() : getVertexCount() * DEFAULT_LABEL_SELECTIVITY;
+    }
+    return Math.min(result, getVertexCount());
+  }
+
+  public double getEdgeCount() {
+    return statistics.getEdgeCount().orElse((long) (getVertexCount() * DEFAULT_AVERAGE_DEGREE));
+  }
+
+  /**
+   * @param labels
+   *          the labels of the edge, or an empty set for any label
+   */
+  public double getEdgeCount(Set<String> labels) {
+    if (labels.isEmpty()) {
+      return getEdgeCount();
+    }
+    double result = 0;
+    for (String label : labels) {
+      Optional<Long> count = statistics.getEdgeCount(label);
+      result += count.isPresent() ? count.get() : getEdgeCount() * DEFAULT_LABEL_SELECTIVITY;
+    }
+    return Math.min(result, getEdgeCount());
+  }
+
+  /**
+   * @return the fraction of all vertices that have one of the given labels
+   */
+  public double getVertexLabelSelectivity(Set<String> labels) {
+    return labels.isEmpty() ? 1 : Math.min(1, getVertexCount(labels) / Math.max(1, getVertexCount()));
+  }
+
+  /**
+   * Get the average number of edges with one of the given edge labels, per vertex with one of the given vertex labels.
+   * 
+   * @param direction
+   *          OUTGOING for the out-degree, INCOMING for the in-degree and ANY for the sum of the two
+   */
+  public double getAverageDegree(Set<String> vertexLabels, Set<String> edgeLabels, Direction direction) {
+    Set<String> vertexLabelsOrAny = vertexLabels.isEmpty() ? Collections.singleton(null) : vertexLabels;
+    Set<String> edgeLabelsOrAny = edgeLabels.isEmpty() ? Collections.singleton(null) : edgeLabels;
+
+    // average over the vertex labels, weighted by the number of vertices, and sum over the edge labels
+    double weightedDegree = 0;
+    double totalWeight = 0;
+    for (String vertexLabel : vertexLabelsOrAny) {
+      double weight = vertexLabel == null ? getVertexCount() : getVertexCount(Collections.singleton(vertexLabel));
+      double degree = 0;
+      for (String edgeLabel : edgeLabelsOrAny) {
+        Optional<Double> averageDegree = statistics.getAverageDegree(vertexLabel, edgeLabel, direction);
+        if (averageDegree.isPresent()) {
+          degree += averageDegree.get();
+        } else {
+          // assume that all the edges with the label are incident to vertices with the label
+          double edgeCount = edgeLabel == null ? getEdgeCount() : getEdgeCount(Collections.singleton(edgeLabel));
+          degree += edgeCount / Math.max(1, weight) * (direction == Direction.ANY ? 2 : 1);
+        }
+      }
+      weightedDegree += degree * weight;
+      totalWeight += weight;
+    }
+    return totalWeight == 0 ? 0 : weightedDegree / totalWeight;
+  }
+
+  /**
+   * Get the fraction of the vertices that are reached via edges with one of the given edge labels that have one of
+   * the given vertex labels. For example, if all "hasTag" edges point to "Tag" vertices, then the fraction of vertices
+   * reached via "hasTag" edges that have label "Tag" is 1, even though only few vertices in the graph have label "Tag".
+   * 
+   * @param vertexLabels
+   *          the labels of the reached vertex, or an empty set for any label
+   * @param edgeLabels
+   *          the labels of the edge, or an empty set for any label
+   * @param direction
+   *          the direction in which the edges are traversed: OUTGOING if the reached vertices are the destinations of
+   *          the edges, INCOMING if they are the sources and ANY if they can be either
+   */
+  public double getReachedVertexLabelSelectivity(Set<String> vertexLabels, Set<String> edgeLabels,
+      Direction direction) {
+    if (vertexLabels.isEmpty()) {
+      return 1;
+    }
+    if (edgeLabels.isEmpty()) {
+      return getVertexLabelSelectivity(vertexLabels);
+    }
+
+    Direction reverseDirection;
+    switch (direction) {
+      case OUTGOING:
+        reverseDirection = Direction.INCOMING;
+        break;
+      case INCOMING:
+        reverseDirection = Direction.OUTGOING;
+        break;
+      default:
+        reverseDirection = Direction.ANY;
+    }
+
+    // the number of edge endpoints at vertices with the label, divided by the total number of edge endpoints
+    double endpoints = 0;
+    for (String vertexLabel : vertexLabels) {
+      Set<String> vertexLabelAsSet = Collections.singleton(vertexLabel);
+      endpoints += getVertexCount(vertexLabelAsSet) * getAverageDegree(vertexLabelAsSet, edgeLabels, reverseDirection);
+    }
+    double totalEndpoints = getEdgeCount(edgeLabels) * (direction == Direction.ANY ? 2 : 1);
+    return totalEndpoints == 0 ? 0 : Math.min(1, endpoints / totalEndpoints);
+  }
+
+  /**
+   * Get the average number of vertices that are reached from a vertex via a path.
+   * 
+   * @param hopDegree
+   *          the average number of vertices that are reached in a single hop
+   */
+  public double getPathFanOut(QueryPath path, double hopDegree) {
+    long maxHops = path.getMaxHops() == -1 ? Math.max(path.getMinHops(), DEFAULT_MAX_HOPS) : path.getMaxHops();
+    double fanOut = 0;
+    double verticesAtDistance = Math.pow(hopDegree, path.getMinHops());
+    for (long hops = path.getMinHops(); hops <= maxHops; hops++) {
+      fanOut += verticesAtDistance;
+      verticesAtDistance *= hopDegree;
+      if (path.getPathFindingGoal() != PathFindingGoal.ALL && fanOut >= getVertexCount()) {
+        break;
+      }
+    }
+    if (path.getPathFindingGoal() == PathFindingGoal.ALL) {
+      return fanOut; // the number of paths can exceed the number of vertices
+    }
+    fanOut = Math.min(fanOut, getVertexCount());
+    PathFindingGoal goal = path.getPathFindingGoal();
+    if (goal == PathFindingGoal.SHORTEST || goal == PathFindingGoal.CHEAPEST) {
+      fanOut *= Math.max(1, path.getKValue());
+    }
+    return fanOut;
+  }
+
+  /**
+   * Get the estimated number of groups (or distinct rows) when grouping rows by the given expressions.
+   * 
+   * @param labels
+   *          the labels of the variables, used for looking up property statistics
+   * @param inputRows
+   *          the number of rows that are grouped
+   */
+  public double getGroupCount(List<QueryExpression> groupingExpressions, Map<QueryVariable, Set<String>> labels,
+      double inputRows) {
+    double groupCount = 1;
+    for (QueryExpression exp : groupingExpressions) {
+      groupCount *= getDistinctCount(exp, labels, inputRows);
+    }
+    return Math.max(Math.min(1, inputRows), Math.min(groupCount, inputRows));
+  }
+
+  private double getDistinctCount(QueryExpression exp, Map<QueryVariable, Set<String>> labels, double inputRows) {
+    switch (exp.getExpType()) {
+      case VARREF: {
+        QueryVariable variable = ((VarRef) exp).getVariable();
+        Set<String> variableLabels = labels.getOrDefault(variable, Collections.emptySet());
+        switch (variable.getVariableType()) {
+          case VERTEX:
+            return getVertexCount(variableLabels);
+          case EDGE:
+            return getEdgeCount(variableLabels);
+          default:
+            return inputRows;
+        }
+      }
+      case PROP_ACCESS: {
+        PropertyAccess propertyAccess = (PropertyAccess) exp;
+        Set<String> variableLabels = labels.getOrDefault(propertyAccess.getVariable(), Collections.emptySet());
+        Set<String> labelsOrAny = variableLabels.isEmpty() ? Collections.singleton(null) : variableLabels;
+        double distinctCount = 0;
+        for (String label : labelsOrAny) {
+          Optional<PropertyStatistics> propertyStatistics = statistics.getPropertyStatistics(label,
+              propertyAccess.getPropertyName());
+          if (!propertyStatistics.isPresent()) {
+            return Math.max(1, inputRows * DEFAULT_DISTINCT_FRACTION);
+          }
+          // null is a group as well
+          distinctCount += propertyStatistics.get().getDistinctCount()
+              + (propertyStatistics.get().getNullCount() > 0 ? 1 : 0);
+        }
+        return distinctCount;
+      }
+      default:
+        if (exp instanceof Constant || exp.getExpType() == ExpressionType.BIND_VARIABLE) {
+          return 1;
+        }
+        return Math.max(1, inputRows * DEFAULT_DISTINCT_FRACTION);
+    }
+  }
+
+  /**
+   * Get the estimated fraction of rows that satisfy all of the given constraints.
+   * 
+   * @param labels
+   *          the labels of the variables, used for looking up property statistics
+   */
+  public double getSelectivity(List<QueryExpression> constraints, Map<QueryVariable, Set<String>> labels) {
+    double selectivity = 1;
+    for (QueryExpression constraint : constraints) {
+      selectivity *= getSelectivity(constraint, labels);
+    }
+    return selectivity;
+  }
+
+  /**
+   * Get the estimated fraction of rows that satisfy the given constraint.
+   * 
+   * @param labels
+   *          the labels of the variables, used for looking up property statistics
+   */
+  public double getSelectivity(QueryExpression constraint, Map<QueryVariable, Set<String>> labels) {
+    switch (constraint.getExpType()) {
+      case BOOLEAN:
+        return ((Constant<?>) constraint).getValue().equals(Boolean.TRUE) ? 1 : 0;
+      case AND: {
+        BinaryExpression and = (BinaryExpression) constraint;
+        return getSelectivity(and.getExp1(), labels) * getSelectivity(and.getExp2(), labels);
+      }
+      case OR: {
+        Or or = (Or) constraint;
+        double selectivity1 = getSelectivity(or.getExp1(), labels);
+        double selectivity2 = getSelectivity(or.getExp2(), labels);
+        return selectivity1 + selectivity2 - selectivity1 * selectivity2;
+      }
+      case NOT:
+        return 1 - getSelectivity(((Not) constraint).getExp(), labels);
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+        return getComparisonSelectivity((BinaryExpression) constraint, labels);
+      case IN_EXPRESSION: {
+        InPredicate inPredicate = (InPredicate) constraint;
+        if (inPredicate.getInValueList().getExpType() == ExpressionType.IN_VALUE_LIST) {
+          int size = ((InValueList) inPredicate.getInValueList()).getSize();
+          return Math.min(1, size * DEFAULT_EQUAL_SELECTIVITY);
+        }
+        return DEFAULT_SELECTIVITY;
+      }
+      case IS_NULL:
+        return DEFAULT_EQUAL_SELECTIVITY;
+      case FUNCTION_CALL: {
+        Set<String> hasLabel = getHasLabel((FunctionCall) constraint);
+        return hasLabel == null ? DEFAULT_SELECTIVITY : getVertexLabelSelectivity(hasLabel);
+      }
+      default:
+        return DEFAULT_SELECTIVITY;
+    }
+  }
+
+  private double getComparisonSelectivity(BinaryExpression comparison, Map<QueryVariable, Set<String>> labels) {
+    ExpressionType comparisonType = comparison.getExpType();
+    PropertyAccess propertyAccess;
+    QueryExpression otherSide;
+    if (comparison.getExp1().getExpType() == ExpressionType.PROP_ACCESS) {
+      propertyAccess = (PropertyAccess) comparison.getExp1();
+      otherSide = comparison.getExp2();
+    } else if (comparison.getExp2().getExpType() == ExpressionType.PROP_ACCESS) {
+      propertyAccess = (PropertyAccess) comparison.getExp2();
+      otherSide = comparison.getExp1();
+      comparisonType = flip(comparisonType);
+    } else {
+      return getDefaultSelectivity(comparisonType);
+    }
+
+    if (otherSide instanceof Constant || otherSide.getExpType() == ExpressionType.BIND_VARIABLE) {
+      Double value = getNumericValue(otherSide);
+      Set<String> variableLabels = labels.getOrDefault(propertyAccess.getVariable(), Collections.emptySet());
+      Set<String> labelsOrAny = variableLabels.isEmpty() ? Collections.singleton(null) : variableLabels;
+      double weightedSelectivity = 0;
+      double totalWeight = 0;
+      for (String label : labelsOrAny) {
+        String propertyName = propertyAccess.getPropertyName();
+        Optional<PropertyStatistics> propertyStatistics = statistics.getPropertyStatistics(label, propertyName);
+        Optional<Histogram> histogram = statistics.getHistogram(label, propertyName);
+        Double selectivity = getSelectivity(propertyStatistics, histogram, comparisonType, value);
+        if (selectivity == null) {
+          return getDefaultSelectivity(comparisonType);
+        }
+        double weight;
+        if (propertyStatistics.isPresent()) {
+          weight = propertyStatistics.get().getCount() + propertyStatistics.get().getNullCount();
+        } else {
+          weight = histogram.get().getTotalCount();
+        }
+        weight = Math.max(1, weight);
+        weightedSelectivity += selectivity * weight;
+        totalWeight += weight;
+      }
+      return weightedSelectivity / totalWeight;
+    }
+
+    return getDefaultSelectivity(comparisonType);
+  }
+
+  /**
+   * @param value
+   *          the value that the property is compared to, or null if the value is not numeric or not known
+   * @return the selectivity, or null if there are no statistics for the property
+   */
+  private static Double getSelectivity(Optional<PropertyStatistics> propertyStatistics, Optional<Histogram> histogram,
+      ExpressionType comparisonType, Double value) {
+    double nonNullFraction = propertyStatistics.map(PropertyStatistics::getNonNullFraction).orElse(1.0);
+    if (histogram.isPresent() && value != null) {
+      return nonNullFraction * getSelectivity(histogram.get(), comparisonType, value);
+    }
+    if (!propertyStatistics.isPresent()) {
+      return null;
+    }
+
+    long distinctCount = Math.max(1, propertyStatistics.get().getDistinctCount());
+    switch (comparisonType) {
+      case EQUAL:
+        return nonNullFraction / distinctCount;
+      case NOT_EQUAL:
+        return nonNullFraction * (1 - 1.0 / distinctCount);
+      default:
+        Object min = propertyStatistics.get().getMinValue();
+        Object max = propertyStatistics.get().getMaxValue();
+        if (value == null || !(min instanceof Number) || !(max instanceof Number)) {
+          return nonNullFraction * DEFAULT_RANGE_SELECTIVITY;
+        }
+        double minValue = ((Number) min).doubleValue();
+        double maxValue = ((Number) max).doubleValue();
+        double fractionBelow = maxValue > minValue ? (value - minValue) / (maxValue - minValue) : 0.5;
+        fractionBelow = Math.max(0, Math.min(1, fractionBelow));
+        boolean less = comparisonType == ExpressionType.LESS || comparisonType == ExpressionType.LESS_EQUAL;
+        return nonNullFraction * (less ? fractionBelow : 1 - fractionBelow);
+    }
+  }
+
+  private static double getSelectivity(Histogram histogram, ExpressionType comparisonType, double value) {
+    switch (comparisonType) {
+      case EQUAL:
+        return histogram.getEqualSelectivity(value);
+      case NOT_EQUAL:
+        return 1 - histogram.getEqualSelectivity(value);
+      case GREATER:
+        return histogram.getGreaterThanSelectivity(value, false);
+      case GREATER_EQUAL:
+        return histogram.getGreaterThanSelectivity(value, true);
+      case LESS:
+        return histogram.getLessThanSelectivity(value, false);
+      case LESS_EQUAL:
+        return histogram.getLessThanSelectivity(value, true);
+      default:
+        throw new IllegalArgumentException(comparisonType.toString());
+    }
+  }
+
+  private static double getDefaultSelectivity(ExpressionType comparisonType) {
+    switch (comparisonType) {
+      case EQUAL:
+        return DEFAULT_EQUAL_SELECTIVITY;
+      case NOT_EQUAL:
+        return 1 - DEFAULT_EQUAL_SELECTIVITY;
+      default:
+        return DEFAULT_RANGE_SELECTIVITY;
+    }
+  }
+
+  /**
+   * 5 < x => x > 5
+   */
+  private static ExpressionType flip(ExpressionType comparisonType) {
+    switch (comparisonType) {
+      case GREATER:
+        return ExpressionType.LESS;
+      case GREATER_EQUAL:
+        return ExpressionType.LESS_EQUAL;
+      case LESS:
+        return ExpressionType.GREATER;
+      case LESS_EQUAL:
+        return ExpressionType.GREATER_EQUAL;
+      default:
+        return comparisonType;
+    }
+  }
+
+  private static Double getNumericValue(QueryExpression exp) {
+    switch (exp.getExpType()) {
+      case INTEGER:
+      case DECIMAL:
+        return ((Number) ((Constant<?>) exp).getValue()).doubleValue();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the labels if the expression is a label predicate of the form has_label(x, 'A') or has_label(x, 'A') OR
+   *         has_label(x, 'B') OR ..., or null otherwise
+   */
+  public static Set<String> getLabels(QueryExpression exp, QueryVariable variable) {
+    switch (exp.getExpType()) {
+      case FUNCTION_CALL: {
+        FunctionCall functionCall = (FunctionCall) exp;
+        Set<String> labels = getHasLabel(functionCall);
+        if (labels == null || ((VarRef) functionCall.getArgs().get(0)).getVariable() != variable) {
+          return null;
+        }
+        return labels;
+      }
+      case OR: {
+        Or or = (Or) exp;
+        Set<String> labels1 = getLabels(or.getExp1(), variable);
+        Set<String> labels2 = getLabels(or.getExp2(), variable);
+        if (labels1 == null || labels2 == null) {
+          return null;
+        }
+        Set<String> labels = new LinkedHashSet<>(labels1);
+        labels.addAll(labels2);
+        return labels;
+      }
+      default:
+        return null;
+    }
+  }
+
+  private static Set<String> getHasLabel(FunctionCall functionCall) {
+    boolean hasLabelFunctionName = functionCall.getFunctionName().equalsIgnoreCase("has_label");
+    if (functionCall.getPackageName() == null && hasLabelFunctionName && functionCall.getArgs().size() == 2) {
+      QueryExpression arg0 = functionCall.getArgs().get(0);
+      QueryExpression arg1 = functionCall.getArgs().get(1);
+      if (arg0.getExpType() == ExpressionType.VARREF && arg1.getExpType() == ExpressionType.STRING) {
+        return Collections.singleton((String) ((Constant<?>) arg1).getValue());
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
+
+import java.util.List;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.VertexPairConnection;
+
+/**
+ * Traverses an edge or path from a vertex that is bound by a previous step to a vertex that is either not yet bound or,
+ * in case of a closing expansion, already bound as well (e.g. the last edge of a cycle).
+ */
+public class ExpandStep extends PlanStep {
+
+  private final VertexPairConnection connection;
+
+  private final ExpansionDirection expansionDirection;
+
+  private final Set<String> connectionLabels;
+
+  private final Set<String> toVertexLabels;
+
+  private final boolean closing;
+
+  public ExpandStep(VertexPairConnection connection, ExpansionDirection expansionDirection,
+      Set<String> connectionLabels, Set<String> toVertexLabels, boolean closing, List<QueryExpression> filters,
+      double estimatedRows) {
+    super(filters, estimatedRows);
+    this.connection = connection;
+    this.expansionDirection = expansionDirection;
+    this.connectionLabels = connectionLabels;
+    this.toVertexLabels = toVertexLabels;
+    this.closing = closing;
+  }
+
+  @Override
+  public StepType getStepType() {
+    return StepType.EXPAND;
+  }
+
+  public VertexPairConnection getConnection() {
+    return connection;
+  }
+
+  public ExpansionDirection getExpansionDirection() {
+    return expansionDirection;
+  }
+
+  /**
+   * @return the vertex that is bound by a previous step
+   */
+  public QueryVertex getFromVertex() {
+    return expansionDirection == ExpansionDirection.FORWARD ? connection.getSrc() : connection.getDst();
+  }
+
+  /**
+   * @return the vertex that is reached by this step
+   */
+  public QueryVertex getToVertex() {
+    return expansionDirection == ExpansionDirection.FORWARD ? connection.getDst() : connection.getSrc();
+  }
+
+  /**
+   * @return the labels of the edge, or an empty set if the edge may have any label or if the connection is a path
+   */
+  public Set<String> getConnectionLabels() {
+    return connectionLabels;
+  }
+
+  /**
+   * @return the labels of the vertex that is reached by this step, or an empty set if the vertex may have any label
+   */
+  public Set<String> getToVertexLabels() {
+    return toVertexLabels;
+  }
+
+  /**
+   * @return true if the vertex that is reached by this step was already bound by a previous step, in which case the
+   *         step only checks for the existence of the edge or path between the two vertices
+   */
+  public boolean isClosing() {
+    return closing;
+  }
+
+  /**
+   * @return the minimum number of hops, which is 1 for an edge
+   */
+  public long getMinHops() {
+    return connection.getVariableType() == VariableType.PATH ? ((QueryPath) connection).getMinHops() : 1;
+  }
+
+  /**
+   * @return the maximum number of hops, which is 1 for an edge and -1 for a path without an upper bound
+   */
+  public long getMaxHops() {
+    return connection.getVariableType() == VariableType.PATH ? ((QueryPath) connection).getMaxHops() : 1;
+  }
+
+  @Override
+  public String getDescription() {
+    return "(" + printIdentifier(getFromVertex().getName(), false) + ") " + printConnection() + " ("
+        + printToVertex() + ")" + (closing ? " CLOSING" : "") + printFilters();
+  }
+
+  private String printToVertex() {
+    return closing ? printIdentifier(getToVertex().getName(), false) : printVariable(getToVertex(), toVertexLabels);
+  }
+
+  private String printConnection() {
+    boolean forward = expansionDirection == ExpansionDirection.FORWARD;
+    boolean directed = connection.getDirection() != Direction.ANY;
+    boolean pointsRight = directed && (forward == (connection.getDirection() == Direction.OUTGOING));
+    boolean pointsLeft = directed && !pointsRight;
+
+    String connectionAsString;
+    if (connection.getVariableType() == VariableType.PATH) {
+      connectionAsString = "/" + printVariable(connection, connectionLabels) + "{" + getMinHops() + ","
+          + (getMaxHops() == -1 ? "" : getMaxHops()) + "}/";
+    } else {
+      connectionAsString = "[" + printVariable(connection, connectionLabels) + "]";
+    }
+    return (pointsLeft ? "<-" : "-") + connectionAsString + (pointsRight ? "->" : "-");
+  }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+/**
+ * The direction in which a {@link oracle.pgql.lang.ir.VertexPairConnection} is traversed. This is independent of the
+ * direction of the edge or path in the query: an outgoing edge (n) -[e]-> (m) may be traversed backward from m to n,
+ * by following the incoming edges of m.
+ */
+public enum ExpansionDirection {
+
+  /**
+   * From the source vertex of the connection to the destination vertex
+   */
+  FORWARD,
+
+  /**
+   * From the destination vertex of the connection to the source vertex
+   */
+  BACKWARD
+}
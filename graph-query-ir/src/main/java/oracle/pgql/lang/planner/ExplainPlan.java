@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of {@link QueryExplainer#explain(oracle.pgql.lang.ir.GraphQuery)}: the steps in which a query is
+ * evaluated, each annotated with the estimated number of rows, in text or JSON format.
+ */
+public class ExplainPlan {
+
+  private final List<ExplainStep> steps;
+
+  private final MatchPlan matchPlan;
+
+  public ExplainPlan(List<ExplainStep> steps, MatchPlan matchPlan) {
+    this.steps = Collections.unmodifiableList(steps);
+    this.matchPlan = matchPlan;
+  }
+
+  public List<ExplainStep> getSteps() {
+    return steps;
+  }
+
+  /**
+   * @return the plan for the graph pattern, or null if the query has no graph pattern
+   */
+  public MatchPlan getMatchPlan() {
+    return matchPlan;
+  }
+
+  /**
+   * @return the estimated number of rows produced by the query
+   */
+  public double getEstimatedRows() {
+    return steps.isEmpty() ? 0 : steps.get(steps.size() - 1).getEstimatedRows();
+  }
+
+  /**
+   * @return the plan as text, one numbered step per line
+   */
+  public String toText() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < steps.size(); i++) {
+      if (i > 0) {
+        result.append('\n');
+      }
+      result.append(i + 1).append(". ").append(steps.get(i));
+    }
+    return result.toString();
+  }
+
+  /**
+   * @return the plan as a JSON object with a "steps" array; each step has an "operation", a "description", the
+   *         "estimatedRows" and additional attributes that depend on the operation
+   */
+  public String toJson() {
+    StringBuilder result = new StringBuilder();
+    result.append("{\"estimatedRows\":").append(Math.round(getEstimatedRows()));
+    result.append(",\"steps\":[");
+    for (int i = 0; i < steps.size(); i++) {
+      ExplainStep step = steps.get(i);
+      result.append(i == 0 ? "{" : ",{");
+      result.append("\"operation\":");
+      appendJsonValue(result, step.getOperation());
+      result.append(",\"description\":");
+      appendJsonValue(result, step.getDescription());
+      result.append(",\"estimatedRows\":").append(Math.round(step.getEstimatedRows()));
+      for (Map.Entry<String, Object> attribute : step.getAttributes().entrySet()) {
+        result.append(',');
+        appendJsonValue(result, attribute.getKey());
+        result.append(':');
+        appendJsonValue(result, attribute.getValue());
+      }
+      result.append('}');
+    }
+    result.append("]}");
+    return result.toString();
+  }
+
+  private static void appendJsonValue(StringBuilder result, Object value) {
+    if (value == null) {
+      result.append("null");
+    } else if (value instanceof Number || value instanceof Boolean) {
+      result.append(value);
+    } else if (value instanceof List) {
+      result.append('[');
+      List<?> list = (List<?>) value;
+      for (int i = 0; i < list.size(); i++) {
+        if (i > 0) {
+          result.append(',');
+        }
+        appendJsonValue(result, list.get(i));
+      }
+      result.append(']');
+    } else {
+      appendJsonString(result, value.toString());
+    }
+  }
+
+  private static void appendJsonString(StringBuilder result, String value) {
+    result.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          result.append("\\\"");
+          break;
+        case '\\':
+          result.append("\\\\");
+          break;
+        case '\n':
+          result.append("\\n");
+          break;
+        case '\r':
+          result.append("\\r");
+          break;
+        case '\t':
+          result.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            result.append(String.format("\\u%04x", (int) c));
+          } else {
+            result.append(c);
+          }
+      }
+    }
+    result.append('"');
+  }
+
+  @Override
+  public String toString() {
+    return toText();
+  }
+}
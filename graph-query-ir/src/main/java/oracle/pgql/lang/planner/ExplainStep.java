@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A step in an {@link ExplainPlan}, e.g. a scan, an expansion, a grouping or a limit.
+ */
+public class ExplainStep {
+
+  private final String operation;
+
+  private final String description;
+
+  private final double estimatedRows;
+
+  private final Map<String, Object> attributes;
+
+  /**
+   * @param operation
+   *          the name of the operation, e.g. SCAN or ORDER BY
+   * @param description
+   *          a human-readable description of the step
+   * @param estimatedRows
+   *          the estimated number of rows after the step
+   * @param attributes
+   *          machine-readable details of the step; values are Strings, Numbers, Booleans or Lists of Strings
+   */
+  public ExplainStep(String operation, String description, double estimatedRows, Map<String, Object> attributes) {
+    this.operation = operation;
+    this.description = description;
+    this.estimatedRows = estimatedRows;
+    this.attributes = Collections.unmodifiableMap(attributes);
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public double getEstimatedRows() {
+    return estimatedRows;
+  }
+
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  public String toString() {
+    return operation + (description.isEmpty() ? "" : " " + description) + " (estimated rows: "
+        + Math.round(estimatedRows) + ")";
+  }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import static oracle.pgql.lang.planner.CardinalityEstimator.getLabels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+import oracle.pgql.lang.metadata.AbstractStatisticsProvider;
+import oracle.pgql.lang.optimizer.Conjunct;
+import oracle.pgql.lang.optimizer.ConjunctAnalysis;
+import oracle.pgql.lang.optimizer.ConjunctAnalyzer;
+
+/**
+ * Chooses the order in which the vertices and connections of a graph pattern are matched, based on the estimated
+ * number of intermediate rows.
+ * 
+ * The planner is greedy: it starts by scanning the vertex with the smallest estimated cardinality and then repeatedly
+ * picks, among the connections that have at least one bound endpoint, the expansion that results in the smallest
+ * number of rows. Connections between two bound vertices (closing expansions) typically reduce the number of rows and
+ * are therefore picked as early as possible. If no connection can be expanded while there are still unbound vertices
+ * (i.e. the pattern is disconnected), the unbound vertex with the smallest cardinality is scanned next.
+ * 
+ * Every constraint of the graph pattern is applied as a filter of the first step after which all the variables of the
+ * graph pattern that the constraint references are bound.
+ */
+public class MatchOrderPlanner {
+
+  private final CardinalityEstimator estimator;
+
+  public MatchOrderPlanner(AbstractStatisticsProvider statistics) {
+    this.estimator = new CardinalityEstimator(statistics);
+  }
+
+  public CardinalityEstimator getCardinalityEstimator() {
+    return estimator;
+  }
+
+  public MatchPlan plan(GraphPattern graphPattern) {
+    return new Planning(graphPattern).plan();
+  }
+
+  private class Planning {
+
+    final GraphPattern graphPattern;
+
+    final Map<QueryVariable, Set<String>> labels = new HashMap<>();
+
+    /**
+     * Maps the variables in the graph pattern to themselves and the variables in the path patterns to the path.
+     */
+    final Map<QueryVariable, QueryVariable> patternVariables = new HashMap<>();
+
+    final List<Conjunct> remainingConjuncts = new ArrayList<>();
+
+    final Set<QueryVariable> bound = new HashSet<>();
+
+    /**
+     * The vertices of the graph pattern that are bound, which is a subset of {@link #bound} that excludes connections.
+     */
+    final Set<QueryVertex> boundVertices = new HashSet<>();
+
+    final List<VertexPairConnection> remainingConnections;
+
+    final List<PlanStep> steps = new ArrayList<>();
+
+    double rows = 1;
+
+    Planning(GraphPattern graphPattern) {
+      this.graphPattern = graphPattern;
+      this.remainingConnections = new ArrayList<>(graphPattern.getConnections());
+
+      for (QueryVertex vertex : graphPattern.getVertices()) {
+        patternVariables.put(vertex, vertex);
+      }
+      for (VertexPairConnection connection : graphPattern.getConnections()) {
+        patternVariables.put(connection, connection);
+        if (connection.getVariableType() == VariableType.PATH) {
+          QueryPath path = (QueryPath) connection;
+          path.getVertices().forEach(v -> patternVariables.putIfAbsent(v, path));
+          path.getConnections().forEach(c -> patternVariables.putIfAbsent(c, path));
+          // ONE ROW PER VERTEX (v) and ONE ROW PER EDGE (e) bind a variable per vertex or edge of the path
+          RowsPerMatch rowsPerMatch = path.getRowsPerMatch();
+          if (rowsPerMatch instanceof OneRowPerVertex) {
+            patternVariables.putIfAbsent(((OneRowPerVertex) rowsPerMatch).getVertex(), path);
+          } else if (rowsPerMatch instanceof OneRowPerEdge) {
+            patternVariables.putIfAbsent(((OneRowPerEdge) rowsPerMatch).getEdge(), path);
+          }
+          labels.put(path, getPathLabels(path));
+        }
+      }
+
+      ConjunctAnalysis analysis = ConjunctAnalyzer.analyze(graphPattern);
+      for (Conjunct conjunct : analysis.getConjuncts()) {
+        if (!isLabelConstraint(conjunct)) {
+          remainingConjuncts.add(conjunct);
+        }
+      }
+    }
+
+    private boolean isLabelConstraint(Conjunct conjunct) {
+      if (conjunct.getVariables().size() != 1) {
+        return false;
+      }
+      QueryVariable variable = conjunct.getVariables().iterator().next();
+      if (!patternVariables.containsKey(variable) || patternVariables.get(variable) != variable
+          || variable.getVariableType() == VariableType.PATH) {
+        return false;
+      }
+      Set<String> variableLabels = getLabels(conjunct.getExp(), variable);
+      if (variableLabels == null) {
+        return false;
+      }
+      Set<String> existingLabels = labels.get(variable);
+      if (existingLabels == null) {
+        labels.put(variable, variableLabels);
+      } else {
+        // (n:A|B) WHERE has_label(n, 'A')
+        Set<String> intersection = new HashSet<>(existingLabels);
+        intersection.retainAll(variableLabels);
+        if (intersection.isEmpty()) {
+          // an empty label set means "any label", so keep a contradicting label constraint as a filter
+          return false;
+        }
+        existingLabels.retainAll(variableLabels);
+      }
+      return true;
+    }
+
+    /**
+     * For paths such as -/:knows+/-> or -[:knows]->{1,3}, the path expression consists of a single edge with a label
+     */
+    private Set<String> getPathLabels(QueryPath path) {
+      if (path.getConnections().size() == 1 && path.getConnections().get(0).getVariableType() == VariableType.EDGE) {
+        QueryEdge edge = (QueryEdge) path.getConnections().get(0);
+        for (QueryExpression constraint : path.getConstraints()) {
+          Set<String> edgeLabels = getLabels(constraint, edge);
+          if (edgeLabels != null) {
+            return edgeLabels;
+          }
+        }
+      }
+      return Collections.emptySet();
+    }
+
+    private Set<String> getLabelsOf(QueryVariable variable) {
+      return labels.getOrDefault(variable, Collections.emptySet());
+    }
+
+    MatchPlan plan() {
+      while (boundVertices.size() < graphPattern.getVertices().size() || !remainingConnections.isEmpty()) {
+        if (!expandCheapestConnection()) {
+          scanCheapestVertex();
+        }
+      }
+      return new MatchPlan(steps);
+    }
+
+    private void scanCheapestVertex() {
+      QueryVertex cheapestVertex = null;
+      double cheapestRows = Double.MAX_VALUE;
+      List<QueryExpression> cheapestFilters = null;
+      for (QueryVertex vertex : graphPattern.getVertices()) {
+        if (bound.contains(vertex)) {
+          continue;
+        }
+        List<QueryExpression> filters = getFilters(vertex, null);
+        double vertexRows = rows * estimator.getVertexCount(getLabelsOf(vertex))
+            * estimator.getSelectivity(filters, labels);
+        if (vertexRows < cheapestRows) {
+          cheapestVertex = vertex;
+          cheapestRows = vertexRows;
+          cheapestFilters = filters;
+        }
+      }
+
+      bind(cheapestVertex, null, cheapestFilters);
+      rows = cheapestRows;
+      steps.add(new ScanStep(cheapestVertex, getLabelsOf(cheapestVertex), cheapestFilters, rows));
+    }
+
+    private boolean expandCheapestConnection() {
+      VertexPairConnection cheapestConnection = null;
+      ExpansionDirection cheapestDirection = null;
+      double cheapestRows = Double.MAX_VALUE;
+      List<QueryExpression> cheapestFilters = null;
+      for (VertexPairConnection connection : remainingConnections) {
+        for (ExpansionDirection direction : ExpansionDirection.values()) {
+          QueryVertex from = direction == ExpansionDirection.FORWARD ? connection.getSrc() : connection.getDst();
+          QueryVertex to = direction == ExpansionDirection.FORWARD ? connection.getDst() : connection.getSrc();
+          if (!bound.contains(from)) {
+            continue;
+          }
+          boolean closing = bound.contains(to);
+          List<QueryExpression> filters = getFilters(closing ? null : to, connection);
+          double expansionRows = rows * getExpansionFactor(connection, direction, from, to, closing)
+              * estimator.getSelectivity(filters, labels);
+          if (expansionRows < cheapestRows) {
+            cheapestConnection = connection;
+            cheapestDirection = direction;
+            cheapestRows = expansionRows;
+            cheapestFilters = filters;
+          }
+        }
+      }
+
+      if (cheapestConnection == null) {
+        return false;
+      }
+
+      QueryVertex to = cheapestDirection == ExpansionDirection.FORWARD ? cheapestConnection.getDst()
+          : cheapestConnection.getSrc();
+      boolean closing = bound.contains(to);
+      bind(closing ? null : to, cheapestConnection, cheapestFilters);
+      remainingConnections.remove(cheapestConnection);
+      rows = cheapestRows;
+      steps.add(new ExpandStep(cheapestConnection, cheapestDirection, getLabelsOf(cheapestConnection), getLabelsOf(to),
+          closing, cheapestFilters, rows));
+      return true;
+    }
+
+    /**
+     * @return the average number of rows that a single row expands into
+     */
+    private double getExpansionFactor(VertexPairConnection connection, ExpansionDirection expansionDirection,
+        QueryVertex from, QueryVertex to, boolean closing) {
+      Direction degreeDirection;
+      switch (connection.getDirection()) {
+        case OUTGOING:
+          degreeDirection = expansionDirection == ExpansionDirection.FORWARD ? Direction.OUTGOING : Direction.INCOMING;
+          break;
+        case INCOMING:
+          degreeDirection = expansionDirection == ExpansionDirection.FORWARD ? Direction.INCOMING : Direction.OUTGOING;
+          break;
+        default:
+          degreeDirection = Direction.ANY;
+      }
+
+      double fanOut;
+      if (connection.getVariableType() == VariableType.PATH) {
+        double hopDegree = estimator.getAverageDegree(Collections.emptySet(), getLabelsOf(connection), degreeDirection);
+        fanOut = estimator.getPathFanOut((QueryPath) connection, hopDegree);
+      } else {
+        fanOut = estimator.getAverageDegree(getLabelsOf(from), getLabelsOf(connection), degreeDirection);
+      }
+
+      Set<String> toLabels = getLabelsOf(to);
+      double reachedSelectivity = estimator.getReachedVertexLabelSelectivity(toLabels, getLabelsOf(connection),
+          degreeDirection);
+      if (closing) {
+        // probability that the bound vertex is among the reached vertices
+        return Math.min(1, fanOut * reachedSelectivity / Math.max(1, estimator.getVertexCount(toLabels)));
+      }
+      return fanOut * reachedSelectivity;
+    }
+
+    /**
+     * @return the constraints that become evaluable once the given vertex and connection are bound
+     */
+    private List<QueryExpression> getFilters(QueryVertex vertex, VertexPairConnection connection) {
+      List<QueryExpression> filters = new ArrayList<>();
+      for (Conjunct conjunct : remainingConjuncts) {
+        if (isEvaluable(conjunct, vertex, connection)) {
+          filters.add(conjunct.getExp());
+        }
+      }
+      return filters;
+    }
+
+    private boolean isEvaluable(Conjunct conjunct, QueryVertex vertex, VertexPairConnection connection) {
+      for (QueryVariable variable : conjunct.getVariables()) {
+        QueryVariable patternVariable = patternVariables.get(variable);
+        if (patternVariable == null) {
+          continue; // e.g. a variable from an outer query or a variable local to a subquery
+        }
+        if (!bound.contains(patternVariable) && patternVariable != vertex && patternVariable != connection) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void bind(QueryVertex vertex, VertexPairConnection connection, List<QueryExpression> filters) {
+      if (vertex != null) {
+        bound.add(vertex);
+        boundVertices.add(vertex);
+      }
+      if (connection != null) {
+        bound.add(connection);
+      }
+      Set<QueryExpression> appliedFilters = Collections.newSetFromMap(new IdentityHashMap<>());
+      appliedFilters.addAll(filters);
+      remainingConjuncts.removeIf(c -> appliedFilters.contains(c.getExp()));
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * An ordered list of steps that together match all the vertices and connections of a graph pattern. The first step is
+ * always a {@link ScanStep}.
+ */
+public class MatchPlan {
+
+  private final List<PlanStep> steps;
+
+  public MatchPlan(List<PlanStep> steps) {
+    this.steps = Collections.unmodifiableList(steps);
+  }
+
+  public List<PlanStep> getSteps() {
+    return steps;
+  }
+
+  /**
+   * @return the estimated number of rows produced by the last step
+   */
+  public double getEstimatedRows() {
+    return steps.isEmpty() ? 0 : steps.get(steps.size() - 1).getEstimatedRows();
+  }
+
+  /**
+   * @return the estimated cost of the plan, which is the sum of the estimated number of (intermediate) rows produced
+   *         by the steps
+   */
+  public double getEstimatedCost() {
+    return steps.stream() //
+        .mapToDouble(PlanStep::getEstimatedRows) //
+        .sum();
+  }
+
+  @Override
+  public String toString() {
+    return steps.stream() //
+        .map(PlanStep::toString) //
+        .collect(Collectors.joining("\n"));
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryVariable;
+
+/**
+ * A step in a {@link MatchPlan}.
+ */
+public abstract class PlanStep {
+
+  public enum StepType {
+    SCAN,
+    EXPAND
+  }
+
+  private final List<QueryExpression> filters;
+
+  private final double estimatedRows;
+
+  public PlanStep(List<QueryExpression> filters, double estimatedRows) {
+    this.filters = filters;
+    this.estimatedRows = estimatedRows;
+  }
+
+  public abstract StepType getStepType();
+
+  /**
+   * @return the constraints that can be evaluated directly after this step because all the variables of the graph
+   *         pattern that they reference are bound; label constraints that are already captured by the step are not
+   *         included
+   */
+  public List<QueryExpression> getFilters() {
+    return filters;
+  }
+
+  /**
+   * @return the estimated number of rows after this step, including the rows produced by the previous steps and
+   *         after applying the filters
+   */
+  public double getEstimatedRows() {
+    return estimatedRows;
+  }
+
+  protected static String printVariable(QueryVariable variable, Set<String> labels) {
+    String result = printIdentifier(variable.getName(), false);
+    if (!labels.isEmpty()) {
+      result += ":" + labels.stream() //
+          .map(l -> printIdentifier(l, false)) //
+          .collect(Collectors.joining("|"));
+    }
+    return result;
+  }
+
+  /**
+   * @return a description of the step that includes the variables, labels and filters but not the estimated rows
+   */
+  public abstract String getDescription();
+
+  protected String printFilters() {
+    if (filters.isEmpty()) {
+      return "";
+    }
+    return " WHERE " + filters.stream() //
+        .map(QueryExpression::toString) //
+        .collect(Collectors.joining(" AND "));
+  }
+
+  @Override
+  public String toString() {
+    return getStepType() + " " + getDescription() + " (estimated rows: " + Math.round(estimatedRows) + ")";
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import static oracle.pgql.lang.ir.PgqlUtils.getAggregations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.GroupBy;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryType;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.metadata.AbstractStatisticsProvider;
+
+/**
+ * Explains how a query is evaluated: the graph pattern is matched in the order chosen by the
+ * {@link MatchOrderPlanner}, followed by grouping and aggregation, HAVING, projection (including DISTINCT), ORDER BY,
+ * OFFSET and LIMIT, and for INSERT/UPDATE/DELETE queries the modifications. Each step is annotated with the estimated
+ * number of rows, based on whatever statistics the {@link AbstractStatisticsProvider} provides.
+ */
+public class QueryExplainer {
+
+  private final MatchOrderPlanner planner;
+
+  private final CardinalityEstimator estimator;
+
+  public QueryExplainer(AbstractStatisticsProvider statistics) {
+    this.planner = new MatchOrderPlanner(statistics);
+    this.estimator = planner.getCardinalityEstimator();
+  }
+
+  public ExplainPlan explain(GraphQuery query) {
+    List<ExplainStep> steps = new ArrayList<>();
+    Map<QueryVariable, Set<String>> labels = new HashMap<>();
+    double rows = 1;
+
+    MatchPlan matchPlan = null;
+    if (query.getGraphPattern() != null) {
+      matchPlan = planner.plan(query.getGraphPattern());
+      for (PlanStep planStep : matchPlan.getSteps()) {
+        steps.add(explainPlanStep(planStep, labels));
+      }
+      rows = matchPlan.getEstimatedRows();
+    }
+
+    GroupBy groupBy = query.getGroupBy();
+    if (groupBy != null) {
+      Map<String, Object> attributes = new LinkedHashMap<>();
+      List<QueryExpression> groupingExpressions = groupBy.getElements().stream() //
+          .map(ExpAsVar::getExp) //
+          .collect(Collectors.toList());
+      List<String> aggregations = getAggregationsAsStrings(query);
+      attributes.put("groupingExpressions", toStrings(groupingExpressions));
+      attributes.put("aggregations", aggregations);
+      rows = groupingExpressions.isEmpty() ? 1 : estimator.getGroupCount(groupingExpressions, labels, rows);
+      String description = groupingExpressions.stream() //
+          .map(QueryExpression::toString) //
+          .collect(Collectors.joining(", "));
+      if (!aggregations.isEmpty()) {
+        description += (description.isEmpty() ? "" : " ") + "COMPUTE " + String.join(", ", aggregations);
+      }
+      steps.add(new ExplainStep(groupingExpressions.isEmpty() ? "AGGREGATE" : "GROUP BY", description, rows,
+          attributes));
+    }
+
+    if (query.getHaving() != null) {
+      rows *= estimator.getSelectivity(query.getHaving(), labels);
+      steps.add(new ExplainStep("HAVING", query.getHaving().toString(), rows,
+          singletonAttribute("filters", toStrings(Collections.singletonList(query.getHaving())))));
+    }
+
+    if (query.getQueryType() == QueryType.SELECT) {
+      SelectQuery selectQuery = (SelectQuery) query;
+      List<QueryExpression> projectedExpressions = selectQuery.getProjection().getElements().stream() //
+          .map(ExpAsVar::getExp) //
+          .collect(Collectors.toList());
+      boolean distinct = selectQuery.getProjection().isDistinct();
+      if (distinct) {
+        rows = estimator.getGroupCount(projectedExpressions, labels, rows);
+      }
+      Map<String, Object> attributes = new LinkedHashMap<>();
+      attributes.put("distinct", distinct);
+      attributes.put("expressions", toStrings(projectedExpressions));
+      String description = (distinct ? "DISTINCT " : "") + selectQuery.getProjection().getElements().stream() //
+          .map(ExpAsVar::toString) //
+          .collect(Collectors.joining(", "));
+      steps.add(new ExplainStep("SELECT", description, rows, attributes));
+    }
+
+    if (query.getOrderBy() != null && !query.getOrderBy().getElements().isEmpty()) {
+      String description = query.getOrderBy().toString().substring("ORDER BY ".length());
+      steps.add(
+          new ExplainStep("ORDER BY", description, rows, singletonAttribute("limited", query.getLimit() != null)));
+    }
+
+    if (query.getOffset() != null || query.getLimit() != null) {
+      Map<String, Object> attributes = new LinkedHashMap<>();
+      String description = "";
+      Long offset = getLongValue(query.getOffset());
+      Long limit = getLongValue(query.getLimit());
+      if (query.getLimit() != null) {
+        description += query.getLimit();
+        attributes.put("limit", limit == null ? query.getLimit().toString() : limit);
+      }
+      if (query.getOffset() != null) {
+        description += (description.isEmpty() ? "" : " ") + "OFFSET " + query.getOffset();
+        attributes.put("offset", offset == null ? query.getOffset().toString() : offset);
+      }
+      if (offset != null) {
+        rows = Math.max(0, rows - offset);
+      }
+      if (limit != null) {
+        rows = Math.min(rows, limit);
+      }
+      steps.add(new ExplainStep(query.getLimit() == null ? "OFFSET" : "LIMIT", description, rows, attributes));
+    }
+
+    if (query.getQueryType() == QueryType.MODIFY) {
+      ModifyQuery modifyQuery = (ModifyQuery) query;
+      List<String> modifications = modifyQuery.getModifications().stream() //
+          .map(Object::toString) //
+          .collect(Collectors.toList());
+      steps.add(new ExplainStep("MODIFY", String.join(" ", modifications), rows,
+          singletonAttribute("modifications", modifications)));
+    }
+
+    return new ExplainPlan(steps, matchPlan);
+  }
+
+  private ExplainStep explainPlanStep(PlanStep planStep, Map<QueryVariable, Set<String>> labels) {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    switch (planStep.getStepType()) {
+      case SCAN: {
+        ScanStep scan = (ScanStep) planStep;
+        labels.put(scan.getVertex(), scan.getLabels());
+        attributes.put("variable", scan.getVertex().getName());
+        attributes.put("labels", new ArrayList<>(scan.getLabels()));
+        break;
+      }
+      case EXPAND: {
+        ExpandStep expand = (ExpandStep) planStep;
+        labels.put(expand.getConnection(), expand.getConnectionLabels());
+        if (!expand.isClosing()) {
+          labels.put(expand.getToVertex(), expand.getToVertexLabels());
+        }
+        attributes.put("variable", expand.getConnection().getName());
+        attributes.put("labels", new ArrayList<>(expand.getConnectionLabels()));
+        attributes.put("from", expand.getFromVertex().getName());
+        attributes.put("to", expand.getToVertex().getName());
+        attributes.put("toLabels", new ArrayList<>(expand.getToVertexLabels()));
+        attributes.put("direction", expand.getExpansionDirection().toString());
+        attributes.put("minHops", expand.getMinHops());
+        attributes.put("maxHops", expand.getMaxHops());
+        attributes.put("closing", expand.isClosing());
+        break;
+      }
+      default:
+        throw new IllegalArgumentException(planStep.getStepType().toString());
+    }
+    attributes.put("filters", toStrings(planStep.getFilters()));
+    return new ExplainStep(planStep.getStepType().toString(), planStep.getDescription(), planStep.getEstimatedRows(),
+        attributes);
+  }
+
+  private static List<String> getAggregationsAsStrings(GraphQuery query) {
+    Set<String> result = new TreeSet<>();
+    if (query.getQueryType() == QueryType.SELECT) {
+      for (ExpAsVar expAsVar : ((SelectQuery) query).getProjection().getElements()) {
+        getAggregations(expAsVar.getExp()).forEach(a -> result.add(a.toString()));
+      }
+    }
+    if (query.getHaving() != null) {
+      getAggregations(query.getHaving()).forEach(a -> result.add(a.toString()));
+    }
+    if (query.getOrderBy() != null) {
+      query.getOrderBy().getElements().forEach(e -> getAggregations(e.getExp()).forEach(a -> result.add(a.toString())));
+    }
+    return new ArrayList<>(result);
+  }
+
+  private static Long getLongValue(QueryExpression exp) {
+    if (exp != null && exp.getExpType() == ExpressionType.INTEGER) {
+      return ((ConstInteger) exp).getValue();
+    }
+    return null;
+  }
+
+  private static List<String> toStrings(List<QueryExpression> exps) {
+    return exps.stream() //
+        .map(QueryExpression::toString) //
+        .collect(Collectors.toList());
+  }
+
+  private static Map<String, Object> singletonAttribute(String key, Object value) {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put(key, value);
+    return attributes;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import java.util.List;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryVertex;
+
+/**
+ * Scans the vertices with the given labels (or all vertices if no labels are given). If this is not the first step of
+ * the plan, the scan results in a cartesian product with the rows of the previous steps.
+ */
+public class ScanStep extends PlanStep {
+
+  private final QueryVertex vertex;
+
+  private final Set<String> labels;
+
+  public ScanStep(QueryVertex vertex, Set<String> labels, List<QueryExpression> filters, double estimatedRows) {
+    super(filters, estimatedRows);
+    this.vertex = vertex;
+    this.labels = labels;
+  }
+
+  @Override
+  public StepType getStepType() {
+    return StepType.SCAN;
+  }
+
+  public QueryVertex getVertex() {
+    return vertex;
+  }
+
+  /**
+   * @return the labels of the vertex, or an empty set if the vertex may have any label
+   */
+  public Set<String> getLabels() {
+    return labels;
+  }
+
+  @Override
+  public String getDescription() {
+    return "(" + printVariable(vertex, labels) + ")" + printFilters();
+  }
+}
@@ -16,6 +16,8 @@ cd ../
 
 cd graph-query-ir/; mvn clean install; cd ../
 
+cd graph-query-engine/; mvn clean install; cd ../
+
 cd pgql-lang/
 mkdir -p src/main/resources/
 rm -f src/main/resources/*.spoofax-language # remove any spoofax binaries from previous builds
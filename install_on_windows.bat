@@ -4,6 +4,9 @@ call mvn clean install
 cd ..\graph-query-ir
 call mvn clean install
 
+cd ..\graph-query-engine
+call mvn clean install
+
 cd ..\pgql-lang
 mkdir src\main\resources\
 copy ..\pgql-spoofax\target\pgqllang-0.0.0-SNAPSHOT.spoofax-language src\main\resources\pgql.spoofax-language
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import oracle.pgql.lang.codec.PgqlStatementCodec;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * A cache of parse results in a memory-mapped file, which processes on the same host can share such that a process that
+ * (re)starts reuses the statements that other processes parsed before. See {@link Pgql#setParseCache(ParseCache)}.
+ *
+ * Results are keyed by the query string, the fingerprint of the metadata (see
+ * {@link AbstractMetadataProvider#getFingerprint()}) and the version of this library, and the statements are stored in
+ * the form of {@link PgqlStatementCodec}. Only valid queries are cached.
+ *
+ * The file has a fixed size. Results are appended to a ring buffer and once the buffer is full, the oldest results are
+ * evicted to make room for new ones. Processes append under an exclusive lock on the file and look up results under a
+ * shared lock, while each process keeps its own index of the results in the file.
+ *
+ * A file should be opened at most once per process; instances are thread safe.
+ */
+public final class ParseCache implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParseCache.class);
+
+  private static final int MAGIC = 0x50475143; // PGQC
+
+  private static final int FORMAT_VERSION = 2;
+
+  private static final String LIBRARY_VERSION = getLibraryVersion();
+
+  /*
+   * Header: magic (int), format version (int), capacity of the ring buffer (long), head (long) and tail (long). The
+   * head and tail are logical positions that only grow; the position of an entry in the file is HEADER_SIZE + position
+   * % capacity.
+   */
+
+  private static final int POS_MAGIC = 0;
+
+  private static final int POS_FORMAT_VERSION = 4;
+
+  private static final int POS_CAPACITY = 8;
+
+  private static final int POS_HEAD = 16;
+
+  private static final int POS_TAIL = 24;
+
+  private static final int HEADER_SIZE = 64;
+
+  /*
+   * Entry: length of the entry including padding (int), CRC32 of the rest of the entry (int), hash of the key (int),
+   * length of the key (int) or -1 for padding at the end of the ring buffer, the key and the value. The value holds the
+   * PGQL version (byte), whether the query selects all properties (byte), the bind variable count (int) and the length
+   * of the encoded statement (int) followed by the statement. The capacity and the entries are aligned to the size of
+   * the entry header, such that padding at the end of the buffer always fits an entry header.
+   */
+
+  private static final int ENTRY_HEADER_SIZE = 16;
+
+  private static final int ALIGNMENT = ENTRY_HEADER_SIZE;
+
+  private static final int PADDING = -1;
+
+  private static final long MIN_CAPACITY = 4096;
+
+  private static final Set<Path> openFiles = new HashSet<>();
+
+  private final Path file;
+
+  private final FileChannel channel;
+
+  private final MappedByteBuffer buffer;
+
+  private final long capacity;
+
+  /**
+   * For each key hash, the logical position of the last entry with that hash.
+   */
+  private final Map<Integer, Long> index = new HashMap<>();
+
+  /**
+   * The logical position up to which this process has indexed the entries in the file.
+   */
+  private long indexedPosition;
+
+  /**
+   * Opens the cache in the given file, or creates the file if it does not exist. The size of the file is determined by
+   * the process that creates it; processes that open an existing file use the existing size.
+   *
+   * @param file
+   *          the file that holds the cache
+   * @param size
+   *          the size of the file in bytes
+   * @throws PgqlException
+   *           if the file cannot be opened, is not a parse cache, or is already opened by this process
+   */
+  public ParseCache(Path file, long size) throws PgqlException {
+    long capacity = (size - HEADER_SIZE) & -ALIGNMENT;
+    if (capacity < MIN_CAPACITY || capacity > Integer.MAX_VALUE - HEADER_SIZE) {
+      throw new PgqlException("Size of parse cache should be between " + (HEADER_SIZE + MIN_CAPACITY) + " and "
+          + Integer.MAX_VALUE + " bytes");
+    }
+    this.file = file.toAbsolutePath().normalize();
+    synchronized (openFiles) {
+      if (!openFiles.add(this.file)) {
+        throw new PgqlException("Parse cache " + file + " is already opened");
+      }
+    }
+
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      try (FileLock fileLock = channel.lock()) {
+        if (channel.size() < HEADER_SIZE) {
+          channel.write(ByteBuffer.wrap(new byte[1]), HEADER_SIZE + capacity - 1);
+          this.buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+          initialize(capacity);
+        } else {
+          MappedByteBuffer existing = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+          if (existing.getInt(POS_MAGIC) != MAGIC) {
+            throw new PgqlException(file + " is not a parse cache");
+          }
+          capacity = existing.getLong(POS_CAPACITY);
+          boolean otherFormat = existing.getInt(POS_FORMAT_VERSION) != FORMAT_VERSION;
+          if (otherFormat) {
+            // the file was created by another version of this library, which may align differently
+            capacity &= -ALIGNMENT;
+          }
+          if (capacity < MIN_CAPACITY || capacity % ALIGNMENT != 0 || channel.size() < HEADER_SIZE + capacity) {
+            throw new PgqlException("Parse cache " + file + " is corrupt");
+          }
+          this.buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+          if (otherFormat) {
+            // start over (the file keeps its size since processes of the other version may still have it mapped)
+            initialize(capacity);
+          }
+        }
+      }
+      this.channel = channel;
+      this.capacity = capacity;
+      this.indexedPosition = buffer.getLong(POS_TAIL);
+    } catch (IOException | RuntimeException | PgqlException e) {
+      closeQuietly(channel);
+      synchronized (openFiles) {
+        openFiles.remove(this.file);
+      }
+      if (e instanceof PgqlException) {
+        throw (PgqlException) e;
+      }
+      throw new PgqlException("Failed to open parse cache " + file, e);
+    }
+  }
+
+  private void initialize(long capacity) {
+    buffer.putInt(POS_MAGIC, MAGIC);
+    buffer.putInt(POS_FORMAT_VERSION, FORMAT_VERSION);
+    buffer.putLong(POS_CAPACITY, capacity);
+    buffer.putLong(POS_HEAD, 0);
+    buffer.putLong(POS_TAIL, 0);
+  }
+
+  /**
+   * @return the cached parse result of the query, or null if the query was not cached
+   */
+  synchronized PgqlResult get(String queryString, String fingerprint, AbstractMetadataProvider metadataProvider) {
+    if (!channel.isOpen()) {
+      return null;
+    }
+    byte[] key = getKey(queryString, fingerprint);
+    try (FileLock fileLock = channel.lock(0, HEADER_SIZE, true)) {
+      byte[] value = getValue(key);
+      if (value == null) {
+        return null;
+      }
+      ByteBuffer valueBuffer = ByteBuffer.wrap(value);
+      PgqlVersion pgqlVersion = PgqlVersion.values()[valueBuffer.get()];
+      boolean querySelectsAllProperties = valueBuffer.get() != 0;
+      int bindVariableCount = valueBuffer.getInt();
+      int statementLength = valueBuffer.getInt();
+      PgqlStatement statement = PgqlStatementCodec.decode(value, valueBuffer.position(), statementLength);
+      return new PgqlResult(queryString, true, null, statement, null, pgqlVersion, bindVariableCount,
+          querySelectsAllProperties, metadataProvider);
+    } catch (IOException | RuntimeException | PgqlException e) {
+      LOG.warn("Failed to read from parse cache " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the parse result of a query if it is valid.
+   */
+  synchronized void put(PgqlResult result, String fingerprint) {
+    if (!channel.isOpen() || !result.isQueryValid() || result.getPgqlStatement() == null) {
+      return;
+    }
+    byte[] key = getKey(result.getQueryString(), fingerprint);
+    try (FileLock fileLock = channel.lock(0, HEADER_SIZE, false)) {
+      if (getValue(key) != null) {
+        return; // another process cached the query in the meantime
+      }
+      byte[] statement = PgqlStatementCodec.encode(result.getPgqlStatement());
+      int entryLength = align(ENTRY_HEADER_SIZE + key.length + 10 + statement.length);
+      if (entryLength > capacity / 4) {
+        return; // too large to cache
+      }
+
+      long head = buffer.getLong(POS_HEAD);
+      int remaining = (int) (capacity - head % capacity);
+      if (remaining < entryLength) {
+        evict(head, head + remaining);
+        writeEntryHeader(head, remaining, 0, PADDING);
+        head += remaining;
+      }
+      evict(head, head + entryLength);
+
+      int offset = getOffset(head);
+      buffer.position(offset + ENTRY_HEADER_SIZE);
+      buffer.put(key);
+      buffer.put((byte) result.getPgqlVersion().ordinal());
+      buffer.put((byte) (result.querySelectsAllProperties() ? 1 : 0));
+      buffer.putInt(result.getBindVariableCount());
+      buffer.putInt(statement.length);
+      buffer.put(statement);
+      writeEntryHeader(head, entryLength, Arrays.hashCode(key), key.length);
+
+      // entries become visible to other processes once the head passes them
+      buffer.putLong(POS_HEAD, head + entryLength);
+      index.put(Arrays.hashCode(key), head);
+      indexedPosition = head + entryLength;
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to write to parse cache " + file, e);
+    }
+  }
+
+  /**
+   * Evicts the oldest entries until the ring buffer has room up to the given position. The tail is moved before
+   * entries are overwritten, such that readers never see a partially overwritten entry.
+   */
+  private void evict(long head, long end) {
+    long tail = buffer.getLong(POS_TAIL);
+    while (end - tail > capacity) {
+      int length = buffer.getInt(getOffset(tail));
+      if (length < ENTRY_HEADER_SIZE) {
+        LOG.warn("Parse cache " + file + " is corrupt; evicting all its entries");
+        tail = head;
+        break;
+      }
+      tail += length;
+    }
+    buffer.putLong(POS_TAIL, tail);
+  }
+
+  private void writeEntryHeader(long position, int length, int keyHash, int keyLength) {
+    int offset = getOffset(position);
+    buffer.putInt(offset + 8, keyHash);
+    buffer.putInt(offset + 12, keyLength);
+    buffer.putInt(offset + 4, keyLength == PADDING ? 0 : getCrc(offset, length));
+    buffer.putInt(offset, length);
+  }
+
+  /**
+   * @return the value of the entry with the given key, or null if there is no such entry
+   */
+  private byte[] getValue(byte[] key) {
+    updateIndex();
+    Long position = index.get(Arrays.hashCode(key));
+    if (position == null || position < buffer.getLong(POS_TAIL)) {
+      return null;
+    }
+    int offset = getOffset(position);
+    int length = buffer.getInt(offset);
+    if (buffer.getInt(offset + 12) != key.length || getCrc(offset, length) != buffer.getInt(offset + 4)) {
+      return null;
+    }
+    byte[] entryKey = new byte[key.length];
+    buffer.position(offset + ENTRY_HEADER_SIZE);
+    buffer.get(entryKey);
+    if (!Arrays.equals(key, entryKey)) {
+      return null;
+    }
+    byte[] value = new byte[length - ENTRY_HEADER_SIZE - key.length];
+    buffer.get(value);
+    return value;
+  }
+
+  /**
+   * Indexes the entries that other processes appended since the last update of the index.
+   */
+  private void updateIndex() {
+    long head = buffer.getLong(POS_HEAD);
+    long tail = buffer.getLong(POS_TAIL);
+    if (indexedPosition > head) {
+      // the file was initialized again
+      index.clear();
+      indexedPosition = tail;
+    } else if (indexedPosition < tail) {
+      index.values().removeIf(position -> position < tail);
+      indexedPosition = tail;
+    }
+
+    while (indexedPosition < head) {
+      int offset = getOffset(indexedPosition);
+      int length = buffer.getInt(offset);
+      if (length < ENTRY_HEADER_SIZE || length % ALIGNMENT != 0 || length > capacity - indexedPosition % capacity) {
+        LOG.warn("Parse cache " + file + " is corrupt; skipping its entries");
+        index.clear();
+        indexedPosition = head;
+        return;
+      }
+      if (buffer.getInt(offset + 12) != PADDING) {
+        index.put(buffer.getInt(offset + 8), indexedPosition);
+      }
+      indexedPosition += length;
+    }
+  }
+
+  private int getCrc(int offset, int length) {
+    byte[] entry = new byte[length - 8];
+    buffer.position(offset + 8);
+    buffer.get(entry);
+    CRC32 crc = new CRC32();
+    crc.update(entry);
+    return (int) crc.getValue();
+  }
+
+  private int getOffset(long position) {
+    return (int) (HEADER_SIZE + position % capacity);
+  }
+
+  private static int align(int length) {
+    return (length + ALIGNMENT - 1) & -ALIGNMENT;
+  }
+
+  private static byte[] getKey(String queryString, String fingerprint) {
+    // lengths are included such that different combinations of the parts never result in the same key
+    String key = LIBRARY_VERSION.length() + ":" + LIBRARY_VERSION + fingerprint.length() + ":" + fingerprint
+        + queryString;
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String getLibraryVersion() {
+    String implementationVersion = Pgql.class.getPackage().getImplementationVersion();
+    return (implementationVersion == null ? "unknown" : implementationVersion) + "/" + PgqlStatementCodec.VERSION;
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to close parse cache", e);
+      }
+    }
+  }
+
+  /**
+   * Closes the file. Cached results remain in the file for other processes.
+   */
+  @Override
+  public synchronized void close() {
+    if (channel.isOpen()) {
+      closeQuietly(channel);
+      synchronized (openFiles) {
+        openFiles.remove(file);
+      }
+    }
+  }
+}
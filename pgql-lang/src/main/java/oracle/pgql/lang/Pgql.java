@@ -58,6 +58,10 @@ import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
 import oracle.pgql.lang.ir.PgqlStatement;
 import oracle.pgql.lang.ir.StatementType;
 import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import oracle.pgql.lang.metadata.AbstractStatisticsProvider;
+import oracle.pgql.lang.metadata.InMemoryStatisticsProvider;
+import oracle.pgql.lang.planner.ExplainPlan;
+import oracle.pgql.lang.planner.QueryExplainer;
 
 import static oracle.pgql.lang.CheckInvalidJavaComment.checkInvalidJavaComment;
 import static oracle.pgql.lang.MetadataToAstUtil.addMetadata;
@@ -105,6 +109,8 @@ public class Pgql implements Closeable {
 
   private boolean isInitialized;
 
+  private volatile ParseCache parseCache;
+
   /**
    * Loads PGQL Spoofax binaries if not done already.
    *
@@ -220,10 +226,48 @@ public class Pgql implements Closeable {
    *           if the query contains errors
    */
   public PgqlResult parse(String queryString, AbstractMetadataProvider metadataProvider) throws PgqlException {
+    ParseCache parseCache = this.parseCache;
+    String fingerprint = parseCache == null ? null : getFingerprint(metadataProvider);
+    if (fingerprint != null) {
+      PgqlResult result = parseCache.get(queryString, fingerprint, metadataProvider);
+      if (result != null) {
+        return result;
+      }
+    }
+
+    PgqlResult result;
     synchronized (lock) {
       checkInitialized();
-      return parseInternal(queryString, metadataProvider);
+      result = parseInternal(queryString, metadataProvider);
     }
+    if (fingerprint != null) {
+      parseCache.put(result, fingerprint);
+    }
+    return result;
+  }
+
+  /**
+   * Set a cache for parse results, which may be shared with other processes. Results of queries that are parsed with a
+   * metadata provider are only cached if the provider has a fingerprint (see
+   * {@link AbstractMetadataProvider#getFingerprint()}). Cached results do not hold a Spoofax parse unit.
+   *
+   * @param parseCache
+   *          the cache, or null to not cache parse results
+   */
+  public void setParseCache(ParseCache parseCache) {
+    this.parseCache = parseCache;
+  }
+
+  public ParseCache getParseCache() {
+    return parseCache;
+  }
+
+  private static String getFingerprint(AbstractMetadataProvider metadataProvider) {
+    if (metadataProvider == null) {
+      return "";
+    }
+    // prefixed to tell apart a provider with an empty fingerprint from no provider
+    return metadataProvider.getFingerprint().map(fingerprint -> "+" + fingerprint).orElse(null);
   }
 
   private void checkInitialized() throws PgqlException {
@@ -483,6 +527,37 @@ public class Pgql implements Closeable {
     return PgqlCompletionGenerator.generate(pgqlResult, spoofaxCompletions, queryString, cursor, ctx);
   }
 
+  /**
+   * Explain how a query is evaluated, using default statistics. See
+   * {@link #explain(PgqlResult, AbstractStatisticsProvider)}.
+   */
+  public ExplainPlan explain(PgqlResult pgqlResult) throws PgqlException {
+    return explain(pgqlResult, new InMemoryStatisticsProvider());
+  }
+
+  /**
+   * Explain how a query is evaluated: the order in which the graph pattern is matched, followed by the grouping,
+   * ordering and limit steps, each annotated with the estimated number of rows.
+   *
+   * @param pgqlResult
+   *          the parse result of a valid SELECT or INSERT/UPDATE/DELETE query
+   * @param statistics
+   *          statistics about the graph; statistics that are not provided are replaced by defaults
+   * @return the plan, which can be rendered as text or JSON
+   * @throws PgqlException
+   *           if the query is invalid or is not a SELECT or INSERT/UPDATE/DELETE query
+   */
+  public ExplainPlan explain(PgqlResult pgqlResult, AbstractStatisticsProvider statistics) throws PgqlException {
+    if (!pgqlResult.isQueryValid()) {
+      throw new PgqlException("Cannot explain an invalid query:\n" + pgqlResult.getErrorMessages());
+    }
+    StatementType statementType = pgqlResult.getPgqlStatement().getStatementType();
+    if (statementType != StatementType.SELECT && statementType != StatementType.GRAPH_MODIFY) {
+      throw new PgqlException("Cannot explain a " + statementType + " statement");
+    }
+    return new QueryExplainer(statistics).explain(pgqlResult.getGraphQuery());
+  }
+
   @Override
   public void close() {
     synchronized (lock) {
@@ -10,6 +10,9 @@ import java.util.stream.Collectors;
 
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 
+import oracle.pgql.lang.analysis.ReadWriteAnalysis;
+import oracle.pgql.lang.analysis.ReadWriteAnalyzer;
+import oracle.pgql.lang.ir.BindVariableSubstitutor;
 import oracle.pgql.lang.ir.GraphQuery;
 import oracle.pgql.lang.ir.PgqlStatement;
 import oracle.pgql.lang.ir.QueryExpression;
@@ -19,6 +22,7 @@ import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
 import oracle.pgql.lang.ir.QueryVariable;
 import oracle.pgql.lang.ir.QueryVariable.VariableType;
 import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.ir.StatementCopier;
 import oracle.pgql.lang.ir.StatementType;
 import oracle.pgql.lang.metadata.AbstractMetadataProvider;
 import oracle.pgql.lang.metadata.GraphSchema;
@@ -46,9 +50,19 @@ public class PgqlResult {
 
   private final AbstractMetadataProvider metadataProvider;
 
+  private final ReadWriteAnalysis readWriteAnalysis;
+
   public PgqlResult(String queryString, boolean queryValid, String messages, PgqlStatement pgqlStatement,
       ISpoofaxParseUnit spoofaxParseUnit, PgqlVersion pgqlVersion, int bindVariableCount,
       boolean querySelectsAllProperties, AbstractMetadataProvider metadataProvider) {
+    this(queryString, queryValid, messages, pgqlStatement, spoofaxParseUnit, pgqlVersion, bindVariableCount,
+        querySelectsAllProperties, metadataProvider, analyze(queryValid, pgqlStatement, metadataProvider));
+  }
+
+  private PgqlResult(String queryString, boolean queryValid, String messages, PgqlStatement pgqlStatement,
+      ISpoofaxParseUnit spoofaxParseUnit, PgqlVersion pgqlVersion, int bindVariableCount,
+      boolean querySelectsAllProperties, AbstractMetadataProvider metadataProvider,
+      ReadWriteAnalysis readWriteAnalysis) {
     this.queryString = queryString;
     this.errorMessages = messages;
     this.queryValid = queryValid;
@@ -58,6 +72,19 @@ public class PgqlResult {
     this.bindVariableCount = bindVariableCount;
     this.querySelectsAllProperties = querySelectsAllProperties;
     this.metadataProvider = metadataProvider;
+    this.readWriteAnalysis = readWriteAnalysis;
+  }
+
+  private static ReadWriteAnalysis analyze(boolean queryValid, PgqlStatement pgqlStatement,
+      AbstractMetadataProvider metadataProvider) {
+    if (!queryValid || pgqlStatement == null) {
+      return null;
+    }
+    StatementType statementType = pgqlStatement.getStatementType();
+    if (statementType != StatementType.SELECT && statementType != StatementType.GRAPH_MODIFY) {
+      return null;
+    }
+    return ReadWriteAnalyzer.analyze((GraphQuery) pgqlStatement, metadataProvider);
   }
 
   /**
@@ -98,6 +125,33 @@ public class PgqlResult {
     }
   }
 
+  /**
+   * Replaces the bind variables of the query by values, without parsing the query again. Parts of the query without
+   * bind variables are shared with {@link #getGraphQuery()}, which itself is not modified.
+   *
+   * @param bindValues
+   *          the values of the bind variables, in the order in which the bind variables appear in the query (see
+   *          {@link BindVariableSubstitutor#substitute(GraphQuery, List)} for the supported types of values)
+   * @return a GraphQuery object without bind variables
+   * @throws PgqlException
+   *           if the query is invalid or is not a SELECT or INSERT/UPDATE/DELETE query, or if the number of values is
+   *           not the number of bind variables
+   */
+  public GraphQuery getGraphQuery(List<?> bindValues) throws PgqlException {
+    if (!queryValid) {
+      throw new PgqlException("Cannot substitute the bind variables of an invalid query:\n" + errorMessages);
+    }
+    if (bindValues.size() != bindVariableCount) {
+      throw new PgqlException(
+          "Query has " + bindVariableCount + " bind variables but " + bindValues.size() + " values were provided");
+    }
+    StatementType statementType = pgqlStatement.getStatementType();
+    if (statementType != StatementType.SELECT && statementType != StatementType.GRAPH_MODIFY) {
+      throw new PgqlException("Cannot substitute the bind variables of a " + statementType + " statement");
+    }
+    return BindVariableSubstitutor.substitute((GraphQuery) pgqlStatement, bindValues);
+  }
+
   /**
    * @return a PgqlStatement object if the query is valid (check {@link #isQueryValid()}). In case the statement is
    *         invalid and contains syntax or semantic errors then this method _may_ return null depending on how
@@ -107,6 +161,19 @@ public class PgqlResult {
     return pgqlStatement;
   }
 
+  /**
+   * Copies the result, such that a result that is cached can be used by multiple threads without parsing the query
+   * again. The statement is deep-copied (see {@link StatementCopier}), such that modifications to the statement of the
+   * copy do not affect the statement of this result or of other copies.
+   *
+   * @return a copy of this result
+   */
+  public PgqlResult copy() {
+    return new PgqlResult(queryString, queryValid, errorMessages, StatementCopier.copy(pgqlStatement),
+        spoofaxParseUnit, pgqlVersion, bindVariableCount, querySelectsAllProperties, metadataProvider,
+        readWriteAnalysis);
+  }
+
   public PgqlVersion getPgqlVersion() {
     return pgqlVersion;
   }
@@ -119,6 +186,15 @@ public class PgqlResult {
     return querySelectsAllProperties;
   }
 
+  /**
+   * @return the labels and properties that the query reads and writes, resolved against the graph schema of the
+   *         metadata provider if there is one, or null if the query is invalid or is not a SELECT or
+   *         INSERT/UPDATE/DELETE query
+   */
+  public ReadWriteAnalysis getReadWriteAnalysis() {
+    return readWriteAnalysis;
+  }
+
   /**
    * Given a vertex or edge variable that appears in the graph pattern, returns a list of visible properties taking into
    * account the label expressions defined for the vertex or edge.
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.BindVariableSubstitutor;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.SelectQuery;
+
+public class BindVariableSubstitutorTest extends AbstractPgqlTest {
+
+  @Test
+  public void testSelect() throws Exception {
+    checkSubstitution("SELECT n.name || ? AS name FROM MATCH (n) -> (m) WHERE n.age > ? AND m.dob < ? ORDER BY name",
+        "SELECT n.name || 'x' AS name FROM MATCH (n) -> (m) WHERE n.age > 30 AND m.dob < DATE '2000-01-01' "
+            + "ORDER BY name",
+        Arrays.asList("x", 30, LocalDate.of(2000, 1, 1)));
+  }
+
+  @Test
+  public void testInPredicate() throws Exception {
+    checkSubstitution("SELECT n FROM MATCH (n) WHERE n.name IN ? AND n.age IN ?",
+        "SELECT n FROM MATCH (n) WHERE n.name IN ('a', 'b') AND n.age IN (1, 2.5)",
+        Arrays.asList(Arrays.asList("a", "b"), Arrays.asList(1, 2.5)));
+  }
+
+  @Test
+  public void testSubqueryAndLimit() throws Exception {
+    checkSubstitution(
+        "SELECT n FROM MATCH (n) WHERE EXISTS ( SELECT m FROM MATCH (n) -> (m) WHERE m.age = ? ) LIMIT ? OFFSET ?",
+        "SELECT n FROM MATCH (n) WHERE EXISTS ( SELECT m FROM MATCH (n) -> (m) WHERE m.age = 3 ) LIMIT 10 OFFSET 5",
+        Arrays.asList(3, 10, 5));
+  }
+
+  @Test
+  public void testPathPattern() throws Exception {
+    checkSubstitution("PATH p AS (a) -[e]-> (b) WHERE e.weight > ? SELECT n FROM MATCH (n) -/:p*/-> (m)",
+        "PATH p AS (a) -[e]-> (b) WHERE e.weight > 0.5 SELECT n FROM MATCH (n) -/:p*/-> (m)",
+        Arrays.asList(0.5));
+  }
+
+  @Test
+  public void testModify() throws Exception {
+    checkSubstitution("INSERT VERTEX v PROPERTIES ( v.name = ? ) UPDATE n SET ( n.age = ? ) FROM MATCH (n)",
+        "INSERT VERTEX v PROPERTIES ( v.name = 'Alice' ) UPDATE n SET ( n.age = 42 ) FROM MATCH (n)",
+        Arrays.asList("Alice", 42L));
+  }
+
+  @Test
+  public void testStructuralSharing() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n.name AS name, n.age + ? AS age FROM MATCH (n) -> (m) ORDER BY name");
+    SelectQuery query = (SelectQuery) result.getGraphQuery();
+    SelectQuery substitutedQuery = (SelectQuery) result.getGraphQuery(Arrays.asList(1));
+    assertSame(query.getGraphPattern(), substitutedQuery.getGraphPattern());
+    assertSame(query.getProjection().getElements().get(0), substitutedQuery.getProjection().getElements().get(0));
+    assertNotSame(query.getProjection().getElements().get(1), substitutedQuery.getProjection().getElements().get(1));
+    assertSame(query.getOrderBy(), substitutedQuery.getOrderBy());
+  }
+
+  @Test
+  public void testReferenceToSubstitutedVariable() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n.age + ? AS age FROM MATCH (n) ORDER BY age");
+    SelectQuery substitutedQuery = (SelectQuery) result.getGraphQuery(Arrays.asList(1));
+    assertSame(substitutedQuery.getProjection().getElements().get(0),
+        ((VarRef) substitutedQuery.getOrderBy().getElements().get(0).getExp()).getVariable());
+  }
+
+  @Test
+  public void testNoBindVariables() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n FROM MATCH (n)");
+    assertSame(result.getGraphQuery(), result.getGraphQuery(Collections.emptyList()));
+  }
+
+  @Test
+  public void testWrongNumberOfValues() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n FROM MATCH (n) WHERE n.age > ?");
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("1 bind variables but 2 values");
+    result.getGraphQuery(Arrays.asList(1, 2));
+  }
+
+  @Test
+  public void testUnsupportedValue() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("Unsupported type");
+    BindVariableSubstitutor.toConstant(new Object());
+  }
+
+  @Test
+  public void testNullValue() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("A bind value cannot be null");
+    BindVariableSubstitutor.toConstant(null);
+  }
+
+  private void checkSubstitution(String query, String expectedQuery, List<?> bindValues) throws Exception {
+    PgqlResult result = pgql.parse(query);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    String queryBefore = result.getGraphQuery().toString();
+
+    GraphQuery substitutedQuery = result.getGraphQuery(bindValues);
+
+    PgqlResult expectedResult = pgql.parse(expectedQuery);
+    assertTrue(expectedResult.getErrorMessages(), expectedResult.isQueryValid());
+    assertEquals(expectedResult.getGraphQuery(), substitutedQuery);
+    assertEquals(expectedResult.getGraphQuery().toString(), substitutedQuery.toString());
+    assertEquals(queryBefore, result.getGraphQuery().toString());
+  }
+}
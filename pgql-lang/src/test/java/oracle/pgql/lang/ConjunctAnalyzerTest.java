@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.optimizer.ConjunctAnalysis;
+import oracle.pgql.lang.optimizer.ConjunctAnalyzer;
+import oracle.pgql.lang.optimizer.ConjunctType;
+
+public class ConjunctAnalyzerTest extends AbstractPgqlTest {
+
+  @Test
+  public void testClassification() throws Exception {
+    String query = "SELECT n.name MATCH (n) -[e]-> (m), (o) " //
+        + "WHERE n.age > 18 AND e.weight < 3 AND n.age > m.age AND n.age + m.age > o.age";
+    GraphPattern graphPattern = pgql.parse(query).getGraphQuery().getGraphPattern();
+    ConjunctAnalysis analysis = ConjunctAnalyzer.analyze(graphPattern);
+
+    assertEquals(4, analysis.getConjuncts().size());
+    assertEquals(2, analysis.getConjuncts(ConjunctType.SINGLE_VARIABLE).size());
+    assertEquals(1, analysis.getConjuncts(ConjunctType.TWO_VARIABLE).size());
+    assertEquals(1, analysis.getConjuncts(ConjunctType.MULTI_VARIABLE).size());
+  }
+
+  @Test
+  public void testAttachSingleVariableConjuncts() throws Exception {
+    String query = "SELECT n.name MATCH (n) -[e]-> (m) WHERE n.age > 18 AND e.weight < 3 AND n.age > m.age";
+    GraphPattern graphPattern = pgql.parse(query).getGraphQuery().getGraphPattern();
+    ConjunctAnalyzer.analyze(graphPattern);
+
+    Iterator<QueryVertex> vertices = graphPattern.getVertices().iterator();
+    while (vertices.hasNext()) {
+      QueryVertex vertex = vertices.next();
+      assertEquals(vertex.getName().equals("n") ? 1 : 0, vertex.getConstraints().size());
+    }
+    QueryEdge edge = (QueryEdge) graphPattern.getConnections().iterator().next();
+    assertEquals(1, edge.getConstraints().size());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.metadata.DegreeDistribution;
+import oracle.pgql.lang.metadata.InMemoryStatisticsProvider;
+import oracle.pgql.lang.planner.ExplainPlan;
+import oracle.pgql.lang.planner.ExplainStep;
+
+public class ExplainTest extends AbstractPgqlTest {
+
+  @Test
+  public void testExplainSteps() throws Exception {
+    String query = "SELECT f.name, COUNT(*) AS cnt " //
+        + "FROM MATCH (p:Person) -[:knows]-> (q:Person) -[:memberOf]-> (f:Forum) " //
+        + "WHERE p.age > 18 " //
+        + "GROUP BY f.name ORDER BY cnt DESC LIMIT 10";
+    ExplainPlan plan = pgql.explain(pgql.parse(query), getStatistics());
+
+    List<String> operations = plan.getSteps().stream() //
+        .map(ExplainStep::getOperation) //
+        .collect(Collectors.toList());
+    assertEquals("SCAN", operations.get(0));
+    assertEquals("EXPAND", operations.get(1));
+    assertEquals("EXPAND", operations.get(2));
+    assertEquals("GROUP BY", operations.get(3));
+    assertEquals("SELECT", operations.get(4));
+    assertEquals("ORDER BY", operations.get(5));
+    assertEquals("LIMIT", operations.get(6));
+    assertTrue(plan.getEstimatedRows() <= 10);
+  }
+
+  @Test
+  public void testExplainHopBounds() throws Exception {
+    String query = "SELECT COUNT(*) FROM MATCH ANY SHORTEST (p:Person) -[:knows]->{2,4} (q:Person)";
+    ExplainPlan plan = pgql.explain(pgql.parse(query));
+    ExplainStep expand = plan.getSteps().get(1);
+    assertEquals("EXPAND", expand.getOperation());
+    assertEquals(2L, expand.getAttributes().get("minHops"));
+    assertEquals(4L, expand.getAttributes().get("maxHops"));
+    assertEquals("AGGREGATE", plan.getSteps().get(2).getOperation());
+    assertEquals(1, Math.round(plan.getEstimatedRows()));
+  }
+
+  @Test
+  public void testExplainJson() throws Exception {
+    ExplainPlan plan = pgql.explain(pgql.parse("SELECT n.name FROM MATCH (n:Person) WHERE n.name = 'Ann \"A\"'"));
+    String json = plan.toJson();
+    assertTrue(json.startsWith("{\"estimatedRows\":"));
+    assertTrue(json.contains("\"operation\":\"SCAN\""));
+    assertTrue(json.contains("\\\"A\\\""));
+  }
+
+  @Test
+  public void testExplainInvalidQuery() throws Exception {
+    thrown.expect(PgqlException.class);
+    pgql.explain(pgql.parse("SELECT n.name FROM MATCH"));
+  }
+
+  private static InMemoryStatisticsProvider getStatistics() {
+    InMemoryStatisticsProvider statistics = new InMemoryStatisticsProvider();
+    statistics.setVertexCount(null, 10100);
+    statistics.setVertexCount("Person", 10000);
+    statistics.setVertexCount("Forum", 100);
+    statistics.setEdgeCount("knows", 200000);
+    statistics.setEdgeCount("memberOf", 20000);
+    statistics.setDegreeDistribution("Person", "memberOf", Direction.OUTGOING,
+        new DegreeDistribution(new long[] { 2 }, new long[] { 10000 }));
+    statistics.setDegreeDistribution("Forum", "memberOf", Direction.INCOMING,
+        new DegreeDistribution(new long[] { 200 }, new long[] { 100 }));
+    return statistics;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oracle.pgql.lang.ddl.propertygraph.DropPropertyGraph;
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+public class ParseCacheTest extends AbstractPgqlTest {
+
+  private static final String QUERY = "SELECT n.name, COUNT(*) FROM MATCH (n) -[e]-> (m) WHERE n.age > ? GROUP BY n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @After
+  public void removeParseCache() {
+    ParseCache parseCache = pgql.getParseCache();
+    if (parseCache != null) {
+      pgql.setParseCache(null);
+      parseCache.close();
+    }
+  }
+
+  @Test
+  public void testCachedResult() throws Exception {
+    pgql.setParseCache(new ParseCache(folder.getRoot().toPath().resolve("cache"), 1 << 20));
+    PgqlResult result = pgql.parse(QUERY);
+    PgqlResult cachedResult = pgql.parse(QUERY);
+    assertNotSame(result, cachedResult);
+    checkEquals(result, cachedResult);
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("cache");
+    PgqlResult result;
+    try (ParseCache parseCache = new ParseCache(file, 1 << 20)) {
+      result = pgql.parse(QUERY);
+      parseCache.put(result, "");
+    }
+    try (ParseCache parseCache = new ParseCache(file, 1 << 16)) {
+      checkEquals(result, parseCache.get(QUERY, "", null));
+      assertNull(parseCache.get(QUERY + " ", "", null));
+    }
+  }
+
+  @Test
+  public void testInvalidQueryNotCached() throws Exception {
+    try (ParseCache parseCache = new ParseCache(folder.getRoot().toPath().resolve("cache"), 1 << 20)) {
+      PgqlResult result = pgql.parse("SELECT x FROM MATCH (n)");
+      parseCache.put(result, "");
+      assertNull(parseCache.get(result.getQueryString(), "", null));
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    try (ParseCache parseCache = new ParseCache(folder.getRoot().toPath().resolve("cache"), 8192)) {
+      for (int i = 0; i < 100; i++) {
+        parseCache.put(pgql.parse("SELECT n FROM MATCH (n) LIMIT " + i), "");
+      }
+      assertNull(parseCache.get("SELECT n FROM MATCH (n) LIMIT 0", "", null));
+      assertNotNull(parseCache.get("SELECT n FROM MATCH (n) LIMIT 99", "", null));
+    }
+  }
+
+  @Test
+  public void testWrapAround() throws Exception {
+    // entries of many different lengths, such that the space left at the end of the ring buffer takes all possible
+    // values before it wraps around
+    try (ParseCache parseCache = new ParseCache(folder.getRoot().toPath().resolve("cache"), 4096 + 64)) {
+      DropPropertyGraph statement = new DropPropertyGraph(new SchemaQualifiedName(null, "g"));
+      StringBuilder query = new StringBuilder("DROP PROPERTY GRAPH g");
+      for (int i = 0; i < 1000; i++) {
+        query.append(i % 37 == 0 ? "\n" : " ");
+        if (query.length() > 200) {
+          query.setLength(21);
+        }
+        PgqlResult result = new PgqlResult(query.toString(), true, null, statement, null, PgqlVersion.V_1_3_OR_UP, 0,
+            false, null);
+        parseCache.put(result, "");
+        PgqlResult cachedResult = parseCache.get(query.toString(), "", null);
+        assertNotNull("result " + i + " was not cached", cachedResult);
+        checkEquals(result, cachedResult);
+      }
+    }
+  }
+
+  @Test
+  public void testMetadataFingerprint() throws Exception {
+    pgql.setParseCache(new ParseCache(folder.getRoot().toPath().resolve("cache"), 1 << 20));
+    AbstractMetadataProvider withoutFingerprint = new ExampleMetadataProvider();
+    AbstractMetadataProvider withFingerprint = new ExampleMetadataProvider() {
+
+      @Override
+      public Optional<String> getFingerprint() {
+        return Optional.of("1");
+      }
+    };
+
+    String query = "SELECT n.firstName FROM MATCH (n:Person) WHERE n.dob > ?";
+    pgql.parse(query);
+    assertNull(pgql.getParseCache().get(query, "+1", withFingerprint));
+
+    PgqlResult result = pgql.parse(query, withFingerprint);
+    PgqlResult cachedResult = pgql.parse(query, withFingerprint);
+    assertNotSame(result, cachedResult);
+    checkEquals(result, cachedResult);
+
+    PgqlResult uncachedResult = pgql.parse("SELECT n FROM MATCH (n)", withoutFingerprint);
+    assertNull(pgql.getParseCache().get(uncachedResult.getQueryString(), "", withoutFingerprint));
+  }
+
+  @Test
+  public void testAlreadyOpened() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("cache");
+    try (ParseCache parseCache = new ParseCache(file, 1 << 20)) {
+      thrown.expect(PgqlException.class);
+      thrown.expectMessage("already opened");
+      new ParseCache(file, 1 << 20);
+    }
+  }
+
+  @Test
+  public void testNotAParseCache() throws Exception {
+    Path file = folder.newFile().toPath();
+    Files.write(file, new byte[8192]);
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("not a parse cache");
+    new ParseCache(file, 8192);
+  }
+
+  private static void checkEquals(PgqlResult expected, PgqlResult actual) {
+    assertTrue(actual.isQueryValid());
+    assertEquals(expected.getQueryString(), actual.getQueryString());
+    assertEquals(expected.getPgqlStatement(), actual.getPgqlStatement());
+    assertEquals(expected.getPgqlVersion(), actual.getPgqlVersion());
+    assertEquals(expected.getBindVariableCount(), actual.getBindVariableCount());
+    assertEquals(expected.querySelectsAllProperties(), actual.querySelectsAllProperties());
+  }
+}
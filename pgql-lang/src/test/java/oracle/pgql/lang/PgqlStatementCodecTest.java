@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.codec.PgqlStatementCodec;
+import oracle.pgql.lang.ddl.propertygraph.CreatePropertyGraph;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SelectQuery;
+
+public class PgqlStatementCodecTest extends AbstractPgqlTest {
+
+  private static final Path PGQL_TESTS = Paths.get("..", "pgql-tests");
+
+  /**
+   * A test of the Spoofax testing language, i.e. "test <name> [[ <query> ]]", in which the query may contain nested
+   * [[ .. ]] to mark the parts that an error message is expected for.
+   */
+  private static final Pattern SPT_TEST = Pattern.compile("^test .*?\\[\\[\\s*\\n(.*?)\\n\\s*\\]\\]",
+      Pattern.MULTILINE | Pattern.DOTALL);
+
+  /**
+   * Round-trips the valid queries of the tests in the pgql-tests repository, which is skipped if that repository is not
+   * checked out next to this one.
+   */
+  @Test
+  public void testRoundTripOfTestCorpus() throws Exception {
+    assumeTrue(Files.isDirectory(PGQL_TESTS));
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(PGQL_TESTS)) {
+      files = paths.filter(path -> path.toString().endsWith(".spt")).sorted().collect(Collectors.toList());
+    }
+
+    int numStatements = 0;
+    for (Path file : files) {
+      for (String query : getQueries(file)) {
+        PgqlResult result;
+        try {
+          result = pgql.parse(query);
+        } catch (PgqlException e) {
+          continue;
+        }
+        if (result.isQueryValid() && result.getPgqlStatement() != null) {
+          checkRoundTrip(result.getPgqlStatement(), file + ": " + query);
+          numStatements++;
+        }
+      }
+    }
+    // most of the tests expect error messages, so only check that the queries were found at all
+    assertTrue(numStatements > 0);
+  }
+
+  @Test
+  public void testRoundTripOfDdl() throws Exception {
+    checkRoundTrip("CREATE PROPERTY GRAPH hr.g\n" + //
+        "  VERTEX TABLES (\n" + //
+        "    Person KEY ( id ) LABEL Person PROPERTIES ARE ALL COLUMNS EXCEPT ( ssn ),\n" + //
+        "    Company AS c LABEL Org PROPERTIES ( name, CAST(revenue AS INTEGER) AS revenue )\n" + //
+        "  )\n" + //
+        "  EDGE TABLES (\n" + //
+        "    worksAt SOURCE KEY ( person_id ) REFERENCES Person DESTINATION c NO PROPERTIES\n" + //
+        "  )\n" + //
+        "  OPTIONS ( PG_VIEW )");
+    checkRoundTrip("DROP PROPERTY GRAPH hr.g");
+    checkRoundTrip("CREATE EXTERNAL SCHEMA s FROM DATABASE URL 'jdbc:oracle:thin:@localhost' USER 'u' " + //
+        "KEYSTORE_ALIAS 'k' SCHEMA 'hr'");
+    checkRoundTrip("DROP EXTERNAL SCHEMA s");
+  }
+
+  @Test
+  public void testRoundTripOfModify() throws Exception {
+    checkRoundTrip("INSERT INTO g VERTEX v LABELS ( Person ) PROPERTIES ( v.name = n.name || '2' ),\n" + //
+        "                 EDGE e BETWEEN n AND v LABELS ( knows )\n" + //
+        "UPDATE m SET ( m.age = m.age + 1 )\n" + //
+        "DELETE x\n" + //
+        "FROM MATCH (n) -> (m), MATCH (x) WHERE n.age > ? AND x.since < DATE '2000-01-01'");
+  }
+
+  @Test
+  public void testRoundTripOfPaths() throws Exception {
+    checkRoundTrip("PATH p AS (a) -[e:knows]-> (b) WHERE e.weight > 0.5\n" + //
+        "SELECT n, m FROM MATCH (n) -/:p{1,3}/-> (m), MATCH (n) <-/:p*/- (o)");
+    checkRoundTrip("SELECT n, v.age FROM MATCH TOP 2 SHORTEST (n) -[e:knows]->+ (m) ONE ROW PER VERTEX (v)");
+    checkRoundTrip("SELECT COUNT(e) FROM MATCH ALL SHORTEST (n) <-[e:knows]-{2,} (m) ONE ROW PER MATCH");
+    checkRoundTrip("SELECT SUM(e.weight) FROM MATCH ALL (n) -[e]->{,4} (m)");
+    // the edge of ONE ROW PER EDGE has neither a source, a destination nor a direction
+    checkRoundTrip("SELECT x.since FROM MATCH ANY CHEAPEST (n) (-[e:worksAt]-> COST e.weight)+ (m) " + //
+        "ONE ROW PER EDGE (x)");
+  }
+
+  @Test
+  public void testSharedVariables() throws Exception {
+    SelectQuery query = (SelectQuery) decode(encode("SELECT n.name AS name FROM MATCH (n) -> (m) ORDER BY name"));
+    QueryVertex n = query.getGraphPattern().getVertices().stream() //
+        .filter(vertex -> vertex.getName().equals("n")) //
+        .findFirst().get();
+    assertSame(n, ((PropertyAccess) query.getProjection().getElements().get(0).getExp()).getVariable());
+  }
+
+  @Test
+  public void testSharedVertexTables() throws Exception {
+    CreatePropertyGraph statement = (CreatePropertyGraph) decode(encode("CREATE PROPERTY GRAPH g " + //
+        "VERTEX TABLES ( Person ) EDGE TABLES ( knows SOURCE Person DESTINATION Person )"));
+    assertSame(statement.getVertexTables().get(0), statement.getEdgeTables().get(0).getSourceVertexTable());
+    assertSame(statement.getVertexTables().get(0), statement.getEdgeTables().get(0).getDestinationVertexTable());
+  }
+
+  @Test
+  public void testOtherVersion() throws Exception {
+    byte[] bytes = encode("SELECT n FROM MATCH (n)");
+    bytes[4] = PgqlStatementCodec.VERSION + 1;
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("version");
+    decode(bytes);
+  }
+
+  @Test
+  public void testTruncated() throws Exception {
+    byte[] bytes = encode("SELECT n FROM MATCH (n)");
+    thrown.expect(PgqlException.class);
+    PgqlStatementCodec.decode(bytes, 0, bytes.length - 1);
+  }
+
+  private static List<String> getQueries(Path file) throws IOException {
+    String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    List<String> queries = new ArrayList<>();
+    Matcher matcher = SPT_TEST.matcher(content);
+    while (matcher.find()) {
+      queries.add(matcher.group(1).replace("[[", "").replace("]]", ""));
+    }
+    return queries;
+  }
+
+  private static byte[] encode(String statement) throws PgqlException {
+    PgqlResult result = pgql.parse(statement);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    return PgqlStatementCodec.encode(result.getPgqlStatement());
+  }
+
+  private static PgqlStatement decode(byte[] bytes) throws PgqlException {
+    return PgqlStatementCodec.decode(bytes);
+  }
+
+  private void checkRoundTrip(String statement) throws PgqlException {
+    PgqlResult result = pgql.parse(statement);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    checkRoundTrip(result.getPgqlStatement(), statement);
+  }
+
+  private static void checkRoundTrip(PgqlStatement statement, String description) throws PgqlException {
+    byte[] bytes = PgqlStatementCodec.encode(statement);
+    PgqlStatement decoded = PgqlStatementCodec.decode(bytes);
+    assertEquals(description, statement, decoded);
+    assertEquals(description, statement.toString(), decoded.toString());
+    assertArrayEquals(description, bytes, PgqlStatementCodec.encode(decoded));
+  }
+}
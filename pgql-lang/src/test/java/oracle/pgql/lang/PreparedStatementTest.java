@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.StatementType;
+
+public class PreparedStatementTest extends AbstractPgqlTest {
+
+  @Test
+  public void testExecuteBatch() throws Exception {
+    RecordingPreparedStatement stmnt = new RecordingPreparedStatement();
+    int[] updateCounts = stmnt.executeBatch(Arrays.asList( //
+        Arrays.asList("Alice", 30, LocalDate.of(1990, 1, 1)), //
+        Arrays.asList("Bob", 25L, LocalDate.of(1995, 1, 1))));
+    assertArrayEquals(new int[] { PreparedStatement.SUCCESS_NO_INFO, PreparedStatement.SUCCESS_NO_INFO },
+        updateCounts);
+    assertEquals(Arrays.asList( //
+        Arrays.asList("Alice", 30, LocalDate.of(1990, 1, 1)), //
+        Arrays.asList("Bob", 25L, LocalDate.of(1995, 1, 1))), stmnt.executions);
+  }
+
+  @Test
+  public void testSetObject() throws Exception {
+    RecordingPreparedStatement stmnt = new RecordingPreparedStatement();
+    stmnt.setObject(1, (short) 1);
+    stmnt.setObject(2, 2.5f);
+    stmnt.setObject(3, Arrays.asList(1, 2));
+    stmnt.execute();
+    assertEquals(Arrays.asList(1, 2.5f, Arrays.asList(1, 2)), stmnt.executions.get(0));
+  }
+
+  @Test
+  public void testUnsupportedObject() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("Unsupported type for parameter 1: java.lang.Object");
+    new RecordingPreparedStatement().setObject(1, new Object());
+  }
+
+  @Test
+  public void testExecuteParameterBatch() throws Exception {
+    RecordingPreparedStatement stmnt = new RecordingPreparedStatement();
+    ParameterBatch batch = new ParameterBatch(3);
+    batch.setStrings(1, new String[] { "Alice", "Bob", "Carol" });
+    batch.setLongs(2, new long[] { 30, 25, 40 });
+    batch.setBooleans(3, new boolean[] { true, false, true });
+    assertEquals(3, batch.getParameterCount());
+    assertArrayEquals(new long[] { 30, 25, 40 }, (long[]) batch.getValues(2));
+
+    assertArrayEquals(new int[] { PreparedStatement.SUCCESS_NO_INFO, PreparedStatement.SUCCESS_NO_INFO,
+        PreparedStatement.SUCCESS_NO_INFO }, stmnt.executeBatch(batch));
+    // the values are set through setLong, not through setObject with an int
+    assertEquals(Arrays.asList( //
+        Arrays.asList("Alice", 30L, true), //
+        Arrays.asList("Bob", 25L, false), //
+        Arrays.asList("Carol", 40L, true)), stmnt.executions);
+  }
+
+  @Test
+  public void testParameterBatchWithoutValue() throws Exception {
+    ParameterBatch batch = new ParameterBatch(1);
+    batch.setInts(2, new int[] { 30 });
+    assertEquals(null, batch.getValues(1));
+    try {
+      new RecordingPreparedStatement().executeBatch(batch);
+      fail();
+    } catch (PgqlBatchException e) {
+      assertEquals("Execution of set 1 of the batch failed: No value specified for parameter 1", e.getMessage());
+      assertArrayEquals(new int[0], e.getUpdateCounts());
+    }
+  }
+
+  @Test
+  public void testParameterBatchLengthMismatch() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Expected 2 values for parameter 1 but got 3");
+    new ParameterBatch(2).setDoubles(1, new double[] { 1, 2, 3 });
+  }
+
+  @Test
+  public void testExecuteBatchOfUnequalSets() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Set 2 of the batch has 1 values but set 1 has 2");
+    new RecordingPreparedStatement().executeBatch(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)));
+  }
+
+  @Test
+  public void testAddBatchNotSupportedByDefault() throws Exception {
+    RecordingPreparedStatement stmnt = new RecordingPreparedStatement();
+    stmnt.setObject(1, 5);
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("addBatch() is not supported by " + RecordingPreparedStatement.class.getName());
+    stmnt.addBatch();
+  }
+
+  @Test
+  public void testExecuteBatchNotSupportedByDefault() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("executeBatch() is not supported by " + RecordingPreparedStatement.class.getName());
+    new RecordingPreparedStatement().executeBatch();
+  }
+
+  @Test
+  public void testExecuteBatchFailure() throws Exception {
+    RecordingPreparedStatement stmnt = new RecordingPreparedStatement();
+    stmnt.failingExecution = 2;
+    try {
+      stmnt.executeBatch(Arrays.asList(Arrays.asList(1), Arrays.asList(2), Arrays.asList(3), Arrays.asList(4)));
+      fail();
+    } catch (PgqlBatchException e) {
+      assertEquals("Execution of set 3 of the batch failed: Execution failed", e.getMessage());
+      assertArrayEquals(new int[] { PreparedStatement.SUCCESS_NO_INFO, PreparedStatement.SUCCESS_NO_INFO },
+          e.getUpdateCounts());
+    }
+    assertEquals(Arrays.asList(Arrays.asList(1), Arrays.asList(2)), stmnt.executions);
+  }
+
+  @Test
+  public void testSelectNotExecutedAsBatch() throws Exception {
+    RecordingPreparedStatement stmnt = new RecordingPreparedStatement();
+    stmnt.statementType = StatementType.SELECT;
+    try {
+      stmnt.executeBatch(Arrays.asList(Arrays.asList(1), Arrays.asList(2)));
+      fail();
+    } catch (PgqlException e) {
+      assertEquals("A SELECT query cannot be executed as a batch", e.getMessage());
+    }
+    assertEquals(0, stmnt.executions.size());
+  }
+
+  /**
+   * Records the values of the parameters at each execution.
+   */
+  private static class RecordingPreparedStatement implements PreparedStatement {
+
+    private final List<Object> parameters = new ArrayList<>();
+
+    private final List<List<Object>> executions = new ArrayList<>();
+
+    private StatementType statementType = StatementType.GRAPH_MODIFY;
+
+    /**
+     * The index of the execution that fails, if any.
+     */
+    private int failingExecution = -1;
+
+    @Override
+    public StatementType getStatementType() {
+      return statementType;
+    }
+
+    @Override
+    public ResultSet<?> executeQuery() throws PgqlException {
+      throw new PgqlException("Not a SELECT query");
+    }
+
+    @Override
+    public boolean execute() throws PgqlException {
+      if (executions.size() == failingExecution) {
+        throw new PgqlException("Execution failed");
+      }
+      executions.add(new ArrayList<>(parameters));
+      return false;
+    }
+
+    @Override
+    public ResultSet<?> getResultSet() throws PgqlException {
+      return null;
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, LocalDate x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setTime(int parameterIndex, LocalTime x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, LocalDateTime x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimeWithTimezone(int parameterIndex, OffsetTime x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestampWithTimezone(int parameterIndex, OffsetDateTime x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    @Override
+    public void setArray(int parameterIndex, List<?> x) throws PgqlException {
+      setParameter(parameterIndex, x);
+    }
+
+    private void setParameter(int parameterIndex, Object value) {
+      while (parameters.size() < parameterIndex) {
+        parameters.add(null);
+      }
+      parameters.set(parameterIndex - 1, value);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
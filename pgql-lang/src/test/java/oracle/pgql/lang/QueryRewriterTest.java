@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.optimizer.BooleanSimplificationRule;
+import oracle.pgql.lang.optimizer.ConstantFoldingRule;
+import oracle.pgql.lang.optimizer.ContradictionDetectionRule;
+import oracle.pgql.lang.optimizer.DuplicateConjunctRemovalRule;
+import oracle.pgql.lang.optimizer.InValueListDeduplicationRule;
+import oracle.pgql.lang.optimizer.QueryRewriter;
+import oracle.pgql.lang.optimizer.RewriteResult;
+
+public class QueryRewriterTest extends AbstractPgqlTest {
+
+  private final QueryRewriter rewriter = new QueryRewriter();
+
+  @Test
+  public void testConstantFolding() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT 1 + 2 * 3, 'a' || 'b' FROM MATCH (n)").getGraphQuery();
+    RewriteResult result = rewriter.rewrite(query);
+    assertTrue(result.hasFired(ConstantFoldingRule.NAME));
+
+    List<ExpAsVar> projectionElements = query.getProjection().getElements();
+    assertEquals(ExpressionType.INTEGER, projectionElements.get(0).getExp().getExpType());
+    assertEquals(ExpressionType.STRING, projectionElements.get(1).getExp().getExpType());
+  }
+
+  @Test
+  public void testBooleanSimplification() throws Exception {
+    SelectQuery query = (SelectQuery) pgql
+        .parse("SELECT n.age FROM MATCH (n) WHERE NOT NOT (n.age > 18) AND (n.name = 'Ann' OR true)").getGraphQuery();
+    RewriteResult result = rewriter.rewrite(query);
+    assertTrue(result.hasFired(BooleanSimplificationRule.NAME));
+
+    Set<QueryExpression> constraints = query.getGraphPattern().getConstraints();
+    assertEquals(1, constraints.size());
+    assertEquals(ExpressionType.GREATER, constraints.iterator().next().getExpType());
+  }
+
+  @Test
+  public void testDuplicateConjunctRemoval() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT n.age FROM MATCH (n) WHERE (n.age > 18 OR n.age > 18)")
+        .getGraphQuery();
+    RewriteResult result = rewriter.rewrite(query);
+    assertTrue(result.hasFired(DuplicateConjunctRemovalRule.NAME));
+    assertEquals(ExpressionType.GREATER, query.getGraphPattern().getConstraints().iterator().next().getExpType());
+  }
+
+  @Test
+  public void testContradictionDetection() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT n.age FROM MATCH (n) WHERE n.age > 30 AND n.age <= 20")
+        .getGraphQuery();
+    RewriteResult result = rewriter.rewrite(query);
+    assertTrue(result.hasFired(ContradictionDetectionRule.NAME));
+    assertTrue(result.isUnsatisfiable());
+  }
+
+  @Test
+  public void testNoContradictionInProjection() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT n.age > 30 AND n.age <= 20 FROM MATCH (n)").getGraphQuery();
+    RewriteResult result = rewriter.rewrite(query);
+    assertFalse(result.hasFired(ContradictionDetectionRule.NAME));
+    assertFalse(result.isUnsatisfiable());
+  }
+
+  @Test
+  public void testInValueListDeduplication() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT n.name IN ('Ann', 'Ann') FROM MATCH (n)").getGraphQuery();
+    RewriteResult result = rewriter.rewrite(query);
+    assertTrue(result.hasFired(InValueListDeduplicationRule.NAME));
+    assertEquals(ExpressionType.EQUAL, query.getProjection().getElements().get(0).getExp().getExpType());
+  }
+
+  @Test
+  public void testNoRewrite() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT n.age FROM MATCH (n) WHERE n.age > 18").getGraphQuery();
+    RewriteResult result = rewriter.rewrite(query);
+    assertFalse(result.isQueryRewritten());
+  }
+}
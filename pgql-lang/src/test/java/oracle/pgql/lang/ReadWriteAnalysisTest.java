@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.analysis.AccessSet;
+import oracle.pgql.lang.analysis.ReadWriteAnalysis;
+
+public class ReadWriteAnalysisTest extends AbstractPgqlTest {
+
+  private ReadWriteAnalysis analyze(String query) throws Exception {
+    PgqlResult result = pgql.parse(query, new ExampleMetadataProvider());
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    return result.getReadWriteAnalysis();
+  }
+
+  private static Set<String> set(String... elements) {
+    return new HashSet<>(Arrays.asList(elements));
+  }
+
+  @Test
+  public void testLabeledVariables() throws Exception {
+    ReadWriteAnalysis analysis = analyze("SELECT n.firstName, e.since FROM MATCH (n:Person) -[e:knows]-> (m:Person)");
+    AccessSet readSet = analysis.getReadSet();
+    assertEquals(set("Person"), readSet.getVertexLabels());
+    assertEquals(Collections.singletonMap("Person", set("firstName")), readSet.getVertexProperties());
+    assertEquals(set("knows"), readSet.getEdgeLabels());
+    assertEquals(Collections.singletonMap("knows", set("since")), readSet.getEdgeProperties());
+    assertTrue(analysis.isReadOnly());
+  }
+
+  @Test
+  public void testLabelExpression() throws Exception {
+    ReadWriteAnalysis analysis = analyze("SELECT n.numericProp FROM MATCH (n:Person|University) -[e]-> (m) "
+        + "WHERE has_label(m, 'Person') OR has_label(m, 'University')");
+    AccessSet readSet = analysis.getReadSet();
+    assertEquals(set("Person", "University"), readSet.getVertexLabels());
+    Map<String, Set<String>> vertexProperties = readSet.getVertexProperties();
+    assertEquals(set("numericProp"), vertexProperties.get("Person"));
+    assertEquals(set("numericProp"), vertexProperties.get("University"));
+    assertEquals(set("knows", "studyAt"), readSet.getEdgeLabels());
+    assertTrue(readSet.getEdgeProperties().isEmpty());
+  }
+
+  @Test
+  public void testUnlabeledVariablesWithGraphSchema() throws Exception {
+    ReadWriteAnalysis analysis = analyze("SELECT e.since FROM MATCH (n) -[e]-> (m)");
+    AccessSet readSet = analysis.getReadSet();
+    assertEquals(set("Person", "University"), readSet.getVertexLabels());
+    assertEquals(set("knows", "studyAt"), readSet.getEdgeLabels());
+    assertEquals(set("since"), readSet.getEdgeProperties().get("knows"));
+    assertEquals(set("since"), readSet.getEdgeProperties().get("studyAt"));
+  }
+
+  @Test
+  public void testUnlabeledVariablesWithoutGraphSchema() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n.\"name\" FROM MATCH (n) -[e:\"knows\"]-> (m)");
+    AccessSet readSet = result.getReadWriteAnalysis().getReadSet();
+    assertEquals(Collections.singleton(null), readSet.getVertexLabels());
+    assertEquals(Collections.singletonMap(null, set("name")), readSet.getVertexProperties());
+    assertEquals(set("knows"), readSet.getEdgeLabels());
+  }
+
+  @Test
+  public void testSubquery() throws Exception {
+    ReadWriteAnalysis analysis = analyze(
+        "SELECT n.firstName FROM MATCH (n:Person) WHERE EXISTS ( SELECT * FROM MATCH (n) -[e:studyAt]-> (u) )");
+    AccessSet readSet = analysis.getReadSet();
+    assertEquals(set("Person", "University"), readSet.getVertexLabels());
+    assertEquals(set("studyAt"), readSet.getEdgeLabels());
+  }
+
+  @Test
+  public void testInsert() throws Exception {
+    ReadWriteAnalysis analysis = analyze("INSERT VERTEX v LABELS ( University ) PROPERTIES ( v.name = 'UC' )");
+    AccessSet writeSet = analysis.getWriteSet();
+    assertEquals(set("University"), writeSet.getVertexLabels());
+    assertEquals(Collections.singletonMap("University", set("name")), writeSet.getVertexProperties());
+    assertTrue(writeSet.getEdgeLabels().isEmpty());
+    assertFalse(analysis.isReadOnly());
+  }
+
+  @Test
+  public void testUpdate() throws Exception {
+    ReadWriteAnalysis analysis = analyze(
+        "UPDATE n SET ( n.firstName = m.firstName ) FROM MATCH (n:Person) -[e:knows]-> (m:Person)");
+    assertEquals(Collections.singletonMap("Person", set("firstName")), analysis.getReadSet().getVertexProperties());
+    AccessSet writeSet = analysis.getWriteSet();
+    assertTrue(writeSet.getVertexLabels().isEmpty());
+    assertEquals(Collections.singletonMap("Person", set("firstName")), writeSet.getVertexProperties());
+  }
+
+  @Test
+  public void testDelete() throws Exception {
+    AccessSet writeSet = analyze("DELETE e FROM MATCH (n:Person) -[e:knows]-> (m:Person)").getWriteSet();
+    assertTrue(writeSet.getVertexLabels().isEmpty());
+    assertEquals(set("knows"), writeSet.getEdgeLabels());
+
+    // deleting vertices also deletes their edges
+    writeSet = analyze("DELETE n FROM MATCH (n:University)").getWriteSet();
+    assertEquals(set("University"), writeSet.getVertexLabels());
+    assertEquals(set("knows", "studyAt"), writeSet.getEdgeLabels());
+  }
+
+  @Test
+  public void testConflicts() throws Exception {
+    ReadWriteAnalysis select = analyze("SELECT n.firstName FROM MATCH (n:Person)");
+    ReadWriteAnalysis updateFirstName = analyze("UPDATE n SET ( n.firstName = 'Bob' ) FROM MATCH (n:Person)");
+    ReadWriteAnalysis updateDob = analyze("UPDATE n SET ( n.dob = DATE '2000-01-01' ) FROM MATCH (n:Person)");
+    ReadWriteAnalysis insertUniversity = analyze("INSERT VERTEX v LABELS ( University )");
+    ReadWriteAnalysis insertPerson = analyze("INSERT VERTEX v LABELS ( Person )");
+
+    assertTrue(select.getReadSet().isAffectedBy(updateFirstName.getWriteSet()));
+    assertTrue(select.conflictsWith(updateFirstName));
+    assertFalse(select.conflictsWith(updateDob));
+    assertFalse(select.conflictsWith(insertUniversity));
+    assertTrue(select.conflictsWith(insertPerson));
+    assertFalse(updateFirstName.conflictsWith(updateDob)); // updating a property does not change which vertices match
+    assertTrue(updateFirstName.conflictsWith(updateFirstName));
+    assertFalse(select.conflictsWith(select));
+  }
+
+  @Test
+  public void testNotAnalyzed() throws Exception {
+    assertNull(pgql.parse("SELECT * FROM MATCH (n) WHERE").getReadWriteAnalysis());
+    assertNull(pgql.parse("DROP PROPERTY GRAPH g").getReadWriteAnalysis());
+  }
+
+  @Test
+  public void testCopy() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n.firstName FROM MATCH (n:Person)", new ExampleMetadataProvider());
+    assertEquals(result.getReadWriteAnalysis().toString(), result.copy().getReadWriteAnalysis().toString());
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import oracle.pgql.lang.engine.CsrGraphBuilder;
+import oracle.pgql.lang.engine.InMemoryEngine;
+import oracle.pgql.lang.engine.InMemoryPreparedStatement;
+
+public class ResultSetFormatterTest extends AbstractPgqlTest {
+
+  /**
+   * More rows than the sample from which the widths of the columns are computed and than the default print limit.
+   */
+  private static final int NUM_VERTICES = 1002;
+
+  private static InMemoryEngine engine;
+
+  /**
+   * Vertices with a property i = 0, 1, 2, ... and a name that is "a", except for the name of the last vertex, which is
+   * wider than the column.
+   */
+  @BeforeClass
+  public static void setUpGraph() {
+    CsrGraphBuilder builder = new CsrGraphBuilder();
+    for (int i = 0; i < NUM_VERTICES; i++) {
+      int vertex = builder.addVertex("Item");
+      builder.setVertexProperty(vertex, "i", i);
+      builder.setVertexProperty(vertex, "name", i == NUM_VERTICES - 1 ? "abcdefgh" : "a");
+    }
+    engine = new InMemoryEngine(builder.build());
+  }
+
+  private InMemoryPreparedStatement prepare(String query) throws Exception {
+    return engine.prepareStatement(pgql.parse(query).getPgqlStatement());
+  }
+
+  private static String[] lines(CharSequence output) {
+    return output.toString().split(System.lineSeparator());
+  }
+
+  @Test
+  public void testAppendable() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.i AS i, n.name AS name FROM MATCH (n) ORDER BY n.i")) {
+      StringBuilder output = new StringBuilder();
+      ResultSetFormatter.out(stmnt.executeQuery(), output, 2, 1);
+      String expected = String.join(System.lineSeparator(), //
+          "+----------+", //
+          "| i | name |", //
+          "+----------+", //
+          "| 1 | a    |", //
+          "| 2 | a    |", //
+          "+----------+") + System.lineSeparator();
+      assertEquals(expected, output.toString());
+
+      // the PrintStream variant prints the same
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (PrintStream printStream = new PrintStream(bytes, true, "UTF-8")) {
+        ResultSetFormatter.out(stmnt.executeQuery(), printStream, 2, 1);
+      }
+      assertEquals(expected, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testRowWiderThanSample() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name AS name FROM MATCH (n) ORDER BY n.i")) {
+      StringBuilder output = new StringBuilder();
+      ResultSetFormatter.out(stmnt.executeQuery(), output, NUM_VERTICES, 0);
+      String[] lines = lines(output);
+      assertEquals(NUM_VERTICES + 4, lines.length);
+      // the width of the column is computed from the first 1000 rows, so the wider last row extends beyond the table
+      assertEquals("+------+", lines[0]);
+      assertEquals("| name |", lines[1]);
+      assertEquals("| a    |", lines[3]);
+      assertEquals("| abcdefgh |", lines[NUM_VERTICES + 2]);
+      assertEquals("+------+", lines[NUM_VERTICES + 3]);
+    }
+  }
+
+  @Test
+  public void testTruncatedWithKnownNumberOfRows() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name AS name FROM MATCH (n) ORDER BY n.i")) {
+      ResultSet<?> resultSet = stmnt.executeQuery();
+      assertEquals(NUM_VERTICES, resultSet.getNumRows());
+      StringBuilder output = new StringBuilder();
+      ResultSetFormatter.out(resultSet, output);
+      String[] lines = lines(output);
+      // the first 1000 rows are printed
+      assertEquals(1000 + 4, lines.length);
+      // the column is widened to fit the message
+      assertEquals("+------------------------+", lines[0]);
+      assertEquals("| name                   |", lines[1]);
+      assertEquals("| a                      |", lines[1002]);
+      assertEquals("+... truncated 2 rows ...+", lines[1003]);
+    }
+  }
+
+  @Test
+  public void testTruncatedForwardOnly() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name AS name FROM MATCH (n)")) {
+      stmnt.setStreaming(true);
+      ResultSet<?> resultSet = stmnt.executeQuery();
+      assertEquals(-1, resultSet.getNumRows());
+      StringBuilder output = new StringBuilder();
+      ResultSetFormatter.out(resultSet, output);
+      String[] lines = lines(output);
+      assertEquals(1000 + 4, lines.length);
+      // without the number of rows, the message does not say how many rows were truncated
+      assertEquals("+----------------------+", lines[0]);
+      assertEquals("+... truncated rows ...+", lines[1003]);
+    }
+  }
+
+  @Test
+  public void testNotTruncated() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name AS name FROM MATCH (n) WHERE n.i < 3")) {
+      StringBuilder output = new StringBuilder();
+      ResultSetFormatter.out(stmnt.executeQuery(), output);
+      String[] lines = lines(output);
+      assertEquals(3 + 4, lines.length);
+      assertEquals("+------+", lines[6]);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.codec.PgqlStatementCodec;
+import oracle.pgql.lang.ddl.propertygraph.CreatePropertyGraph;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.StatementCopier;
+
+public class StatementCopierTest extends AbstractPgqlTest {
+
+  @Test
+  public void testSelect() throws Exception {
+    checkCopy("PATH p AS (a) -[e]-> (b) WHERE e.weight > 0.5\n" + //
+        "SELECT DISTINCT n.name AS name, COUNT(*) AS cnt, CASE n.age WHEN 1 THEN 'a' ELSE 'b' END AS c\n" + //
+        "FROM MATCH (n) -/:p*/-> (m) ON g\n" + //
+        "WHERE n.age IN (1, 2) AND EXISTS ( SELECT x FROM MATCH (m) -> (x) WHERE x.dob < DATE '2000-01-01' )\n" + //
+        "GROUP BY n, n.age\n" + //
+        "HAVING COUNT(*) > ?\n" + //
+        "ORDER BY name DESC\n" + //
+        "LIMIT 10 OFFSET ?");
+  }
+
+  @Test
+  public void testModify() throws Exception {
+    checkCopy("INSERT INTO g VERTEX v LABELS ( Person ) PROPERTIES ( v.name = n.name || '2' ),\n" + //
+        "                 EDGE e BETWEEN n AND v LABELS ( knows )\n" + //
+        "UPDATE m SET ( m.age = m.age + 1 )\n" + //
+        "DELETE x\n" + //
+        "FROM MATCH (n) -> (m), MATCH (x) WHERE n.age > ?");
+  }
+
+  @Test
+  public void testDdl() throws Exception {
+    checkCopy("CREATE PROPERTY GRAPH hr.g\n" + //
+        "  VERTEX TABLES (\n" + //
+        "    Person KEY ( id ) LABEL Person PROPERTIES ARE ALL COLUMNS EXCEPT ( ssn )\n" + //
+        "  )\n" + //
+        "  EDGE TABLES (\n" + //
+        "    knows SOURCE KEY ( a ) REFERENCES Person DESTINATION KEY ( b ) REFERENCES Person NO PROPERTIES\n" + //
+        "  )");
+    checkCopy("DROP PROPERTY GRAPH hr.g");
+  }
+
+  @Test
+  public void testSharedObjects() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT n.name AS name FROM MATCH (n) -> (m) ORDER BY name")
+        .getPgqlStatement();
+    SelectQuery copy = StatementCopier.copy(query);
+    QueryVertex n = copy.getGraphPattern().getVertices().stream() //
+        .filter(vertex -> vertex.getName().equals("n")) //
+        .findFirst().get();
+    assertSame(n, ((PropertyAccess) copy.getProjection().getElements().get(0).getExp()).getVariable());
+    assertNotSame(query.getProjection().getElements().get(0), copy.getProjection().getElements().get(0));
+
+    CreatePropertyGraph statement = StatementCopier.copy((CreatePropertyGraph) pgql.parse("CREATE PROPERTY GRAPH g "
+        + "VERTEX TABLES ( Person ) EDGE TABLES ( knows SOURCE Person DESTINATION Person )").getPgqlStatement());
+    assertSame(statement.getVertexTables().get(0), statement.getEdgeTables().get(0).getSourceVertexTable());
+  }
+
+  @Test
+  public void testCopyIsIndependent() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n FROM MATCH (n) WHERE n.age > 3");
+    String queryString = result.getGraphQuery().toString();
+    PgqlResult copy = result.copy();
+    assertEquals(result.getBindVariableCount(), copy.getBindVariableCount());
+    assertEquals(result.getGraphQuery(), copy.getGraphQuery());
+
+    copy.getGraphQuery().getGraphPattern().getVertices().iterator().next().setName("m");
+    copy.getGraphQuery().getGraphPattern().getConstraints()
+        .add(new Greater(new PropertyAccess(new QueryVertex("n", false), "x"), new ConstInteger(1)));
+    assertEquals(queryString, result.getGraphQuery().toString());
+  }
+
+  @Test
+  public void testNull() {
+    assertNull(StatementCopier.copy((PgqlStatement) null));
+  }
+
+  private void checkCopy(String statement) throws PgqlException {
+    PgqlResult result = pgql.parse(statement);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    PgqlStatement original = result.getPgqlStatement();
+    PgqlStatement copy = StatementCopier.copy(original);
+    assertNotSame(original, copy);
+    assertEquals(original, copy);
+    assertEquals(original.toString(), copy.toString());
+    // the encoding records which objects are shared, so equal encodings mean that the copy shares the same objects
+    assertArrayEquals(PgqlStatementCodec.encode(original), PgqlStatementCodec.encode(copy));
+  }
+}
@@ -0,0 +1,727 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import oracle.pgql.lang.AbstractPgqlTest;
+import oracle.pgql.lang.ColumnBatch;
+import oracle.pgql.lang.ColumnBatch.BooleanVector;
+import oracle.pgql.lang.ColumnBatch.DoubleVector;
+import oracle.pgql.lang.ColumnBatch.LongVector;
+import oracle.pgql.lang.ColumnBatch.StringVector;
+import oracle.pgql.lang.ColumnBatch.VectorType;
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ResultSetMetaData;
+import oracle.pgql.lang.ResultSets;
+import oracle.pgql.lang.ResultSets.Subscriber;
+import oracle.pgql.lang.ResultSets.Subscription;
+import oracle.pgql.lang.export.ArrowIpcExporter;
+import oracle.pgql.lang.export.ArrowStreamReader;
+import oracle.pgql.lang.export.ArrowStreamReader.Field;
+import oracle.pgql.lang.export.ArrowStreamReader.RecordBatch;
+import oracle.pgql.lang.export.CsvExporter;
+import oracle.pgql.lang.export.JsonLinesExporter;
+import oracle.pgql.lang.ir.PgqlStatement;
+
+public class InMemoryEngineTest extends AbstractPgqlTest {
+
+  private static InMemoryEngine engine;
+
+  @BeforeClass
+  public static void setUpGraph() {
+    CsrGraphBuilder builder = new CsrGraphBuilder();
+    int alice = addPerson(builder, "Alice", 30);
+    int bob = addPerson(builder, "Bob", 25);
+    int carol = addPerson(builder, "Carol", 35);
+    int acme = builder.addVertex("Company");
+    builder.setVertexProperty(acme, "name", "Acme");
+    builder.addEdge(alice, bob, "knows");
+    builder.addEdge(bob, carol, "knows");
+    builder.addEdge(alice, carol, "knows");
+    int worksAt = builder.addEdge(alice, acme, "worksAt");
+    builder.setEdgeProperty(worksAt, "since", 2015);
+    builder.addEdge(carol, acme, "worksAt");
+    engine = new InMemoryEngine(builder.build());
+  }
+
+  private static int addPerson(CsrGraphBuilder builder, String name, int age) {
+    int person = builder.addVertex("Person");
+    builder.setVertexProperty(person, "name", name);
+    builder.setVertexProperty(person, "age", age);
+    return person;
+  }
+
+  private InMemoryPreparedStatement prepare(String query) throws Exception {
+    return engine.prepareStatement(pgql.parse(query).getPgqlStatement());
+  }
+
+  private List<String> executeAndGetStrings(String query) throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare(query)) {
+      return getStrings(stmnt.executeQuery());
+    }
+  }
+
+  private static List<String> getStrings(InMemoryResultSet resultSet) throws PgqlException {
+    List<String> result = new ArrayList<>();
+    while (resultSet.next()) {
+      StringBuilder row = new StringBuilder();
+      for (int i = 1; i <= resultSet.getMetaData().getColumnCount(); i++) {
+        row.append(i == 1 ? "" : ",").append(resultSet.getString(i));
+      }
+      result.add(row.toString());
+    }
+    return result;
+  }
+
+  @Test
+  public void testMatchWithBindVariable() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare(
+        "SELECT m.name FROM MATCH (n:Person) -[:knows]-> (m:Person) WHERE n.name = ? ORDER BY m.name")) {
+      stmnt.setString(1, "Alice");
+      assertEquals(list("Bob", "Carol"), getStrings(stmnt.executeQuery()));
+      stmnt.setString(1, "Bob");
+      assertEquals(list("Carol"), getStrings(stmnt.executeQuery()));
+    }
+  }
+
+  @Test
+  public void testAnyDirectedEdges() throws Exception {
+    assertEquals(list("Alice", "Carol"),
+        executeAndGetStrings("SELECT m.name FROM MATCH (n) -[:knows]- (m) WHERE n.name = 'Bob' ORDER BY m.name"));
+  }
+
+  @Test
+  public void testCycle() throws Exception {
+    assertEquals(list("Alice,Bob,Carol"), executeAndGetStrings("SELECT a.name, b.name, c.name " //
+        + "FROM MATCH (a) -[:knows]-> (b) -[:knows]-> (c), MATCH (a) -[:knows]-> (c)"));
+  }
+
+  @Test
+  public void testEdgeProperties() throws Exception {
+    assertEquals(list("Alice,2015", "Carol,null"), executeAndGetStrings(
+        "SELECT p.name, e.since FROM MATCH (p) -[e:worksAt]-> (:Company) ORDER BY e.since"));
+  }
+
+  @Test
+  public void testGroupByAndHaving() throws Exception {
+    assertEquals(list("Alice,2,30.0", "Carol,2,28.0"), executeAndGetStrings( //
+        "SELECT n.name, COUNT(*), ROUND(AVG(m.age)) " //
+        + "FROM MATCH (n:Person) -[:knows]- (m) " //
+        + "GROUP BY n HAVING MIN(m.age) < 30 ORDER BY n.name"));
+  }
+
+  @Test
+  public void testAggregationResultTypes() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT MIN(n.age) AS minAge, SUM(n.age) AS sumAge, "
+        + "AVG(n.age) AS avgAge, MAX(n.name) AS maxName FROM MATCH (n:Person)")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      assertTrue(resultSet.next());
+      assertEquals(25, resultSet.getObject("minAge"));
+      assertEquals(90L, resultSet.getObject("sumAge"));
+      assertEquals(30.0, resultSet.getObject("avgAge"));
+      assertEquals("Carol", resultSet.getObject("maxName"));
+    }
+  }
+
+  @Test
+  public void testImplicitGroupingWithoutMatches() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT COUNT(*) AS cnt, MAX(n.age) AS maxAge "
+        + "FROM MATCH (n:Person) WHERE n.age > 100")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      assertTrue(resultSet.next());
+      assertEquals(0L, (long) resultSet.getLong("cnt"));
+      assertNull(resultSet.getInteger("maxAge"));
+      assertFalse(resultSet.next());
+    }
+  }
+
+  @Test
+  public void testDistinctLimitOffset() throws Exception {
+    assertEquals(list("Person"), executeAndGetStrings("SELECT DISTINCT label(n) AS lbl FROM MATCH (n) "
+        + "ORDER BY lbl LIMIT 5 OFFSET 1"));
+    assertEquals(2, executeAndGetStrings("SELECT n.name FROM MATCH (n) LIMIT 2").size());
+  }
+
+  @Test
+  public void testOrderByLimit() throws Exception {
+    assertEquals(list("Carol", "Alice"), executeAndGetStrings("SELECT n.name FROM MATCH (n:Person) "
+        + "ORDER BY n.age DESC LIMIT 2"));
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name AS name FROM MATCH (n) ORDER BY n.age, name "
+        + "LIMIT ? OFFSET 1")) {
+      stmnt.setInt(1, 2);
+      assertEquals(list("Alice", "Carol"), getStrings(stmnt.executeQuery()));
+      stmnt.setInt(1, 0);
+      assertEquals(list(), getStrings(stmnt.executeQuery()));
+    }
+    assertEquals(list("Bob,1"), executeAndGetStrings("SELECT m.name, COUNT(*) AS cnt "
+        + "FROM MATCH (n) -[:knows]-> (m) GROUP BY m.name ORDER BY cnt DESC, m.name LIMIT 2 OFFSET 1"));
+  }
+
+  @Test
+  public void testLimitOffsetOverflow() throws Exception {
+    String[] queries = { //
+        "SELECT n.name AS name FROM MATCH (n:Person) ORDER BY name LIMIT ? OFFSET ?", //
+        "SELECT n.name AS name FROM MATCH (n:Person) LIMIT ? OFFSET ?", //
+        "SELECT DISTINCT n.name AS name FROM MATCH (n:Person) ORDER BY name LIMIT ? OFFSET ?" };
+    for (String query : queries) {
+      for (boolean streaming : new boolean[] { false, true }) {
+        try (InMemoryPreparedStatement stmnt = prepare(query)) {
+          stmnt.setStreaming(streaming);
+          stmnt.setLong(1, Long.MAX_VALUE);
+          stmnt.setLong(2, 1);
+          assertEquals(query, 2, getStrings(stmnt.executeQuery()).size());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCursor() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.age FROM MATCH (n:Person) ORDER BY n.age")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      assertTrue(resultSet.last());
+      assertEquals(35, (int) resultSet.getInteger(1));
+      assertTrue(resultSet.absolute(-3));
+      assertEquals(25, (int) resultSet.getInteger(1));
+      assertFalse(resultSet.previous());
+      assertFalse(resultSet.absolute(4));
+    }
+  }
+
+  @Test
+  public void testNextBatch() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name, n.age, n.age * 1.5, n.age > 28, label(n), n " //
+        + "FROM MATCH (n:Person) ORDER BY n.age")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      ColumnBatch batch = resultSet.nextBatch(2);
+      assertEquals(2, batch.getNumRows());
+      assertEquals("Alice", ((StringVector) batch.getColumn(1)).getString(1));
+      assertArrayEquals(new long[] { 25, 30 }, ((LongVector) batch.getColumn(2)).getValues());
+      assertArrayEquals(new double[] { 37.5, 45.0 }, ((DoubleVector) batch.getColumn(3)).getValues(), 0.0);
+      assertArrayEquals(new boolean[] { false, true }, ((BooleanVector) batch.getColumn(4)).getValues());
+      assertArrayEquals(new String[] { "Person" }, ((StringVector) batch.getColumn(5)).getDictionary());
+      assertEquals(VectorType.OBJECT, batch.getColumn(6).getType());
+      // the cursor is on the last row of the batch
+      assertEquals("Alice", resultSet.getString(1));
+
+      assertEquals(1, resultSet.nextBatch(2).getNumRows());
+      assertEquals(0, resultSet.nextBatch(2).getNumRows());
+      assertFalse(resultSet.next());
+    }
+
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT e.since FROM MATCH () -[e:worksAt]-> ()")) {
+      stmnt.setStreaming(true);
+      ColumnBatch batch = stmnt.executeQuery().nextBatch(10);
+      assertEquals(2, batch.getNumRows());
+      assertEquals(1, batch.getColumn(1).getNulls().cardinality());
+      assertEquals(list("2015", "null"), list(String.valueOf(batch.getColumn(1).getObject(0)),
+          String.valueOf(batch.getColumn(1).getObject(1))));
+    }
+  }
+
+  @Test
+  public void testNextBatchVectorTypes() throws Exception {
+    // one batch per row: the values of the second batch are all NULL, but the vectors follow the column types
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT e.since, e.since * 1.5, e.since > 2000, " //
+        + "CASE WHEN e.since IS NULL THEN 1 ELSE 1.5 END FROM MATCH () -[e:worksAt]-> () ORDER BY e.since")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      for (int i = 0; i < 2; i++) {
+        ColumnBatch batch = resultSet.nextBatch(1);
+        assertEquals(1, batch.getNumRows());
+        assertEquals(VectorType.LONG, batch.getColumn(1).getType());
+        assertEquals(VectorType.DOUBLE, batch.getColumn(2).getType());
+        assertEquals(VectorType.BOOLEAN, batch.getColumn(3).getType());
+        // the type of a CASE is not known before execution
+        assertEquals(VectorType.OBJECT, batch.getColumn(4).getType());
+      }
+      assertEquals(0, resultSet.nextBatch(1).getNumRows());
+    }
+  }
+
+  @Test
+  public void testPrimitiveGetters() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT e.since AS since, e.since > 2000 AS recent, p.age " //
+        + "FROM MATCH (p) -[e:worksAt]-> (:Company) ORDER BY e.since")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      assertTrue(resultSet.next());
+      assertEquals(2015L, resultSet.getLongValue(1));
+      assertFalse(resultSet.wasNull());
+      assertEquals(2015, resultSet.getIntegerValue("since"));
+      assertTrue(resultSet.getBooleanValue("recent"));
+      assertEquals(30.0, resultSet.getDoubleValue(3), 0.0);
+
+      assertTrue(resultSet.next());
+      assertEquals(0L, resultSet.getLongValue("since"));
+      assertTrue(resultSet.wasNull());
+      assertFalse(resultSet.getBooleanValue(2));
+      assertTrue(resultSet.isNull(2));
+      assertEquals(35.0f, resultSet.getFloatValue(3), 0.0f);
+      assertFalse(resultSet.wasNull());
+    }
+  }
+
+  @Test
+  public void testColumnMetaData() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare(
+        "SELECT n.name AS name, n.age AS age, n, n.age * 2 AS twice FROM MATCH (n:Person)")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      assertEquals(1, metaData.findColumn("name"));
+      assertEquals(2, metaData.findColumn("age"));
+      assertEquals(3, metaData.findColumn("n"));
+      assertEquals(2, resultSet.findColumn("age"));
+      assertEquals("STRING", metaData.getColumnTypeName(1));
+      assertEquals("INTEGER", metaData.getColumnTypeName(2));
+      assertEquals("VERTEX", metaData.getColumnTypeName(3));
+      assertEquals("LONG", metaData.getColumnTypeName(4));
+
+      thrown.expect(PgqlException.class);
+      thrown.expectMessage("Column nope does not exist");
+      metaData.findColumn("nope");
+    }
+  }
+
+  @Test
+  public void testNamedGetterOfUnknownColumn() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name AS name FROM MATCH (n:Person)")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      assertTrue(resultSet.next());
+      thrown.expect(PgqlException.class);
+      thrown.expectMessage("Column nope does not exist");
+      resultSet.getLong("nope");
+    }
+  }
+
+  @Test
+  public void testPublisher() throws Exception {
+    List<Object> names = new ArrayList<>();
+    List<String> signals = new ArrayList<>();
+    Subscriber<Object[]> subscriber = new Subscriber<Object[]>() {
+
+      private Subscription subscription;
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+
+      @Override
+      public void onNext(Object[] row) {
+        names.add(row[0]);
+        if (names.size() < 2) {
+          subscription.request(1);
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        signals.add("error");
+      }
+
+      @Override
+      public void onComplete() {
+        signals.add("complete");
+      }
+    };
+
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name FROM MATCH (n:Person) ORDER BY n.name")) {
+      // the rows are published on the calling thread, so the subscriber has received them upon return
+      ResultSets.toPublisher(stmnt.executeQuery(), Runnable::run, 1).subscribe(subscriber);
+      assertEquals(list("Alice", "Bob"), names);
+      assertEquals(list(), signals);
+
+      names.clear();
+      ResultSets.toPublisher(stmnt.executeQuery(), Runnable::run).subscribe(new Subscriber<Object[]>() {
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+          subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Object[] row) {
+          names.add(row[0]);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          signals.add("error");
+        }
+
+        @Override
+        public void onComplete() {
+          signals.add("complete");
+        }
+      });
+      assertEquals(list("Alice", "Bob", "Carol"), names);
+      assertEquals(list("complete"), signals);
+    }
+  }
+
+  @Test
+  public void testStream() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name, n.age FROM MATCH (n:Person) ORDER BY n.name")) {
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      assertEquals(3, resultSet.getNumRows());
+      assertEquals(list("Alice", "Bob", "Carol"),
+          resultSet.stream().parallel().map(row -> (String) row[0]).collect(Collectors.toList()));
+      assertEquals(90, resultSet.stream().parallel().mapToInt(row -> ((Number) row[1]).intValue()).sum());
+      // the stream does not move the cursor
+      assertTrue(resultSet.next());
+      assertEquals("Alice", resultSet.getString(1));
+    }
+  }
+
+  @Test
+  public void testExport() throws Exception {
+    String query = "SELECT n.name, n.age, e.since FROM MATCH (n:Person) -[e:worksAt]-> (c) ORDER BY n.name";
+    try (InMemoryPreparedStatement stmnt = prepare(query)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertEquals(2, new CsvExporter().export(stmnt.executeQuery(), Channels.newChannel(out)));
+      assertEquals("name,age,since\r\nAlice,30,2015\r\nCarol,35,\r\n", out.toString("UTF-8"));
+
+      out.reset();
+      new JsonLinesExporter().export(stmnt.executeQuery(), Channels.newChannel(out));
+      assertEquals("{\"name\":\"Alice\",\"age\":30,\"since\":2015}\n" //
+          + "{\"name\":\"Carol\",\"age\":35,\"since\":null}\n", out.toString("UTF-8"));
+
+      out.reset();
+      new ArrowIpcExporter().export(stmnt.executeQuery(), Channels.newChannel(out));
+      ArrowStreamReader arrow = new ArrowStreamReader(out.toByteArray());
+      List<Field> fields = arrow.getFields();
+      assertEquals(list("name", "age", "since"), fields.stream().map(f -> f.name).collect(Collectors.toList()));
+      assertTrue(fields.stream().allMatch(f -> f.nullable));
+      assertEquals(ArrowStreamReader.TYPE_UTF8, fields.get(0).type);
+      for (Field field : fields.subList(1, 3)) {
+        assertEquals(ArrowStreamReader.TYPE_INT, field.type);
+        assertEquals(64, field.typeParameter);
+        assertTrue(field.signed);
+      }
+
+      assertEquals(1, arrow.getBatches().size());
+      RecordBatch batch = arrow.getBatches().get(0);
+      assertEquals(2, batch.numRows);
+      assertArrayEquals(new long[] { 0, 0, 1 }, batch.nullCounts);
+      // without NULLs, the validity bitmap is omitted
+      assertEquals(0, batch.getBytes(0, 0).length);
+      ByteBuffer offsets = ByteBuffer.wrap(batch.getBytes(0, 1)).order(ByteOrder.LITTLE_ENDIAN);
+      assertEquals(0, offsets.getInt(0));
+      assertEquals(5, offsets.getInt(4));
+      assertEquals(10, offsets.getInt(8));
+      assertEquals("AliceCarol", new String(batch.getBytes(0, 2), StandardCharsets.UTF_8));
+      assertArrayEquals(new byte[] { 0b01 }, batch.getBytes(2, 0));
+      assertEquals(2015L, ByteBuffer.wrap(batch.getBytes(2, 1)).order(ByteOrder.LITTLE_ENDIAN).getLong(0));
+
+      assertEquals(Arrays.asList(Arrays.asList("Alice", 30L, 2015L), Arrays.asList("Carol", 35L, null)),
+          arrow.getRows());
+    }
+  }
+
+  @Test
+  public void testMissingParameter() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("No value specified for parameter 1");
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name FROM MATCH (n) WHERE n.age > ?")) {
+      stmnt.executeQuery();
+    }
+  }
+
+  @Test
+  public void testSelectInBatch() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("SELECT query cannot be executed as a batch");
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name FROM MATCH (n) WHERE n.age > ?")) {
+      stmnt.executeBatch(Collections.singletonList(Collections.singletonList(30)));
+    }
+  }
+
+  @Test
+  public void testReachability() throws Exception {
+    assertEquals(list("Bob", "Carol"), executeAndGetStrings(
+        "SELECT m.name FROM MATCH (n) -/:knows+/-> (m) WHERE n.name = 'Alice' ORDER BY m.name"));
+    assertEquals(list("Alice", "Bob", "Carol"), executeAndGetStrings(
+        "SELECT m.name FROM MATCH (n) -/:knows*/- (m) WHERE n.name = 'Bob' ORDER BY m.name"));
+    assertEquals(list("Alice"), executeAndGetStrings(
+        "SELECT n.name FROM MATCH (n) -/:knows{2}/-> (m) WHERE m.name = 'Carol'"));
+  }
+
+  @Test
+  public void testShortestPaths() throws Exception {
+    // Alice knows Carol directly and via Bob
+    assertEquals(list("Bob,1", "Carol,2"), executeAndGetStrings("SELECT m.name, COUNT(*) " //
+        + "FROM MATCH TOP 2 SHORTEST (n) -[e:knows]->+ (m) WHERE n.name = 'Alice' GROUP BY m ORDER BY m.name"));
+    assertEquals(list("Carol,1"), executeAndGetStrings("SELECT m.name, COUNT(*) " //
+        + "FROM MATCH ALL SHORTEST (n) -[e:knows]->+ (m) WHERE n.name = 'Alice' AND m.name = 'Carol' GROUP BY m"));
+  }
+
+  @Test
+  public void testCheapestPaths() throws Exception {
+    assertEquals(list("Acme"), executeAndGetStrings("SELECT m.name " //
+        + "FROM MATCH ANY CHEAPEST (n) (-[e:worksAt]-> COST 1)+ (m) WHERE n.name = 'Carol'"));
+  }
+
+  @Test
+  public void testOneRowPerVertexAndEdge() throws Exception {
+    // Alice -> Carol followed by Alice -> Bob -> Carol
+    assertEquals(list("Alice", "Carol", "Alice", "Bob", "Carol"), executeAndGetStrings("SELECT v.name " //
+        + "FROM MATCH TOP 2 SHORTEST (n) -[e:knows]->+ (m) ONE ROW PER VERTEX (v) " //
+        + "WHERE n.name = 'Alice' AND m.name = 'Carol'"));
+    assertEquals(list("Alice", "Carol", "Alice", "Carol"), executeAndGetStrings("SELECT v.name " //
+        + "FROM MATCH TOP 2 SHORTEST (n) -[e:knows]->+ (m) ONE ROW PER VERTEX (v) " //
+        + "WHERE n.name = 'Alice' AND m.name = 'Carol' AND v.age > 26"));
+    // the path of length zero from Alice to Alice has no edges
+    assertEquals(list("Acme,2015"), executeAndGetStrings("SELECT m.name, x.since " //
+        + "FROM MATCH ANY SHORTEST (n) -[e:worksAt]->* (m) ONE ROW PER EDGE (x) WHERE n.name = 'Alice'"));
+  }
+
+  @Test
+  public void testPathsWithMultipleEdgesNotSupported() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("not supported by the in-memory engine");
+    prepare("PATH two_hops AS () -[:knows]-> () -[:knows]-> () " //
+        + "SELECT COUNT(*) FROM MATCH (n) -/:two_hops+/-> (m)");
+  }
+
+  @Test
+  public void testParallelExecution() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    InMemoryEngine sequentialEngine = new InMemoryEngine(graph, 1);
+    InMemoryEngine parallelEngine = new InMemoryEngine(graph, 4);
+    assertEquals(4, parallelEngine.getParallelism());
+
+    String[] queries = { //
+        "SELECT n.age, m.age FROM MATCH (n:Person) -[:knows]-> (m)", //
+        "SELECT n.age, COUNT(*), SUM(m.age), COUNT(DISTINCT m.age), ARRAY_AGG(m.age), LISTAGG(m.age, ';') " //
+            + "FROM MATCH (n:Person) -[:knows]-> (m) GROUP BY n.age", //
+        "SELECT COUNT(*) FROM MATCH (n:Person) -/:knows{1,2}/-> (m) WHERE n.age < 20 GROUP BY n" };
+    for (String query : queries) {
+      PgqlStatement statement = pgql.parse(query).getPgqlStatement();
+      // the rows of the chunks are combined in order, so the result is identical to the sequential result
+      try (InMemoryPreparedStatement sequentialStmnt = sequentialEngine.prepareStatement(statement);
+          InMemoryPreparedStatement parallelStmnt = parallelEngine.prepareStatement(statement)) {
+        assertEquals(getStrings(sequentialStmnt.executeQuery()), getStrings(parallelStmnt.executeQuery()));
+      }
+    }
+  }
+
+  @Test
+  public void testParallelExecutionError() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    PgqlStatement statement = pgql.parse("SELECT n.age / (m.age - 40) FROM MATCH (n:Person) -[:knows]-> (m)")
+        .getPgqlStatement();
+    try (InMemoryPreparedStatement stmnt = new InMemoryEngine(graph, 4).prepareStatement(statement)) {
+      // the exception of the task that failed is rethrown as is
+      thrown.expect(PgqlException.class);
+      thrown.expectMessage("Error while executing query: / by zero");
+      stmnt.executeQuery();
+    }
+  }
+
+  @Test
+  public void testGroupingWithSpilling() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    InMemoryEngine engine = new InMemoryEngine(graph, 4);
+    InMemoryEngine spillingEngine = new InMemoryEngine(graph, 4);
+    // a budget of a few hundred groups per table
+    spillingEngine.setAggregationMemoryBudget(32 * 1024);
+
+    String[] queries = { //
+        "SELECT n, m.age, COUNT(*), SUM(n.age), MIN(m.age), MAX(n.age), AVG(m.age) " //
+            + "FROM MATCH (n:Person) -[:knows]-> (m) GROUP BY n, m.age", //
+        // keys that are objects, which are spilled with their type
+        "SELECT n, a, COUNT(*), SUM(m.age) " //
+            + "FROM MATCH (n:Person) -[:knows]-> (m) GROUP BY n, CAST(m.age AS STRING) AS a", //
+        // keys that cannot be spilled, such that the groups are kept in memory
+        "SELECT n, lbls, COUNT(*) FROM MATCH (n:Person) -[:knows]-> (m) GROUP BY n, labels(m) AS lbls" };
+    for (String query : queries) {
+      PgqlStatement statement = pgql.parse(query).getPgqlStatement();
+      try (InMemoryPreparedStatement stmnt = engine.prepareStatement(statement);
+          InMemoryPreparedStatement spillingStmnt = spillingEngine.prepareStatement(statement)) {
+        List<String> expected = getStrings(stmnt.executeQuery());
+        List<String> actual = getStrings(spillingStmnt.executeQuery());
+        // spilled groups are produced per partition
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(query, expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testDistinctWithSpilling() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    InMemoryEngine engine = new InMemoryEngine(graph, 1);
+    InMemoryEngine spillingEngine = new InMemoryEngine(graph, 4);
+    // rounded up to the minimum budget of the distinct sets, which is exceeded by the values of the queries
+    spillingEngine.setAggregationMemoryBudget(1);
+
+    String[] queries = { //
+        "SELECT DISTINCT n, m.age FROM MATCH (n:Person) -[:knows]-> () -[:knows]-> (m)", //
+        "SELECT n.age, COUNT(DISTINCT m), COUNT(DISTINCT m.age * 0.5) " //
+            + "FROM MATCH (n:Person) -[:knows]-> () -[:knows]-> (m) GROUP BY n.age", //
+        "SELECT COUNT(DISTINCT m), COUNT(DISTINCT n.age) " //
+            + "FROM MATCH (n:Person) -[:knows]-> () -[:knows]-> (m)" };
+    for (String query : queries) {
+      // the first occurrences of the rows are kept in order, also if values were spilled
+      assertEquals(executeAndGetStrings(engine, query), executeAndGetStrings(spillingEngine, query));
+    }
+  }
+
+  @Test
+  public void testTopK() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    String match = "SELECT n.age AS a, m.age, n, m FROM MATCH (n:Person) -[:knows]-> (m) ";
+    String[] orderings = { "ORDER BY a DESC", "ORDER BY a, m.age DESC", "ORDER BY n.age + m.age DESC",
+        "ORDER BY m.age DESC, a", "ORDER BY m.salary, m.age" };
+    for (String ordering : orderings) {
+      List<String> sortedRows = executeAndGetStrings(new InMemoryEngine(graph, 1), match + ordering);
+      for (int parallelism : new int[] { 1, 4 }) {
+        // rows with equal keys keep the order of the full sort
+        assertEquals(sortedRows.subList(0, 20),
+            executeAndGetStrings(new InMemoryEngine(graph, parallelism), match + ordering + " LIMIT 20"));
+        assertEquals(sortedRows.subList(1000, 1037),
+            executeAndGetStrings(new InMemoryEngine(graph, parallelism), match + ordering + " LIMIT 37 OFFSET 1000"));
+      }
+    }
+  }
+
+  private List<String> executeAndGetStrings(InMemoryEngine engine, String query) throws Exception {
+    try (InMemoryPreparedStatement stmnt = engine.prepareStatement(pgql.parse(query).getPgqlStatement())) {
+      return getStrings(stmnt.executeQuery());
+    }
+  }
+
+  @Test
+  public void testStreaming() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    InMemoryEngine engine = new InMemoryEngine(graph, 4);
+    String[] queries = { //
+        "SELECT n.age, m.age FROM MATCH (n:Person) -[:knows]-> (m)", //
+        "SELECT n.age, m.age FROM MATCH (n:Person) -[:knows]-> (m) LIMIT 1000 OFFSET 300", //
+        "SELECT n, v.age FROM MATCH ANY SHORTEST (n:Person) -[:knows]->{1,3} (m) ONE ROW PER VERTEX (v) " //
+            + "WHERE n.age = 30" };
+    for (String query : queries) {
+      PgqlStatement statement = pgql.parse(query).getPgqlStatement();
+      try (InMemoryPreparedStatement stmnt = engine.prepareStatement(statement);
+          InMemoryPreparedStatement streamingStmnt = engine.prepareStatement(statement)) {
+        streamingStmnt.setStreaming(true);
+        InMemoryResultSet resultSet = streamingStmnt.executeQuery();
+        assertTrue(resultSet.isStreaming());
+        assertEquals(getStrings(stmnt.executeQuery()), getStrings(resultSet));
+      }
+    }
+
+    try (InMemoryPreparedStatement stmnt = engine.prepareStatement(pgql.parse(
+        "SELECT n.age, COUNT(*) FROM MATCH (n:Person) -[:knows]-> (m) GROUP BY n.age").getPgqlStatement())) {
+      // grouping needs all the matches before the first row is known
+      stmnt.setStreaming(true);
+      assertFalse(stmnt.executeQuery().isStreaming());
+    }
+  }
+
+  @Test
+  public void testStreamingIsForwardOnly() throws Exception {
+    try (InMemoryPreparedStatement stmnt = prepare("SELECT n.name FROM MATCH (n)")) {
+      stmnt.setStreaming(true);
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      assertTrue(resultSet.next());
+      thrown.expect(PgqlException.class);
+      thrown.expectMessage("only next() can be used to move the cursor");
+      resultSet.previous();
+    }
+  }
+
+  @Test
+  public void testStreamingError() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    PgqlStatement statement = pgql.parse("SELECT n.age / (m.age - 40) FROM MATCH (n:Person) -[:knows]-> (m)")
+        .getPgqlStatement();
+    try (InMemoryPreparedStatement stmnt = new InMemoryEngine(graph).prepareStatement(statement)) {
+      stmnt.setStreaming(true);
+      InMemoryResultSet resultSet = stmnt.executeQuery();
+      // the error surfaces once the cursor reaches the row that failed
+      thrown.expect(PgqlException.class);
+      thrown.expectMessage("Error while executing query: / by zero");
+      getStrings(resultSet);
+    }
+  }
+
+  @Test
+  public void testManyOpenStreamedResultSets() throws Exception {
+    CsrGraph graph = TestGraphs.generateGraph(10_000, 50_000, new Random(1));
+    InMemoryEngine engine = new InMemoryEngine(graph);
+    PgqlStatement statement = pgql.parse("SELECT n.age, m.age FROM MATCH ANY SHORTEST (n:Person) -[:knows]->{1,2} (m) "
+        + "WHERE n.age = 30").getPgqlStatement();
+    List<String> expectedRows;
+    try (InMemoryPreparedStatement stmnt = engine.prepareStatement(statement)) {
+      expectedRows = getStrings(stmnt.executeQuery());
+    }
+
+    // the rows are produced by the thread that moves the cursor, so any number of result sets can be open at a time
+    List<InMemoryPreparedStatement> statements = new ArrayList<>();
+    List<InMemoryResultSet> resultSets = new ArrayList<>();
+    List<List<String>> rows = new ArrayList<>();
+    try {
+      for (int i = 0; i < 200; i++) {
+        InMemoryPreparedStatement stmnt = engine.prepareStatement(statement);
+        statements.add(stmnt);
+        stmnt.setStreaming(true);
+        resultSets.add(stmnt.executeQuery());
+        rows.add(new ArrayList<>());
+      }
+      // the cursors advance in turns, with the path searches of all the result sets in progress
+      for (int row = 0; row < expectedRows.size(); row++) {
+        for (int i = 0; i < resultSets.size(); i++) {
+          InMemoryResultSet resultSet = resultSets.get(i);
+          assertTrue(resultSet.next());
+          rows.get(i).add(resultSet.getString(1) + "," + resultSet.getString(2));
+        }
+      }
+      for (int i = 0; i < resultSets.size(); i++) {
+        assertFalse(resultSets.get(i).next());
+        assertEquals(expectedRows, rows.get(i));
+      }
+    } finally {
+      for (InMemoryPreparedStatement stmnt : statements) {
+        stmnt.close();
+      }
+    }
+  }
+
+  @Test
+  public void testModificationsNotSupported() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("not supported by the in-memory engine");
+    prepare("INSERT VERTEX v LABELS (Person)");
+  }
+
+  private static List<String> list(String... values) {
+    List<String> result = new ArrayList<>();
+    for (String value : values) {
+      result.add(value);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.PathFindingGoal;
+
+public class PathFinderTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private CsrGraph graph;
+
+  private double[] weights;
+
+  /**
+   * 0 -> 1 -> 2 -> 3 -> 4 and 0 -> 5 -> 3, where the edges via vertex 5 are expensive, plus 4 -> 0 to close a cycle.
+   */
+  @Before
+  public void setUp() {
+    CsrGraphBuilder builder = new CsrGraphBuilder();
+    for (int i = 0; i < 6; i++) {
+      builder.addVertex("V");
+    }
+    int[][] edges = { { 0, 1, 1 }, { 1, 2, 1 }, { 2, 3, 1 }, { 3, 4, 1 }, { 0, 5, 5 }, { 5, 3, 5 }, { 4, 0, 1 } };
+    weights = new double[edges.length];
+    for (int[] edge : edges) {
+      weights[builder.addEdge(edge[0], edge[1], "E")] = edge[2];
+    }
+    graph = builder.build();
+  }
+
+  private PathFinder createPathFinder(PathFindingGoal goal, long minHops, long maxHops, int k, boolean withTies) {
+    return new PathFinder(goal, minHops, maxHops, k, withTies, new CsrAdjacency(graph, Direction.OUTGOING, null),
+        edge -> weights[edge]);
+  }
+
+  private static List<Integer> getLengths(List<Path> paths) {
+    List<Integer> result = new ArrayList<>();
+    for (Path path : paths) {
+      result.add(path.getLength());
+    }
+    return result;
+  }
+
+  @Test
+  public void testReaches() {
+    PathFinder pathFinder = createPathFinder(PathFindingGoal.REACHES, 1, -1, 1, false);
+    assertTrue(pathFinder.reaches(0, 4));
+    assertTrue(pathFinder.reaches(4, 3));
+    // the shortest cycle has 4 hops
+    assertTrue(pathFinder.reaches(0, 0));
+    assertFalse(createPathFinder(PathFindingGoal.REACHES, 1, 3, 1, false).reaches(0, 0));
+    assertFalse(createPathFinder(PathFindingGoal.REACHES, 1, 2, 1, false).reaches(0, 4));
+  }
+
+  @Test
+  public void testReachableWithMinHops() {
+    BitSet reachable = createPathFinder(PathFindingGoal.REACHES, 4, 4, 1, false).reachableFrom(0);
+    // 0 -> 1 -> 2 -> 3 -> 4 and 0 -> 5 -> 3 -> 4 -> 0
+    assertEquals("{0, 4}", reachable.toString());
+    assertEquals("{0, 1}", createPathFinder(PathFindingGoal.REACHES, 3, 3, 1, false).reachableTo(4).toString());
+  }
+
+  @Test
+  public void testAnyShortest() {
+    List<Path> paths = createPathFinder(PathFindingGoal.SHORTEST, 1, -1, 1, false).findPaths(0, 3);
+    assertEquals(1, paths.size());
+    Path path = paths.get(0);
+    assertEquals(2, path.getLength());
+    assertEquals(0, path.getSource());
+    assertEquals(5, path.getVertex(1));
+    assertEquals(3, path.getDestination());
+  }
+
+  @Test
+  public void testTopKShortest() {
+    PathFinder pathFinder = createPathFinder(PathFindingGoal.SHORTEST, 0, -1, 3, false);
+    List<Path> paths = pathFinder.findPaths(0, 3);
+    // the third shortest path goes around the cycle
+    assertEquals("[2, 3, 6]", getLengths(paths).toString());
+
+    List<Path> pathsFromSource = new ArrayList<>();
+    pathFinder.findPathsFrom(0, path -> path.getDestination() != 3 || pathsFromSource.add(path));
+    assertEquals(paths, pathsFromSource);
+
+    List<Path> pathsToDestination = new ArrayList<>();
+    pathFinder.findPathsTo(3, path -> path.getSource() != 0 || pathsToDestination.add(path));
+    assertEquals(getLengths(paths), getLengths(pathsToDestination));
+  }
+
+  @Test
+  public void testAllShortest() {
+    // 0 -> 1 -> 3 and 0 -> 2 -> 3
+    CsrGraphBuilder builder = new CsrGraphBuilder();
+    for (int i = 0; i < 4; i++) {
+      builder.addVertex("V");
+    }
+    builder.addEdge(0, 1, "E");
+    builder.addEdge(0, 2, "E");
+    builder.addEdge(1, 3, "E");
+    builder.addEdge(2, 3, "E");
+    CsrAdjacency adjacency = new CsrAdjacency(builder.build(), Direction.OUTGOING, null);
+    PathFinder pathFinder = new PathFinder(PathFindingGoal.SHORTEST, 1, -1, 1, true, adjacency, null);
+    assertEquals(2, pathFinder.findPaths(0, 3).size());
+    assertEquals(1, pathFinder.findPaths(0, 2).size());
+
+    List<Path> paths = new ArrayList<>();
+    pathFinder.findPathsFrom(0, paths::add);
+    assertEquals(4, paths.size());
+  }
+
+  @Test
+  public void testCheapest() {
+    List<Path> paths = createPathFinder(PathFindingGoal.CHEAPEST, 1, -1, 2, false).findPaths(0, 3);
+    assertEquals(2, paths.size());
+    assertEquals(3.0, paths.get(0).getCost(), 0.0);
+    assertEquals(1, paths.get(0).getVertex(1));
+    // going around the cycle once more is cheaper than the path via vertex 5
+    assertEquals(8.0, paths.get(1).getCost(), 0.0);
+    assertEquals(8, paths.get(1).getLength());
+
+    // with at most two hops, only the expensive path remains
+    paths = createPathFinder(PathFindingGoal.CHEAPEST, 1, 2, 1, false).findPaths(0, 3);
+    assertEquals(10.0, paths.get(0).getCost(), 0.0);
+  }
+
+  @Test
+  public void testAll() {
+    List<Integer> lengths = getLengths(createPathFinder(PathFindingGoal.ALL, 0, 9, 1, false).findPaths(0, 4));
+    Collections.sort(lengths);
+    // each of the two paths, optionally preceded by one of the two cycles
+    assertEquals("[3, 4, 7, 8, 8, 9]", lengths.toString());
+  }
+
+  @Test
+  public void testIteratePaths() {
+    for (PathFindingGoal goal : new PathFindingGoal[] { PathFindingGoal.SHORTEST, PathFindingGoal.ALL }) {
+      PathFinder pathFinder = createPathFinder(goal, 0, 9, 3, false);
+      List<Path> expected = new ArrayList<>();
+      pathFinder.findPathsFrom(0, expected::add);
+
+      // the paths are found one at a time, in the same order
+      try (PathFinder.PathIterator paths = pathFinder.iteratePathsFrom(0)) {
+        for (Path path : expected) {
+          assertEquals(path, paths.next());
+        }
+        assertNull(paths.next());
+      }
+
+      // a search that is closed before its end does not affect the next search
+      try (PathFinder.PathIterator paths = pathFinder.iteratePathsFrom(0)) {
+        paths.next();
+      }
+      List<Path> actual = new ArrayList<>();
+      pathFinder.findPathsFrom(0, actual::add);
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testAllRequiresUpperBound() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("upper bound");
+    createPathFinder(PathFindingGoal.ALL, 0, -1, 1, false);
+  }
+
+  @Test
+  public void testNegativeCost() {
+    weights[0] = -1;
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("non-negative");
+    createPathFinder(PathFindingGoal.CHEAPEST, 1, -1, 1, false).findPaths(0, 4);
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.engine;
+
+import java.util.Random;
+
+/**
+ * Graphs for the tests of the {@link InMemoryEngine}.
+ */
+final class TestGraphs {
+
+  private TestGraphs() {
+  }
+
+  /**
+   * Generates a graph in which 80% of the vertices are persons with an age and 20% are posts. Persons know other
+   * persons and like posts.
+   */
+  static CsrGraph generateGraph(int numVertices, int numEdges, Random random) {
+    CsrGraphBuilder builder = new CsrGraphBuilder();
+    int numPersons = numVertices / 5 * 4;
+    for (int v = 0; v < numVertices; v++) {
+      if (v < numPersons) {
+        builder.addVertex("Person");
+        builder.setVertexProperty(v, "age", 18 + random.nextInt(60));
+      } else {
+        builder.addVertex("Post");
+      }
+    }
+    int numPosts = numVertices - numPersons;
+    for (int e = 0; e < numEdges; e++) {
+      int src = random.nextInt(numPersons);
+      if (numPosts > 0 && random.nextInt(4) == 0) {
+        builder.addEdge(src, numPersons + random.nextInt(numPosts), "likes");
+      } else {
+        builder.addEdge(src, random.nextInt(numPersons), "knows");
+      }
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.export;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a stream in the Arrow IPC streaming format, as written by the {@link ArrowIpcExporter}. The messages are
+ * decoded from their FlatBuffers encoding following the Arrow format specification (Schema.fbs and Message.fbs),
+ * independently of the exporter, and their structure is validated on the way: the continuation markers, the alignment
+ * of the messages and buffers and the sizes of the buffers.
+ */
+public final class ArrowStreamReader {
+
+  public static final byte TYPE_INT = 2;
+
+  public static final byte TYPE_FLOATING_POINT = 3;
+
+  public static final byte TYPE_UTF8 = 5;
+
+  public static final byte TYPE_BOOL = 6;
+
+  public static final byte TYPE_DATE = 8;
+
+  public static final byte TYPE_TIMESTAMP = 10;
+
+  private static final short METADATA_VERSION_V5 = 4;
+
+  private static final byte MESSAGE_HEADER_SCHEMA = 1;
+
+  private static final byte MESSAGE_HEADER_RECORD_BATCH = 3;
+
+  private final List<Field> fields = new ArrayList<>();
+
+  private final List<RecordBatch> batches = new ArrayList<>();
+
+  /**
+   * A field of the schema.
+   */
+  public static final class Field {
+
+    public final String name;
+
+    public final boolean nullable;
+
+    /**
+     * The type of the member of the Type union, e.g. {@link #TYPE_INT}.
+     */
+    public final byte type;
+
+    /**
+     * The first member of the type table: the bit width of an Int, the precision of a FloatingPoint, or the unit of a
+     * Date or Timestamp; 0 for types without members.
+     */
+    public final int typeParameter;
+
+    /**
+     * Whether an Int is signed.
+     */
+    public final boolean signed;
+
+    Field(String name, boolean nullable, byte type, int typeParameter, boolean signed) {
+      this.name = name;
+      this.nullable = nullable;
+      this.type = type;
+      this.typeParameter = typeParameter;
+      this.signed = signed;
+    }
+  }
+
+  /**
+   * A record batch: per field the null count and the buffers, which are the validity bitmap followed by the value
+   * buffer or, for Utf8, the offset buffer and the data buffer.
+   */
+  public static final class RecordBatch {
+
+    public final int numRows;
+
+    public final long[] nullCounts;
+
+    public final List<List<ByteBuffer>> buffers;
+
+    RecordBatch(int numRows, long[] nullCounts, List<List<ByteBuffer>> buffers) {
+      this.numRows = numRows;
+      this.nullCounts = nullCounts;
+      this.buffers = buffers;
+    }
+
+    /**
+     * @return the bytes of the given buffer of the given field
+     */
+    public byte[] getBytes(int field, int buffer) {
+      ByteBuffer bytes = buffers.get(field).get(buffer).duplicate();
+      byte[] result = new byte[bytes.remaining()];
+      bytes.get(result);
+      return result;
+    }
+  }
+
+  public ArrowStreamReader(byte[] stream) {
+    ByteBuffer in = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+    while (true) {
+      check(in.position() % 8 == 0, "message at " + in.position() + " is not aligned to 8 bytes");
+      check(in.getInt() == 0xFFFFFFFF, "missing continuation marker");
+      int metadataLength = in.getInt();
+      if (metadataLength == 0) {
+        break;
+      }
+      check(metadataLength % 8 == 0, "metadata length " + metadataLength + " is not a multiple of 8");
+      ByteBuffer metadata = slice(in, in.position(), metadataLength);
+      in.position(in.position() + metadataLength);
+
+      Table message = new Table(metadata, metadata.getInt(0));
+      check(message.getShort(0) == METADATA_VERSION_V5, "metadata version is not V5");
+      byte headerType = message.getByte(1);
+      Table header = message.getTable(2);
+      long bodyLength = message.getLong(3);
+      check(bodyLength % 8 == 0 && in.position() + bodyLength <= in.limit(), "invalid body length " + bodyLength);
+      ByteBuffer body = slice(in, in.position(), (int) bodyLength);
+      in.position(in.position() + (int) bodyLength);
+
+      if (headerType == MESSAGE_HEADER_SCHEMA) {
+        check(fields.isEmpty() && batches.isEmpty() && bodyLength == 0, "unexpected schema message");
+        check(header.getShort(0) == 0, "schema is not little endian");
+        for (Table field : header.getTables(1)) {
+          Table type = field.getTable(3);
+          byte typeType = field.getByte(2);
+          check(field.getTables(5).isEmpty(), "field has children");
+          int typeParameter = typeType == TYPE_INT ? type.getInt(0) : type.getShort(0);
+          fields.add(new Field(field.getString(0), field.getBool(1), typeType, typeParameter, type.getBool(1)));
+        }
+      } else {
+        check(headerType == MESSAGE_HEADER_RECORD_BATCH, "unexpected message header type " + headerType);
+        readRecordBatch(header, body);
+      }
+    }
+    check(in.position() == in.limit(), "data after the end-of-stream marker");
+  }
+
+  private void readRecordBatch(Table header, ByteBuffer body) {
+    long numRows = header.getLong(0);
+    long[] nodes = header.getLongPairs(1);
+    long[] bufferLocations = header.getLongPairs(2);
+    check(nodes.length == 2 * fields.size(), "expected a field node per field");
+    long[] nullCounts = new long[fields.size()];
+    List<List<ByteBuffer>> buffers = new ArrayList<>();
+    int nextBuffer = 0;
+    for (int i = 0; i < fields.size(); i++) {
+      check(nodes[2 * i] == numRows, "field " + i + " does not have " + numRows + " rows");
+      nullCounts[i] = nodes[2 * i + 1];
+      int numBuffers = fields.get(i).type == TYPE_UTF8 ? 3 : 2;
+      List<ByteBuffer> fieldBuffers = new ArrayList<>();
+      for (int j = 0; j < numBuffers; j++, nextBuffer++) {
+        long offset = bufferLocations[2 * nextBuffer];
+        long length = bufferLocations[2 * nextBuffer + 1];
+        check(offset % 8 == 0 && offset + length <= body.limit(), "invalid buffer " + nextBuffer);
+        fieldBuffers.add(slice(body, (int) offset, (int) length));
+      }
+      buffers.add(fieldBuffers);
+    }
+    check(2 * nextBuffer == bufferLocations.length, "unexpected buffers");
+    batches.add(new RecordBatch((int) numRows, nullCounts, buffers));
+  }
+
+  public List<Field> getFields() {
+    return fields;
+  }
+
+  public List<RecordBatch> getBatches() {
+    return batches;
+  }
+
+  /**
+   * @return the values of the rows of all record batches, decoded according to the types of the fields
+   */
+  public List<List<Object>> getRows() {
+    List<List<Object>> rows = new ArrayList<>();
+    for (RecordBatch batch : batches) {
+      for (int row = 0; row < batch.numRows; row++) {
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = getValue(batch, i, row);
+        }
+        rows.add(Arrays.asList(values));
+      }
+    }
+    return rows;
+  }
+
+  private Object getValue(RecordBatch batch, int field, int row) {
+    List<ByteBuffer> buffers = batch.buffers.get(field);
+    ByteBuffer validity = buffers.get(0);
+    if (validity.limit() > 0 && !getBit(validity, row)) {
+      return null;
+    }
+    ByteBuffer values = buffers.get(1);
+    switch (fields.get(field).type) {
+      case TYPE_INT:
+        return values.getLong(8 * row);
+      case TYPE_FLOATING_POINT:
+        return values.getDouble(8 * row);
+      case TYPE_BOOL:
+        return getBit(values, row);
+      case TYPE_DATE:
+        return LocalDate.ofEpochDay(values.getInt(4 * row));
+      case TYPE_TIMESTAMP: {
+        long micros = values.getLong(8 * row);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+            (int) Math.floorMod(micros, 1_000_000) * 1000, ZoneOffset.UTC);
+      }
+      case TYPE_UTF8: {
+        int start = values.getInt(4 * row);
+        int end = values.getInt(4 * (row + 1));
+        byte[] bytes = new byte[end - start];
+        ByteBuffer data = buffers.get(2).duplicate();
+        data.position(start);
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+      default:
+        throw new IllegalStateException("Unsupported type " + fields.get(field).type);
+    }
+  }
+
+  private static boolean getBit(ByteBuffer bitmap, int index) {
+    return (bitmap.get(index >> 3) & (1 << (index & 7))) != 0;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset);
+    duplicate.limit(offset + length);
+    return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new IllegalStateException("Invalid Arrow stream: " + message);
+    }
+  }
+
+  /**
+   * A FlatBuffers table: a signed offset to its vtable, followed by its fields, which are located through the vtable.
+   */
+  private static final class Table {
+
+    private final ByteBuffer buffer;
+
+    private final int position;
+
+    private final int vtable;
+
+    Table(ByteBuffer buffer, int position) {
+      check(position % 4 == 0, "table at " + position + " is not aligned");
+      this.buffer = buffer;
+      this.position = position;
+      this.vtable = position - buffer.getInt(position);
+    }
+
+    /**
+     * @return the offset of the field from the start of the table, or 0 if the field is absent
+     */
+    private int getOffset(int field) {
+      int vtableSize = buffer.getShort(vtable) & 0xFFFF;
+      return 4 + 2 * field < vtableSize ? buffer.getShort(vtable + 4 + 2 * field) & 0xFFFF : 0;
+    }
+
+    private int getAligned(int field, int size) {
+      int offset = getOffset(field);
+      check(offset == 0 || (position + offset) % size == 0, "field " + field + " is not aligned");
+      return offset == 0 ? -1 : position + offset;
+    }
+
+    byte getByte(int field) {
+      int at = getAligned(field, 1);
+      return at < 0 ? 0 : buffer.get(at);
+    }
+
+    boolean getBool(int field) {
+      return getByte(field) != 0;
+    }
+
+    short getShort(int field) {
+      int at = getAligned(field, 2);
+      return at < 0 ? 0 : buffer.getShort(at);
+    }
+
+    int getInt(int field) {
+      int at = getAligned(field, 4);
+      return at < 0 ? 0 : buffer.getInt(at);
+    }
+
+    long getLong(int field) {
+      int at = getAligned(field, 8);
+      return at < 0 ? 0 : buffer.getLong(at);
+    }
+
+    /**
+     * @return the position of the object that the field refers to
+     */
+    private int getReference(int field) {
+      int at = getAligned(field, 4);
+      check(at >= 0, "missing field " + field);
+      return at + buffer.getInt(at);
+    }
+
+    Table getTable(int field) {
+      return new Table(buffer, getReference(field));
+    }
+
+    String getString(int field) {
+      int at = getReference(field);
+      int length = buffer.getInt(at);
+      check(buffer.get(at + 4 + length) == 0, "string is not null-terminated");
+      byte[] bytes = new byte[length];
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(at + 4);
+      duplicate.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    List<Table> getTables(int field) {
+      int at = getReference(field);
+      int length = buffer.getInt(at);
+      List<Table> tables = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        int element = at + 4 + 4 * i;
+        tables.add(new Table(buffer, element + buffer.getInt(element)));
+      }
+      return tables;
+    }
+
+    /**
+     * @return the members of a vector of structs of two longs, e.g. FieldNode or Buffer
+     */
+    long[] getLongPairs(int field) {
+      int at = getReference(field);
+      int length = buffer.getInt(at);
+      check((at + 4) % 8 == 0, "vector of structs is not aligned");
+      long[] values = new long[2 * length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = buffer.getLong(at + 4 + 8 * i);
+      }
+      return values;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.metadata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ir.Direction;
+
+public class InMemoryStatisticsProviderTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void testLoad() throws Exception {
+    String statistics = "# statistics of a small social network\n" //
+        + "VERTEX_COUNT\t\t5000\n" //
+        + "VERTEX_COUNT\tPerson\t4000\n" //
+        + "EDGE_COUNT\tknows\t80000\n" //
+        + "DEGREE\tPerson\tknows\tOUTGOING\t0:100 10:1900 30:2000\n" //
+        + "PROPERTY\tPerson\tage\t3900\t100\t80\t0\t99\n" //
+        + "PROPERTY\tPerson\tname\t4000\t0\t3500\t'Ann'\t'Zoe'\n" //
+        + "PROPERTY\tPerson\tbirthday\t4000\t0\t3000\tDATE '1920-01-01'\tDATE '2020-12-31'\n" //
+        + "HISTOGRAM\tPerson\tage\t0.0,30.0,99.0\t2000,1900\t30,50\n";
+    InMemoryStatisticsProvider provider = InMemoryStatisticsProvider.load(new StringReader(statistics));
+
+    assertEquals(5000L, (long) provider.getVertexCount().get());
+    assertEquals(4000L, (long) provider.getVertexCount("Person").get());
+    assertFalse(provider.getEdgeCount().isPresent());
+    assertEquals(80000L, (long) provider.getEdgeCount("knows").get());
+
+    DegreeDistribution degreeDistribution = provider.getDegreeDistribution("Person", "knows", Direction.OUTGOING).get();
+    assertEquals(4000, degreeDistribution.getTotalVertexCount());
+    assertEquals(79000, degreeDistribution.getTotalDegree());
+    assertEquals(30, degreeDistribution.getMaxDegree());
+    assertEquals(10, degreeDistribution.getPercentile(50));
+    assertEquals(19.75, provider.getAverageDegree("Person", "knows", Direction.OUTGOING).get(), 0.0001);
+    assertFalse(provider.getAverageDegree("Person", "knows", Direction.INCOMING).isPresent());
+
+    PropertyStatistics age = provider.getPropertyStatistics("Person", "age").get();
+    assertEquals(80, age.getDistinctCount());
+    assertEquals(0L, age.getMinValue());
+    assertEquals(99L, age.getMaxValue());
+    assertEquals("Ann", provider.getPropertyStatistics("Person", "name").get().getMinValue());
+    assertEquals(LocalDate.of(2020, 12, 31), provider.getPropertyStatistics("Person", "birthday").get().getMaxValue());
+
+    Histogram histogram = provider.getHistogram("Person", "age").get();
+    assertEquals(3900, histogram.getTotalCount());
+    assertEquals(2000.0 / 3900, histogram.getLessThanSelectivity(30, false), 0.0001);
+  }
+
+  @Test
+  public void testStoreAndLoad() throws Exception {
+    InMemoryStatisticsProvider provider = new InMemoryStatisticsProvider();
+    provider.setVertexCount(null, 100);
+    provider.setEdgeCount("likes", 300);
+    provider.setDegreeDistribution(null, "likes", Direction.ANY,
+        new DegreeDistribution(new long[] { 1, 5 }, new long[] { 50, 50 }));
+    Histogram histogram = new Histogram(new double[] { 1.5, 2.5, 10 }, new long[] { 10, 20 }, new long[] { 2, 5 });
+    provider.setPropertyStatistics("Post", "score", new PropertyStatistics(30, 0, 7, 1.5, 10.0, histogram));
+
+    StringWriter writer = new StringWriter();
+    provider.store(writer);
+    InMemoryStatisticsProvider loadedProvider = InMemoryStatisticsProvider.load(new StringReader(writer.toString()));
+
+    assertEquals(100L, (long) loadedProvider.getVertexCount().get());
+    assertEquals(300L, (long) loadedProvider.getEdgeCount("likes").get());
+    assertEquals(3.0, loadedProvider.getAverageDegree(null, "likes", Direction.ANY).get(), 0.0001);
+    assertEquals(1.5, loadedProvider.getPropertyStatistics("Post", "score").get().getMinValue());
+    Histogram loadedHistogram = loadedProvider.getHistogram("Post", "score").get();
+    assertArrayEquals(histogram.getBucketCounts(), loadedHistogram.getBucketCounts());
+  }
+
+  @Test
+  public void testInvalidLine() throws Exception {
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("line 2");
+    InMemoryStatisticsProvider.load(new StringReader("VERTEX_COUNT\t\t10\nEDGE_COUNT\tknows\n"));
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2013 - 2022 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.metadata.AbstractStatisticsProvider;
+import oracle.pgql.lang.metadata.DegreeDistribution;
+import oracle.pgql.lang.metadata.InMemoryStatisticsProvider;
+
+/**
+ * Compares the number of intermediate rows of the plans chosen by the {@link MatchOrderPlanner} with the number of
+ * intermediate rows when matching in textual order, by executing both plans on a synthetic graph.
+ */
+public class MatchOrderPlannerTest {
+
+  private static SyntheticGraph graph;
+
+  private static MatchOrderPlanner planner;
+
+  @BeforeClass
+  public static void setUp() {
+    graph = new SyntheticGraph(new Random(42));
+    graph.addVertices("Person", 5000);
+    graph.addVertices("Forum", 50);
+    graph.addVertices("Tag", 20);
+    graph.addEdges("knows", "Person", "Person", 20);
+    graph.addEdges("memberOf", "Person", "Forum", 2);
+    graph.addEdges("hasTag", "Forum", "Tag", 1);
+    planner = new MatchOrderPlanner(graph.getStatistics());
+  }
+
+  @Test
+  public void testSelectiveEndOfChain() {
+    // (p:Person) -[:knows]-> (q:Person) -[:memberOf]-> (f:Forum) -[:hasTag]-> (t:Tag)
+    PatternBuilder pattern = new PatternBuilder();
+    QueryVertex p = pattern.vertex("p", "Person");
+    QueryVertex q = pattern.vertex("q", "Person");
+    QueryVertex f = pattern.vertex("f", "Forum");
+    QueryVertex t = pattern.vertex("t", "Tag");
+    pattern.edge(p, q, "knows");
+    pattern.edge(q, f, "memberOf");
+    pattern.edge(f, t, "hasTag");
+
+    MatchPlan plan = planner.plan(pattern.build());
+    assertEquals(t, ((ScanStep) plan.getSteps().get(0)).getVertex());
+    compare(pattern.build(), plan, 0.5);
+  }
+
+  @Test
+  public void testCycle() {
+    // (a:Person) -[:knows]-> (b:Person) -[:knows]-> (c:Person), (c) -[:memberOf]-> (f:Forum), (a) -[:memberOf]-> (f)
+    PatternBuilder pattern = new PatternBuilder();
+    QueryVertex a = pattern.vertex("a", "Person");
+    QueryVertex b = pattern.vertex("b", "Person");
+    QueryVertex c = pattern.vertex("c", "Person");
+    QueryVertex f = pattern.vertex("f", "Forum");
+    pattern.edge(a, b, "knows");
+    pattern.edge(b, c, "knows");
+    pattern.edge(c, f, "memberOf");
+    pattern.edge(a, f, "memberOf");
+
+    MatchPlan plan = planner.plan(pattern.build());
+    assertTrue(plan.getSteps().stream().anyMatch(s -> s instanceof ExpandStep && ((ExpandStep) s).isClosing()));
+    compare(pattern.build(), plan, 0.75);
+  }
+
+  @Test
+  public void testDisconnectedPattern() {
+    // (p:Person) -[:knows]-> (q:Person), (t:Tag)
+    PatternBuilder pattern = new PatternBuilder();
+    QueryVertex p = pattern.vertex("p", "Person");
+    QueryVertex q = pattern.vertex("q", "Person");
+    QueryVertex t = pattern.vertex("t", "Tag");
+    pattern.edge(p, q, "knows");
+
+    MatchPlan plan = planner.plan(pattern.build());
+    assertEquals(t, ((ScanStep) plan.getSteps().get(0)).getVertex());
+    assertEquals(3, plan.getSteps().size());
+  }
+
+  @Test
+  public void testDisconnectedExpensiveVertex() {
+    // (f:Forum) -[:hasTag]-> (t:Tag), (p:Person)
+    PatternBuilder pattern = new PatternBuilder();
+    QueryVertex f = pattern.vertex("f", "Forum");
+    QueryVertex t = pattern.vertex("t", "Tag");
+    QueryVertex p = pattern.vertex("p", "Person");
+    pattern.edge(f, t, "hasTag");
+
+    // the isolated vertex is the most expensive one, so it is scanned after all the connections are expanded
+    MatchPlan plan = planner.plan(pattern.build());
+    assertEquals(3, plan.getSteps().size());
+    assertEquals(p, ((ScanStep) plan.getSteps().get(2)).getVertex());
+  }
+
+  /**
+   * Asserts that the planned order produces at most the given fraction of the intermediate rows of the textual order,
+   * and that the estimated cost of the plan is within 5% of the actual number of intermediate rows.
+   */
+  private void compare(GraphPattern graphPattern, MatchPlan plan, double maxFraction) {
+    long plannedRows = graph.execute(plan, graphPattern);
+    long textualRows = graph.execute(getTextualPlan(graphPattern), graphPattern);
+    assertTrue(plannedRows + " intermediate rows in planned order, " + textualRows + " in textual order",
+        plannedRows <= textualRows * maxFraction);
+    assertEquals(plannedRows, plan.getEstimatedCost(), plannedRows * 0.05);
+  }
+
+  /**
+   * Scans the first vertex and then expands the connections in the order in which they appear in the query.
+   */
+  private static MatchPlan getTextualPlan(GraphPattern graphPattern) {
+    List<PlanStep> steps = new ArrayList<>();
+    Set<QueryVertex> bound = new LinkedHashSet<>();
+    QueryVertex first = graphPattern.getVertices().iterator().next();
+    steps.add(new ScanStep(first, graph.getLabels(graphPattern, first), Collections.emptyList(), 0));
+    bound.add(first);
+    for (VertexPairConnection connection : graphPattern.getConnections()) {
+      ExpansionDirection direction = bound.contains(connection.getSrc()) ? ExpansionDirection.FORWARD
+          : ExpansionDirection.BACKWARD;
+      QueryVertex to = direction == ExpansionDirection.FORWARD ? connection.getDst() : connection.getSrc();
+      steps.add(new ExpandStep(connection, direction, graph.getLabels(graphPattern, connection),
+          graph.getLabels(graphPattern, to), bound.contains(to), Collections.emptyList(), 0));
+      bound.add(to);
+    }
+    return new MatchPlan(steps);
+  }
+
+  private static class PatternBuilder {
+
+    final LinkedHashSet<QueryVertex> vertices = new LinkedHashSet<>();
+
+    final LinkedHashSet<VertexPairConnection> connections = new LinkedHashSet<>();
+
+    final LinkedHashSet<QueryExpression> constraints = new LinkedHashSet<>();
+
+    QueryVertex vertex(String name, String label) {
+      QueryVertex vertex = new QueryVertex(name, false);
+      vertices.add(vertex);
+      constraints.add(hasLabel(vertex, label));
+      return vertex;
+    }
+
+    void edge(QueryVertex src, QueryVertex dst, String label) {
+      QueryEdge edge = new QueryEdge(src, dst, "e" + connections.size(), false, Direction.OUTGOING);
+      connections.add(edge);
+      constraints.add(hasLabel(edge, label));
+    }
+
+    GraphPattern build() {
+      return new GraphPattern(vertices, connections, constraints);
+    }
+
+    private static QueryExpression hasLabel(QueryVariable variable, String label) {
+      return new FunctionCall("has_label", Arrays.asList(new VarRef(variable), new ConstString(label)));
+    }
+  }
+
+  /**
+   * A graph with randomly generated edges, stored as adjacency lists per edge label.
+   */
+  private static class SyntheticGraph {
+
+    final Random random;
+
+    final List<String> vertexLabels = new ArrayList<>();
+
+    final Map<String, List<Integer>> verticesPerLabel = new HashMap<>();
+
+    final Map<String, List<List<Integer>>> outNeighbors = new HashMap<>();
+
+    final Map<String, List<List<Integer>>> inNeighbors = new HashMap<>();
+
+    final Map<String, Long> edgeCounts = new HashMap<>();
+
+    SyntheticGraph(Random random) {
+      this.random = random;
+    }
+
+    void addVertices(String label, int count) {
+      List<Integer> vertices = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        vertices.add(vertexLabels.size());
+        vertexLabels.add(label);
+      }
+      verticesPerLabel.put(label, vertices);
+    }
+
+    void addEdges(String label, String srcLabel, String dstLabel, int averageOutDegree) {
+      List<List<Integer>> out = new ArrayList<>();
+      List<List<Integer>> in = new ArrayList<>();
+      for (int i = 0; i < vertexLabels.size(); i++) {
+        out.add(new ArrayList<>());
+        in.add(new ArrayList<>());
+      }
+      List<Integer> srcVertices = verticesPerLabel.get(srcLabel);
+      List<Integer> dstVertices = verticesPerLabel.get(dstLabel);
+      long count = (long) srcVertices.size() * averageOutDegree;
+      for (long i = 0; i < count; i++) {
+        int src = srcVertices.get(random.nextInt(srcVertices.size()));
+        int dst = dstVertices.get(random.nextInt(dstVertices.size()));
+        out.get(src).add(dst);
+        in.get(dst).add(src);
+      }
+      outNeighbors.put(label, out);
+      inNeighbors.put(label, in);
+      edgeCounts.put(label, count);
+    }
+
+    AbstractStatisticsProvider getStatistics() {
+      InMemoryStatisticsProvider statistics = new InMemoryStatisticsProvider();
+      statistics.setVertexCount(null, vertexLabels.size());
+      verticesPerLabel.forEach((label, vertices) -> statistics.setVertexCount(label, vertices.size()));
+      statistics.setEdgeCount(null, edgeCounts.values().stream().mapToLong(Long::longValue).sum());
+      edgeCounts.forEach((label, count) -> statistics.setEdgeCount(label, count));
+      for (String vertexLabel : verticesPerLabel.keySet()) {
+        for (String edgeLabel : edgeCounts.keySet()) {
+          statistics.setDegreeDistribution(vertexLabel, edgeLabel, Direction.OUTGOING,
+              getDegreeDistribution(vertexLabel, outNeighbors.get(edgeLabel)));
+          statistics.setDegreeDistribution(vertexLabel, edgeLabel, Direction.INCOMING,
+              getDegreeDistribution(vertexLabel, inNeighbors.get(edgeLabel)));
+        }
+      }
+      return statistics;
+    }
+
+    private DegreeDistribution getDegreeDistribution(String vertexLabel, List<List<Integer>> adjacency) {
+      TreeMap<Long, Long> vertexCountPerDegree = new TreeMap<>();
+      for (int vertex : verticesPerLabel.get(vertexLabel)) {
+        vertexCountPerDegree.merge((long) adjacency.get(vertex).size(), 1L, Long::sum);
+      }
+      return new DegreeDistribution( //
+          vertexCountPerDegree.keySet().stream().mapToLong(Long::longValue).toArray(), //
+          vertexCountPerDegree.values().stream().mapToLong(Long::longValue).toArray());
+    }
+
+    Set<String> getLabels(GraphPattern graphPattern, QueryVariable variable) {
+      for (QueryExpression constraint : graphPattern.getConstraints()) {
+        Set<String> labels = CardinalityEstimator.getLabels(constraint, variable);
+        if (labels != null) {
+          return labels;
+        }
+      }
+      return Collections.emptySet();
+    }
+
+    /**
+     * @return the total number of rows produced by all the steps of the plan
+     */
+    long execute(MatchPlan plan, GraphPattern graphPattern) {
+      Map<QueryVertex, Integer> columns = new HashMap<>();
+      List<int[]> rows = Collections.singletonList(new int[0]);
+      long intermediateRows = 0;
+      for (PlanStep step : plan.getSteps()) {
+        List<int[]> newRows = new ArrayList<>();
+        if (step instanceof ScanStep) {
+          ScanStep scan = (ScanStep) step;
+          int column = columns.size();
+          columns.put(scan.getVertex(), column);
+          for (int[] row : rows) {
+            for (int v = 0; v < vertexLabels.size(); v++) {
+              if (hasLabel(v, scan.getLabels())) {
+                newRows.add(append(row, v));
+              }
+            }
+          }
+        } else {
+          ExpandStep expand = (ExpandStep) step;
+          String edgeLabel = expand.getConnectionLabels().iterator().next();
+          List<List<Integer>> adjacency = (expand.getExpansionDirection() == ExpansionDirection.FORWARD
+              ? outNeighbors
+              : inNeighbors).get(edgeLabel);
+          int fromColumn = columns.get(expand.getFromVertex());
+          Integer toColumn = columns.get(expand.getToVertex());
+          if (toColumn == null) {
+            columns.put(expand.getToVertex(), columns.size());
+          }
+          for (int[] row : rows) {
+            for (int neighbor : adjacency.get(row[fromColumn])) {
+              if (toColumn != null) {
+                if (row[toColumn] == neighbor) {
+                  newRows.add(row);
+                }
+              } else if (hasLabel(neighbor, expand.getToVertexLabels())) {
+                newRows.add(append(row, neighbor));
+              }
+            }
+          }
+        }
+        rows = newRows;
+        intermediateRows += rows.size();
+      }
+      return intermediateRows;
+    }
+
+    private boolean hasLabel(int vertex, Set<String> labels) {
+      return labels.isEmpty() || labels.contains(vertexLabels.get(vertex));
+    }
+
+    private static int[] append(int[] row, int value) {
+      int[] result = Arrays.copyOf(row, row.length + 1);
+      result[row.length] = value;
+      return result;
+    }
+  }
+}